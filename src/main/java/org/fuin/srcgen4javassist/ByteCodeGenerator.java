@@ -17,6 +17,7 @@
  */
 package org.fuin.srcgen4javassist;
 
+import java.io.IOException;
 import java.lang.reflect.Constructor;
 import java.lang.reflect.InvocationTargetException;
 import java.security.ProtectionDomain;
@@ -125,7 +126,7 @@ public final class ByteCodeGenerator {
 
         // Create class
         final CtClass clasz = pool.makeClass(modelClass.getName());
-        clasz.setModifiers(SgUtils.toModifiers(modelClass.getModifiers()));
+        clasz.setModifiers(modelClass.getModifierMask());
 
         // Add superclass
         if (modelClass.getSuperClass() != null) {
@@ -238,6 +239,33 @@ public final class ByteCodeGenerator {
         return implClass;
     }
 
+    /**
+     * Generates the byte code for a model class without loading it. The
+     * Javassist class is removed from the pool afterwards, so calling this
+     * method again for the same model returns the same bytes.
+     * 
+     * @param modelClass
+     *            Model class to create the byte code for.
+     * 
+     * @return Content of the class file.
+     */
+    public final byte[] toByteCode(final SgClass modelClass) {
+        try {
+            final CtClass clasz = createCtClass(modelClass);
+            try {
+                return clasz.toBytecode();
+            } finally {
+                clasz.detach();
+            }
+        } catch (final NotFoundException e) {
+            throw new RuntimeException(e);
+        } catch (final CannotCompileException e) {
+            throw new RuntimeException(e);
+        } catch (final IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
     /**
      * Tries to load the model class calling <code>Class.forName(..)</code>.
      * 
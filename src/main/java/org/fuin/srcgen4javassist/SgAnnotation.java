@@ -17,10 +17,11 @@
  */
 package org.fuin.srcgen4javassist;
 
+import java.util.Arrays;
 import java.util.Collections;
-import java.util.HashMap;
 import java.util.Iterator;
 import java.util.Map;
+import java.util.TreeMap;
 
 /**
  * A annotation.
@@ -34,8 +35,15 @@ public final class SgAnnotation {
 
     private final String simpleName;
 
+    /** Arguments sorted by name, so the source doesn't depend on the order of adding. */
     private final Map<String, Object> arguments;
 
+    private volatile boolean frozen;
+
+    private Map<String, Object> frozenArguments;
+
+    private String source;
+
     /**
      * Constructor with package and name of the class.
      * 
@@ -61,7 +69,7 @@ public final class SgAnnotation {
         }
         this.simpleName = trimmed;
 
-        this.arguments = new HashMap<String, Object>();
+        this.arguments = new TreeMap<String, Object>();
     }
 
     /**
@@ -97,9 +105,14 @@ public final class SgAnnotation {
     /**
      * Returns the annotations arguments.
      * 
-     * @return Arguments - Always non-null, maybe empty and is unmodifiable.
+     * @return Arguments sorted by name - Always non-null, maybe empty and is
+     *         unmodifiable.
      */
     public final Map<String, Object> getArguments() {
+        final Map<String, Object> view = frozenArguments;
+        if (view != null) {
+            return view;
+        }
         return Collections.unmodifiableMap(arguments);
     }
 
@@ -118,48 +131,92 @@ public final class SgAnnotation {
         if (value == null) {
             throw new IllegalArgumentException("The argument 'value' cannot be null!");
         }
+        if (frozen) {
+            throw new IllegalStateException("The annotation '" + getName()
+                    + "' is frozen and cannot be changed!");
+        }
         arguments.put(name.trim(), value);
     }
 
+    /**
+     * Returns if the annotation cannot be changed any more.
+     * 
+     * @return If {@link SgClass#freeze()} was called for the owning class
+     *         <code>true</code> else <code>false</code>.
+     */
+    public final boolean isFrozen() {
+        return frozen;
+    }
+
+    /**
+     * Makes the annotation immutable. Calling this method more than once has
+     * no effect.
+     */
+    final void freeze() {
+        if (frozen) {
+            return;
+        }
+        source = toString();
+        frozenArguments = Collections.unmodifiableMap(arguments);
+        frozen = true;
+    }
+
+    /**
+     * Two annotations are equal if they have the same name and the same
+     * arguments. Array values are compared by their content.
+     * 
+     * @param obj
+     *            Object to compare with.
+     * 
+     * @return If the other object is an equal annotation <code>true</code>
+     *         else <code>false</code>.
+     */
+    @Override
+    public final boolean equals(final Object obj) {
+        if (this == obj) {
+            return true;
+        }
+        if (!(obj instanceof SgAnnotation)) {
+            return false;
+        }
+        final SgAnnotation other = (SgAnnotation) obj;
+        if (!simpleName.equals(other.simpleName) || !packageName.equals(other.packageName)
+                || (arguments.size() != other.arguments.size())) {
+            return false;
+        }
+        final Iterator<Map.Entry<String, Object>> it = arguments.entrySet().iterator();
+        while (it.hasNext()) {
+            final Map.Entry<String, Object> entry = it.next();
+            final Object otherValue = other.arguments.get(entry.getKey());
+            if ((otherValue == null)
+                    || !Arrays.deepEquals(new Object[] { entry.getValue() },
+                            new Object[] { otherValue })) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Returns a hash code based on the name of the annotation. The arguments
+     * are not included so the value never changes.
+     * 
+     * @return Hash code.
+     */
+    @Override
+    public final int hashCode() {
+        return 31 * packageName.hashCode() + simpleName.hashCode();
+    }
+
     /**
      * {@inheritDoc}
      */
     @Override
     public final String toString() {
-        final StringBuffer sb = new StringBuffer();
-        sb.append("@");
-        sb.append(getName());
-        if (arguments.size() > 0) {
-            sb.append("(");
-            if (arguments.size() == 1) {
-                final Iterator<String> it = arguments.keySet().iterator();
-                while (it.hasNext()) {
-                    final String name = it.next();
-                    final Object value = arguments.get(name);
-                    if (!name.equals("value")) {
-                        sb.append(name);
-                        sb.append("=");
-                    }
-                    sb.append(value);
-                }
-            } else {
-                int count = 0;
-                final Iterator<String> it = arguments.keySet().iterator();
-                while (it.hasNext()) {
-                    final String name = it.next();
-                    final Object value = arguments.get(name);
-                    if (count > 0) {
-                        sb.append(", ");
-                    }
-                    sb.append(name);
-                    sb.append("=");
-                    sb.append(value);
-                    count++;
-                }
-            }
-            sb.append(")");
+        if (source != null) {
+            return source;
         }
-        return sb.toString();
+        return SgSourceRenderer.toString(this, false, false);
     }
 
 }
@@ -86,22 +86,45 @@ public final class SgArgument extends SgVariable {
         return owner;
     }
 
+    /**
+     * Two arguments are equal if they have the same modifiers, type, name
+     * and annotations. The owning constructor or method is not compared.
+     * 
+     * @param obj
+     *            Object to compare with.
+     * 
+     * @return If the other object is equal <code>true</code> else
+     *         <code>false</code>.
+     */
+    @Override
+    public final boolean equals(final Object obj) {
+        if (this == obj) {
+            return true;
+        }
+        if (!(obj instanceof SgArgument)) {
+            return false;
+        }
+        return hasSameData((SgArgument) obj);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public final int hashCode() {
+        return getDataHashCode();
+    }
+
     /**
      * {@inheritDoc}
      */
     @Override
     public final String toString() {
-        final StringBuffer sb = new StringBuffer();
-        for (int i = 0; i < getAnnotations().size(); i++) {
-            sb.append(getAnnotations().get(i));
-            sb.append(" ");
-        }
-        if (getModifiers().length() == 0) {
-            sb.append(getType().getSourceName() + " " + getName());
-        } else {
-            sb.append(getModifiers() + " " + getType().getSourceName() + " " + getName());
+        final String frozenSource = getFrozenSource();
+        if (frozenSource != null) {
+            return frozenSource;
         }
-        return sb.toString();
+        return keepSource(SgSourceRenderer.toString(this, false, false));
     }
 
 }
@@ -30,11 +30,25 @@ public abstract class SgBehavior {
 
     private final String modifiers;
 
-    private final List<SgArgument> arguments;
+    /** Modifiers as bit mask or <code>-1</code> if not calculated yet. */
+    private int modifierMask = -1;
 
-    private final List<SgClass> exceptions;
+    /** Arguments or <code>null</code> if there are none. */
+    private ArrayList<SgArgument> arguments;
 
-    private final List<SgAnnotation> annotations;
+    /** Exceptions or <code>null</code> if there are none. */
+    private ArrayList<SgClass> exceptions;
+
+    /** Annotations or <code>null</code> if there are none. */
+    private ArrayList<SgAnnotation> annotations;
+
+    private volatile boolean frozen;
+
+    private List<SgArgument> frozenArguments;
+
+    private List<SgClass> frozenExceptions;
+
+    private List<SgAnnotation> frozenAnnotations;
 
     /**
      * Constructor with class and modifiers.
@@ -55,11 +69,7 @@ public abstract class SgBehavior {
         if (modifiers == null) {
             throw new IllegalArgumentException("The argument 'modifiers' cannot be null!");
         }
-        this.modifiers = modifiers;
-
-        this.arguments = new ArrayList<SgArgument>();
-        this.exceptions = new ArrayList<SgClass>();
-        annotations = new ArrayList<SgAnnotation>();
+        this.modifiers = modifiers.intern();
     }
 
     /**
@@ -80,13 +90,35 @@ public abstract class SgBehavior {
         return modifiers;
     }
 
+    /**
+     * Returns the modifiers as bit mask in the same format as
+     * <code>java.lang.reflect.Modifier</code>. The value is only calculated
+     * once. Throws an <code>IllegalArgumentException</code> if the modifiers
+     * contain an unknown name.
+     * 
+     * @return Modifiers - See {@link SgUtils#toModifiers(String)}.
+     */
+    public final int getModifierMask() {
+        int mask = modifierMask;
+        if (mask == -1) {
+            // Calculating the value twice in different threads does no harm
+            mask = SgUtils.toModifiers(modifiers);
+            modifierMask = mask;
+        }
+        return mask;
+    }
+
     /**
      * Returns the constructor/method arguments.
      * 
      * @return Arguments - Always non-null and is unmodifiable.
      */
     public final List<SgArgument> getArguments() {
-        return Collections.unmodifiableList(arguments);
+        final List<SgArgument> view = frozenArguments;
+        if (view != null) {
+            return view;
+        }
+        return SgLists.view(arguments);
     }
 
     private static final String commaSeparated(final List<SgArgument> args) {
@@ -120,7 +152,7 @@ public abstract class SgBehavior {
      * @return Arguments.
      */
     public final String getCommaSeparatedArgumentNames() {
-        return commaSeparated(arguments);
+        return commaSeparated(getArguments());
     }
 
     /**
@@ -138,9 +170,10 @@ public abstract class SgBehavior {
             throw new IllegalArgumentException("Only negative values are allowed! [" + less
                     + "]");
         }
-        final int count = arguments.size() + less;
+        final int size = SgLists.size(arguments);
+        final int count = size + less;
         if (count < 0) {
-            throw new IllegalArgumentException("There are only " + arguments.size()
+            throw new IllegalArgumentException("There are only " + size
                     + " arguments! Subtracting '" + less + "' would be below zero!");
         }
         final List<SgArgument> list = new ArrayList<SgArgument>();
@@ -156,7 +189,7 @@ public abstract class SgBehavior {
      * @return Last argument or null if the list is empty.
      */
     public final SgArgument getLastArgument() {
-        final int size = arguments.size();
+        final int size = SgLists.size(arguments);
         if (size == 0) {
             return null;
         }
@@ -179,9 +212,130 @@ public abstract class SgBehavior {
         if (arg.getOwner() != this) {
             throw new IllegalArgumentException("The owner of 'arg' is different from 'this'!");
         }
-        if (!arguments.contains(arg)) {
-            arguments.add(arg);
+        assertNotFrozen();
+        for (int i = 0; i < SgLists.size(arguments); i++) {
+            if (arguments.get(i) == arg) {
+                return;
+            }
+        }
+        arguments = SgLists.add(arguments, arg, 4);
+        argumentAdded(arg);
+    }
+
+    /**
+     * Called after an argument was added to the list. The default
+     * implementation does nothing.
+     * 
+     * @param arg
+     *            Argument that was added.
+     */
+    void argumentAdded(final SgArgument arg) {
+        // Nothing to do by default
+    }
+
+    /**
+     * Compares the modifiers, arguments, exceptions and annotations with
+     * another behavior. The owner is not compared.
+     * 
+     * @param other
+     *            Behavior to compare with - Cannot be null.
+     * 
+     * @return If all data is equal <code>true</code> else <code>false</code>.
+     */
+    final boolean hasSameData(final SgBehavior other) {
+        return modifiers.equals(other.modifiers) && SgLists.equals(arguments, other.arguments)
+                && SgLists.sameNames(exceptions, other.exceptions)
+                && SgLists.equals(annotations, other.annotations);
+    }
+
+    /**
+     * Throws an <code>IllegalStateException</code> if the behavior is frozen.
+     */
+    final void assertNotFrozen() {
+        if (frozen) {
+            throw new IllegalStateException("The constructor/method of class '"
+                    + owner.getName() + "' is frozen and cannot be changed!");
+        }
+    }
+
+    /**
+     * Passes the annotations, arguments (including their annotations),
+     * exceptions and body lines to a visitor.
+     * 
+     * @param visitor
+     *            Visitor to call.
+     * @param body
+     *            Body lines or <code>null</code>.
+     */
+    final void acceptContent(final SgVisitor visitor, final List<String> body) {
+        final int annotationCount = SgLists.size(annotations);
+        for (int i = 0; i < annotationCount; i++) {
+            visitor.visitAnnotation(annotations.get(i), i, annotationCount);
+        }
+        final int argumentCount = SgLists.size(arguments);
+        for (int i = 0; i < argumentCount; i++) {
+            final SgArgument argument = arguments.get(i);
+            visitor.visitArgument(argument, i, argumentCount);
+            argument.acceptAnnotations(visitor);
         }
+        final int exceptionCount = SgLists.size(exceptions);
+        for (int i = 0; i < exceptionCount; i++) {
+            visitor.visitException(exceptions.get(i), i, exceptionCount);
+        }
+        final int lineCount = SgLists.size(body);
+        for (int i = 0; i < lineCount; i++) {
+            visitor.visitBodyLine(body.get(i), i, lineCount);
+        }
+    }
+
+    /**
+     * Returns if the constructor/method cannot be changed any more.
+     * 
+     * @return If {@link SgClass#freeze()} was called for the owning class
+     *         <code>true</code> else <code>false</code>.
+     */
+    public final boolean isFrozen() {
+        return frozen;
+    }
+
+    /**
+     * Returns the number of collections the constructor/method has created.
+     * 
+     * @return Allocated lists.
+     */
+    int getAllocatedCollections() {
+        return SgLists.countAllocated(arguments, exceptions, annotations, frozenArguments,
+                frozenExceptions, frozenAnnotations);
+    }
+
+    /**
+     * Makes the behavior, it's arguments and annotations immutable. Calling
+     * this method more than once has no effect.
+     */
+    final void freeze() {
+        if (frozen) {
+            return;
+        }
+        for (int i = 0; i < SgLists.size(arguments); i++) {
+            arguments.get(i).freeze();
+        }
+        for (int i = 0; i < SgLists.size(annotations); i++) {
+            annotations.get(i).freeze();
+        }
+        freezing();
+        frozenArguments = SgLists.freeze(arguments);
+        frozenExceptions = SgLists.freeze(exceptions);
+        frozenAnnotations = SgLists.freeze(annotations);
+        frozen = true;
+    }
+
+    /**
+     * Called by {@link #freeze()} before the behavior is marked as frozen.
+     * Sub classes can precompute derived data here. The default
+     * implementation does nothing.
+     */
+    void freezing() {
+        // Nothing to do by default
     }
 
     /**
@@ -190,7 +344,11 @@ public abstract class SgBehavior {
      * @return List of exceptions - Always non-null and is unmodifiable.
      */
     public final List<SgClass> getExceptions() {
-        return Collections.unmodifiableList(exceptions);
+        final List<SgClass> view = frozenExceptions;
+        if (view != null) {
+            return view;
+        }
+        return SgLists.view(exceptions);
     }
 
     /**
@@ -204,10 +362,16 @@ public abstract class SgBehavior {
         if (clasz == null) {
             throw new IllegalArgumentException("The argument 'clasz' cannot be null!");
         }
+        assertNotFrozen();
         // TODO Check if any superclass is of type Exception.
-        if (!exceptions.contains(clasz)) {
-            exceptions.add(clasz);
+        if (exceptions != null) {
+            for (int i = 0; i < exceptions.size(); i++) {
+                if (SgClass.sameName(exceptions.get(i), clasz)) {
+                    return;
+                }
+            }
         }
+        exceptions = SgLists.add(exceptions, clasz, 2);
     }
 
     /**
@@ -216,7 +380,11 @@ public abstract class SgBehavior {
      * @return List of annotations - Always non-null and is unmodifiable
      */
     public final List<SgAnnotation> getAnnotations() {
-        return Collections.unmodifiableList(annotations);
+        final List<SgAnnotation> view = frozenAnnotations;
+        if (view != null) {
+            return view;
+        }
+        return SgLists.view(annotations);
     }
 
     /**
@@ -229,7 +397,8 @@ public abstract class SgBehavior {
         if (annotation == null) {
             throw new IllegalArgumentException("The argument 'annotation' cannot be NULL!");
         }
-        annotations.add(annotation);
+        assertNotFrozen();
+        this.annotations = SgLists.add(this.annotations, annotation, 2);
     }
 
     /**
@@ -243,7 +412,14 @@ public abstract class SgBehavior {
         if (annotations == null) {
             throw new IllegalArgumentException("The argument 'annotations' cannot be NULL!");
         }
-        this.annotations.addAll(annotations);
+        assertNotFrozen();
+        if (annotations.size() > 0) {
+            if (this.annotations == null) {
+                this.annotations = new ArrayList<SgAnnotation>(annotations);
+            } else {
+                this.annotations.addAll(annotations);
+            }
+        }
     }
 
     /**
@@ -258,7 +434,7 @@ public abstract class SgBehavior {
         if (name == null) {
             throw new IllegalArgumentException("The argument 'name' cannot be NULL!");
         }
-        for (int i = 0; i < annotations.size(); i++) {
+        for (int i = 0; i < SgLists.size(annotations); i++) {
             final SgAnnotation annotation = annotations.get(i);
             if (annotation.getName().equals(name)) {
                 return true;
@@ -0,0 +1,176 @@
+/**
+ * Copyright (C) 2009 Future Invent Informationsmanagement GmbH. All rights
+ * reserved. <http://www.fuin.org/>
+ * 
+ * This library is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation; either version 3 of the License, or (at your option) any
+ * later version.
+ * 
+ * This library is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ * details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this library. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.fuin.srcgen4javassist;
+
+/**
+ * Single difference between two versions of a class. See
+ * {@link SgClass#diff(SgClass)}.
+ */
+public final class SgChange {
+
+    /**
+     * Kind of change.
+     */
+    public enum Type {
+
+        /** The element only exists in the new class. */
+        ADDED,
+
+        /** The element only exists in the old class. */
+        REMOVED,
+
+        /** The element exists in both classes but is different. */
+        CHANGED
+
+    }
+
+    /**
+     * Kind of element that changed.
+     */
+    public enum Element {
+
+        /** Modifiers, name, super class or interface flag of the class. */
+        CLASS,
+
+        /** Implemented or extended interface. */
+        INTERFACE,
+
+        /** Annotation of the class. */
+        ANNOTATION,
+
+        /** Field. */
+        FIELD,
+
+        /** Constructor. */
+        CONSTRUCTOR,
+
+        /** Method. */
+        METHOD
+
+    }
+
+    private final Type type;
+
+    private final Element element;
+
+    private final String key;
+
+    private final Object oldValue;
+
+    private final Object newValue;
+
+    private final boolean bodyOnly;
+
+    /**
+     * Constructor with all data.
+     * 
+     * @param type
+     *            Kind of change - Cannot be null.
+     * @param element
+     *            Kind of element - Cannot be null.
+     * @param key
+     *            Name or signature of the element - Cannot be null.
+     * @param oldValue
+     *            Element of the old class or null if it was added.
+     * @param newValue
+     *            Element of the new class or null if it was removed.
+     * @param bodyOnly
+     *            If only the body of a constructor or method changed
+     *            <code>true</code> else <code>false</code>.
+     */
+    SgChange(final Type type, final Element element, final String key, final Object oldValue,
+            final Object newValue, final boolean bodyOnly) {
+        super();
+        this.type = type;
+        this.element = element;
+        this.key = key;
+        this.oldValue = oldValue;
+        this.newValue = newValue;
+        this.bodyOnly = bodyOnly;
+    }
+
+    /**
+     * Returns the kind of change.
+     * 
+     * @return Type - Always non-null.
+     */
+    public final Type getType() {
+        return type;
+    }
+
+    /**
+     * Returns the kind of element that changed.
+     * 
+     * @return Element - Always non-null.
+     */
+    public final Element getElement() {
+        return element;
+    }
+
+    /**
+     * Returns the key the elements were matched with. This is the full
+     * qualified name for classes, interfaces and annotations, the name for
+     * fields and the signature (like "methodXY(java.lang.String,int)") for
+     * methods. Constructors use the name "&lt;init&gt;".
+     * 
+     * @return Key - Always non-null.
+     */
+    public final String getKey() {
+        return key;
+    }
+
+    /**
+     * Returns the element of the old class.
+     * 
+     * @return Class, annotation, field, constructor, method or
+     *         <code>null</code> if the element was added.
+     */
+    public final Object getOldValue() {
+        return oldValue;
+    }
+
+    /**
+     * Returns the element of the new class.
+     * 
+     * @return Class, annotation, field, constructor, method or
+     *         <code>null</code> if the element was removed.
+     */
+    public final Object getNewValue() {
+        return newValue;
+    }
+
+    /**
+     * Returns if only the body lines of a constructor or method changed.
+     * Such changes don't affect the signature of the class.
+     * 
+     * @return If only the body is different <code>true</code> else
+     *         <code>false</code>.
+     */
+    public final boolean isBodyOnly() {
+        return bodyOnly;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public final String toString() {
+        return type + " " + element + " " + key + (bodyOnly ? " (body)" : "");
+    }
+
+}
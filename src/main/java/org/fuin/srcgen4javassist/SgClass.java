@@ -24,9 +24,18 @@ import java.lang.reflect.Method;
 import java.lang.reflect.Modifier;
 import java.math.BigDecimal;
 import java.math.BigInteger;
+import java.util.AbstractList;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.RandomAccess;
+import java.util.Set;
 
 /**
  * A class. TODO Add annotation handling
@@ -65,27 +74,91 @@ public final class SgClass {
 
     private final String modifiers;
 
+    /** Modifiers as bit mask or <code>-1</code> if not calculated yet. */
+    private int modifierMask = -1;
+
     private final String packageName;
 
     private final String simpleName;
 
-    private final List<SgClass> interfaces;
+    /** Interfaces or <code>null</code> if there are none. */
+    private ArrayList<SgClass> interfaces;
 
-    private final List<SgField> fields;
+    /** Fields or <code>null</code> if there are none. */
+    private ArrayList<SgField> fields;
 
     private final boolean isinterface;
 
-    private final SgClass superClass;
+    private SgClass superClass;
 
-    private final List<SgConstructor> constructors;
+    /** Constructors or <code>null</code> if there are none. */
+    private ArrayList<SgConstructor> constructors;
 
-    private final List<SgMethod> methods;
+    /** Methods or <code>null</code> if there are none. */
+    private ArrayList<SgMethod> methods;
 
-    private final List<SgClass> classes;
+    /** Inner classes or <code>null</code> if there are none. */
+    private ArrayList<SgClass> classes;
 
     private final SgClass enclosingClass;
 
-    private final List<SgAnnotation> annotations;
+    private final String name;
+
+    private final int hash;
+
+    /**
+     * Name used in method descriptors. Array types are modeled without a
+     * package, so for them this is the full qualified name of the component
+     * type followed by "[]".
+     */
+    private String descriptorName;
+
+    private final boolean primitive;
+
+    /** Annotations or <code>null</code> if there are none. */
+    private ArrayList<SgAnnotation> annotations;
+
+    private boolean stub;
+
+    /**
+     * All fields, constructors, methods and inner classes by identity. This and
+     * the following indexes are <code>null</code> until the first entry is
+     * added.
+     */
+    private Set<Object> members;
+
+    private Map<String, SgField> fieldsByName;
+
+    private Map<String, List<SgMethod>> methodsByName;
+
+    private Map<String, List<SgMethod>> methodsBySignature;
+
+    /** Number of signatures that are used by more than one method. */
+    private int duplicateSignatures;
+
+    private Map<String, SgClass> classesByName;
+
+    private Set<String> interfaceNames;
+
+    private Set<String> annotationNames;
+
+    /**
+     * Members are only appended to the lists and the indexes are created by
+     * {@link #endBulk()}.
+     */
+    private boolean bulk;
+
+    /** Frozen class this one is a variant of or <code>null</code>. */
+    private SgClass variantBase;
+
+    /** Members of the variant base replaced in this variant by identity. */
+    private Map<Object, Object> replacements;
+
+    private volatile boolean frozen;
+
+    private FrozenData frozenData;
+
+    private SgFingerprint fingerprint;
 
     /**
      * Basic constructor.
@@ -136,11 +209,35 @@ public final class SgClass {
      */
     public SgClass(final String modifiers, final String packageName, final String simpleName,
             final SgClass superClass, final boolean isinterface, final SgClass enclosingClass) {
+        this(modifiers, packageName, simpleName, superClass, isinterface, enclosingClass, false);
+    }
+
+    /**
+     * Constructor with all data.
+     * 
+     * @param modifiers
+     *            Modifier names separated with space - Cannot be null.
+     * @param packageName
+     *            Name of the package - Cannot be null.
+     * @param simpleName
+     *            Name (without package) of the class - Cannot be null.
+     * @param superClass
+     *            Super class or null.
+     * @param isinterface
+     *            Is this an interface?
+     * @param enclosingClass
+     *            Enclosing class if this is an inner class - Null is allowed
+     * @param stub
+     *            Is this a "names-only" stub?
+     */
+    SgClass(final String modifiers, final String packageName, final String simpleName,
+            final SgClass superClass, final boolean isinterface, final SgClass enclosingClass,
+            final boolean stub) {
         super();
 
-        this.modifiers = modifiers;
-        this.packageName = packageName;
-        this.simpleName = simpleName;
+        this.modifiers = modifiers.intern();
+        this.packageName = packageName.intern();
+        this.simpleName = simpleName.intern();
 
         this.superClass = superClass;
         if (isinterface && (superClass != null)) {
@@ -149,28 +246,52 @@ public final class SgClass {
                             + "Use 'addInterface(SgClass)' instead!");
         }
 
-        this.constructors = new ArrayList<SgConstructor>();
-        this.methods = new ArrayList<SgMethod>();
-        this.interfaces = new ArrayList<SgClass>();
-        this.fields = new ArrayList<SgField>();
         this.isinterface = isinterface;
-        this.classes = new ArrayList<SgClass>();
-        this.annotations = new ArrayList<SgAnnotation>();
+        this.stub = stub;
 
         this.enclosingClass = enclosingClass;
+        this.name = getName("$");
+        this.hash = name.hashCode();
+        this.descriptorName = name;
+        this.primitive = (enclosingClass == null) && (packageName.length() == 0)
+                && isPrimitiveName(simpleName);
         if (enclosingClass != null) {
             this.enclosingClass.addClass(this);
         }
 
     }
 
+    /**
+     * Constructor for a variant. The variant shares all members with the
+     * <code>base</code> except the ones registered with
+     * {@link #replaceMember(Object, Object)}.
+     * 
+     * @param base
+     *            Frozen top level class to create a variant of - Cannot be
+     *            null.
+     * @param packageName
+     *            Name of the package - Cannot be null.
+     * @param simpleName
+     *            Name (without package) of the class - Cannot be null.
+     */
+    SgClass(final SgClass base, final String packageName, final String simpleName) {
+        this(base.getModifiers(), packageName, simpleName, base.getSuperClass(), base
+                .isInterface(), null, false);
+        this.variantBase = base;
+        this.replacements = new IdentityHashMap<Object, Object>(4);
+    }
+
     /**
      * Returns the annotations for this class.
      * 
      * @return List of annotations - Always non-null and is unmodifiable
      */
     public final List<SgAnnotation> getAnnotations() {
-        return Collections.unmodifiableList(annotations);
+        final FrozenData data = frozenData;
+        if (data != null) {
+            return data.annotations;
+        }
+        return SgLists.view(annotations);
     }
 
     /**
@@ -183,7 +304,9 @@ public final class SgClass {
         if (annotation == null) {
             throw new IllegalArgumentException("The argument 'annotation' cannot be NULL!");
         }
-        annotations.add(annotation);
+        assertNotFrozen();
+        this.annotations = SgLists.add(this.annotations, annotation, 2);
+        addAnnotationName(annotation.getName());
     }
 
     /**
@@ -197,7 +320,19 @@ public final class SgClass {
         if (annotations == null) {
             throw new IllegalArgumentException("The argument 'annotations' cannot be NULL!");
         }
-        this.annotations.addAll(annotations);
+        assertNotFrozen();
+        for (int i = 0; i < annotations.size(); i++) {
+            this.annotations = SgLists.add(this.annotations, annotations.get(i), annotations
+                    .size());
+            addAnnotationName(annotations.get(i).getName());
+        }
+    }
+
+    private void addAnnotationName(final String name) {
+        if (annotationNames == null) {
+            annotationNames = new HashSet<String>(4);
+        }
+        annotationNames.add(name);
     }
 
     /**
@@ -212,13 +347,46 @@ public final class SgClass {
         if (name == null) {
             throw new IllegalArgumentException("The argument 'name' cannot be NULL!");
         }
-        for (int i = 0; i < annotations.size(); i++) {
-            final SgAnnotation annotation = annotations.get(i);
-            if (annotation.getName().equals(name)) {
-                return true;
-            }
+        if (variantBase != null) {
+            return variantBase.hasAnnotation(name);
         }
-        return false;
+        return (annotationNames != null) && annotationNames.contains(name);
+    }
+
+    /**
+     * Returns if this is a "names-only" stub created for a type that was
+     * outside the scope of the pool's {@link SgIntrospectionPolicy}. A stub has
+     * no super class, interfaces, fields, constructors, methods or inner
+     * classes.
+     * 
+     * @return If this class was not analyzed completely <code>true</code> else
+     *         <code>false</code>.
+     */
+    public final boolean isStub() {
+        return stub;
+    }
+
+    /**
+     * Turns this stub into a class that can be populated like any other one.
+     * The introspectors use this when a type first seen outside the scope of
+     * the policy is later requested as a full model. Models that already
+     * reference the stub see the full class that way.
+     * 
+     * @param superClass
+     *            Super class or <code>null</code>.
+     */
+    final void upgradeStub(final SgClass superClass) {
+        assertNotFrozen();
+        if (!stub) {
+            throw new IllegalStateException("The class '" + getName() + "' is not a stub!");
+        }
+        if (isinterface && (superClass != null)) {
+            throw new IllegalArgumentException(
+                    "This is an interface. You cannot set a super class. "
+                            + "Use 'addInterface(SgClass)' instead!");
+        }
+        this.superClass = superClass;
+        this.stub = false;
     }
 
     /**
@@ -246,7 +414,11 @@ public final class SgClass {
      * @return Constructor list - Always non-null and is unmodifiable.
      */
     public final List<SgConstructor> getConstructors() {
-        return Collections.unmodifiableList(constructors);
+        final FrozenData data = frozenData;
+        if (data != null) {
+            return data.constructors;
+        }
+        return SgLists.view(constructors);
     }
 
     /**
@@ -266,8 +438,17 @@ public final class SgClass {
             throw new IllegalArgumentException(
                     "The owner of 'constructor' is different from 'this'!");
         }
-        if (!constructors.contains(constructor)) {
-            constructors.add(constructor);
+        assertNotFrozen();
+        if (variantBase != null) {
+            // Registered with "replaceMember(..)"
+            return;
+        }
+        if (bulk) {
+            constructors = SgLists.add(constructors, constructor, 2);
+            return;
+        }
+        if (addMember(constructor)) {
+            constructors = SgLists.add(constructors, constructor, 2);
         }
     }
 
@@ -286,7 +467,11 @@ public final class SgClass {
      * @return Method list - Always non-null and is unmodifiable.
      */
     public final List<SgMethod> getMethods() {
-        return Collections.unmodifiableList(methods);
+        final FrozenData data = frozenData;
+        if (data != null) {
+            return data.methods;
+        }
+        return SgLists.view(methods);
     }
 
     /**
@@ -304,8 +489,83 @@ public final class SgClass {
         if (method.getOwner() != this) {
             throw new IllegalArgumentException("The owner of 'method' is different from 'this'!");
         }
-        if (!methods.contains(method)) {
-            methods.add(method);
+        assertNotFrozen();
+        if (variantBase != null) {
+            // Registered with "replaceMember(..)"
+            return;
+        }
+        if (bulk) {
+            methods = SgLists.add(methods, method, 8);
+            return;
+        }
+        if (addMember(method)) {
+            methods = SgLists.add(methods, method, 8);
+            if (methodsByName == null) {
+                methodsByName = new HashMap<String, List<SgMethod>>(8);
+            }
+            List<SgMethod> overloads = methodsByName.get(method.getName());
+            if (overloads == null) {
+                overloads = new ArrayList<SgMethod>(1);
+                methodsByName.put(method.getName(), overloads);
+            }
+            overloads.add(method);
+            addSignature(method.getSignatureKey(), method);
+        }
+    }
+
+    private boolean addMember(final Object member) {
+        if (members == null) {
+            members = Collections.newSetFromMap(new IdentityHashMap<Object, Boolean>(8));
+        }
+        return members.add(member);
+    }
+
+    private void addSignature(final String key, final SgMethod method) {
+        if (methodsBySignature == null) {
+            methodsBySignature = new HashMap<String, List<SgMethod>>(8);
+        }
+        List<SgMethod> list = methodsBySignature.get(key);
+        if (list == null) {
+            list = new ArrayList<SgMethod>(1);
+            methodsBySignature.put(key, list);
+        }
+        list.add(method);
+        if (list.size() == 2) {
+            duplicateSignatures++;
+        }
+    }
+
+    private void removeSignature(final String key, final SgMethod method) {
+        final List<SgMethod> list = methodsBySignature.get(key);
+        if (list == null) {
+            return;
+        }
+        for (int i = 0; i < list.size(); i++) {
+            if (list.get(i) == method) {
+                list.remove(i);
+                break;
+            }
+        }
+        if (list.size() == 0) {
+            methodsBySignature.remove(key);
+        } else if (list.size() == 1) {
+            duplicateSignatures--;
+        }
+    }
+
+    /**
+     * Updates the signature index after an argument was added to a method of
+     * this class.
+     * 
+     * @param method
+     *            Method with a new argument.
+     * @param oldKey
+     *            Signature key before the argument was added.
+     */
+    final void methodSignatureChanged(final SgMethod method, final String oldKey) {
+        if (!bulk && (members != null) && members.contains(method)) {
+            removeSignature(oldKey, method);
+            addSignature(method.getSignatureKey(), method);
         }
     }
 
@@ -315,7 +575,28 @@ public final class SgClass {
      * @return Name with inner classes separated with "$".
      */
     public final String getName() {
-        return getName("$");
+        return name;
+    }
+
+    /**
+     * Returns the name of the type used in method descriptors.
+     * 
+     * @return Full qualified name like "java.util.Date[]" for arrays and the
+     *         same as {@link #getName()} for all other types.
+     */
+    final String getDescriptorName() {
+        return descriptorName;
+    }
+
+    /**
+     * Sets the name used in method descriptors for an array type.
+     * 
+     * @param className
+     *            Name of the array type in the format of
+     *            <code>Class.getName()</code> like "[Ljava.util.Date;".
+     */
+    final void setArrayClassName(final String className) {
+        descriptorName = SgMethodDescriptor.getTypeName(className);
     }
 
     /**
@@ -324,6 +605,10 @@ public final class SgClass {
      * @return Name with inner classes separated with ".".
      */
     public final String getSourceName() {
+        final FrozenData data = frozenData;
+        if (data != null) {
+            return data.sourceName;
+        }
         return getName(".");
     }
 
@@ -404,7 +689,11 @@ public final class SgClass {
      * @return List of interfaces - Always non-null and unmodifiable.
      */
     public final List<SgClass> getInterfaces() {
-        return Collections.unmodifiableList(interfaces);
+        final FrozenData data = frozenData;
+        if (data != null) {
+            return data.interfaces;
+        }
+        return SgLists.view(interfaces);
     }
 
     /**
@@ -417,7 +706,12 @@ public final class SgClass {
         if (intf == null) {
             throw new IllegalArgumentException("The argument 'intf' cannot be null!");
         }
-        interfaces.add(intf);
+        assertNotFrozen();
+        interfaces = SgLists.add(interfaces, intf, 2);
+        if (interfaceNames == null) {
+            interfaceNames = new HashSet<String>(4);
+        }
+        interfaceNames.add(intf.getName());
     }
 
     /**
@@ -427,7 +721,7 @@ public final class SgClass {
      */
     public final String getInterfacesCommaSeparated() {
         final StringBuffer sb = new StringBuffer();
-        if (interfaces.size() > 0) {
+        if (SgLists.size(interfaces) > 0) {
             for (int i = 0; i < interfaces.size(); i++) {
                 if (i > 0) {
                     sb.append(", ");
@@ -444,7 +738,11 @@ public final class SgClass {
      * @return List of fields - Always non-null and is unmodifiable
      */
     public final List<SgField> getFields() {
-        return Collections.unmodifiableList(fields);
+        final FrozenData data = frozenData;
+        if (data != null) {
+            return data.fields;
+        }
+        return SgLists.view(fields);
     }
 
     /**
@@ -462,18 +760,200 @@ public final class SgClass {
         if (field.getOwner() != this) {
             throw new IllegalArgumentException("The owner of 'field' is different from 'this'!");
         }
-        if (!fields.contains(field)) {
-            fields.add(field);
+        assertNotFrozen();
+        if (variantBase != null) {
+            // Registered with "replaceMember(..)"
+            return;
+        }
+        if (bulk) {
+            fields = SgLists.add(fields, field, 4);
+            return;
+        }
+        if (addMember(field)) {
+            fields = SgLists.add(fields, field, 4);
+            if (fieldsByName == null) {
+                fieldsByName = new HashMap<String, SgField>(8);
+            }
+            if (!fieldsByName.containsKey(field.getName())) {
+                fieldsByName.put(field.getName(), field);
+            }
+        }
+    }
+
+    /**
+     * Adds multiple fields to the class. The fields must have been created
+     * for this class without adding them to it - See
+     * {@link SgField#SgField(SgClass, String, SgClass, String, String, boolean)}.
+     * The lists are grown only once. Fields that are already in the list of
+     * fields are ignored.
+     * 
+     * @param fields
+     *            Fields to add - Cannot be null.
+     */
+    public final void addFields(final Collection<SgField> fields) {
+        if (fields == null) {
+            throw new IllegalArgumentException("The argument 'fields' cannot be null!");
+        }
+        ensureCapacity(fields.size(), 0, 0);
+        final Iterator<SgField> it = fields.iterator();
+        while (it.hasNext()) {
+            addField(it.next());
+        }
+    }
+
+    /**
+     * Adds multiple constructors to the class. The constructors must have been
+     * created for this class without adding them to it (See
+     * {@link SgConstructor#SgConstructor(SgClass, String, boolean)}). The list
+     * is grown only once. Constructors that are already in the list of
+     * constructors are ignored.
+     * 
+     * @param constructors
+     *            Constructors to add - Cannot be null.
+     */
+    public final void addConstructors(final Collection<SgConstructor> constructors) {
+        if (constructors == null) {
+            throw new IllegalArgumentException("The argument 'constructors' cannot be null!");
+        }
+        ensureCapacity(0, constructors.size(), 0);
+        final Iterator<SgConstructor> it = constructors.iterator();
+        while (it.hasNext()) {
+            addConstructor(it.next());
         }
     }
 
+    /**
+     * Adds multiple methods to the class. The methods must have been created
+     * for this class without adding them to it (See
+     * {@link SgMethod#SgMethod(SgClass, String, SgClass, String, boolean)}).
+     * The lists are grown only once. Methods that are already in the list of
+     * methods are ignored.
+     * 
+     * @param methods
+     *            Methods to add - Cannot be null.
+     */
+    public final void addMethods(final Collection<SgMethod> methods) {
+        if (methods == null) {
+            throw new IllegalArgumentException("The argument 'methods' cannot be null!");
+        }
+        ensureCapacity(0, 0, methods.size());
+        final Iterator<SgMethod> it = methods.iterator();
+        while (it.hasNext()) {
+            addMethod(it.next());
+        }
+    }
+
+    /**
+     * Makes sure the member lists can hold a number of additional elements
+     * without growing.
+     * 
+     * @param fieldCount
+     *            Number of additional fields.
+     * @param constructorCount
+     *            Number of additional constructors.
+     * @param methodCount
+     *            Number of additional methods.
+     */
+    final void ensureCapacity(final int fieldCount, final int constructorCount,
+            final int methodCount) {
+        assertNotFrozen();
+        if (fieldCount > 0) {
+            if (fields == null) {
+                fields = new ArrayList<SgField>(fieldCount);
+            } else {
+                fields.ensureCapacity(fields.size() + fieldCount);
+            }
+        }
+        if (constructorCount > 0) {
+            if (constructors == null) {
+                constructors = new ArrayList<SgConstructor>(constructorCount);
+            } else {
+                constructors.ensureCapacity(constructors.size() + constructorCount);
+            }
+        }
+        if (methodCount > 0) {
+            if (methods == null) {
+                methods = new ArrayList<SgMethod>(methodCount);
+            } else {
+                methods.ensureCapacity(methods.size() + methodCount);
+            }
+        }
+    }
+
+    /**
+     * Starts adding members without maintaining the indexes. Duplicates are
+     * not detected until {@link #endBulk()} is called.
+     */
+    final void beginBulk() {
+        assertNotFrozen();
+        bulk = true;
+    }
+
+    /**
+     * Removes duplicate members and creates all indexes in a single pass after
+     * {@link #beginBulk()} was called.
+     */
+    final void endBulk() {
+        if (!bulk) {
+            return;
+        }
+        bulk = false;
+        final ArrayList<SgField> bulkFields = fields;
+        final ArrayList<SgConstructor> bulkConstructors = constructors;
+        final ArrayList<SgMethod> bulkMethods = methods;
+        final ArrayList<SgClass> bulkClasses = classes;
+        fields = null;
+        constructors = null;
+        methods = null;
+        classes = null;
+        final int fieldCount = SgLists.size(bulkFields);
+        final int methodCount = SgLists.size(bulkMethods);
+        final int classCount = SgLists.size(bulkClasses);
+        final int count = fieldCount + SgLists.size(bulkConstructors) + methodCount + classCount;
+        if (count == 0) {
+            return;
+        }
+        members = Collections.newSetFromMap(new IdentityHashMap<Object, Boolean>(count));
+        if (fieldCount > 0) {
+            fieldsByName = new HashMap<String, SgField>(hashCapacity(fieldCount));
+        }
+        if (methodCount > 0) {
+            methodsByName = new HashMap<String, List<SgMethod>>(hashCapacity(methodCount));
+            methodsBySignature = new HashMap<String, List<SgMethod>>(hashCapacity(methodCount));
+        }
+        if (classCount > 0) {
+            classesByName = new HashMap<String, SgClass>(hashCapacity(classCount));
+        }
+        ensureCapacity(fieldCount, SgLists.size(bulkConstructors), methodCount);
+        for (int i = 0; i < fieldCount; i++) {
+            addField(bulkFields.get(i));
+        }
+        for (int i = 0; i < SgLists.size(bulkConstructors); i++) {
+            addConstructor(bulkConstructors.get(i));
+        }
+        for (int i = 0; i < methodCount; i++) {
+            addMethod(bulkMethods.get(i));
+        }
+        for (int i = 0; i < classCount; i++) {
+            addClass(bulkClasses.get(i));
+        }
+    }
+
+    private static int hashCapacity(final int size) {
+        return (int) (size / 0.75f) + 1;
+    }
+
     /**
      * Returns a list of all inner class.
      * 
      * @return List of inner classes - Always non-null and is unmodifiable.
      */
     public final List<SgClass> getClasses() {
-        return Collections.unmodifiableList(classes);
+        final FrozenData data = frozenData;
+        if (data != null) {
+            return data.classes;
+        }
+        return SgLists.view(classes);
     }
 
     /**
@@ -487,8 +967,20 @@ public final class SgClass {
         if (clasz == null) {
             throw new IllegalArgumentException("The argument 'clasz' cannot be null!");
         }
-        if (!classes.contains(clasz)) {
-            classes.add(clasz);
+        assertNotFrozen();
+        if (bulk) {
+            classes = SgLists.add(classes, clasz, 2);
+            return;
+        }
+        if (addMember(clasz)) {
+            classes = SgLists.add(classes, clasz, 2);
+            final String name = clasz.getName();
+            if (classesByName == null) {
+                classesByName = new HashMap<String, SgClass>(4);
+            }
+            if (!classesByName.containsKey(name)) {
+                classesByName.put(name, clasz);
+            }
         }
     }
 
@@ -513,13 +1005,13 @@ public final class SgClass {
         if (name == null) {
             throw new IllegalArgumentException("The argument 'name' cannot be null!");
         }
-        for (int i = 0; i < classes.size(); i++) {
-            final SgClass clasz = classes.get(i);
-            if (clasz.getName().equals(name)) {
-                return clasz;
-            }
+        if (variantBase != null) {
+            return variantBase.findClassByName(name);
         }
-        return null;
+        if (classesByName == null) {
+            return null;
+        }
+        return classesByName.get(name);
     }
 
     /**
@@ -534,113 +1026,175 @@ public final class SgClass {
         if (name == null) {
             throw new IllegalArgumentException("The argument 'name' cannot be null!");
         }
-        for (int i = 0; i < methods.size(); i++) {
-            final SgMethod method = methods.get(i);
-            if (method.getName().equals(name)) {
-                return method;
-            }
+        if (variantBase != null) {
+            return replaced(variantBase.findMethodByName(name));
+        }
+        if (methodsByName == null) {
+            return null;
         }
-        return null;
+        final List<SgMethod> overloads = methodsByName.get(name);
+        if (overloads == null) {
+            return null;
+        }
+        return overloads.get(0);
     }
 
     /**
-     * Find a field by it's name.
+     * Find all methods with a given name.
      * 
      * @param name
-     *            Name of the field to find - Cannot be null.
+     *            Name of the methods to find - Cannot be null.
      * 
-     * @return Field or null if it's not found.
+     * @return Overloaded methods in the order they were added - Always
+     *         non-null, maybe empty and is unmodifiable.
      */
-    public final SgField findFieldByName(final String name) {
+    public final List<SgMethod> findMethodsByName(final String name) {
         if (name == null) {
             throw new IllegalArgumentException("The argument 'name' cannot be null!");
         }
-        for (int i = 0; i < fields.size(); i++) {
-            final SgField field = fields.get(i);
-            if (field.getName().equals(name)) {
-                return field;
-            }
+        if (variantBase != null) {
+            return replaced(variantBase.findMethodsByName(name));
+        }
+        if (methodsByName == null) {
+            return Collections.emptyList();
         }
-        return null;
+        final List<SgMethod> overloads = methodsByName.get(name);
+        if (overloads == null) {
+            return Collections.emptyList();
+        }
+        return Collections.unmodifiableList(overloads);
     }
 
-    private void addPackageLine(final StringBuffer sb) {
-        if (enclosingClass == null) {
-            if (packageName.length() > 0) {
-                sb.append("package ");
-                sb.append(packageName);
-                sb.append(";\n");
-                sb.append("\n");
-            }
+    /**
+     * Find a method by it's name and argument types.
+     * 
+     * @param name
+     *            Name of the method to find - Cannot be null.
+     * @param argumentTypes
+     *            Types of the arguments - Cannot be null.
+     * 
+     * @return First method with the signature or null if it's not found.
+     */
+    public final SgMethod findMethod(final String name, final List<SgClass> argumentTypes) {
+        if (name == null) {
+            throw new IllegalArgumentException("The argument 'name' cannot be null!");
+        }
+        if (argumentTypes == null) {
+            throw new IllegalArgumentException("The argument 'argumentTypes' cannot be null!");
+        }
+        if (variantBase != null) {
+            return replaced(variantBase.findMethod(name, argumentTypes));
+        }
+        if (methodsBySignature == null) {
+            return null;
         }
+        final List<SgMethod> list = methodsBySignature.get(SgMethod.createSignatureKey(name,
+                argumentTypes));
+        if (list == null) {
+            return null;
+        }
+        return list.get(0);
     }
 
-    private void addNameLine(final StringBuffer sb, final boolean showAnnotations) {
-        if (showAnnotations && (getAnnotations().size() > 0)) {
-            for (int i = 0; i < getAnnotations().size(); i++) {
-                if (i > 0) {
-                    sb.append(" ");
-                }
-                sb.append(getAnnotations().get(i));
-            }
-            sb.append("\n");
+    /**
+     * Find a method by it's descriptor.
+     * 
+     * @param descriptor
+     *            Name and argument types of the method to find - Cannot be
+     *            null.
+     * 
+     * @return First method with the signature or null if it's not found.
+     */
+    public final SgMethod findMethod(final SgMethodDescriptor descriptor) {
+        if (descriptor == null) {
+            throw new IllegalArgumentException("The argument 'descriptor' cannot be null!");
         }
-        if (modifiers.length() > 0) {
-            sb.append(modifiers);
-            sb.append(" ");
+        if (variantBase != null) {
+            return replaced(variantBase.findMethod(descriptor));
         }
-        if (isinterface) {
-            sb.append("interface ");
-        } else {
-            sb.append("class ");
+        if (methodsBySignature == null) {
+            return null;
         }
-        sb.append(getSimpleName());
-        if (isinterface) {
-            if (interfaces.size() > 0) {
-                sb.append(" extends ");
-                sb.append(getInterfacesCommaSeparated());
-            }
-        } else {
-            if ((superClass != null) && (!"Object".equals(superClass.getName()))) {
-                sb.append(" extends ");
-                sb.append(superClass.getSourceName());
-            }
-            if (interfaces.size() > 0) {
-                sb.append(" implements ");
-                sb.append(getInterfacesCommaSeparated());
-            }
+        final List<SgMethod> list = methodsBySignature.get(descriptor.getKey());
+        if (list == null) {
+            return null;
         }
-        sb.append(" {\n");
+        return list.get(0);
     }
 
-    private void addFields(final StringBuffer sb) {
-        for (int i = 0; i < getFields().size(); i++) {
-            sb.append(getFields().get(i) + "\n");
-            sb.append("\n");
-        }
-        sb.append("\n");
+    /**
+     * Checks if the class contains a method with the given name and argument
+     * types.
+     * 
+     * @param name
+     *            Name of the method - Cannot be null.
+     * @param argumentTypes
+     *            Types of the arguments - Cannot be null.
+     * 
+     * @return If a method with the signature exists <code>true</code> else
+     *         <code>false</code>.
+     */
+    public final boolean hasMethod(final String name, final List<SgClass> argumentTypes) {
+        return findMethod(name, argumentTypes) != null;
     }
 
-    private void addConstructors(final StringBuffer sb) {
-        for (int i = 0; i < constructors.size(); i++) {
-            sb.append(constructors.get(i) + "\n");
-            sb.append("\n");
+    /**
+     * Checks if two or more methods of this class have the same name and
+     * argument types.
+     * 
+     * @return If there is at least one duplicate signature <code>true</code>
+     *         else <code>false</code>.
+     */
+    public final boolean hasDuplicateMethods() {
+        if (variantBase != null) {
+            return variantBase.hasDuplicateMethods();
         }
-        sb.append("\n");
+        return duplicateSignatures > 0;
     }
 
-    private void addMethods(final StringBuffer sb) {
+    /**
+     * Returns all methods that have the same name and argument types as
+     * another method of this class.
+     * 
+     * @return Methods with duplicate signatures - Always non-null, maybe empty
+     *         and is unmodifiable.
+     */
+    public final List<SgMethod> getDuplicateMethods() {
+        if (variantBase != null) {
+            return replaced(variantBase.getDuplicateMethods());
+        }
+        if (duplicateSignatures == 0) {
+            return Collections.emptyList();
+        }
+        final List<SgMethod> list = new ArrayList<SgMethod>();
         for (int i = 0; i < methods.size(); i++) {
-            sb.append(methods.get(i) + "\n");
-            sb.append("\n");
+            final SgMethod method = methods.get(i);
+            if (methodsBySignature.get(method.getSignatureKey()).size() > 1) {
+                list.add(method);
+            }
         }
+        return Collections.unmodifiableList(list);
     }
 
-    private void addInnerClasses(final StringBuffer sb) {
-        for (int i = 0; i < classes.size(); i++) {
-            sb.append(classes.get(i) + "\n");
+    /**
+     * Find a field by it's name.
+     * 
+     * @param name
+     *            Name of the field to find - Cannot be null.
+     * 
+     * @return Field or null if it's not found.
+     */
+    public final SgField findFieldByName(final String name) {
+        if (name == null) {
+            throw new IllegalArgumentException("The argument 'name' cannot be null!");
+        }
+        if (variantBase != null) {
+            return replaced(variantBase.findFieldByName(name));
+        }
+        if (fieldsByName == null) {
+            return null;
         }
-        sb.append("}\n");
+        return fieldsByName.get(name);
     }
 
     /**
@@ -652,6 +1206,24 @@ public final class SgClass {
         return modifiers;
     }
 
+    /**
+     * Returns the modifiers as bit mask in the same format as
+     * <code>java.lang.reflect.Modifier</code>. The value is only calculated
+     * once. Throws an <code>IllegalArgumentException</code> if the modifiers
+     * contain an unknown name.
+     * 
+     * @return Modifiers - See {@link SgUtils#toModifiers(String)}.
+     */
+    public final int getModifierMask() {
+        int mask = modifierMask;
+        if (mask == -1) {
+            // Calculating the value twice in different threads does no harm
+            mask = SgUtils.toModifiers(modifiers);
+            modifierMask = mask;
+        }
+        return mask;
+    }
+
     /**
      * Determines if the class represents a primitive type ({@link #VOID},
      * {@link #BOOLEAN}, {@link #BYTE}, {@link #CHAR}, {@link #SHORT},
@@ -660,9 +1232,13 @@ public final class SgClass {
      * @return true if and only if this class represents a primitive type
      */
     public final boolean isPrimitive() {
-        return this.equals(VOID) || this.equals(BOOLEAN) || this.equals(BYTE) || this.equals(CHAR)
-                || this.equals(SHORT) || this.equals(INT) || this.equals(LONG)
-                || this.equals(FLOAT) || this.equals(DOUBLE);
+        return primitive;
+    }
+
+    private static boolean isPrimitiveName(final String name) {
+        return name.equals("void") || name.equals("boolean") || name.equals("byte")
+                || name.equals("char") || name.equals("short") || name.equals("int")
+                || name.equals("long") || name.equals("float") || name.equals("double");
     }
 
     /**
@@ -732,10 +1308,11 @@ public final class SgClass {
                     "The argument 'intf' is a class an not an interface!");
         }
 
-        for (int i = 0; i < interfaces.size(); i++) {
-            if (interfaces.get(i).equals(intf)) {
-                return true;
-            }
+        if (variantBase != null) {
+            return variantBase.hasInterface(intf);
+        }
+        if ((interfaceNames != null) && interfaceNames.contains(intf.getName())) {
+            return true;
         }
         if (superClass != null) {
             return superClass.hasInterface(intf);
@@ -743,6 +1320,349 @@ public final class SgClass {
         return false;
     }
 
+    private void assertNotFrozen() {
+        if (frozen) {
+            throw new IllegalStateException("The class '" + getName()
+                    + "' is frozen and cannot be changed!");
+        }
+    }
+
+    /**
+     * Returns if the class cannot be changed any more.
+     * 
+     * @return If {@link #freeze()} was called <code>true</code> else
+     *         <code>false</code>.
+     */
+    public final boolean isFrozen() {
+        return frozen;
+    }
+
+    /**
+     * Makes the class immutable. The annotations, fields, constructors,
+     * methods (including their arguments and annotations) and the inner
+     * classes declared by this class are frozen, too. All methods that would
+     * change the model throw an <code>IllegalStateException</code> afterwards.
+     * The internal lists are trimmed. Names, signatures and the source code
+     * are only calculated once - The first time they are requested after the
+     * class was frozen. A frozen class can be shared between threads without
+     * further synchronization. Referenced types (super class,
+     * interfaces, field and argument types) are not frozen by this method.
+     * Calling this method more than once has no effect.
+     */
+    public final void freeze() {
+        if (frozen) {
+            return;
+        }
+        endBulk();
+        for (int i = 0; i < SgLists.size(annotations); i++) {
+            annotations.get(i).freeze();
+        }
+        for (int i = 0; i < SgLists.size(fields); i++) {
+            fields.get(i).freeze();
+        }
+        for (int i = 0; i < SgLists.size(constructors); i++) {
+            constructors.get(i).freeze();
+        }
+        for (int i = 0; i < SgLists.size(methods); i++) {
+            methods.get(i).freeze();
+        }
+        for (int i = 0; i < SgLists.size(classes); i++) {
+            final SgClass inner = classes.get(i);
+            if (inner.getEnclosingClass() == this) {
+                inner.freeze();
+            }
+        }
+        if (replacements != null) {
+            for (final Object member : replacements.values()) {
+                if (member instanceof SgBehavior) {
+                    ((SgBehavior) member).freeze();
+                } else {
+                    ((SgVariable) member).freeze();
+                }
+            }
+        }
+        // All data is reachable by final fields and is therefore visible to
+        // any thread that sees the reference
+        if (variantBase == null) {
+            frozenData = new FrozenData(this);
+        } else {
+            frozenData = new FrozenData(this, variantBase, replacements);
+        }
+        frozen = true;
+    }
+
+    /**
+     * Returns the source kept after it was created for the frozen class.
+     * 
+     * @param showAnnotations
+     *            Source with annotations <code>true</code> else
+     *            <code>false</code>.
+     * 
+     * @return Source or <code>null</code> if the class is not frozen, the
+     *         source was not requested yet or the class is a variant
+     *         (Variants don't keep a copy of the source).
+     */
+    final String getCachedSource(final boolean showAnnotations) {
+        final FrozenData data = frozenData;
+        if (data == null) {
+            return null;
+        }
+        if (showAnnotations) {
+            return data.sourceWithAnnotations;
+        }
+        return data.source;
+    }
+
+    /**
+     * Walks through the class and passes all elements to a visitor. The
+     * order is: The class itself, it's annotations and interfaces, the fields
+     * (each followed by it's annotations), the constructors and the methods
+     * (each followed by it's annotations, arguments, exceptions and body
+     * lines), the inner classes (recursively) and finally
+     * {@link SgVisitor#endClass(SgClass)}. The internal lists are used
+     * directly, so no objects are created while walking through the model.
+     * 
+     * @param visitor
+     *            Visitor to call - Cannot be null.
+     */
+    public final void accept(final SgVisitor visitor) {
+        if (visitor == null) {
+            throw new IllegalArgumentException("The argument 'visitor' cannot be null!");
+        }
+        if (!visitor.visitClass(this)) {
+            return;
+        }
+        // Variants don't have own lists
+        final boolean variant = (variantBase != null);
+
+        final List<SgAnnotation> annotationList = variant ? getAnnotations() : annotations;
+        final int annotationCount = SgLists.size(annotationList);
+        for (int i = 0; i < annotationCount; i++) {
+            visitor.visitAnnotation(annotationList.get(i), i, annotationCount);
+        }
+        final List<SgClass> interfaceList = variant ? getInterfaces() : interfaces;
+        final int interfaceCount = SgLists.size(interfaceList);
+        for (int i = 0; i < interfaceCount; i++) {
+            visitor.visitInterface(interfaceList.get(i), i, interfaceCount);
+        }
+        final List<SgField> fieldList = variant ? getFields() : fields;
+        final int fieldCount = SgLists.size(fieldList);
+        for (int i = 0; i < fieldCount; i++) {
+            fieldList.get(i).accept(visitor, i, fieldCount);
+        }
+        final List<SgConstructor> constructorList = variant ? getConstructors() : constructors;
+        final int constructorCount = SgLists.size(constructorList);
+        for (int i = 0; i < constructorCount; i++) {
+            constructorList.get(i).accept(visitor, i, constructorCount);
+        }
+        final List<SgMethod> methodList = variant ? getMethods() : methods;
+        final int methodCount = SgLists.size(methodList);
+        for (int i = 0; i < methodCount; i++) {
+            methodList.get(i).accept(visitor, i, methodCount);
+        }
+        final List<SgClass> classList = variant ? getClasses() : classes;
+        final int classCount = SgLists.size(classList);
+        for (int i = 0; i < classCount; i++) {
+            classList.get(i).accept(visitor);
+        }
+        visitor.endClass(this);
+    }
+
+    /**
+     * Compares this class with a newer version of it.
+     * 
+     * @param other
+     *            New version of the class - Cannot be null.
+     * 
+     * @return Added, removed and changed elements.
+     */
+    public final SgClassDiff diff(final SgClass other) {
+        if (other == null) {
+            throw new IllegalArgumentException("The argument 'other' cannot be null!");
+        }
+        return new SgClassDiff(this, other);
+    }
+
+    /**
+     * Creates a builder for a variant of this class with the same name.
+     * 
+     * @return New variant builder.
+     */
+    public final SgVariantBuilder createVariant() {
+        return new SgVariantBuilder(this);
+    }
+
+    /**
+     * Creates a builder for a variant of this class with another name.
+     * 
+     * @param packageName
+     *            Package of the variant - Cannot be null.
+     * @param simpleName
+     *            Name (without package) of the variant - Cannot be null.
+     * 
+     * @return New variant builder.
+     */
+    public final SgVariantBuilder createVariant(final String packageName,
+            final String simpleName) {
+        return new SgVariantBuilder(this, packageName, simpleName);
+    }
+
+    /**
+     * Returns the number of member lists and indexes the class has created.
+     * 
+     * @return Allocated collections.
+     */
+    final int getAllocatedCollections() {
+        return SgLists.countAllocated(interfaces, fields, constructors, methods, classes,
+                annotations, members, fieldsByName, methodsByName, methodsBySignature,
+                classesByName, interfaceNames, annotationNames, replacements);
+    }
+
+    /**
+     * Returns the class this one is a variant of.
+     * 
+     * @return Base class or <code>null</code> if this is not a variant.
+     */
+    public final SgClass getVariantBase() {
+        return variantBase;
+    }
+
+    /**
+     * Replaces a member of the variant base in this variant.
+     * 
+     * @param baseMember
+     *            Field, constructor or method of the base.
+     * @param member
+     *            Replacement owned by this variant.
+     */
+    final void replaceMember(final Object baseMember, final Object member) {
+        assertNotFrozen();
+        replacements.put(baseMember, member);
+    }
+
+    /**
+     * Returns the member of this class that corresponds to a member of this
+     * class or of one of it's variant bases. Members replaced by a variant on
+     * the way down the chain are mapped to their replacement.
+     * 
+     * @param owner
+     *            Class that owns the member.
+     * @param member
+     *            Field, constructor or method of the owner.
+     * 
+     * @return Current member of this class.
+     */
+    final <T> T currentMember(final SgClass owner, final T member) {
+        if ((owner == this) || (variantBase == null)) {
+            return member;
+        }
+        return replaced(variantBase.currentMember(owner, member));
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T> T replaced(final T member) {
+        if (member == null) {
+            return null;
+        }
+        final Object replacement = replacements.get(member);
+        if (replacement == null) {
+            return member;
+        }
+        return (T) replacement;
+    }
+
+    private <T> List<T> replaced(final List<T> list) {
+        if (list.size() == 0) {
+            return list;
+        }
+        return new VariantList<T>(list, replacements);
+    }
+
+    /**
+     * Returns a stable 128 bit hash of the content of this class (See
+     * {@link SgFingerprint} for details). The value is calculated only once
+     * for frozen classes.
+     * 
+     * @return Fingerprint - Always non-null.
+     */
+    public final SgFingerprint fingerprint() {
+        final SgFingerprint cached = fingerprint;
+        if (cached != null) {
+            return cached;
+        }
+        final boolean wasFrozen = frozen;
+        final SgFingerprint result = SgFingerprint.create(this);
+        if (wasFrozen) {
+            // Immutable object with final fields - No synchronization required
+            fingerprint = result;
+        }
+        return result;
+    }
+
+    /**
+     * Two classes are equal if they have the same full qualified name. This
+     * is also true for models of the same type from different pools. If both
+     * classes are frozen they must also have the same content: The cached
+     * {@link #fingerprint()} is compared, so a frozen variant is only equal
+     * to it's frozen base if it doesn't change anything. Classes that can
+     * still be changed are compared by name only.
+     * 
+     * @param obj
+     *            Object to compare with.
+     * 
+     * @return If the other object is a class with the same name (and the same
+     *         content if both are frozen) <code>true</code> else
+     *         <code>false</code>.
+     */
+    @Override
+    public final boolean equals(final Object obj) {
+        if (this == obj) {
+            return true;
+        }
+        if (!(obj instanceof SgClass)) {
+            return false;
+        }
+        final SgClass other = (SgClass) obj;
+        if (!sameName(this, other)) {
+            return false;
+        }
+        if (frozen && other.frozen) {
+            return fingerprint().equals(other.fingerprint());
+        }
+        return true;
+    }
+
+    /**
+     * Compares two type references by their full qualified name only. This is
+     * used by the members to compare their types without looking at the
+     * content of the referenced models.
+     * 
+     * @param clasz1
+     *            First type or <code>null</code>.
+     * @param clasz2
+     *            Second type or <code>null</code>.
+     * 
+     * @return If both types have the same name or both are <code>null</code>
+     *         <code>true</code> else <code>false</code>.
+     */
+    static boolean sameName(final SgClass clasz1, final SgClass clasz2) {
+        if (clasz1 == clasz2) {
+            return true;
+        }
+        if ((clasz1 == null) || (clasz2 == null)) {
+            return false;
+        }
+        return (clasz1.hash == clasz2.hash) && clasz1.name.equals(clasz2.name);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public final int hashCode() {
+        return hash;
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -761,14 +1681,21 @@ public final class SgClass {
      * @return Source code of the class.
      */
     public final String toString(final boolean showAnnotations) {
-        final StringBuffer sb = new StringBuffer();
-        addPackageLine(sb);
-        addNameLine(sb, showAnnotations);
-        addFields(sb);
-        addConstructors(sb);
-        addMethods(sb);
-        addInnerClasses(sb);
-        return sb.toString();
+        final String cached = getCachedSource(showAnnotations);
+        if (cached != null) {
+            return cached;
+        }
+        final String source = SgSourceRenderer.toString(this, showAnnotations, false);
+        final FrozenData data = frozenData;
+        if ((data != null) && (variantBase == null)) {
+            // Immutable object with final fields - No synchronization required
+            if (showAnnotations) {
+                data.sourceWithAnnotations = source;
+            } else {
+                data.source = source;
+            }
+        }
+        return source;
     }
 
     /**
@@ -792,7 +1719,7 @@ public final class SgClass {
             throw new IllegalArgumentException("The argument 'className' cannot be null!");
         }
         final SgClass cached = pool.get(className);
-        if (cached != null) {
+        if ((cached != null) && !cached.isStub()) {
             return cached;
         }
         try {
@@ -803,7 +1730,9 @@ public final class SgClass {
     }
 
     /**
-     * Creates a model class by analyzing the "real" class.
+     * Creates a model class by analyzing the "real" class. The pool's
+     * {@link SgIntrospectionPolicy} decides if a full model or a stub is
+     * created for the class and all types it references.
      * 
      * @param pool
      *            Pool to use.
@@ -819,20 +1748,43 @@ public final class SgClass {
         if (clasz == null) {
             throw new IllegalArgumentException("The argument 'clasz' cannot be null!");
         }
+        return create(pool, clasz, 0);
+    }
+
+    private static SgClass create(final SgClassPool pool, final Class<?> clasz, final int depth) {
 
+        final boolean full = pool.getPolicy().isFullModel(getPackageName(clasz), depth);
         final SgClass cached = pool.get(clasz.getName());
-        if (cached != null) {
+        if (isComplete(cached, full)) {
             return cached;
         }
 
         try {
 
-            final SgClass cl = createClass(pool, clasz);
-            addInterfaces(pool, cl, clasz);
-            addFields(pool, cl, clasz);
-            addConstructors(pool, cl, clasz);
-            addMethods(pool, cl, clasz);
-            addInnerClasses(pool, cl, clasz);
+            // Creating the enclosing class may already have created this one
+            final SgClass enclosingClass;
+            final SgClass stub;
+            if (clasz.getEnclosingClass() == null) {
+                enclosingClass = null;
+                stub = cached;
+            } else {
+                enclosingClass = create(pool, clasz.getEnclosingClass(), depth + 1);
+                stub = pool.get(clasz.getName());
+                if (isComplete(stub, full)) {
+                    return stub;
+                }
+            }
+
+            if (!full) {
+                return createStub(pool, clasz, enclosingClass);
+            }
+            final SgClass cl = createClass(pool, clasz, enclosingClass, stub, depth);
+            final int next = depth + 1;
+            addInterfaces(pool, cl, clasz, next);
+            addFields(pool, cl, clasz, next);
+            addConstructors(pool, cl, clasz, next);
+            addMethods(pool, cl, clasz, next);
+            addInnerClasses(pool, cl, clasz, next);
             return cl;
 
         } catch (final RuntimeException ex) {
@@ -842,14 +1794,67 @@ public final class SgClass {
 
     }
 
-    private static SgClass createClass(final SgClassPool pool, final Class<?> clasz) {
+    /**
+     * Returns if a cached class can be used as it is. A stub is upgraded in
+     * place if a full model is required - Except it's already frozen.
+     * 
+     * @param cached
+     *            Class from the pool or <code>null</code>.
+     * @param full
+     *            Is a full model required?
+     * 
+     * @return If the cached class can be returned <code>true</code> else
+     *         <code>false</code>.
+     */
+    static boolean isComplete(final SgClass cached, final boolean full) {
+        return (cached != null) && (!cached.isStub() || !full || cached.isFrozen());
+    }
+
+    private static String getPackageName(final Class<?> clasz) {
+        Class<?> type = clasz;
+        while (type.isArray()) {
+            type = type.getComponentType();
+        }
+        if (type.getPackage() == null) {
+            final String name = type.getName();
+            final int p = name.lastIndexOf('.');
+            if (p == -1) {
+                return "";
+            }
+            return name.substring(0, p);
+        }
+        return type.getPackage().getName();
+    }
+
+    private static SgClass createStub(final SgClassPool pool, final Class<?> clasz,
+            final SgClass enclosingClass) {
+
+        final String packageName;
+        if (clasz.getPackage() == null) {
+            packageName = "";
+        } else {
+            packageName = clasz.getPackage().getName();
+        }
+
+        final SgClass cl = new SgClass(Modifier.toString(clasz.getModifiers()), packageName,
+                clasz.getSimpleName(), null, clasz.isInterface(), enclosingClass, true);
+        addToPool(pool, clasz, cl);
+        return cl;
+    }
 
-        final SgClass enclosingClass;
-        if (clasz.getEnclosingClass() == null) {
-            enclosingClass = null;
+    private static void addToPool(final SgClassPool pool, final Class<?> clasz, final SgClass cl) {
+        if (clasz.isArray()) {
+            cl.setArrayClassName(clasz.getName());
+            pool.put(clasz.getName(), cl);
         } else {
-            enclosingClass = create(pool, clasz.getEnclosingClass());
+            pool.put(cl);
         }
+        pool.countCreated(cl.isStub());
+    }
+
+    private static SgClass createClass(final SgClassPool pool, final Class<?> clasz,
+            final SgClass enclosingClass, final SgClass stub, final int depth) {
+
         final String clModifiers = Modifier.toString(clasz.getModifiers());
 
         final String packageName;
@@ -864,32 +1869,37 @@ public final class SgClass {
         if (clasz.isInterface()) {
             superClass = null;
         } else {
-            superClass = SgClass.create(pool, clasz.getSuperclass());
+            superClass = create(pool, clasz.getSuperclass(), depth + 1);
+        }
+
+        if (stub != null) {
+            // Already in the pool and maybe referenced by other models
+            stub.upgradeStub(superClass);
+            pool.countCreated(false);
+            return stub;
         }
 
         final SgClass cl = new SgClass(clModifiers, packageName, clasz.getSimpleName(), superClass,
                 clasz.isInterface(), enclosingClass);
         // Add to cache
-        if (clasz.isArray()) {
-            pool.put(clasz.getName(), cl);
-        } else {
-            pool.put(cl);
-        }
+        addToPool(pool, clasz, cl);
 
         return cl;
     }
 
-    private static void addInterfaces(final SgClassPool pool, final SgClass cl, final Class<?> clasz) {
+    private static void addInterfaces(final SgClassPool pool, final SgClass cl,
+            final Class<?> clasz, final int depth) {
         final Class<?>[] interfaces = clasz.getInterfaces();
         for (int i = 0; i < interfaces.length; i++) {
-            cl.addInterface(SgClass.create(pool, interfaces[i]));
+            cl.addInterface(create(pool, interfaces[i], depth));
         }
     }
 
-    private static void addFields(final SgClassPool pool, final SgClass cl, final Class<?> clasz) {
+    private static void addFields(final SgClassPool pool, final SgClass cl,
+            final Class<?> clasz, final int depth) {
         final Field[] fields = clasz.getDeclaredFields();
         for (int i = 0; i < fields.length; i++) {
-            final SgClass type = SgClass.create(pool, fields[i].getType());
+            final SgClass type = create(pool, fields[i].getType(), depth);
             final String name = fields[i].getName();
             final String modifiers = Modifier.toString(fields[i].getModifiers());
             // This implicitly adds the field to the class
@@ -899,7 +1909,7 @@ public final class SgClass {
     }
 
     private static void addConstructors(final SgClassPool pool, final SgClass cl,
-            final Class<?> clasz) {
+            final Class<?> clasz, final int depth) {
         if (!cl.isInterface()) {
             final Constructor<?>[] constructors = clasz.getDeclaredConstructors();
             for (int i = 0; i < constructors.length; i++) {
@@ -910,12 +1920,12 @@ public final class SgClass {
                 final Class<?>[] parameterTypes = constructors[i].getParameterTypes();
                 for (int j = 0; j < parameterTypes.length; j++) {
                     // This implicitly adds the argument to the constructor
-                    new SgArgument(constructor, create(pool, parameterTypes[j]), "p" + j);
+                    new SgArgument(constructor, create(pool, parameterTypes[j], depth), "p" + j);
                 }
 
                 final Class<?>[] exceptions = constructors[i].getExceptionTypes();
                 for (int j = 0; j < exceptions.length; j++) {
-                    constructor.addException(SgClass.create(pool, clasz));
+                    constructor.addException(create(pool, exceptions[j], depth));
                 }
 
                 cl.addConstructor(constructor);
@@ -923,22 +1933,23 @@ public final class SgClass {
         }
     }
 
-    private static void addMethods(final SgClassPool pool, final SgClass cl, final Class<?> clasz) {
+    private static void addMethods(final SgClassPool pool, final SgClass cl,
+            final Class<?> clasz, final int depth) {
         final Method[] methods = clasz.getDeclaredMethods();
         for (int i = 0; i < methods.length; i++) {
             final String mModifiers = Modifier.toString(methods[i].getModifiers());
-            final SgClass returnType = create(pool, methods[i].getReturnType());
+            final SgClass returnType = create(pool, methods[i].getReturnType(), depth);
             final SgMethod method = new SgMethod(cl, mModifiers, returnType, methods[i].getName());
             final Class<?>[] parameterTypes = methods[i].getParameterTypes();
             for (int j = 0; j < parameterTypes.length; j++) {
                 // This implicitly adds the argument to the method
-                new SgArgument(method, create(pool, parameterTypes[j]), "p" + j);
+                new SgArgument(method, create(pool, parameterTypes[j], depth), "p" + j);
             }
             method.addAnnotations(SgUtils.createAnnotations(methods[i].getAnnotations()));
 
             final Class<?>[] exceptions = methods[i].getExceptionTypes();
             for (int j = 0; j < exceptions.length; j++) {
-                method.addException(SgClass.create(pool, clasz));
+                method.addException(create(pool, exceptions[j], depth));
             }
 
             cl.addMethod(method);
@@ -946,10 +1957,10 @@ public final class SgClass {
     }
 
     private static void addInnerClasses(final SgClassPool pool, final SgClass cl,
-            final Class<?> clasz) {
+            final Class<?> clasz, final int depth) {
         final Class<?>[] innerClasses = clasz.getClasses();
         for (int i = 0; i < innerClasses.length; i++) {
-            cl.addClass(create(pool, innerClasses[i]));
+            cl.addClass(create(pool, innerClasses[i], depth));
         }
     }
 
@@ -1041,4 +2052,122 @@ public final class SgClass {
                 + "' to a primitive type!");
     }
 
+    /**
+     * Unmodifiable list of the variant base that returns the replacement for
+     * replaced elements.
+     * 
+     * @param <T>
+     *            Type of the elements.
+     */
+    private static final class VariantList<T> extends AbstractList<T> implements RandomAccess {
+
+        private final List<T> base;
+
+        private final Map<Object, Object> replacements;
+
+        /**
+         * Constructor with base list and replacements.
+         * 
+         * @param base
+         *            List of the base class.
+         * @param replacements
+         *            Replaced elements.
+         */
+        VariantList(final List<T> base, final Map<Object, Object> replacements) {
+            super();
+            this.base = base;
+            this.replacements = replacements;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        @SuppressWarnings("unchecked")
+        public final T get(final int index) {
+            final T element = base.get(index);
+            final Object replacement = replacements.get(element);
+            if (replacement == null) {
+                return element;
+            }
+            return (T) replacement;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public final int size() {
+            return base.size();
+        }
+
+    }
+
+    /**
+     * Data precalculated when the class is frozen.
+     */
+    private static final class FrozenData {
+
+        private final String sourceName;
+
+        /** Created with the first request. */
+        private String source;
+
+        /** Created with the first request. */
+        private String sourceWithAnnotations;
+
+        private final List<SgClass> interfaces;
+
+        private final List<SgField> fields;
+
+        private final List<SgConstructor> constructors;
+
+        private final List<SgMethod> methods;
+
+        private final List<SgClass> classes;
+
+        private final List<SgAnnotation> annotations;
+
+        /**
+         * Constructor with class.
+         * 
+         * @param clasz
+         *            Class to calculate the data for.
+         */
+        FrozenData(final SgClass clasz) {
+            super();
+            this.sourceName = clasz.getSourceName();
+            this.interfaces = SgLists.freeze(clasz.interfaces);
+            this.fields = SgLists.freeze(clasz.fields);
+            this.constructors = SgLists.freeze(clasz.constructors);
+            this.methods = SgLists.freeze(clasz.methods);
+            this.classes = SgLists.freeze(clasz.classes);
+            this.annotations = SgLists.freeze(clasz.annotations);
+        }
+
+        /**
+         * Constructor for a variant. The source is not stored to keep the
+         * variant small.
+         * 
+         * @param variant
+         *            Variant to freeze.
+         * @param base
+         *            Frozen class the variant is based on.
+         * @param replacements
+         *            Replaced members of the base.
+         */
+        FrozenData(final SgClass variant, final SgClass base,
+                final Map<Object, Object> replacements) {
+            super();
+            this.sourceName = variant.getSourceName();
+            this.interfaces = base.getInterfaces();
+            this.fields = variant.replaced(base.getFields());
+            this.constructors = variant.replaced(base.getConstructors());
+            this.methods = variant.replaced(base.getMethods());
+            this.classes = base.getClasses();
+            this.annotations = base.getAnnotations();
+        }
+
+    }
+
 }
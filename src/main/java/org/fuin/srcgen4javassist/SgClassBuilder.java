@@ -0,0 +1,269 @@
+/**
+ * Copyright (C) 2009 Future Invent Informationsmanagement GmbH. All rights
+ * reserved. <http://www.fuin.org/>
+ * 
+ * This library is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation; either version 3 of the License, or (at your option) any
+ * later version.
+ * 
+ * This library is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ * details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this library. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.fuin.srcgen4javassist;
+
+import java.util.Collection;
+import java.util.Iterator;
+
+/**
+ * Builds large classes efficiently. The member lists are created with the
+ * expected size and while building members are only appended - Checking for
+ * duplicates and creating the name and signature indexes is done once in
+ * {@link #build()}. The result is a frozen class. Lookups like
+ * {@link SgClass#findMethodByName(String)} on the class under construction
+ * only work after the class was built.
+ */
+public final class SgClassBuilder {
+
+    private final SgClass clasz;
+
+    private boolean built;
+
+    /**
+     * Constructor with package and name. The class will be "public".
+     * 
+     * @param packageName
+     *            Name of the package - Cannot be null.
+     * @param simpleName
+     *            Name (without package) of the class - Cannot be null.
+     */
+    public SgClassBuilder(final String packageName, final String simpleName) {
+        this("public", packageName, simpleName, null, false);
+    }
+
+    /**
+     * Constructor with all data.
+     * 
+     * @param modifiers
+     *            Modifier names separated with space - Cannot be null.
+     * @param packageName
+     *            Name of the package - Cannot be null.
+     * @param simpleName
+     *            Name (without package) of the class - Cannot be null.
+     * @param superClass
+     *            Super class or null.
+     * @param isinterface
+     *            Is this an interface?
+     */
+    public SgClassBuilder(final String modifiers, final String packageName,
+            final String simpleName, final SgClass superClass, final boolean isinterface) {
+        super();
+        if (modifiers == null) {
+            throw new IllegalArgumentException("The argument 'modifiers' cannot be null!");
+        }
+        if (packageName == null) {
+            throw new IllegalArgumentException("The argument 'packageName' cannot be null!");
+        }
+        if (simpleName == null) {
+            throw new IllegalArgumentException("The argument 'simpleName' cannot be null!");
+        }
+        clasz = new SgClass(modifiers, packageName, simpleName, superClass, isinterface, null);
+        clasz.beginBulk();
+    }
+
+    private void assertNotBuilt() {
+        if (built) {
+            throw new IllegalStateException("The class '" + clasz.getName()
+                    + "' was already built!");
+        }
+    }
+
+    /**
+     * Returns the class under construction. Use it as owner when creating
+     * members.
+     * 
+     * @return Class - Always non-null.
+     */
+    public final SgClass getSgClass() {
+        return clasz;
+    }
+
+    /**
+     * Sets the expected number of members. The member lists will be created
+     * with this size.
+     * 
+     * @param fieldCount
+     *            Number of fields.
+     * @param constructorCount
+     *            Number of constructors.
+     * @param methodCount
+     *            Number of methods.
+     * 
+     * @return This builder.
+     */
+    public final SgClassBuilder expectMembers(final int fieldCount, final int constructorCount,
+            final int methodCount) {
+        assertNotBuilt();
+        clasz.ensureCapacity(fieldCount, constructorCount, methodCount);
+        return this;
+    }
+
+    /**
+     * Adds multiple interfaces.
+     * 
+     * @param interfaces
+     *            Interfaces to add - Cannot be null.
+     * 
+     * @return This builder.
+     */
+    public final SgClassBuilder addInterfaces(final Collection<SgClass> interfaces) {
+        if (interfaces == null) {
+            throw new IllegalArgumentException("The argument 'interfaces' cannot be null!");
+        }
+        assertNotBuilt();
+        final Iterator<SgClass> it = interfaces.iterator();
+        while (it.hasNext()) {
+            clasz.addInterface(it.next());
+        }
+        return this;
+    }
+
+    /**
+     * Adds multiple annotations.
+     * 
+     * @param annotations
+     *            Annotations to add - Cannot be null.
+     * 
+     * @return This builder.
+     */
+    public final SgClassBuilder addAnnotations(final Collection<SgAnnotation> annotations) {
+        if (annotations == null) {
+            throw new IllegalArgumentException("The argument 'annotations' cannot be null!");
+        }
+        assertNotBuilt();
+        final Iterator<SgAnnotation> it = annotations.iterator();
+        while (it.hasNext()) {
+            clasz.addAnnotation(it.next());
+        }
+        return this;
+    }
+
+    /**
+     * Creates a new field and adds it to the class.
+     * 
+     * @param modifiers
+     *            Modifiers (space separated) - Cannot be null.
+     * @param type
+     *            Type of the field - Cannot be null.
+     * @param name
+     *            Name of the field - Cannot be null.
+     * @param initializer
+     *            Initializer source or <code>null</code>.
+     * 
+     * @return New field.
+     */
+    public final SgField addField(final String modifiers, final SgClass type, final String name,
+            final String initializer) {
+        assertNotBuilt();
+        return new SgField(clasz, modifiers, type, name, initializer);
+    }
+
+    /**
+     * Creates a new constructor and adds it to the class.
+     * 
+     * @param modifiers
+     *            Modifiers for the constructor - Cannot be null.
+     * 
+     * @return New constructor.
+     */
+    public final SgConstructor addConstructor(final String modifiers) {
+        assertNotBuilt();
+        return new SgConstructor(clasz, modifiers);
+    }
+
+    /**
+     * Creates a new method and adds it to the class.
+     * 
+     * @param modifiers
+     *            Modifiers for the method - Cannot be null.
+     * @param returnType
+     *            Return type of the method - Cannot be null.
+     * @param name
+     *            Name of the method - Cannot be null.
+     * 
+     * @return New method.
+     */
+    public final SgMethod addMethod(final String modifiers, final SgClass returnType,
+            final String name) {
+        assertNotBuilt();
+        return new SgMethod(clasz, modifiers, returnType, name);
+    }
+
+    /**
+     * Adds multiple fields. The fields must have been created for the class
+     * under construction without adding them to it. Fields that are already
+     * part of the class are ignored.
+     * 
+     * @param fields
+     *            Fields to add - Cannot be null.
+     * 
+     * @return This builder.
+     */
+    public final SgClassBuilder addFields(final Collection<SgField> fields) {
+        assertNotBuilt();
+        clasz.addFields(fields);
+        return this;
+    }
+
+    /**
+     * Adds multiple constructors. The constructors must have been created for
+     * the class under construction without adding them to it. Constructors
+     * that are already part of the class are ignored.
+     * 
+     * @param constructors
+     *            Constructors to add - Cannot be null.
+     * 
+     * @return This builder.
+     */
+    public final SgClassBuilder addConstructors(final Collection<SgConstructor> constructors) {
+        assertNotBuilt();
+        clasz.addConstructors(constructors);
+        return this;
+    }
+
+    /**
+     * Adds multiple methods. The methods must have been created for the class
+     * under construction without adding them to it. Methods that are already
+     * part of the class are ignored.
+     * 
+     * @param methods
+     *            Methods to add - Cannot be null.
+     * 
+     * @return This builder.
+     */
+    public final SgClassBuilder addMethods(final Collection<SgMethod> methods) {
+        assertNotBuilt();
+        clasz.addMethods(methods);
+        return this;
+    }
+
+    /**
+     * Removes duplicates, creates the indexes and freezes the class. The
+     * builder cannot be used any more after calling this method.
+     * 
+     * @return Frozen class.
+     */
+    public final SgClass build() {
+        assertNotBuilt();
+        built = true;
+        clasz.endBulk();
+        clasz.freeze();
+        return clasz;
+    }
+
+}
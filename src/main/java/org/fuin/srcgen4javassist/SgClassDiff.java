@@ -0,0 +1,286 @@
+/**
+ * Copyright (C) 2009 Future Invent Informationsmanagement GmbH. All rights
+ * reserved. <http://www.fuin.org/>
+ * 
+ * This library is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation; either version 3 of the License, or (at your option) any
+ * later version.
+ * 
+ * This library is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ * details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this library. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.fuin.srcgen4javassist;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Differences between two versions of a class. Members are matched by name
+ * (fields, interfaces and annotations) or by signature (constructors and
+ * methods) using hash maps, so creating the diff takes linear time. Referenced
+ * types are compared by their name only, so the versions may use models from
+ * different pools. Inner classes are not compared.
+ */
+public final class SgClassDiff {
+
+    private static final String CONSTRUCTOR_NAME = "<init>";
+
+    private final SgClass oldClass;
+
+    private final SgClass newClass;
+
+    private final List<SgChange> changes;
+
+    /**
+     * Constructor with both classes.
+     * 
+     * @param oldClass
+     *            Old version - Cannot be null.
+     * @param newClass
+     *            New version - Cannot be null.
+     */
+    SgClassDiff(final SgClass oldClass, final SgClass newClass) {
+        super();
+        if (oldClass == null) {
+            throw new IllegalArgumentException("The argument 'oldClass' cannot be null!");
+        }
+        if (newClass == null) {
+            throw new IllegalArgumentException("The argument 'newClass' cannot be null!");
+        }
+        this.oldClass = oldClass;
+        this.newClass = newClass;
+        final List<SgChange> list = new ArrayList<SgChange>();
+        if (!oldClass.getName().equals(newClass.getName())
+                || !oldClass.getModifiers().equals(newClass.getModifiers())
+                || (oldClass.isInterface() != newClass.isInterface())
+                || !SgClass.sameName(oldClass.getSuperClass(), newClass.getSuperClass())) {
+            list.add(new SgChange(SgChange.Type.CHANGED, SgChange.Element.CLASS, newClass
+                    .getName(), oldClass, newClass, false));
+        }
+        diffClasses(list, oldClass.getInterfaces(), newClass.getInterfaces());
+        diffAnnotations(list, oldClass.getAnnotations(), newClass.getAnnotations());
+        diffFields(list, oldClass.getFields(), newClass.getFields());
+        diffBehaviors(list, SgChange.Element.CONSTRUCTOR, oldClass.getConstructors(), newClass
+                .getConstructors());
+        diffBehaviors(list, SgChange.Element.METHOD, oldClass.getMethods(), newClass
+                .getMethods());
+        this.changes = Collections.unmodifiableList(list);
+    }
+
+    private static void diffClasses(final List<SgChange> list, final List<SgClass> oldList,
+            final List<SgClass> newList) {
+        final Map<String, SgClass> oldMap = new HashMap<String, SgClass>(oldList.size() * 2);
+        for (int i = 0; i < oldList.size(); i++) {
+            oldMap.put(oldList.get(i).getName(), oldList.get(i));
+        }
+        for (int i = 0; i < newList.size(); i++) {
+            final SgClass clasz = newList.get(i);
+            if (oldMap.remove(clasz.getName()) == null) {
+                list.add(new SgChange(SgChange.Type.ADDED, SgChange.Element.INTERFACE, clasz
+                        .getName(), null, clasz, false));
+            }
+        }
+        for (int i = 0; i < oldList.size(); i++) {
+            final SgClass clasz = oldList.get(i);
+            if (oldMap.containsKey(clasz.getName())) {
+                list.add(new SgChange(SgChange.Type.REMOVED, SgChange.Element.INTERFACE, clasz
+                        .getName(), clasz, null, false));
+            }
+        }
+    }
+
+    private static void diffAnnotations(final List<SgChange> list,
+            final List<SgAnnotation> oldList, final List<SgAnnotation> newList) {
+        final Map<String, SgAnnotation> oldMap = new HashMap<String, SgAnnotation>(oldList
+                .size() * 2);
+        for (int i = 0; i < oldList.size(); i++) {
+            oldMap.put(oldList.get(i).getName(), oldList.get(i));
+        }
+        for (int i = 0; i < newList.size(); i++) {
+            final SgAnnotation annotation = newList.get(i);
+            final SgAnnotation old = oldMap.remove(annotation.getName());
+            if (old == null) {
+                list.add(new SgChange(SgChange.Type.ADDED, SgChange.Element.ANNOTATION,
+                        annotation.getName(), null, annotation, false));
+            } else if (!old.equals(annotation)) {
+                list.add(new SgChange(SgChange.Type.CHANGED, SgChange.Element.ANNOTATION,
+                        annotation.getName(), old, annotation, false));
+            }
+        }
+        for (int i = 0; i < oldList.size(); i++) {
+            final SgAnnotation annotation = oldList.get(i);
+            if (oldMap.containsKey(annotation.getName())) {
+                list.add(new SgChange(SgChange.Type.REMOVED, SgChange.Element.ANNOTATION,
+                        annotation.getName(), annotation, null, false));
+            }
+        }
+    }
+
+    private static void diffFields(final List<SgChange> list, final List<SgField> oldList,
+            final List<SgField> newList) {
+        final Map<String, SgField> oldMap = new HashMap<String, SgField>(oldList.size() * 2);
+        for (int i = 0; i < oldList.size(); i++) {
+            oldMap.put(oldList.get(i).getName(), oldList.get(i));
+        }
+        for (int i = 0; i < newList.size(); i++) {
+            final SgField field = newList.get(i);
+            final SgField old = oldMap.remove(field.getName());
+            if (old == null) {
+                list.add(new SgChange(SgChange.Type.ADDED, SgChange.Element.FIELD, field
+                        .getName(), null, field, false));
+            } else if (!old.equals(field)) {
+                list.add(new SgChange(SgChange.Type.CHANGED, SgChange.Element.FIELD, field
+                        .getName(), old, field, false));
+            }
+        }
+        for (int i = 0; i < oldList.size(); i++) {
+            final SgField field = oldList.get(i);
+            if (oldMap.containsKey(field.getName())) {
+                list.add(new SgChange(SgChange.Type.REMOVED, SgChange.Element.FIELD, field
+                        .getName(), field, null, false));
+            }
+        }
+    }
+
+    private static String key(final SgBehavior behavior) {
+        if (behavior instanceof SgMethod) {
+            return ((SgMethod) behavior).getSignatureKey();
+        }
+        final List<SgArgument> args = behavior.getArguments();
+        final List<SgClass> types = new ArrayList<SgClass>(args.size());
+        for (int i = 0; i < args.size(); i++) {
+            types.add(args.get(i).getType());
+        }
+        return SgMethod.createSignatureKey(CONSTRUCTOR_NAME, types);
+    }
+
+    private static boolean sameSignature(final SgBehavior a, final SgBehavior b) {
+        if (!a.hasSameData(b)) {
+            return false;
+        }
+        if (a instanceof SgMethod) {
+            return SgClass.sameName(((SgMethod) a).getReturnType(), ((SgMethod) b)
+                    .getReturnType());
+        }
+        return true;
+    }
+
+    private static <T extends SgBehavior> void diffBehaviors(final List<SgChange> list,
+            final SgChange.Element element, final List<T> oldList, final List<T> newList) {
+        // Duplicate signatures are matched in the order of definition
+        final Map<String, LinkedList<T>> oldMap = new HashMap<String, LinkedList<T>>(oldList
+                .size() * 2);
+        final String[] oldKeys = new String[oldList.size()];
+        for (int i = 0; i < oldList.size(); i++) {
+            oldKeys[i] = key(oldList.get(i));
+            LinkedList<T> same = oldMap.get(oldKeys[i]);
+            if (same == null) {
+                same = new LinkedList<T>();
+                oldMap.put(oldKeys[i], same);
+            }
+            same.add(oldList.get(i));
+        }
+        for (int i = 0; i < newList.size(); i++) {
+            final T behavior = newList.get(i);
+            final String key = key(behavior);
+            final LinkedList<T> same = oldMap.get(key);
+            if ((same == null) || same.isEmpty()) {
+                list.add(new SgChange(SgChange.Type.ADDED, element, key, null, behavior, false));
+            } else {
+                final T old = same.removeFirst();
+                if (!old.equals(behavior)) {
+                    final boolean bodyOnly = sameSignature(old, behavior);
+                    list.add(new SgChange(SgChange.Type.CHANGED, element, key, old, behavior,
+                            bodyOnly));
+                }
+            }
+        }
+        for (int i = 0; i < oldList.size(); i++) {
+            final LinkedList<T> same = oldMap.get(oldKeys[i]);
+            if (same.peek() == oldList.get(i)) {
+                same.removeFirst();
+                list.add(new SgChange(SgChange.Type.REMOVED, element, oldKeys[i], oldList.get(i),
+                        null, false));
+            }
+        }
+    }
+
+    /**
+     * Returns the old version of the class.
+     * 
+     * @return Old class - Always non-null.
+     */
+    public final SgClass getOldClass() {
+        return oldClass;
+    }
+
+    /**
+     * Returns the new version of the class.
+     * 
+     * @return New class - Always non-null.
+     */
+    public final SgClass getNewClass() {
+        return newClass;
+    }
+
+    /**
+     * Returns all changes. The order is: Class, interfaces, annotations,
+     * fields, constructors and methods. Within each group added and changed
+     * elements come first (in the order of the new class) followed by the
+     * removed ones (in the order of the old class).
+     * 
+     * @return List of changes - Always non-null and unmodifiable.
+     */
+    public final List<SgChange> getChanges() {
+        return changes;
+    }
+
+    /**
+     * Returns if both classes are equal.
+     * 
+     * @return If there are no changes <code>true</code> else
+     *         <code>false</code>.
+     */
+    public final boolean isEmpty() {
+        return changes.isEmpty();
+    }
+
+    /**
+     * Returns if only bodies of constructors or methods changed. In this
+     * case the signature of the class is unchanged and already loaded
+     * classes may be redefined.
+     * 
+     * @return If there is at least one change and all changes are body only
+     *         changes <code>true</code> else <code>false</code>.
+     */
+    public final boolean isBodyOnly() {
+        if (changes.isEmpty()) {
+            return false;
+        }
+        for (int i = 0; i < changes.size(); i++) {
+            if (!changes.get(i).isBodyOnly()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public final String toString() {
+        return changes.toString();
+    }
+
+}
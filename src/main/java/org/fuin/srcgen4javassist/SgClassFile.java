@@ -0,0 +1,812 @@
+/**
+ * Copyright (C) 2009 Future Invent Informationsmanagement GmbH. All rights
+ * reserved. <http://www.fuin.org/>
+ * 
+ * This library is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation; either version 3 of the License, or (at your option) any
+ * later version.
+ * 
+ * This library is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ * details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this library. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.fuin.srcgen4javassist;
+
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The parts of a class file that are needed to create a model class. Only the
+ * constant pool strings, the class header, fields, methods and the
+ * "InnerClasses", "EnclosingMethod", "Exceptions" and
+ * "RuntimeVisibleAnnotations" attributes are evaluated. All names use the
+ * format returned by <code>Class.getName()</code>.
+ */
+final class SgClassFile {
+
+    /** Access flag "super" that is not visible in reflection. */
+    static final int ACC_SUPER = 0x0020;
+
+    /** Access flag for classes generated by the compiler. */
+    static final int ACC_SYNTHETIC = 0x1000;
+
+    private static final int MAGIC = 0xCAFEBABE;
+
+    private static final int CONSTANT_UTF8 = 1;
+
+    private static final int CONSTANT_INTEGER = 3;
+
+    private static final int CONSTANT_FLOAT = 4;
+
+    private static final int CONSTANT_LONG = 5;
+
+    private static final int CONSTANT_DOUBLE = 6;
+
+    private static final int CONSTANT_CLASS = 7;
+
+    private static final int CONSTANT_STRING = 8;
+
+    private static final int CONSTANT_FIELDREF = 9;
+
+    private static final int CONSTANT_METHODREF = 10;
+
+    private static final int CONSTANT_INTERFACE_METHODREF = 11;
+
+    private static final int CONSTANT_NAME_AND_TYPE = 12;
+
+    private static final int CONSTANT_METHOD_HANDLE = 15;
+
+    private static final int CONSTANT_METHOD_TYPE = 16;
+
+    private static final int CONSTANT_DYNAMIC = 17;
+
+    private static final int CONSTANT_INVOKE_DYNAMIC = 18;
+
+    private static final int CONSTANT_MODULE = 19;
+
+    private static final int CONSTANT_PACKAGE = 20;
+
+    private final int access;
+
+    private final String name;
+
+    private final String superName;
+
+    private final List<String> interfaces;
+
+    private final List<Member> fields;
+
+    private final List<Member> methods;
+
+    private final List<InnerClass> innerClasses;
+
+    private final String enclosingMethodClass;
+
+    private SgClassFile(final int access, final String name, final String superName,
+            final List<String> interfaces, final List<Member> fields,
+            final List<Member> methods, final List<InnerClass> innerClasses,
+            final String enclosingMethodClass) {
+        super();
+        this.access = access;
+        this.name = name;
+        this.superName = superName;
+        this.interfaces = interfaces;
+        this.fields = fields;
+        this.methods = methods;
+        this.innerClasses = innerClasses;
+        this.enclosingMethodClass = enclosingMethodClass;
+    }
+
+    /**
+     * Returns the access flags from the class header.
+     * 
+     * @return Access flags.
+     */
+    public final int getAccess() {
+        return access;
+    }
+
+    /**
+     * Returns the full qualified name of the class.
+     * 
+     * @return Name.
+     */
+    public final String getName() {
+        return name;
+    }
+
+    /**
+     * Returns the name of the super class.
+     * 
+     * @return Name or <code>null</code> for "java.lang.Object".
+     */
+    public final String getSuperName() {
+        return superName;
+    }
+
+    /**
+     * Returns the names of the directly implemented interfaces.
+     * 
+     * @return Interfaces in declaration order - Always non-null.
+     */
+    public final List<String> getInterfaces() {
+        return interfaces;
+    }
+
+    /**
+     * Returns the fields.
+     * 
+     * @return Fields in declaration order - Always non-null.
+     */
+    public final List<Member> getFields() {
+        return fields;
+    }
+
+    /**
+     * Returns the methods including constructors and static initializers.
+     * 
+     * @return Methods in declaration order - Always non-null.
+     */
+    public final List<Member> getMethods() {
+        return methods;
+    }
+
+    /**
+     * Returns all entries of the "InnerClasses" attribute.
+     * 
+     * @return Inner class entries - Always non-null.
+     */
+    public final List<InnerClass> getInnerClasses() {
+        return innerClasses;
+    }
+
+    /**
+     * Returns the entry of the "InnerClasses" attribute that describes this
+     * class itself.
+     * 
+     * @return Entry or <code>null</code> if this is a top level class.
+     */
+    public final InnerClass getSelfInnerClass() {
+        for (int i = 0; i < innerClasses.size(); i++) {
+            final InnerClass inner = innerClasses.get(i);
+            if (name.equals(inner.getName())) {
+                return inner;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Returns the class of the "EnclosingMethod" attribute.
+     * 
+     * @return Name of the class that contains a local or anonymous class or
+     *         <code>null</code>.
+     */
+    public final String getEnclosingMethodClass() {
+        return enclosingMethodClass;
+    }
+
+    /**
+     * Returns if this is a local or anonymous class like
+     * <code>Class.isLocalClass()</code> or
+     * <code>Class.isAnonymousClass()</code> do.
+     * 
+     * @return If the class is declared inside a method or initializer
+     *         <code>true</code> else <code>false</code>.
+     */
+    public final boolean isLocalOrAnonymous() {
+        if (enclosingMethodClass != null) {
+            return true;
+        }
+        final InnerClass self = getSelfInnerClass();
+        return (self != null) && (self.getOuterName() == null);
+    }
+
+    /**
+     * Returns if the class was generated by the compiler like
+     * <code>Class.isSynthetic()</code> does.
+     * 
+     * @return If the synthetic flag is set <code>true</code> else
+     *         <code>false</code>.
+     */
+    public final boolean isSynthetic() {
+        return (access & ACC_SYNTHETIC) != 0;
+    }
+
+    /**
+     * Returns the modifiers like <code>Class.getModifiers()</code> does.
+     * 
+     * @return Modifiers of the class.
+     */
+    public final int getModifiers() {
+        final InnerClass self = getSelfInnerClass();
+        if (self == null) {
+            return access & ~ACC_SUPER;
+        }
+        return self.getAccess() & ~ACC_SUPER;
+    }
+
+    /**
+     * Returns the simple name like <code>Class.getSimpleName()</code> does.
+     * 
+     * @return Simple name (empty for anonymous classes).
+     */
+    public final String getSimpleName() {
+        final InnerClass self = getSelfInnerClass();
+        if (self == null) {
+            return name.substring(name.lastIndexOf('.') + 1);
+        }
+        if (self.getSimpleName() == null) {
+            return "";
+        }
+        return self.getSimpleName();
+    }
+
+    /**
+     * Returns the enclosing class like <code>Class.getEnclosingClass()</code>
+     * does.
+     * 
+     * @return Name of the enclosing class or <code>null</code>.
+     */
+    public final String getEnclosingName() {
+        final InnerClass self = getSelfInnerClass();
+        if ((self != null) && (self.getOuterName() != null)) {
+            return self.getOuterName();
+        }
+        return enclosingMethodClass;
+    }
+
+    /**
+     * Returns the package of the class.
+     * 
+     * @return Package name - Empty for the default package.
+     */
+    public final String getPackageName() {
+        final int p = name.lastIndexOf('.');
+        if (p == -1) {
+            return "";
+        }
+        return name.substring(0, p);
+    }
+
+    /**
+     * Converts a field descriptor into a class name in the format of
+     * <code>Class.getName()</code>.
+     * 
+     * @param descriptor
+     *            Descriptor like "I", "Ljava/lang/String;" or "[[J".
+     * 
+     * @return Class name like "int", "java.lang.String" or "[[J".
+     */
+    public static String toClassName(final String descriptor) {
+        switch (descriptor.charAt(0)) {
+        case 'V':
+            return "void";
+        case 'Z':
+            return "boolean";
+        case 'B':
+            return "byte";
+        case 'C':
+            return "char";
+        case 'S':
+            return "short";
+        case 'I':
+            return "int";
+        case 'J':
+            return "long";
+        case 'F':
+            return "float";
+        case 'D':
+            return "double";
+        case 'L':
+            return descriptor.substring(1, descriptor.length() - 1).replace('/', '.');
+        case '[':
+            return descriptor.replace('/', '.');
+        default:
+            throw new IllegalArgumentException("Unknown descriptor: '" + descriptor + "'");
+        }
+    }
+
+    /**
+     * Returns the parameter types of a method descriptor.
+     * 
+     * @param descriptor
+     *            Method descriptor like "(ILjava/lang/String;)V".
+     * 
+     * @return Class names of the parameters.
+     */
+    public static List<String> getParameterTypes(final String descriptor) {
+        final List<String> list = new ArrayList<String>();
+        int pos = 1;
+        while (descriptor.charAt(pos) != ')') {
+            final int end = endOfType(descriptor, pos);
+            list.add(toClassName(descriptor.substring(pos, end)));
+            pos = end;
+        }
+        return list;
+    }
+
+    /**
+     * Returns the return type of a method descriptor.
+     * 
+     * @param descriptor
+     *            Method descriptor like "(ILjava/lang/String;)V".
+     * 
+     * @return Class name of the return type.
+     */
+    public static String getReturnType(final String descriptor) {
+        return toClassName(descriptor.substring(descriptor.indexOf(')') + 1));
+    }
+
+    private static int endOfType(final String descriptor, final int start) {
+        int pos = start;
+        while (descriptor.charAt(pos) == '[') {
+            pos++;
+        }
+        if (descriptor.charAt(pos) == 'L') {
+            return descriptor.indexOf(';', pos) + 1;
+        }
+        return pos + 1;
+    }
+
+    /**
+     * Parses a class file.
+     * 
+     * @param data
+     *            Content of the class file.
+     * 
+     * @return Parsed class.
+     * 
+     * @throws IOException
+     *             The data is not a valid class file.
+     */
+    public static SgClassFile parse(final byte[] data) throws IOException {
+        return parse(ByteBuffer.wrap(data));
+    }
+
+    /**
+     * Parses a class file without copying the data. This allows parsing
+     * memory mapped files directly.
+     * 
+     * @param data
+     *            Content of the class file from the current position to the
+     *            limit. The position of the buffer is changed.
+     * 
+     * @return Parsed class.
+     * 
+     * @throws IOException
+     *             The data is not a valid class file.
+     */
+    public static SgClassFile parse(final ByteBuffer data) throws IOException {
+        final DataInputStream in = new DataInputStream(new ByteBufferInputStream(data));
+        if (in.readInt() != MAGIC) {
+            throw new IOException("No class file");
+        }
+        // Minor and major version
+        in.readUnsignedShort();
+        in.readUnsignedShort();
+
+        final Object[] pool = readConstantPool(in);
+        final int access = in.readUnsignedShort();
+        final String name = className(pool, in.readUnsignedShort());
+        final String superName = className(pool, in.readUnsignedShort());
+        final int interfaceCount = in.readUnsignedShort();
+        final List<String> interfaces = new ArrayList<String>(interfaceCount);
+        for (int i = 0; i < interfaceCount; i++) {
+            interfaces.add(className(pool, in.readUnsignedShort()));
+        }
+        final List<Member> fields = readMembers(in, pool);
+        final List<Member> methods = readMembers(in, pool);
+
+        final List<InnerClass> innerClasses = new ArrayList<InnerClass>();
+        String enclosingMethodClass = null;
+        final int attributeCount = in.readUnsignedShort();
+        for (int i = 0; i < attributeCount; i++) {
+            final String attrName = utf8(pool, in.readUnsignedShort());
+            final int length = in.readInt();
+            if ("InnerClasses".equals(attrName)) {
+                final int count = in.readUnsignedShort();
+                for (int j = 0; j < count; j++) {
+                    final String innerName = className(pool, in.readUnsignedShort());
+                    final String outerName = className(pool, in.readUnsignedShort());
+                    final int simpleNameIndex = in.readUnsignedShort();
+                    final String simpleName;
+                    if (simpleNameIndex == 0) {
+                        simpleName = null;
+                    } else {
+                        simpleName = utf8(pool, simpleNameIndex);
+                    }
+                    innerClasses.add(new InnerClass(innerName, outerName, simpleName, in
+                            .readUnsignedShort()));
+                }
+            } else if ("EnclosingMethod".equals(attrName)) {
+                enclosingMethodClass = className(pool, in.readUnsignedShort());
+                in.readUnsignedShort();
+            } else {
+                skip(in, length);
+            }
+        }
+
+        return new SgClassFile(access, name, superName, Collections
+                .unmodifiableList(interfaces), fields, methods, Collections
+                .unmodifiableList(innerClasses), enclosingMethodClass);
+    }
+
+    private static Object[] readConstantPool(final DataInputStream in) throws IOException {
+        final int count = in.readUnsignedShort();
+        final Object[] pool = new Object[count];
+        int i = 1;
+        while (i < count) {
+            final int tag = in.readUnsignedByte();
+            switch (tag) {
+            case CONSTANT_UTF8:
+                pool[i] = in.readUTF();
+                break;
+            case CONSTANT_CLASS:
+                // Resolved later by "className(..)"
+                pool[i] = Integer.valueOf(in.readUnsignedShort());
+                break;
+            case CONSTANT_STRING:
+            case CONSTANT_METHOD_TYPE:
+            case CONSTANT_MODULE:
+            case CONSTANT_PACKAGE:
+                skip(in, 2);
+                break;
+            case CONSTANT_METHOD_HANDLE:
+                skip(in, 3);
+                break;
+            case CONSTANT_INTEGER:
+            case CONSTANT_FLOAT:
+            case CONSTANT_FIELDREF:
+            case CONSTANT_METHODREF:
+            case CONSTANT_INTERFACE_METHODREF:
+            case CONSTANT_NAME_AND_TYPE:
+            case CONSTANT_DYNAMIC:
+            case CONSTANT_INVOKE_DYNAMIC:
+                skip(in, 4);
+                break;
+            case CONSTANT_LONG:
+            case CONSTANT_DOUBLE:
+                skip(in, 8);
+                // Takes two entries
+                i++;
+                break;
+            default:
+                throw new IOException("Unknown constant pool tag " + tag + " at index " + i);
+            }
+            i++;
+        }
+        return pool;
+    }
+
+    private static String utf8(final Object[] pool, final int index) throws IOException {
+        if ((index <= 0) || (index >= pool.length) || !(pool[index] instanceof String)) {
+            throw new IOException("Invalid constant pool index: " + index);
+        }
+        return (String) pool[index];
+    }
+
+    private static String className(final Object[] pool, final int index) throws IOException {
+        if (index == 0) {
+            return null;
+        }
+        if ((index >= pool.length) || !(pool[index] instanceof Integer)) {
+            throw new IOException("Invalid class index: " + index);
+        }
+        return utf8(pool, ((Integer) pool[index]).intValue()).replace('/', '.');
+    }
+
+    private static void skip(final DataInputStream in, final int length) throws IOException {
+        int remaining = length;
+        while (remaining > 0) {
+            final int skipped = in.skipBytes(remaining);
+            if (skipped <= 0) {
+                throw new IOException("Unexpected end of class file");
+            }
+            remaining = remaining - skipped;
+        }
+    }
+
+    private static List<Member> readMembers(final DataInputStream in, final Object[] pool)
+            throws IOException {
+        final int count = in.readUnsignedShort();
+        final List<Member> members = new ArrayList<Member>(count);
+        for (int i = 0; i < count; i++) {
+            final int access = in.readUnsignedShort();
+            final String name = utf8(pool, in.readUnsignedShort());
+            final String descriptor = utf8(pool, in.readUnsignedShort());
+            List<String> exceptions = Collections.emptyList();
+            List<String> annotations = Collections.emptyList();
+            final int attributeCount = in.readUnsignedShort();
+            for (int j = 0; j < attributeCount; j++) {
+                final String attrName = utf8(pool, in.readUnsignedShort());
+                final int length = in.readInt();
+                if ("Exceptions".equals(attrName)) {
+                    final int exceptionCount = in.readUnsignedShort();
+                    exceptions = new ArrayList<String>(exceptionCount);
+                    for (int k = 0; k < exceptionCount; k++) {
+                        exceptions.add(className(pool, in.readUnsignedShort()));
+                    }
+                } else if ("RuntimeVisibleAnnotations".equals(attrName)) {
+                    final int annotationCount = in.readUnsignedShort();
+                    annotations = new ArrayList<String>(annotationCount);
+                    for (int k = 0; k < annotationCount; k++) {
+                        annotations.add(toClassName(readAnnotation(in, pool)));
+                    }
+                } else {
+                    skip(in, length);
+                }
+            }
+            members.add(new Member(access, name, descriptor, Collections
+                    .unmodifiableList(exceptions), Collections.unmodifiableList(annotations)));
+        }
+        return Collections.unmodifiableList(members);
+    }
+
+    private static String readAnnotation(final DataInputStream in, final Object[] pool)
+            throws IOException {
+        final String type = utf8(pool, in.readUnsignedShort());
+        final int pairs = in.readUnsignedShort();
+        for (int i = 0; i < pairs; i++) {
+            // Name of the element
+            in.readUnsignedShort();
+            skipElementValue(in, pool);
+        }
+        return type;
+    }
+
+    private static void skipElementValue(final DataInputStream in, final Object[] pool)
+            throws IOException {
+        final int tag = in.readUnsignedByte();
+        switch (tag) {
+        case 'e':
+            skip(in, 4);
+            break;
+        case '@':
+            readAnnotation(in, pool);
+            break;
+        case '[':
+            final int count = in.readUnsignedShort();
+            for (int i = 0; i < count; i++) {
+                skipElementValue(in, pool);
+            }
+            break;
+        default:
+            // Constants, strings and classes
+            skip(in, 2);
+            break;
+        }
+    }
+
+    /**
+     * Reads from a byte buffer.
+     */
+    private static final class ByteBufferInputStream extends InputStream {
+
+        private final ByteBuffer buffer;
+
+        /**
+         * Constructor with buffer.
+         * 
+         * @param buffer
+         *            Buffer to read.
+         */
+        ByteBufferInputStream(final ByteBuffer buffer) {
+            super();
+            this.buffer = buffer;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public final int read() {
+            if (!buffer.hasRemaining()) {
+                return -1;
+            }
+            return buffer.get() & 0xFF;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public final int read(final byte[] b, final int off, final int len) {
+            if (!buffer.hasRemaining()) {
+                return -1;
+            }
+            final int count = Math.min(len, buffer.remaining());
+            buffer.get(b, off, count);
+            return count;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public final long skip(final long n) {
+            final int count = (int) Math.min(n, buffer.remaining());
+            buffer.position(buffer.position() + count);
+            return count;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public final int available() {
+            return buffer.remaining();
+        }
+
+    }
+
+    /**
+     * A field or method.
+     */
+    static final class Member {
+
+        private final int access;
+
+        private final String name;
+
+        private final String descriptor;
+
+        private final List<String> exceptions;
+
+        private final List<String> annotations;
+
+        /**
+         * Constructor with all data.
+         * 
+         * @param access
+         *            Access flags.
+         * @param name
+         *            Name.
+         * @param descriptor
+         *            Field or method descriptor.
+         * @param exceptions
+         *            Declared exceptions.
+         * @param annotations
+         *            Class names of the runtime visible annotations.
+         */
+        Member(final int access, final String name, final String descriptor,
+                final List<String> exceptions, final List<String> annotations) {
+            super();
+            this.access = access;
+            this.name = name;
+            this.descriptor = descriptor;
+            this.exceptions = exceptions;
+            this.annotations = annotations;
+        }
+
+        /**
+         * Returns the access flags.
+         * 
+         * @return Access flags.
+         */
+        public final int getAccess() {
+            return access;
+        }
+
+        /**
+         * Returns the name.
+         * 
+         * @return Name.
+         */
+        public final String getName() {
+            return name;
+        }
+
+        /**
+         * Returns the descriptor.
+         * 
+         * @return Field or method descriptor.
+         */
+        public final String getDescriptor() {
+            return descriptor;
+        }
+
+        /**
+         * Returns the declared exceptions.
+         * 
+         * @return Class names - Always non-null.
+         */
+        public final List<String> getExceptions() {
+            return exceptions;
+        }
+
+        /**
+         * Returns the runtime visible annotations.
+         * 
+         * @return Class names - Always non-null.
+         */
+        public final List<String> getAnnotations() {
+            return annotations;
+        }
+
+    }
+
+    /**
+     * An entry of the "InnerClasses" attribute.
+     */
+    static final class InnerClass {
+
+        private final String name;
+
+        private final String outerName;
+
+        private final String simpleName;
+
+        private final int access;
+
+        /**
+         * Constructor with all data.
+         * 
+         * @param name
+         *            Name of the inner class.
+         * @param outerName
+         *            Name of the declaring class or <code>null</code> for local
+         *            and anonymous classes.
+         * @param simpleName
+         *            Simple name or <code>null</code> for anonymous classes.
+         * @param access
+         *            Access flags as declared in the source.
+         */
+        InnerClass(final String name, final String outerName, final String simpleName,
+                final int access) {
+            super();
+            this.name = name;
+            this.outerName = outerName;
+            this.simpleName = simpleName;
+            this.access = access;
+        }
+
+        /**
+         * Returns the name of the inner class.
+         * 
+         * @return Name.
+         */
+        public final String getName() {
+            return name;
+        }
+
+        /**
+         * Returns the name of the declaring class.
+         * 
+         * @return Name or <code>null</code>.
+         */
+        public final String getOuterName() {
+            return outerName;
+        }
+
+        /**
+         * Returns the simple name.
+         * 
+         * @return Simple name or <code>null</code>.
+         */
+        public final String getSimpleName() {
+            return simpleName;
+        }
+
+        /**
+         * Returns the access flags.
+         * 
+         * @return Access flags.
+         */
+        public final int getAccess() {
+            return access;
+        }
+
+    }
+
+}
@@ -0,0 +1,384 @@
+/**
+ * Copyright (C) 2009 Future Invent Informationsmanagement GmbH. All rights
+ * reserved. <http://www.fuin.org/>
+ * 
+ * This library is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation; either version 3 of the License, or (at your option) any
+ * later version.
+ * 
+ * This library is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ * details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this library. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.fuin.srcgen4javassist;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Serializable;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Creates model classes by parsing the class files found with a class loader.
+ * In contrast to {@link SgClass#create(SgClassPool, String)} no class is
+ * loaded, defined or initialized, so static initializers are never executed.
+ * The result is the same model that is created by analyzing the class with
+ * reflection (Same names, modifiers, super classes, interfaces, fields,
+ * constructors, methods, exceptions, annotations and public inner classes).
+ * The pool's {@link SgIntrospectionPolicy} is honored and the pool statistics
+ * are updated. Instances are not thread safe.
+ */
+public final class SgClassFileIntrospector {
+
+    private static final int ARRAY_MODIFIERS_MASK = Modifier.PUBLIC | Modifier.PROTECTED
+            | Modifier.PRIVATE;
+
+    private final ClassLoader classLoader;
+
+    private final Map<String, SgClassFile> classFiles = new HashMap<String, SgClassFile>();
+
+    /**
+     * Constructor with the class loader of this class.
+     */
+    public SgClassFileIntrospector() {
+        this(SgClassFileIntrospector.class.getClassLoader());
+    }
+
+    /**
+     * Constructor with class loader.
+     * 
+     * @param classLoader
+     *            Class loader used to locate the class files - Cannot be null.
+     */
+    public SgClassFileIntrospector(final ClassLoader classLoader) {
+        super();
+        if (classLoader == null) {
+            throw new IllegalArgumentException("The argument 'classLoader' cannot be null!");
+        }
+        this.classLoader = classLoader;
+    }
+
+    /**
+     * Returns the class loader used to locate the class files.
+     * 
+     * @return Class loader - Always non-null.
+     */
+    public final ClassLoader getClassLoader() {
+        return classLoader;
+    }
+
+    /**
+     * Adds an already parsed class file. It's used instead of searching the
+     * class file with the class loader.
+     * 
+     * @param classFile
+     *            Class file to add.
+     */
+    final void addClassFile(final SgClassFile classFile) {
+        classFiles.put(classFile.getName(), classFile);
+    }
+
+    /**
+     * Creates a model class by parsing the class file. Throws an
+     * <code>IllegalArgumentException</code> if the class file cannot be found
+     * or is invalid.
+     * 
+     * @param pool
+     *            Pool to use.
+     * @param className
+     *            Name in the format returned by <code>Class.getName()</code>.
+     * 
+     * @return Class.
+     */
+    public final SgClass create(final SgClassPool pool, final String className) {
+        if (pool == null) {
+            throw new IllegalArgumentException("The argument 'pool' cannot be null!");
+        }
+        if (className == null) {
+            throw new IllegalArgumentException("The argument 'className' cannot be null!");
+        }
+        return create(pool, className, 0);
+    }
+
+    private SgClass create(final SgClassPool pool, final String className, final int depth) {
+
+        final boolean full = pool.getPolicy().isFullModel(getPackageName(className), depth);
+        final SgClass cached = pool.get(className);
+        if (SgClass.isComplete(cached, full)) {
+            return cached;
+        }
+
+        if (className.charAt(0) == '[') {
+            return createArray(pool, className, cached, full, depth);
+        }
+
+        final SgClassFile classFile = getClassFile(className);
+
+        // Creating the enclosing class may already have created this one
+        final SgClass enclosingClass;
+        final SgClass stub;
+        if (classFile.getEnclosingName() == null) {
+            enclosingClass = null;
+            stub = cached;
+        } else {
+            enclosingClass = create(pool, classFile.getEnclosingName(), depth + 1);
+            stub = pool.get(className);
+            if (SgClass.isComplete(stub, full)) {
+                return stub;
+            }
+        }
+
+        final boolean intf = Modifier.isInterface(classFile.getAccess());
+        final String modifiers = Modifier.toString(classFile.getModifiers());
+        if (!full) {
+            return addToPool(pool, className, new SgClass(modifiers, classFile.getPackageName(),
+                    classFile.getSimpleName(), null, intf, enclosingClass, true));
+        }
+
+        final SgClass superClass;
+        if (intf) {
+            superClass = null;
+        } else {
+            superClass = create(pool, classFile.getSuperName(), depth + 1);
+        }
+        final SgClass cl;
+        if (stub == null) {
+            cl = addToPool(pool, className, new SgClass(modifiers, classFile.getPackageName(),
+                    classFile.getSimpleName(), superClass, intf, enclosingClass));
+        } else {
+            // Already in the pool and maybe referenced by other models
+            stub.upgradeStub(superClass);
+            pool.countCreated(false);
+            cl = stub;
+        }
+
+        final int next = depth + 1;
+        final List<String> interfaces = classFile.getInterfaces();
+        for (int i = 0; i < interfaces.size(); i++) {
+            cl.addInterface(create(pool, interfaces.get(i), next));
+        }
+        addFields(pool, cl, classFile, next);
+        addBehaviors(pool, cl, classFile, next);
+        addInnerClasses(pool, cl, classFile, next);
+        return cl;
+
+    }
+
+    private SgClass createArray(final SgClassPool pool, final String className,
+            final SgClass stub, final boolean full, final int depth) {
+
+        final String modifiers = Modifier.toString(getModifiers(className));
+        final String simpleName = getSimpleName(className);
+
+        if (!full) {
+            final SgClass cl = new SgClass(modifiers, "", simpleName, null, false, null, true);
+            cl.setArrayClassName(className);
+            return addToPool(pool, className, cl);
+        }
+        final SgClass superClass = create(pool, Object.class.getName(), depth + 1);
+        final SgClass cl;
+        if (stub == null) {
+            cl = new SgClass(modifiers, "", simpleName, superClass, false, null);
+            cl.setArrayClassName(className);
+            addToPool(pool, className, cl);
+        } else {
+            stub.upgradeStub(superClass);
+            pool.countCreated(false);
+            cl = stub;
+        }
+        cl.addInterface(create(pool, Cloneable.class.getName(), depth + 1));
+        cl.addInterface(create(pool, Serializable.class.getName(), depth + 1));
+        return cl;
+
+    }
+
+    private int getModifiers(final String className) {
+        if (className.charAt(0) == '[') {
+            // Same as the JVM: Visibility of the component plus "abstract final"
+            final int componentModifiers = getModifiers(SgClassFile.toClassName(className
+                    .substring(1)));
+            return (componentModifiers & ARRAY_MODIFIERS_MASK) | Modifier.ABSTRACT
+                    | Modifier.FINAL;
+        }
+        if (isPrimitiveName(className)) {
+            return Modifier.PUBLIC | Modifier.ABSTRACT | Modifier.FINAL;
+        }
+        return getClassFile(className).getModifiers();
+    }
+
+    private String getSimpleName(final String className) {
+        if (className.charAt(0) == '[') {
+            return getSimpleName(SgClassFile.toClassName(className.substring(1))) + "[]";
+        }
+        if (isPrimitiveName(className)) {
+            return className;
+        }
+        return getClassFile(className).getSimpleName();
+    }
+
+    private static boolean isPrimitiveName(final String className) {
+        return className.equals("boolean") || className.equals("byte")
+                || className.equals("char") || className.equals("short")
+                || className.equals("int") || className.equals("long")
+                || className.equals("float") || className.equals("double")
+                || className.equals("void");
+    }
+
+    private static String getPackageName(final String className) {
+        String name = className;
+        while (name.charAt(0) == '[') {
+            name = SgClassFile.toClassName(name.substring(1));
+        }
+        final int p = name.lastIndexOf('.');
+        if (p == -1) {
+            return "";
+        }
+        return name.substring(0, p);
+    }
+
+    private static SgClass addToPool(final SgClassPool pool, final String className,
+            final SgClass cl) {
+        // The model name of arrays, local and anonymous classes differs from
+        // the class file name
+        pool.put(className, cl);
+        pool.countCreated(cl.isStub());
+        return cl;
+    }
+
+    private void addFields(final SgClassPool pool, final SgClass cl,
+            final SgClassFile classFile, final int depth) {
+        final List<SgClassFile.Member> fields = classFile.getFields();
+        for (int i = 0; i < fields.size(); i++) {
+            final SgClassFile.Member member = fields.get(i);
+            final SgClass type = create(pool, SgClassFile.toClassName(member.getDescriptor()),
+                    depth);
+            // This implicitly adds the field to the class
+            final SgField field = new SgField(cl, Modifier.toString(member.getAccess()), type,
+                    member.getName(), null);
+            field.addAnnotations(createAnnotations(member.getAnnotations()));
+        }
+    }
+
+    private void addBehaviors(final SgClassPool pool, final SgClass cl,
+            final SgClassFile classFile, final int depth) {
+        final List<SgClassFile.Member> methods = classFile.getMethods();
+        for (int i = 0; i < methods.size(); i++) {
+            final SgClassFile.Member member = methods.get(i);
+            final String name = member.getName();
+            final String modifiers = Modifier.toString(member.getAccess());
+            final String descriptor = member.getDescriptor();
+            final SgBehavior behavior;
+            if (name.equals("<clinit>")) {
+                continue;
+            } else if (name.equals("<init>")) {
+                if (cl.isInterface()) {
+                    continue;
+                }
+                behavior = new SgConstructor(cl, modifiers);
+            } else {
+                final SgClass returnType = create(pool, SgClassFile.getReturnType(descriptor),
+                        depth);
+                behavior = new SgMethod(cl, modifiers, returnType, name);
+            }
+
+            final List<String> parameterTypes = SgClassFile.getParameterTypes(descriptor);
+            for (int j = 0; j < parameterTypes.size(); j++) {
+                // This implicitly adds the argument to the behavior
+                new SgArgument(behavior, create(pool, parameterTypes.get(j), depth), "p" + j);
+            }
+            behavior.addAnnotations(createAnnotations(member.getAnnotations()));
+
+            final List<String> exceptions = member.getExceptions();
+            for (int j = 0; j < exceptions.size(); j++) {
+                behavior.addException(create(pool, exceptions.get(j), depth));
+            }
+
+            if (behavior instanceof SgConstructor) {
+                cl.addConstructor((SgConstructor) behavior);
+            } else {
+                cl.addMethod((SgMethod) behavior);
+            }
+        }
+    }
+
+    private void addInnerClasses(final SgClassPool pool, final SgClass cl,
+            final SgClassFile classFile, final int depth) {
+        // Same as "Class.getClasses()": Public member classes including
+        // the ones inherited from super classes
+        final List<String> names = new ArrayList<String>();
+        SgClassFile current = classFile;
+        while (current != null) {
+            final List<SgClassFile.InnerClass> innerClasses = current.getInnerClasses();
+            for (int i = 0; i < innerClasses.size(); i++) {
+                final SgClassFile.InnerClass inner = innerClasses.get(i);
+                if (current.getName().equals(inner.getOuterName())
+                        && Modifier.isPublic(inner.getAccess())
+                        && !names.contains(inner.getName())) {
+                    names.add(inner.getName());
+                }
+            }
+            if (current.getSuperName() == null) {
+                current = null;
+            } else {
+                current = getClassFile(current.getSuperName());
+            }
+        }
+        for (int i = 0; i < names.size(); i++) {
+            cl.addClass(create(pool, names.get(i), depth));
+        }
+    }
+
+    private List<SgAnnotation> createAnnotations(final List<String> classNames) {
+        final List<SgAnnotation> list = new ArrayList<SgAnnotation>();
+        for (int i = 0; i < classNames.size(); i++) {
+            final String className = classNames.get(i);
+            list.add(new SgAnnotation(getPackageName(className), getSimpleName(className)));
+        }
+        return list;
+    }
+
+    private SgClassFile getClassFile(final String className) {
+        final SgClassFile cached = classFiles.get(className);
+        if (cached != null) {
+            return cached;
+        }
+        final String resource = className.replace('.', '/') + ".class";
+        final InputStream in = classLoader.getResourceAsStream(resource);
+        if (in == null) {
+            throw new IllegalArgumentException("Cannot find class file for '" + className
+                    + "'!");
+        }
+        try {
+            try {
+                final SgClassFile classFile = SgClassFile.parse(readAll(in));
+                classFiles.put(className, classFile);
+                return classFile;
+            } finally {
+                in.close();
+            }
+        } catch (final IOException ex) {
+            throw new IllegalArgumentException("Cannot read class file for '" + className
+                    + "'!", ex);
+        }
+    }
+
+    private static byte[] readAll(final InputStream in) throws IOException {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        final byte[] buf = new byte[4096];
+        int count;
+        while ((count = in.read(buf)) != -1) {
+            out.write(buf, 0, count);
+        }
+        return out.toByteArray();
+    }
+
+}
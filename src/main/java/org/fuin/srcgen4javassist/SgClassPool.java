@@ -17,8 +17,11 @@
  */
 package org.fuin.srcgen4javassist;
 
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.Iterator;
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * Stores references of all known model classes.
@@ -27,11 +30,37 @@ public final class SgClassPool {
 
     private final Map<String, SgClass> cache = new HashMap<String, SgClass>();
 
+    private final SgIntrospectionPolicy policy;
+
+    private final AtomicLong hits = new AtomicLong();
+
+    private final AtomicLong misses = new AtomicLong();
+
+    private final AtomicLong createdModels = new AtomicLong();
+
+    private final AtomicLong createdStubs = new AtomicLong();
+
     /**
-     * Default constructor.
+     * Default constructor. Uses the {@link SgIntrospectionPolicy#DEFAULT}
+     * policy.
      */
     public SgClassPool() {
+        this(SgIntrospectionPolicy.DEFAULT);
+    }
+
+    /**
+     * Constructor with introspection policy.
+     * 
+     * @param policy
+     *            Decides which classes are analyzed completely - Cannot be
+     *            null.
+     */
+    public SgClassPool(final SgIntrospectionPolicy policy) {
         super();
+        if (policy == null) {
+            throw new IllegalArgumentException("The argument 'policy' cannot be null!");
+        }
+        this.policy = policy;
         cache.put(void.class.getName(), SgClass.VOID);
         cache.put(boolean.class.getName(), SgClass.BOOLEAN);
         cache.put(byte.class.getName(), SgClass.BYTE);
@@ -44,6 +73,15 @@ public final class SgClassPool {
         cache.put(Object.class.getName(), SgClass.OBJECT);
     }
 
+    /**
+     * Returns the policy used for analyzing classes.
+     * 
+     * @return Policy - Always non-null.
+     */
+    public final SgIntrospectionPolicy getPolicy() {
+        return policy;
+    }
+
     /**
      * Returns a class from the internal cache.
      * 
@@ -56,7 +94,13 @@ public final class SgClassPool {
         if (className == null) {
             throw new IllegalArgumentException("The argument 'className' cannot be null!");
         }
-        return cache.get(className);
+        final SgClass clasz = cache.get(className);
+        if (clasz == null) {
+            misses.incrementAndGet();
+        } else {
+            hits.incrementAndGet();
+        }
+        return clasz;
     }
 
     /**
@@ -92,4 +136,64 @@ public final class SgClassPool {
         cache.put(className, clasz);
     }
 
+    /**
+     * Returns all entries of the internal cache.
+     * 
+     * @return Unmodifiable map with the name used as key and the model class
+     *         as value.
+     */
+    final Map<String, SgClass> getEntries() {
+        return Collections.unmodifiableMap(cache);
+    }
+
+    /**
+     * Counts a model class created by analyzing a "real" class.
+     * 
+     * @param stub
+     *            Is the new class a "names-only" stub?
+     */
+    final void countCreated(final boolean stub) {
+        if (stub) {
+            createdStubs.incrementAndGet();
+        } else {
+            createdModels.incrementAndGet();
+        }
+    }
+
+    /**
+     * Returns a snapshot of the statistics. Calculating the package counts and
+     * the retained size visits all classes in the pool so this is not a cheap
+     * operation.
+     * 
+     * @return Current statistics - Always non-null.
+     */
+    public final SgClassPoolStatistics getStatistics() {
+        final Map<String, Integer> packageCounts = new HashMap<String, Integer>();
+        final SgMemoryEstimator estimator = new SgMemoryEstimator();
+        final Iterator<SgClass> it = cache.values().iterator();
+        while (it.hasNext()) {
+            final SgClass clasz = it.next();
+            final Integer count = packageCounts.get(clasz.getPackageName());
+            if (count == null) {
+                packageCounts.put(clasz.getPackageName(), Integer.valueOf(1));
+            } else {
+                packageCounts.put(clasz.getPackageName(), Integer.valueOf(count.intValue() + 1));
+            }
+            estimator.addClass(clasz);
+        }
+        return new SgClassPoolStatistics(hits.get(), misses.get(), createdModels.get(),
+                createdStubs.get(), cache.size(), packageCounts, estimator.getBytes());
+    }
+
+    /**
+     * Sets all counters (hits, misses and created models) to zero. The content
+     * of the pool is not changed.
+     */
+    public final void resetStatistics() {
+        hits.set(0);
+        misses.set(0);
+        createdModels.set(0);
+        createdStubs.set(0);
+    }
+
 }
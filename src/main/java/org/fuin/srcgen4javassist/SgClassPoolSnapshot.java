@@ -0,0 +1,859 @@
+/**
+ * Copyright (C) 2009 Future Invent Informationsmanagement GmbH. All rights
+ * reserved. <http://www.fuin.org/>
+ * 
+ * This library is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation; either version 3 of the License, or (at your option) any
+ * later version.
+ * 
+ * This library is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ * details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this library. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.fuin.srcgen4javassist;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.lang.reflect.Array;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Writes the content of a {@link SgClassPool} into a compact binary file and
+ * restores a pool from it. All strings are stored once in a string table and
+ * classes reference each other by their index in the class table. The file is
+ * read with a memory mapped buffer. Every snapshot starts with a header that
+ * contains the format version and a user defined tag (like an application
+ * version or a hash of the class path) and a snapshot with a different format
+ * or tag is rejected.<br>
+ * <br>
+ * Annotation arguments keep their type if they are strings, primitive
+ * wrappers, model classes, <code>Class</code> objects, enum constants or
+ * arrays of these. Classes (also the ones of enums and arrays) are loaded
+ * with <code>Class.forName(..)</code> when the snapshot is read. Any other
+ * value is only used as source text and is restored as
+ * <code>String.valueOf(value)</code>. Frozen classes are frozen again after
+ * reading.
+ */
+public final class SgClassPoolSnapshot {
+
+    /** Current version of the binary format. */
+    public static final int FORMAT_VERSION = 2;
+
+    private static final int MAGIC = 0x53473450;
+
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+
+    private static final int NULL_INDEX = -1;
+
+    private static final int FLAG_INTERFACE = 1;
+
+    private static final int FLAG_STUB = 2;
+
+    private static final int FLAG_FROZEN = 4;
+
+    private static final byte VALUE_STRING = 0;
+    private static final byte VALUE_BOOLEAN = 1;
+    private static final byte VALUE_CHARACTER = 2;
+    private static final byte VALUE_BYTE = 3;
+    private static final byte VALUE_SHORT = 4;
+    private static final byte VALUE_INTEGER = 5;
+    private static final byte VALUE_LONG = 6;
+    private static final byte VALUE_FLOAT = 7;
+    private static final byte VALUE_DOUBLE = 8;
+    private static final byte VALUE_MODEL = 9;
+    private static final byte VALUE_TYPE = 10;
+    private static final byte VALUE_ENUM = 11;
+    private static final byte VALUE_ARRAY = 12;
+    private static final byte VALUE_TEXT = 13;
+
+    /** Types that cannot be loaded with <code>Class.forName(..)</code>. */
+    private static final Class<?>[] PRIMITIVES = new Class<?>[] { void.class, boolean.class,
+            byte.class, char.class, short.class, int.class, long.class, float.class,
+            double.class };
+
+    /** Classes that exist only once and are referenced by a fixed index. */
+    private static final SgClass[] BUILTIN = new SgClass[] { SgClass.VOID, SgClass.BOOLEAN,
+            SgClass.BYTE, SgClass.CHAR, SgClass.SHORT, SgClass.INT, SgClass.LONG, SgClass.FLOAT,
+            SgClass.DOUBLE, SgClass.OBJECT };
+
+    private SgClassPoolSnapshot() {
+        throw new UnsupportedOperationException(
+                "It's not allowed to create an instance of this class!");
+    }
+
+    /**
+     * Writes all classes of the pool (and all classes referenced by them) to a
+     * file.
+     * 
+     * @param pool
+     *            Pool to write - Cannot be null.
+     * @param file
+     *            Target file - Cannot be null. An existing file will be
+     *            overwritten.
+     * @param tag
+     *            User defined version tag stored in the header - Cannot be null.
+     * 
+     * @throws IOException
+     *             Error writing the file.
+     */
+    public static void write(final SgClassPool pool, final File file, final String tag)
+            throws IOException {
+        assureNotNull("pool", pool);
+        assureNotNull("file", file);
+        assureNotNull("tag", tag);
+
+        final SnapshotWriter writer = new SnapshotWriter(pool);
+        final DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+                new FileOutputStream(file)));
+        try {
+            out.writeInt(MAGIC);
+            out.writeInt(FORMAT_VERSION);
+            writeString(out, tag);
+            writer.write(out);
+        } finally {
+            out.close();
+        }
+    }
+
+    /**
+     * Restores a pool from a file using the default introspection policy.
+     * 
+     * @param file
+     *            File created with {@link #write(SgClassPool, File, String)} -
+     *            Cannot be null.
+     * @param tag
+     *            Expected version tag - Cannot be null.
+     * 
+     * @return New pool with all classes from the snapshot.
+     * 
+     * @throws IOException
+     *             Error reading the file or the snapshot is not compatible.
+     */
+    public static SgClassPool read(final File file, final String tag) throws IOException {
+        return read(file, tag, SgIntrospectionPolicy.DEFAULT);
+    }
+
+    /**
+     * Restores a pool from a file.
+     * 
+     * @param file
+     *            File created with {@link #write(SgClassPool, File, String)} -
+     *            Cannot be null.
+     * @param tag
+     *            Expected version tag - Cannot be null.
+     * @param policy
+     *            Policy for the new pool - Cannot be null.
+     * 
+     * @return New pool with all classes from the snapshot.
+     * 
+     * @throws IOException
+     *             Error reading the file or the snapshot is not compatible.
+     */
+    public static SgClassPool read(final File file, final String tag,
+            final SgIntrospectionPolicy policy) throws IOException {
+        assureNotNull("file", file);
+        assureNotNull("tag", tag);
+        assureNotNull("policy", policy);
+
+        final RandomAccessFile raf = new RandomAccessFile(file, "r");
+        try {
+            final FileChannel channel = raf.getChannel();
+            final ByteBuffer buf = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            final String error = checkHeader(buf, tag);
+            if (error != null) {
+                throw new IOException(error + " [" + file + "]");
+            }
+            try {
+                return new SnapshotReader(buf).read(new SgClassPool(policy));
+            } catch (final BufferUnderflowException ex) {
+                throw new IOException("Snapshot is truncated [" + file + "]");
+            } catch (final IndexOutOfBoundsException ex) {
+                throw new IOException("Snapshot is corrupt [" + file + "]");
+            }
+        } finally {
+            raf.close();
+        }
+    }
+
+    /**
+     * Checks if a file is a snapshot with the current format version and the
+     * given tag.
+     * 
+     * @param file
+     *            File to check - Cannot be null.
+     * @param tag
+     *            Expected version tag - Cannot be null.
+     * 
+     * @return If the file exists and can be read with
+     *         {@link #read(File, String)} <code>true</code> else
+     *         <code>false</code>.
+     */
+    public static boolean isCompatible(final File file, final String tag) {
+        assureNotNull("file", file);
+        assureNotNull("tag", tag);
+        if (!file.isFile()) {
+            return false;
+        }
+        try {
+            final RandomAccessFile raf = new RandomAccessFile(file, "r");
+            try {
+                final FileChannel channel = raf.getChannel();
+                final ByteBuffer buf = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel
+                        .size());
+                return checkHeader(buf, tag) == null;
+            } finally {
+                raf.close();
+            }
+        } catch (final IOException ex) {
+            return false;
+        } catch (final RuntimeException ex) {
+            return false;
+        }
+    }
+
+    private static String checkHeader(final ByteBuffer buf, final String tag) {
+        if ((buf.remaining() < 8) || (buf.getInt() != MAGIC)) {
+            return "File is not a class pool snapshot";
+        }
+        final int version = buf.getInt();
+        if (version != FORMAT_VERSION) {
+            return "Snapshot has format version " + version + " but expected "
+                    + FORMAT_VERSION;
+        }
+        final String fileTag = readString(buf);
+        if (!tag.equals(fileTag)) {
+            return "Snapshot has tag '" + fileTag + "' but expected '" + tag + "'";
+        }
+        return null;
+    }
+
+    private static void assureNotNull(final String name, final Object value) {
+        if (value == null) {
+            throw new IllegalArgumentException("The argument '" + name + "' cannot be null!");
+        }
+    }
+
+    private static void writeString(final DataOutputStream out, final String str)
+            throws IOException {
+        final byte[] bytes = str.getBytes(UTF8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(final ByteBuffer buf) {
+        final byte[] bytes = new byte[buf.getInt()];
+        buf.get(bytes);
+        return new String(bytes, UTF8);
+    }
+
+    private static Class<?> forName(final String name) throws IOException {
+        for (int i = 0; i < PRIMITIVES.length; i++) {
+            if (PRIMITIVES[i].getName().equals(name)) {
+                return PRIMITIVES[i];
+            }
+        }
+        try {
+            return Class.forName(name);
+        } catch (final ClassNotFoundException ex) {
+            throw new IOException("Cannot load class of an annotation value: " + name);
+        }
+    }
+
+    /**
+     * Collects all strings and classes and writes them.
+     */
+    private static final class SnapshotWriter {
+
+        private final SgClassPool pool;
+
+        private final Map<String, Integer> strings = new HashMap<String, Integer>();
+
+        private final List<String> stringTable = new ArrayList<String>();
+
+        private final Map<SgClass, Integer> classes = new IdentityHashMap<SgClass, Integer>();
+
+        private final List<SgClass> classTable = new ArrayList<SgClass>();
+
+        /**
+         * Constructor with pool.
+         * 
+         * @param pool
+         *            Pool to write.
+         */
+        public SnapshotWriter(final SgClassPool pool) {
+            super();
+            this.pool = pool;
+            for (int i = 0; i < BUILTIN.length; i++) {
+                classes.put(BUILTIN[i], Integer.valueOf(i));
+            }
+        }
+
+        /**
+         * Adds the class and the classes it cannot be constructed without
+         * (super and enclosing class) to the class table.
+         * 
+         * @param clasz
+         *            Class to add.
+         */
+        private void addClass(final SgClass clasz) {
+            if ((clasz == null) || classes.containsKey(clasz)) {
+                return;
+            }
+            // Mark as "in progress" to stop endless recursion
+            classes.put(clasz, Integer.valueOf(NULL_INDEX));
+            addClass(clasz.getSuperClass());
+            addClass(clasz.getEnclosingClass());
+            classes.put(clasz, Integer.valueOf(BUILTIN.length + classTable.size()));
+            classTable.add(clasz);
+        }
+
+        private void addBehavior(final SgBehavior behavior) {
+            final List<SgArgument> args = behavior.getArguments();
+            for (int i = 0; i < args.size(); i++) {
+                addClass(args.get(i).getType());
+                addAnnotations(args.get(i).getAnnotations());
+            }
+            final List<SgClass> exceptions = behavior.getExceptions();
+            for (int i = 0; i < exceptions.size(); i++) {
+                addClass(exceptions.get(i));
+            }
+            addAnnotations(behavior.getAnnotations());
+        }
+
+        private void addAnnotations(final List<SgAnnotation> annotations) {
+            for (int i = 0; i < annotations.size(); i++) {
+                final Iterator<Object> it = annotations.get(i).getArguments().values()
+                        .iterator();
+                while (it.hasNext()) {
+                    addValue(it.next());
+                }
+            }
+        }
+
+        private void addValue(final Object value) {
+            if (value instanceof SgClass) {
+                addClass((SgClass) value);
+            } else if (value instanceof Object[]) {
+                final Object[] array = (Object[]) value;
+                for (int i = 0; i < array.length; i++) {
+                    addValue(array[i]);
+                }
+            }
+        }
+
+        private void addReferencedClasses(final SgClass clasz) {
+            final List<SgClass> interfaces = clasz.getInterfaces();
+            for (int i = 0; i < interfaces.size(); i++) {
+                addClass(interfaces.get(i));
+            }
+            addAnnotations(clasz.getAnnotations());
+            final List<SgField> fields = clasz.getFields();
+            for (int i = 0; i < fields.size(); i++) {
+                addClass(fields.get(i).getType());
+                addAnnotations(fields.get(i).getAnnotations());
+            }
+            final List<SgConstructor> constructors = clasz.getConstructors();
+            for (int i = 0; i < constructors.size(); i++) {
+                addBehavior(constructors.get(i));
+            }
+            final List<SgMethod> methods = clasz.getMethods();
+            for (int i = 0; i < methods.size(); i++) {
+                addClass(methods.get(i).getReturnType());
+                addBehavior(methods.get(i));
+            }
+            final List<SgClass> inner = clasz.getClasses();
+            for (int i = 0; i < inner.size(); i++) {
+                addClass(inner.get(i));
+            }
+        }
+
+        private int str(final String str) {
+            if (str == null) {
+                return NULL_INDEX;
+            }
+            final Integer index = strings.get(str);
+            if (index != null) {
+                return index.intValue();
+            }
+            final int newIndex = stringTable.size();
+            strings.put(str, Integer.valueOf(newIndex));
+            stringTable.add(str);
+            return newIndex;
+        }
+
+        private int cls(final SgClass clasz) {
+            if (clasz == null) {
+                return NULL_INDEX;
+            }
+            return classes.get(clasz).intValue();
+        }
+
+        /**
+         * Writes the complete content (without header).
+         * 
+         * @param out
+         *            Stream to write to.
+         * 
+         * @throws IOException
+         *             Error writing the stream.
+         */
+        public final void write(final DataOutputStream out) throws IOException {
+
+            // Build class table (the list grows while iterating)
+            final Map<String, SgClass> entries = pool.getEntries();
+            final Iterator<SgClass> it = entries.values().iterator();
+            while (it.hasNext()) {
+                addClass(it.next());
+            }
+            for (int i = 0; i < classTable.size(); i++) {
+                addReferencedClasses(classTable.get(i));
+            }
+
+            // Encode everything except the strings into a buffer first
+            final ByteArrayOutputStream bos = new ByteArrayOutputStream();
+            final DataOutputStream body = new DataOutputStream(bos);
+            body.writeInt(classTable.size());
+            for (int i = 0; i < classTable.size(); i++) {
+                final SgClass clasz = classTable.get(i);
+                body.writeInt(str(clasz.getModifiers()));
+                body.writeInt(str(clasz.getPackageName()));
+                body.writeInt(str(clasz.getSimpleName()));
+                int flags = 0;
+                if (clasz.isInterface()) {
+                    flags = flags | FLAG_INTERFACE;
+                }
+                if (clasz.isStub()) {
+                    flags = flags | FLAG_STUB;
+                }
+                if (clasz.isFrozen()) {
+                    flags = flags | FLAG_FROZEN;
+                }
+                body.writeByte(flags);
+                body.writeInt(cls(clasz.getSuperClass()));
+                body.writeInt(cls(clasz.getEnclosingClass()));
+            }
+            body.writeInt(entries.size());
+            final Iterator<Map.Entry<String, SgClass>> entryIt = entries.entrySet().iterator();
+            while (entryIt.hasNext()) {
+                final Map.Entry<String, SgClass> entry = entryIt.next();
+                body.writeInt(str(entry.getKey()));
+                body.writeInt(cls(entry.getValue()));
+            }
+            for (int i = 0; i < classTable.size(); i++) {
+                writeMembers(body, classTable.get(i));
+            }
+            body.flush();
+
+            out.writeInt(stringTable.size());
+            for (int i = 0; i < stringTable.size(); i++) {
+                writeString(out, stringTable.get(i));
+            }
+            bos.writeTo(out);
+        }
+
+        private void writeMembers(final DataOutputStream out, final SgClass clasz)
+                throws IOException {
+            writeClasses(out, clasz.getInterfaces());
+            writeAnnotations(out, clasz.getAnnotations());
+
+            final List<SgField> fields = clasz.getFields();
+            out.writeInt(fields.size());
+            for (int i = 0; i < fields.size(); i++) {
+                final SgField field = fields.get(i);
+                out.writeInt(str(field.getModifiers()));
+                out.writeInt(cls(field.getType()));
+                out.writeInt(str(field.getName()));
+                out.writeInt(str(field.getInitializer()));
+                writeAnnotations(out, field.getAnnotations());
+            }
+
+            final List<SgConstructor> constructors = clasz.getConstructors();
+            out.writeInt(constructors.size());
+            for (int i = 0; i < constructors.size(); i++) {
+                final SgConstructor constructor = constructors.get(i);
+                writeBehavior(out, constructor);
+                writeBody(out, constructor.getBody());
+            }
+
+            final List<SgMethod> methods = clasz.getMethods();
+            out.writeInt(methods.size());
+            for (int i = 0; i < methods.size(); i++) {
+                final SgMethod method = methods.get(i);
+                out.writeInt(cls(method.getReturnType()));
+                out.writeInt(str(method.getName()));
+                writeBehavior(out, method);
+                writeBody(out, method.getBody());
+            }
+
+            writeClasses(out, clasz.getClasses());
+        }
+
+        private void writeClasses(final DataOutputStream out, final List<SgClass> list)
+                throws IOException {
+            out.writeInt(list.size());
+            for (int i = 0; i < list.size(); i++) {
+                out.writeInt(cls(list.get(i)));
+            }
+        }
+
+        private void writeBody(final DataOutputStream out, final List<String> body)
+                throws IOException {
+            out.writeInt(body.size());
+            for (int i = 0; i < body.size(); i++) {
+                out.writeInt(str(body.get(i)));
+            }
+        }
+
+        private void writeBehavior(final DataOutputStream out, final SgBehavior behavior)
+                throws IOException {
+            out.writeInt(str(behavior.getModifiers()));
+            final List<SgArgument> args = behavior.getArguments();
+            out.writeInt(args.size());
+            for (int i = 0; i < args.size(); i++) {
+                final SgArgument arg = args.get(i);
+                out.writeInt(str(arg.getModifiers()));
+                out.writeInt(cls(arg.getType()));
+                out.writeInt(str(arg.getName()));
+                writeAnnotations(out, arg.getAnnotations());
+            }
+            writeClasses(out, behavior.getExceptions());
+            writeAnnotations(out, behavior.getAnnotations());
+        }
+
+        private void writeAnnotations(final DataOutputStream out,
+                final List<SgAnnotation> annotations) throws IOException {
+            out.writeInt(annotations.size());
+            for (int i = 0; i < annotations.size(); i++) {
+                final SgAnnotation annotation = annotations.get(i);
+                out.writeInt(str(annotation.getPackageName()));
+                out.writeInt(str(annotation.getSimpleName()));
+                final Map<String, Object> arguments = annotation.getArguments();
+                out.writeInt(arguments.size());
+                final Iterator<Map.Entry<String, Object>> it = arguments.entrySet().iterator();
+                while (it.hasNext()) {
+                    final Map.Entry<String, Object> entry = it.next();
+                    out.writeInt(str(entry.getKey()));
+                    writeValue(out, entry.getValue());
+                }
+            }
+        }
+
+        // CHECKSTYLE:OFF Cyclomatic complexity is OK here
+        private void writeValue(final DataOutputStream out, final Object value)
+                throws IOException {
+            if (value instanceof Boolean) {
+                out.writeByte(VALUE_BOOLEAN);
+                out.writeBoolean(((Boolean) value).booleanValue());
+            } else if (value instanceof Character) {
+                out.writeByte(VALUE_CHARACTER);
+                out.writeChar(((Character) value).charValue());
+            } else if (value instanceof Byte) {
+                out.writeByte(VALUE_BYTE);
+                out.writeByte(((Byte) value).byteValue());
+            } else if (value instanceof Short) {
+                out.writeByte(VALUE_SHORT);
+                out.writeShort(((Short) value).shortValue());
+            } else if (value instanceof Integer) {
+                out.writeByte(VALUE_INTEGER);
+                out.writeInt(((Integer) value).intValue());
+            } else if (value instanceof Long) {
+                out.writeByte(VALUE_LONG);
+                out.writeLong(((Long) value).longValue());
+            } else if (value instanceof Float) {
+                out.writeByte(VALUE_FLOAT);
+                out.writeFloat(((Float) value).floatValue());
+            } else if (value instanceof Double) {
+                out.writeByte(VALUE_DOUBLE);
+                out.writeDouble(((Double) value).doubleValue());
+            } else if (value instanceof String) {
+                out.writeByte(VALUE_STRING);
+                out.writeInt(str((String) value));
+            } else if (value instanceof SgClass) {
+                out.writeByte(VALUE_MODEL);
+                out.writeInt(cls((SgClass) value));
+            } else if (value instanceof Class<?>) {
+                out.writeByte(VALUE_TYPE);
+                out.writeInt(str(((Class<?>) value).getName()));
+            } else if (value instanceof Enum<?>) {
+                out.writeByte(VALUE_ENUM);
+                out.writeInt(str(((Enum<?>) value).getDeclaringClass().getName()));
+                out.writeInt(str(((Enum<?>) value).name()));
+            } else if (value.getClass().isArray()) {
+                out.writeByte(VALUE_ARRAY);
+                out.writeInt(str(value.getClass().getComponentType().getName()));
+                final int length = Array.getLength(value);
+                out.writeInt(length);
+                for (int i = 0; i < length; i++) {
+                    writeValue(out, Array.get(value, i));
+                }
+            } else {
+                // All other values are only used as source text
+                out.writeByte(VALUE_TEXT);
+                out.writeInt(str(String.valueOf(value)));
+            }
+        }
+        // CHECKSTYLE:ON
+
+    }
+
+    /**
+     * Reads the content of a snapshot and populates a pool.
+     */
+    private static final class SnapshotReader {
+
+        private final ByteBuffer buf;
+
+        private String[] strings;
+
+        private SgClass[] classes;
+
+        /**
+         * Constructor with buffer positioned after the header.
+         * 
+         * @param buf
+         *            Buffer to read.
+         */
+        public SnapshotReader(final ByteBuffer buf) {
+            super();
+            this.buf = buf;
+        }
+
+        private String str() {
+            final int index = buf.getInt();
+            if (index == NULL_INDEX) {
+                return null;
+            }
+            return strings[index];
+        }
+
+        private SgClass cls() {
+            final int index = buf.getInt();
+            if (index == NULL_INDEX) {
+                return null;
+            }
+            return classes[index];
+        }
+
+        /**
+         * Reads the snapshot.
+         * 
+         * @param pool
+         *            Pool to add the classes to.
+         * 
+         * @return The pool.
+         * 
+         * @throws IOException
+         *             A class of an annotation value cannot be loaded.
+         */
+        public final SgClassPool read(final SgClassPool pool) throws IOException {
+
+            strings = new String[buf.getInt()];
+            for (int i = 0; i < strings.length; i++) {
+                strings[i] = readString(buf);
+            }
+
+            // Super and enclosing classes are always stored before the class
+            final int count = buf.getInt();
+            classes = new SgClass[BUILTIN.length + count];
+            System.arraycopy(BUILTIN, 0, classes, 0, BUILTIN.length);
+            final List<SgClass> frozen = new ArrayList<SgClass>();
+            for (int i = 0; i < count; i++) {
+                final String modifiers = str();
+                final String packageName = str();
+                final String simpleName = str();
+                final int flags = buf.get();
+                final SgClass superClass = cls();
+                final SgClass enclosingClass = cls();
+                classes[BUILTIN.length + i] = new SgClass(modifiers, packageName, simpleName,
+                        superClass, (flags & FLAG_INTERFACE) != 0, enclosingClass,
+                        (flags & FLAG_STUB) != 0);
+                if ((flags & FLAG_FROZEN) != 0) {
+                    frozen.add(classes[BUILTIN.length + i]);
+                }
+            }
+
+            final int entries = buf.getInt();
+            for (int i = 0; i < entries; i++) {
+                final String name = str();
+                final SgClass clasz = cls();
+                if (name.charAt(0) == '[') {
+                    clasz.setArrayClassName(name);
+                }
+                pool.put(name, clasz);
+            }
+
+            for (int i = 0; i < count; i++) {
+                readMembers(classes[BUILTIN.length + i]);
+            }
+            for (int i = 0; i < frozen.size(); i++) {
+                frozen.get(i).freeze();
+            }
+            return pool;
+        }
+
+        private void readMembers(final SgClass clasz) throws IOException {
+
+            final int interfaces = buf.getInt();
+            for (int i = 0; i < interfaces; i++) {
+                clasz.addInterface(cls());
+            }
+            clasz.addAnnotations(readAnnotations());
+
+            final int fields = buf.getInt();
+            for (int i = 0; i < fields; i++) {
+                final String modifiers = str();
+                final SgClass type = cls();
+                final String name = str();
+                final String initializer = str();
+                // This implicitly adds the field to the class
+                final SgField field = new SgField(clasz, modifiers, type, name, initializer);
+                field.addAnnotations(readAnnotations());
+            }
+
+            final int constructors = buf.getInt();
+            for (int i = 0; i < constructors; i++) {
+                // This implicitly adds the constructor to the class
+                final SgConstructor constructor = new SgConstructor(clasz, str());
+                readBehavior(constructor);
+                final int lines = buf.getInt();
+                for (int j = 0; j < lines; j++) {
+                    constructor.addBodyLine(str());
+                }
+            }
+
+            final int methods = buf.getInt();
+            for (int i = 0; i < methods; i++) {
+                final SgClass returnType = cls();
+                final String name = str();
+                // This implicitly adds the method to the class
+                final SgMethod method = new SgMethod(clasz, str(), returnType, name);
+                readBehavior(method);
+                final int lines = buf.getInt();
+                for (int j = 0; j < lines; j++) {
+                    method.addBodyLine(str());
+                }
+            }
+
+            final int inner = buf.getInt();
+            for (int i = 0; i < inner; i++) {
+                clasz.addClass(cls());
+            }
+        }
+
+        private void readBehavior(final SgBehavior behavior) throws IOException {
+            final int args = buf.getInt();
+            for (int i = 0; i < args; i++) {
+                final String modifiers = str();
+                final SgClass type = cls();
+                final String name = str();
+                // This implicitly adds the argument to the behavior
+                final SgArgument arg = new SgArgument(behavior, modifiers, type, name);
+                arg.addAnnotations(readAnnotations());
+            }
+            final int exceptions = buf.getInt();
+            for (int i = 0; i < exceptions; i++) {
+                behavior.addException(cls());
+            }
+            behavior.addAnnotations(readAnnotations());
+        }
+
+        private List<SgAnnotation> readAnnotations() throws IOException {
+            final int count = buf.getInt();
+            final List<SgAnnotation> list = new ArrayList<SgAnnotation>(count);
+            for (int i = 0; i < count; i++) {
+                final SgAnnotation annotation = new SgAnnotation(str(), str());
+                final int args = buf.getInt();
+                for (int j = 0; j < args; j++) {
+                    final String name = str();
+                    annotation.addArgument(name, readValue());
+                }
+                list.add(annotation);
+            }
+            return list;
+        }
+
+        // CHECKSTYLE:OFF Cyclomatic complexity is OK here
+        private Object readValue() throws IOException {
+            final byte type = buf.get();
+            switch (type) {
+            case VALUE_STRING:
+            case VALUE_TEXT:
+                return str();
+            case VALUE_BOOLEAN:
+                return Boolean.valueOf(buf.get() != 0);
+            case VALUE_CHARACTER:
+                return Character.valueOf(buf.getChar());
+            case VALUE_BYTE:
+                return Byte.valueOf(buf.get());
+            case VALUE_SHORT:
+                return Short.valueOf(buf.getShort());
+            case VALUE_INTEGER:
+                return Integer.valueOf(buf.getInt());
+            case VALUE_LONG:
+                return Long.valueOf(buf.getLong());
+            case VALUE_FLOAT:
+                return Float.valueOf(buf.getFloat());
+            case VALUE_DOUBLE:
+                return Double.valueOf(buf.getDouble());
+            case VALUE_MODEL:
+                return cls();
+            case VALUE_TYPE:
+                return forName(str());
+            case VALUE_ENUM:
+                return readEnum();
+            case VALUE_ARRAY:
+                return readArray();
+            default:
+                throw new IndexOutOfBoundsException("Unknown value type: " + type);
+            }
+        }
+        // CHECKSTYLE:ON
+
+        private Object readEnum() throws IOException {
+            final Class<?> enumClass = forName(str());
+            final String name = str();
+            final Object[] constants = enumClass.getEnumConstants();
+            if (constants == null) {
+                throw new IOException("Not an enum: " + enumClass.getName());
+            }
+            for (int i = 0; i < constants.length; i++) {
+                if (((Enum<?>) constants[i]).name().equals(name)) {
+                    return constants[i];
+                }
+            }
+            throw new IOException("Unknown enum constant: " + enumClass.getName() + "." + name);
+        }
+
+        private Object readArray() throws IOException {
+            final Class<?> componentType = forName(str());
+            final int length = buf.getInt();
+            final Object array = Array.newInstance(componentType, length);
+            for (int i = 0; i < length; i++) {
+                // Unwraps primitive values
+                Array.set(array, i, readValue());
+            }
+            return array;
+        }
+
+    }
+
+}
@@ -0,0 +1,175 @@
+/**
+ * Copyright (C) 2009 Future Invent Informationsmanagement GmbH. All rights
+ * reserved. <http://www.fuin.org/>
+ * 
+ * This library is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation; either version 3 of the License, or (at your option) any
+ * later version.
+ * 
+ * This library is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ * details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this library. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.fuin.srcgen4javassist;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Immutable snapshot of the statistics of a {@link SgClassPool}. Counters are
+ * collected since the pool was created or since the last call to
+ * {@link SgClassPool#resetStatistics()}. Class and package counts and the
+ * retained size reflect the content of the pool at the time the snapshot was
+ * taken.
+ */
+public final class SgClassPoolStatistics {
+
+    private final long hits;
+
+    private final long misses;
+
+    private final long createdModels;
+
+    private final long createdStubs;
+
+    private final int classCount;
+
+    private final Map<String, Integer> packageCounts;
+
+    private final long estimatedRetainedBytes;
+
+    /**
+     * Constructor with all data.
+     * 
+     * @param hits
+     *            Number of successful lookups.
+     * @param misses
+     *            Number of lookups that did not find a class.
+     * @param createdModels
+     *            Number of full models created by <code>SgClass.create</code>.
+     * @param createdStubs
+     *            Number of stubs created by <code>SgClass.create</code>.
+     * @param classCount
+     *            Number of entries in the pool.
+     * @param packageCounts
+     *            Number of entries per package - Cannot be null.
+     * @param estimatedRetainedBytes
+     *            Estimated heap size of the model graph in bytes.
+     */
+    SgClassPoolStatistics(final long hits, final long misses, final long createdModels,
+            final long createdStubs, final int classCount, final Map<String, Integer> packageCounts,
+            final long estimatedRetainedBytes) {
+        super();
+        this.hits = hits;
+        this.misses = misses;
+        this.createdModels = createdModels;
+        this.createdStubs = createdStubs;
+        this.classCount = classCount;
+        this.packageCounts = Collections.unmodifiableMap(new TreeMap<String, Integer>(
+                packageCounts));
+        this.estimatedRetainedBytes = estimatedRetainedBytes;
+    }
+
+    /**
+     * Returns the number of calls to {@link SgClassPool#get(String)} that found
+     * a class.
+     * 
+     * @return Number of hits.
+     */
+    public final long getHits() {
+        return hits;
+    }
+
+    /**
+     * Returns the number of calls to {@link SgClassPool#get(String)} that did
+     * not find a class.
+     * 
+     * @return Number of misses.
+     */
+    public final long getMisses() {
+        return misses;
+    }
+
+    /**
+     * Returns the ratio of hits to all lookups.
+     * 
+     * @return Value between 0.0 and 1.0 (0.0 if there was no lookup at all).
+     */
+    public final double getHitRatio() {
+        final long total = hits + misses;
+        if (total == 0) {
+            return 0.0;
+        }
+        return (double) hits / total;
+    }
+
+    /**
+     * Returns the number of full models created by
+     * {@link SgClass#create(SgClassPool, Class)}.
+     * 
+     * @return Number of analyzed classes.
+     */
+    public final long getCreatedModels() {
+        return createdModels;
+    }
+
+    /**
+     * Returns the number of "names-only" stubs created by
+     * {@link SgClass#create(SgClassPool, Class)}.
+     * 
+     * @return Number of stubs.
+     */
+    public final long getCreatedStubs() {
+        return createdStubs;
+    }
+
+    /**
+     * Returns the number of entries in the pool.
+     * 
+     * @return Number of classes.
+     */
+    public final int getClassCount() {
+        return classCount;
+    }
+
+    /**
+     * Returns the number of pool entries per package.
+     * 
+     * @return Package name (empty string for the default package and
+     *         primitives) and number of entries, sorted by package name -
+     *         Always non-null and unmodifiable.
+     */
+    public final Map<String, Integer> getPackageCounts() {
+        return packageCounts;
+    }
+
+    /**
+     * Returns the estimated heap size of all model classes in the pool
+     * including all types, members and strings reachable from them. The value
+     * is calculated for a 64 bit VM with compressed references and is meant
+     * for sizing and trend analysis - It's not an exact measurement.
+     * 
+     * @return Size in bytes.
+     */
+    public final long getEstimatedRetainedBytes() {
+        return estimatedRetainedBytes;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public final String toString() {
+        return "hits=" + hits + ", misses=" + misses + ", createdModels=" + createdModels
+                + ", createdStubs=" + createdStubs + ", classCount=" + classCount
+                + ", estimatedRetainedBytes=" + estimatedRetainedBytes + ", packageCounts="
+                + packageCounts;
+    }
+
+}
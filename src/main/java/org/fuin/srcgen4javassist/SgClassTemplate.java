@@ -0,0 +1,430 @@
+/**
+ * Copyright (C) 2009 Future Invent Informationsmanagement GmbH. All rights
+ * reserved. <http://www.fuin.org/>
+ * 
+ * This library is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation; either version 3 of the License, or (at your option) any
+ * later version.
+ * 
+ * This library is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ * details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this library. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.fuin.srcgen4javassist;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Template for classes that only differ in some names, types or source
+ * fragments. The template is a frozen class that contains placeholders in the
+ * form <code>${key}</code> in the package or class name, member names, field
+ * initializers and body lines. Types are replaced by using a placeholder type
+ * created with {@link #placeholderType(String)}. The template is analyzed
+ * only once - Instantiating it only concatenates the already split strings
+ * and reuses everything that contains no placeholder. Annotations are shared
+ * with the template.
+ */
+public final class SgClassTemplate {
+
+    private static final String START = "${";
+
+    private static final String END = "}";
+
+    private final SgClass template;
+
+    private final Set<String> placeholders;
+
+    private final Text packageName;
+
+    private final Text simpleName;
+
+    private final Type superClass;
+
+    private final Type[] interfaces;
+
+    private final Field[] fields;
+
+    private final Behavior[] constructors;
+
+    private final Behavior[] methods;
+
+    /**
+     * Constructor with the template class.
+     * 
+     * @param template
+     *            Frozen top level class with placeholders - Cannot be null.
+     */
+    public SgClassTemplate(final SgClass template) {
+        super();
+        if (template == null) {
+            throw new IllegalArgumentException("The argument 'template' cannot be null!");
+        }
+        if (!template.isFrozen()) {
+            throw new IllegalArgumentException("The template '" + template.getName()
+                    + "' must be frozen!");
+        }
+        if ((template.getEnclosingClass() != null) || (template.getClasses().size() > 0)) {
+            throw new IllegalArgumentException("The template '" + template.getName()
+                    + "' cannot be an inner class or have inner classes!");
+        }
+        this.template = template;
+        final Set<String> keys = new TreeSet<String>();
+        this.packageName = new Text(template.getPackageName(), keys);
+        this.simpleName = new Text(template.getSimpleName(), keys);
+        this.superClass = type(template.getSuperClass(), keys);
+        this.interfaces = types(template.getInterfaces(), keys);
+
+        final List<SgField> fieldList = template.getFields();
+        this.fields = new Field[fieldList.size()];
+        for (int i = 0; i < fields.length; i++) {
+            final SgField field = fieldList.get(i);
+            fields[i] = new Field(field.getModifiers(), type(field.getType(), keys), new Text(
+                    field.getName(), keys), text(field.getInitializer(), keys), field
+                    .getAnnotations());
+        }
+
+        final List<SgConstructor> constructorList = template.getConstructors();
+        this.constructors = new Behavior[constructorList.size()];
+        for (int i = 0; i < constructors.length; i++) {
+            final SgConstructor constructor = constructorList.get(i);
+            constructors[i] = new Behavior(constructor, null, null, constructor.getBody(), keys);
+        }
+
+        final List<SgMethod> methodList = template.getMethods();
+        this.methods = new Behavior[methodList.size()];
+        for (int i = 0; i < methods.length; i++) {
+            final SgMethod method = methodList.get(i);
+            methods[i] = new Behavior(method, type(method.getReturnType(), keys), new Text(method
+                    .getName(), keys), method.getBody(), keys);
+        }
+        this.placeholders = Collections.unmodifiableSet(keys);
+    }
+
+    /**
+     * Creates a type that is replaced with the class bound to the given key.
+     * 
+     * @param key
+     *            Name of the placeholder - Cannot be null.
+     * 
+     * @return Placeholder type with the name <code>${key}</code>.
+     */
+    public static SgClass placeholderType(final String key) {
+        if (key == null) {
+            throw new IllegalArgumentException("The argument 'key' cannot be null!");
+        }
+        return new SgClass("", START + key + END);
+    }
+
+    /**
+     * Returns the template class.
+     * 
+     * @return Frozen class - Always non-null.
+     */
+    public final SgClass getTemplate() {
+        return template;
+    }
+
+    /**
+     * Returns the names of all placeholders used in the template.
+     * 
+     * @return Sorted set of keys - Always non-null and unmodifiable.
+     */
+    public final Set<String> getPlaceholders() {
+        return placeholders;
+    }
+
+    /**
+     * Creates a new class by replacing all placeholders. Text placeholders
+     * accept any value - Classes are inserted with their source name and all
+     * other objects with <code>toString()</code>. Placeholder types require
+     * a <code>SgClass</code> value. References to the template class itself
+     * are replaced with the new class.
+     * 
+     * @param values
+     *            Values for all placeholders - Cannot be null.
+     * 
+     * @return New frozen class.
+     */
+    public final SgClass instantiate(final Map<String, ?> values) {
+        if (values == null) {
+            throw new IllegalArgumentException("The argument 'values' cannot be null!");
+        }
+        final SgClassBuilder builder = new SgClassBuilder(template.getModifiers(), packageName
+                .bind(values), simpleName.bind(values), bind(superClass, values, null), template
+                .isInterface());
+        final SgClass clasz = builder.getSgClass();
+        builder.expectMembers(fields.length, constructors.length, methods.length);
+        for (int i = 0; i < interfaces.length; i++) {
+            clasz.addInterface(bind(interfaces[i], values, clasz));
+        }
+        builder.addAnnotations(template.getAnnotations());
+
+        for (int i = 0; i < fields.length; i++) {
+            final Field field = fields[i];
+            final SgField sgField = builder.addField(field.modifiers, bind(field.type, values,
+                    clasz), field.name.bind(values), field.initializer == null ? null
+                    : field.initializer.bind(values));
+            sgField.addAnnotations(field.annotations);
+        }
+        for (int i = 0; i < constructors.length; i++) {
+            final Behavior constructor = constructors[i];
+            constructor.bind(builder.addConstructor(constructor.modifiers), values, clasz);
+        }
+        for (int i = 0; i < methods.length; i++) {
+            final Behavior method = methods[i];
+            method.bind(builder.addMethod(method.modifiers, bind(method.returnType, values,
+                    clasz), method.name.bind(values)), values, clasz);
+        }
+        return builder.build();
+    }
+
+    private Type type(final SgClass clasz, final Set<String> keys) {
+        if (clasz == null) {
+            return null;
+        }
+        if (clasz == template) {
+            return Type.SELF;
+        }
+        final String name = clasz.getName();
+        if ((clasz.getPackageName().length() == 0) && name.startsWith(START)
+                && name.endsWith(END)) {
+            final String key = name.substring(START.length(), name.length() - END.length());
+            keys.add(key);
+            return new Type(null, key);
+        }
+        return new Type(clasz, null);
+    }
+
+    private Type[] types(final List<SgClass> list, final Set<String> keys) {
+        final Type[] types = new Type[list.size()];
+        for (int i = 0; i < types.length; i++) {
+            types[i] = type(list.get(i), keys);
+        }
+        return types;
+    }
+
+    private static Text text(final String str, final Set<String> keys) {
+        if (str == null) {
+            return null;
+        }
+        return new Text(str, keys);
+    }
+
+    private static SgClass bind(final Type type, final Map<String, ?> values,
+            final SgClass self) {
+        if (type == null) {
+            return null;
+        }
+        if (type == Type.SELF) {
+            return self;
+        }
+        if (type.key == null) {
+            return type.clasz;
+        }
+        final Object value = values.get(type.key);
+        if (!(value instanceof SgClass)) {
+            throw new IllegalArgumentException("The placeholder type '" + START + type.key + END
+                    + "' requires a value of type 'SgClass', but was: " + value);
+        }
+        return (SgClass) value;
+    }
+
+    /**
+     * Type that is either fixed or replaced by a placeholder value.
+     */
+    private static final class Type {
+
+        /** Marker for the template class itself. */
+        static final Type SELF = new Type(null, null);
+
+        final SgClass clasz;
+
+        final String key;
+
+        Type(final SgClass clasz, final String key) {
+            super();
+            this.clasz = clasz;
+            this.key = key;
+        }
+
+    }
+
+    /**
+     * String split into constant parts and placeholders.
+     */
+    private static final class Text {
+
+        /** Complete text if there is no placeholder - Otherwise null. */
+        private final String constant;
+
+        /** Constant parts - One more than keys. */
+        private final String[] parts;
+
+        private final String[] keys;
+
+        private final int constantLength;
+
+        Text(final String str, final Set<String> allKeys) {
+            super();
+            final List<String> partList = new ArrayList<String>();
+            final List<String> keyList = new ArrayList<String>();
+            this.constantLength = str.length();
+            int pos = 0;
+            int start = str.indexOf(START);
+            while (start >= 0) {
+                final int end = str.indexOf(END, start + START.length());
+                if (end < 0) {
+                    break;
+                }
+                partList.add(str.substring(pos, start));
+                keyList.add(str.substring(start + START.length(), end));
+                pos = end + END.length();
+                start = str.indexOf(START, pos);
+            }
+            if (keyList.size() == 0) {
+                this.constant = str;
+                this.parts = null;
+                this.keys = null;
+            } else {
+                partList.add(str.substring(pos));
+                this.constant = null;
+                this.parts = partList.toArray(new String[partList.size()]);
+                this.keys = keyList.toArray(new String[keyList.size()]);
+                allKeys.addAll(keyList);
+            }
+        }
+
+        String bind(final Map<String, ?> values) {
+            if (constant != null) {
+                return constant;
+            }
+            final StringBuilder sb = new StringBuilder(constantLength + 16);
+            for (int i = 0; i < keys.length; i++) {
+                sb.append(parts[i]);
+                final Object value = values.get(keys[i]);
+                if (value == null) {
+                    throw new IllegalArgumentException("No value for placeholder '" + START
+                            + keys[i] + END + "'!");
+                }
+                if (value instanceof SgClass) {
+                    sb.append(((SgClass) value).getSourceName());
+                } else {
+                    sb.append(value);
+                }
+            }
+            sb.append(parts[keys.length]);
+            return sb.toString();
+        }
+
+    }
+
+    /**
+     * Pre-analyzed field.
+     */
+    private static final class Field {
+
+        final String modifiers;
+
+        final Type type;
+
+        final Text name;
+
+        final Text initializer;
+
+        final List<SgAnnotation> annotations;
+
+        Field(final String modifiers, final Type type, final Text name, final Text initializer,
+                final List<SgAnnotation> annotations) {
+            super();
+            this.modifiers = modifiers;
+            this.type = type;
+            this.name = name;
+            this.initializer = initializer;
+            this.annotations = annotations;
+        }
+
+    }
+
+    /**
+     * Pre-analyzed constructor or method.
+     */
+    private final class Behavior {
+
+        final String modifiers;
+
+        final Type returnType;
+
+        final Text name;
+
+        final String[] argModifiers;
+
+        final Type[] argTypes;
+
+        final Text[] argNames;
+
+        final List<List<SgAnnotation>> argAnnotations;
+
+        final Type[] exceptions;
+
+        final List<SgAnnotation> annotations;
+
+        final Text[] body;
+
+        Behavior(final SgBehavior behavior, final Type returnType, final Text name,
+                final List<String> bodyLines, final Set<String> keys) {
+            super();
+            this.modifiers = behavior.getModifiers();
+            this.returnType = returnType;
+            this.name = name;
+            final List<SgArgument> args = behavior.getArguments();
+            this.argModifiers = new String[args.size()];
+            this.argTypes = new Type[args.size()];
+            this.argNames = new Text[args.size()];
+            this.argAnnotations = new ArrayList<List<SgAnnotation>>(args.size());
+            for (int i = 0; i < args.size(); i++) {
+                final SgArgument arg = args.get(i);
+                argModifiers[i] = arg.getModifiers();
+                argTypes[i] = type(arg.getType(), keys);
+                argNames[i] = new Text(arg.getName(), keys);
+                argAnnotations.add(arg.getAnnotations());
+            }
+            this.exceptions = types(behavior.getExceptions(), keys);
+            this.annotations = behavior.getAnnotations();
+            this.body = new Text[bodyLines.size()];
+            for (int i = 0; i < body.length; i++) {
+                body[i] = new Text(bodyLines.get(i), keys);
+            }
+        }
+
+        void bind(final SgBehavior behavior, final Map<String, ?> values, final SgClass self) {
+            for (int i = 0; i < argTypes.length; i++) {
+                final SgArgument arg = new SgArgument(behavior, argModifiers[i], SgClassTemplate
+                        .bind(argTypes[i], values, self), argNames[i].bind(values));
+                arg.addAnnotations(argAnnotations.get(i));
+            }
+            for (int i = 0; i < exceptions.length; i++) {
+                behavior.addException(SgClassTemplate.bind(exceptions[i], values, self));
+            }
+            behavior.addAnnotations(annotations);
+            for (int i = 0; i < body.length; i++) {
+                if (behavior instanceof SgMethod) {
+                    ((SgMethod) behavior).addBodyLine(body[i].bind(values));
+                } else {
+                    ((SgConstructor) behavior).addBodyLine(body[i].bind(values));
+                }
+            }
+        }
+
+    }
+
+}
@@ -0,0 +1,422 @@
+/**
+ * Copyright (C) 2009 Future Invent Informationsmanagement GmbH. All rights
+ * reserved. <http://www.fuin.org/>
+ * 
+ * This library is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation; either version 3 of the License, or (at your option) any
+ * later version.
+ * 
+ * This library is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ * details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this library. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.fuin.srcgen4javassist;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Enumeration;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+/**
+ * Creates model classes for all classes found in a list of directories and
+ * JAR files. The class files are parsed in parallel (Files in directories are
+ * memory mapped) and the models are created afterwards in a single thread
+ * with a {@link SgClassFileIntrospector}. Types that are referenced by the
+ * scanned classes but are not part of the roots are located with a class
+ * loader. No class is loaded or initialized.
+ */
+public final class SgClasspathScanner {
+
+    private static final String CLASS_EXT = ".class";
+
+    /** Number of work units per thread to balance different file sizes. */
+    private static final int UNITS_PER_THREAD = 4;
+
+    private final List<File> roots;
+
+    private final SgIntrospectionPolicy filter;
+
+    private final int threads;
+
+    private final ClassLoader classLoader;
+
+    /**
+     * Constructor with roots and package filter. Uses one thread per
+     * available processor and the class loader of this class.
+     * 
+     * @param roots
+     *            Directories and JAR files to scan - Cannot be null.
+     * @param filter
+     *            Only classes in packages that are in the scope of this
+     *            policy are scanned (See
+     *            {@link SgIntrospectionPolicy#isInScope(String)}) - Cannot be
+     *            null.
+     */
+    public SgClasspathScanner(final List<File> roots, final SgIntrospectionPolicy filter) {
+        this(roots, filter, Runtime.getRuntime().availableProcessors(), SgClasspathScanner.class
+                .getClassLoader());
+    }
+
+    /**
+     * Constructor with all data.
+     * 
+     * @param roots
+     *            Directories and JAR files to scan - Cannot be null.
+     * @param filter
+     *            Only classes in packages that are in the scope of this
+     *            policy are scanned (See
+     *            {@link SgIntrospectionPolicy#isInScope(String)}) - Cannot be
+     *            null.
+     * @param threads
+     *            Number of threads used for parsing - Must be greater than
+     *            zero.
+     * @param classLoader
+     *            Class loader used to locate types that are not part of the
+     *            roots - Cannot be null.
+     */
+    public SgClasspathScanner(final List<File> roots, final SgIntrospectionPolicy filter,
+            final int threads, final ClassLoader classLoader) {
+        super();
+        if (roots == null) {
+            throw new IllegalArgumentException("The argument 'roots' cannot be null!");
+        }
+        if (filter == null) {
+            throw new IllegalArgumentException("The argument 'filter' cannot be null!");
+        }
+        if (threads < 1) {
+            throw new IllegalArgumentException("The argument 'threads' must be > 0: " + threads);
+        }
+        if (classLoader == null) {
+            throw new IllegalArgumentException("The argument 'classLoader' cannot be null!");
+        }
+        this.roots = Collections.unmodifiableList(new ArrayList<File>(roots));
+        this.filter = filter;
+        this.threads = threads;
+        this.classLoader = classLoader;
+    }
+
+    /**
+     * Returns the directories and JAR files to scan.
+     * 
+     * @return Roots - Always non-null and unmodifiable.
+     */
+    public final List<File> getRoots() {
+        return roots;
+    }
+
+    /**
+     * Returns the package filter.
+     * 
+     * @return Filter - Always non-null.
+     */
+    public final SgIntrospectionPolicy getFilter() {
+        return filter;
+    }
+
+    /**
+     * Returns the number of threads used for parsing.
+     * 
+     * @return Number of threads.
+     */
+    public final int getThreads() {
+        return threads;
+    }
+
+    /**
+     * Scans all roots and adds the model classes to the pool. If a class is
+     * found in more than one root the first one wins. The pool's
+     * {@link SgIntrospectionPolicy} decides if referenced types are analyzed
+     * completely. Throws an <code>IllegalArgumentException</code> if a
+     * referenced type cannot be found. Local, anonymous and synthetic classes
+     * have no name that can be used in source code and are skipped.
+     * 
+     * @param pool
+     *            Pool to add the classes to - Cannot be null.
+     * 
+     * @return Models of the scanned classes sorted by name.
+     * 
+     * @throws IOException
+     *             Error reading a root or an invalid class file.
+     */
+    public final List<SgClass> scan(final SgClassPool pool) throws IOException {
+        if (pool == null) {
+            throw new IllegalArgumentException("The argument 'pool' cannot be null!");
+        }
+        final List<ZipFile> zipFiles = new ArrayList<ZipFile>();
+        try {
+            final Map<String, Source> sources = new LinkedHashMap<String, Source>();
+            for (int i = 0; i < roots.size(); i++) {
+                final File root = roots.get(i);
+                if (root.isDirectory()) {
+                    collect(sources, root, "");
+                } else {
+                    final ZipFile zipFile = new ZipFile(root);
+                    zipFiles.add(zipFile);
+                    collect(sources, zipFile);
+                }
+            }
+
+            final List<SgClassFile> classFiles = parse(new ArrayList<Source>(sources.values()));
+            Collections.sort(classFiles, new Comparator<SgClassFile>() {
+                public int compare(final SgClassFile o1, final SgClassFile o2) {
+                    return o1.getName().compareTo(o2.getName());
+                }
+            });
+
+            // Second pass resolves the references between the classes
+            final SgClassFileIntrospector introspector = new SgClassFileIntrospector(
+                    classLoader);
+            for (int i = 0; i < classFiles.size(); i++) {
+                introspector.addClassFile(classFiles.get(i));
+            }
+            final List<SgClass> classes = new ArrayList<SgClass>(classFiles.size());
+            for (int i = 0; i < classFiles.size(); i++) {
+                final SgClassFile classFile = classFiles.get(i);
+                if (!classFile.isLocalOrAnonymous() && !classFile.isSynthetic()) {
+                    classes.add(introspector.create(pool, classFile.getName()));
+                }
+            }
+            return classes;
+
+        } finally {
+            for (int i = 0; i < zipFiles.size(); i++) {
+                zipFiles.get(i).close();
+            }
+        }
+    }
+
+    private boolean accept(final String className) {
+        // Skip "module-info", "package-info" and multi release versions
+        if ((className.indexOf('-') > -1) || className.startsWith("META-INF.")) {
+            return false;
+        }
+        final int p = className.lastIndexOf('.');
+        if (p == -1) {
+            return filter.isInScope("");
+        }
+        return filter.isInScope(className.substring(0, p));
+    }
+
+    private void collect(final Map<String, Source> sources, final File dir, final String pkg) {
+        final File[] files = dir.listFiles();
+        if (files == null) {
+            return;
+        }
+        for (int i = 0; i < files.length; i++) {
+            final File file = files[i];
+            final String name = file.getName();
+            if (file.isDirectory()) {
+                collect(sources, file, pkg + name + ".");
+            } else if (name.endsWith(CLASS_EXT)) {
+                final String className = pkg + name.substring(0, name.length() - CLASS_EXT.length());
+                if (!sources.containsKey(className) && accept(className)) {
+                    sources.put(className, new FileSource(file));
+                }
+            }
+        }
+    }
+
+    private void collect(final Map<String, Source> sources, final ZipFile zipFile) {
+        final Enumeration<? extends ZipEntry> entries = zipFile.entries();
+        while (entries.hasMoreElements()) {
+            final ZipEntry entry = entries.nextElement();
+            final String name = entry.getName();
+            if (!entry.isDirectory() && name.endsWith(CLASS_EXT)) {
+                final String className = name.substring(0, name.length() - CLASS_EXT.length())
+                        .replace('/', '.');
+                if (!sources.containsKey(className) && accept(className)) {
+                    sources.put(className, new ZipSource(zipFile, entry));
+                }
+            }
+        }
+    }
+
+    private List<SgClassFile> parse(final List<Source> sources) throws IOException {
+        final List<SgClassFile> classFiles = new ArrayList<SgClassFile>(sources.size());
+        if (sources.size() == 0) {
+            return classFiles;
+        }
+        final int units = Math.min(sources.size(), threads * UNITS_PER_THREAD);
+        final ExecutorService executor = Executors.newFixedThreadPool(Math.min(threads, units));
+        try {
+            final List<Future<List<SgClassFile>>> futures = new ArrayList<Future<List<SgClassFile>>>(
+                    units);
+            for (int i = 0; i < units; i++) {
+                final int from = (int) ((long) sources.size() * i / units);
+                final int to = (int) ((long) sources.size() * (i + 1) / units);
+                futures.add(executor.submit(new ParseUnit(sources.subList(from, to))));
+            }
+            for (int i = 0; i < futures.size(); i++) {
+                classFiles.addAll(futures.get(i).get());
+            }
+        } catch (final InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while parsing class files", ex);
+        } catch (final ExecutionException ex) {
+            final Throwable cause = ex.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new IOException("Error parsing class files", cause);
+        } finally {
+            executor.shutdownNow();
+        }
+        return classFiles;
+    }
+
+    /**
+     * Parses a part of the class files.
+     */
+    private static final class ParseUnit implements Callable<List<SgClassFile>> {
+
+        private final List<Source> sources;
+
+        /**
+         * Constructor with sources.
+         * 
+         * @param sources
+         *            Class files to parse.
+         */
+        ParseUnit(final List<Source> sources) {
+            super();
+            this.sources = sources;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        public final List<SgClassFile> call() throws IOException {
+            final List<SgClassFile> list = new ArrayList<SgClassFile>(sources.size());
+            for (int i = 0; i < sources.size(); i++) {
+                list.add(sources.get(i).parse());
+            }
+            return list;
+        }
+
+    }
+
+    /**
+     * Location of a class file.
+     */
+    private static interface Source {
+
+        /**
+         * Reads and parses the class file.
+         * 
+         * @return Parsed class file.
+         * 
+         * @throws IOException
+         *             Error reading or parsing the file.
+         */
+        SgClassFile parse() throws IOException;
+
+    }
+
+    /**
+     * Class file in a directory.
+     */
+    private static final class FileSource implements Source {
+
+        private final File file;
+
+        /**
+         * Constructor with file.
+         * 
+         * @param file
+         *            Class file.
+         */
+        FileSource(final File file) {
+            super();
+            this.file = file;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        public final SgClassFile parse() throws IOException {
+            final RandomAccessFile raf = new RandomAccessFile(file, "r");
+            try {
+                final FileChannel channel = raf.getChannel();
+                return SgClassFile.parse(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel
+                        .size()));
+            } catch (final IOException ex) {
+                throw new IOException("Error parsing '" + file + "'", ex);
+            } finally {
+                raf.close();
+            }
+        }
+
+    }
+
+    /**
+     * Class file in a JAR.
+     */
+    private static final class ZipSource implements Source {
+
+        private final ZipFile zipFile;
+
+        private final ZipEntry entry;
+
+        /**
+         * Constructor with file and entry.
+         * 
+         * @param zipFile
+         *            JAR file.
+         * @param entry
+         *            Class file entry.
+         */
+        ZipSource(final ZipFile zipFile, final ZipEntry entry) {
+            super();
+            this.zipFile = zipFile;
+            this.entry = entry;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        public final SgClassFile parse() throws IOException {
+            final int size = (int) Math.max(entry.getSize(), 1024);
+            final ByteArrayOutputStream out = new ByteArrayOutputStream(size);
+            final InputStream in = zipFile.getInputStream(entry);
+            try {
+                final byte[] buf = new byte[4096];
+                int count;
+                while ((count = in.read(buf)) != -1) {
+                    out.write(buf, 0, count);
+                }
+                return SgClassFile.parse(out.toByteArray());
+            } catch (final IOException ex) {
+                throw new IOException("Error parsing '" + zipFile.getName() + "!"
+                        + entry.getName() + "'", ex);
+            } finally {
+                in.close();
+            }
+        }
+
+    }
+
+}
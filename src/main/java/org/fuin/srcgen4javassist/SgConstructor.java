@@ -18,7 +18,6 @@
 package org.fuin.srcgen4javassist;
 
 import java.util.ArrayList;
-import java.util.Collections;
 import java.util.List;
 
 /**
@@ -26,7 +25,14 @@ import java.util.List;
  */
 public final class SgConstructor extends SgBehavior {
 
-    private final List<String> body;
+    /** Source lines or <code>null</code> if there are none. */
+    private ArrayList<String> body;
+
+    private List<String> frozenBody;
+
+    private String signature;
+
+    private String source;
 
     /**
      * Constructor with class. Modifier defaults to "public". The constructor
@@ -50,11 +56,29 @@ public final class SgConstructor extends SgBehavior {
      *            empty).
      */
     public SgConstructor(final SgClass owner, final String modifiers) {
+        this(owner, modifiers, true);
+    }
+
+    /**
+     * Constructor with all data.
+     * 
+     * @param owner
+     *            Class the behavior belongs to - Cannot be null.
+     * @param modifiers
+     *            Modifiers for the constructor/method - Cannot be null (but
+     *            empty).
+     * @param addToOwner
+     *            If <code>true</code> the constructor is added to the
+     *            <code>owner</code>. Otherwise it has to be added later with
+     *            {@link SgClass#addConstructors(java.util.Collection)}.
+     */
+    public SgConstructor(final SgClass owner, final String modifiers, final boolean addToOwner) {
         super(owner, modifiers);
-        body = new ArrayList<String>();
         // TODO Check if the class not already contains a constructor with the
         // same name and arguments!
-        owner.addConstructor(this);
+        if (addToOwner) {
+            owner.addConstructor(this);
+        }
     }
 
     /**
@@ -63,7 +87,11 @@ public final class SgConstructor extends SgBehavior {
      * @return Body - Always non-null, maybe empty and is unmodifiable.
      */
     public final List<String> getBody() {
-        return Collections.unmodifiableList(body);
+        final List<String> view = frozenBody;
+        if (view != null) {
+            return view;
+        }
+        return SgLists.view(body);
     }
 
     /**
@@ -76,7 +104,61 @@ public final class SgConstructor extends SgBehavior {
         if (line == null) {
             throw new IllegalArgumentException("The argument 'line' cannot be null!");
         }
-        body.add(line);
+        assertNotFrozen();
+        body = SgLists.add(body, line, 4);
+    }
+
+    /**
+     * Passes this constructor and it's content to a visitor.
+     * 
+     * @param visitor
+     *            Visitor to call.
+     * @param index
+     *            Position of the constructor in the class.
+     * @param count
+     *            Number of constructors of the class.
+     */
+    final void accept(final SgVisitor visitor, final int index, final int count) {
+        if (visitor.visitConstructor(this, index, count)) {
+            acceptContent(visitor, body);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    final int getAllocatedCollections() {
+        return super.getAllocatedCollections() + SgLists.countAllocated(body, frozenBody);
+    }
+
+    /**
+     * Returns the signature kept after it was created for the frozen
+     * constructor.
+     * 
+     * @return Signature or <code>null</code> if the constructor is not frozen
+     *         or the signature was not requested yet.
+     */
+    final String getCachedSignature() {
+        return signature;
+    }
+
+    /**
+     * Returns the source kept after it was created for the frozen constructor.
+     * 
+     * @return Source or <code>null</code> if the constructor is not frozen or
+     *         the source was not requested yet.
+     */
+    final String getCachedSource() {
+        return source;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    final void freezing() {
+        frozenBody = SgLists.freeze(body);
     }
 
     /**
@@ -85,30 +167,47 @@ public final class SgConstructor extends SgBehavior {
      * @return Modifiers and arguments.
      */
     public final String getSignature() {
-        final StringBuffer sb = new StringBuffer();
-        if (getModifiers().length() > 0) {
-            sb.append(getModifiers());
-            sb.append(" ");
+        final String cached = signature;
+        if (cached != null) {
+            return cached;
         }
-        sb.append(getOwner().getSimpleName());
-        sb.append("(");
-        for (int i = 0; i < getArguments().size(); i++) {
-            if (i > 0) {
-                sb.append(", ");
-            }
-            sb.append(getArguments().get(i));
+        final String result = SgSourceRenderer.toString(this, false, true);
+        if (isFrozen()) {
+            signature = result;
         }
-        sb.append(")");
-        if (getExceptions().size() > 0) {
-            sb.append(" throws ");
-            for (int i = 0; i < getExceptions().size(); i++) {
-                if (i > 0) {
-                    sb.append(",");
-                }
-                sb.append(getExceptions().get(i).getName());
-            }
+        return result;
+    }
+
+    /**
+     * Two constructors are equal if they have the same modifiers, arguments,
+     * exceptions, annotations and body. The owning class is not compared.
+     * 
+     * @param obj
+     *            Object to compare with.
+     * 
+     * @return If the other object is equal <code>true</code> else
+     *         <code>false</code>.
+     */
+    @Override
+    public final boolean equals(final Object obj) {
+        if (this == obj) {
+            return true;
         }
-        return sb.toString();
+        if (!(obj instanceof SgConstructor)) {
+            return false;
+        }
+        final SgConstructor other = (SgConstructor) obj;
+        return hasSameData(other) && SgLists.equals(body, other.body);
+    }
+
+    /**
+     * Returns a hash code based on the modifiers. The value never changes.
+     * 
+     * @return Hash code.
+     */
+    @Override
+    public final int hashCode() {
+        return getModifiers().hashCode();
     }
 
     /**
@@ -116,32 +215,15 @@ public final class SgConstructor extends SgBehavior {
      */
     @Override
     public final String toString() {
-        final StringBuffer sb = new StringBuffer();
-        if (getAnnotations().size() > 0) {
-            for (int i = 0; i < getAnnotations().size(); i++) {
-                if (i > 0) {
-                    sb.append(" ");
-                }
-                sb.append(getAnnotations().get(i));
-            }
-            sb.append("\n");
+        final String cached = source;
+        if (cached != null) {
+            return cached;
         }
-        sb.append(getSignature());
-        if (getOwner().isInterface()) {
-            sb.append(";");
-        } else {
-            sb.append("{\n");
-            if (body.size() == 0) {
-                sb.append("// No method source available\n");
-            } else {
-                for (int i = 0; i < body.size(); i++) {
-                    sb.append(body.get(i));
-                    sb.append("\n");
-                }
-            }
-            sb.append("}\n");
+        final String result = SgSourceRenderer.toString(this, true, false);
+        if (isFrozen()) {
+            source = result;
         }
-        return sb.toString();
+        return result;
     }
 
 }
@@ -0,0 +1,84 @@
+/**
+ * Copyright (C) 2009 Future Invent Informationsmanagement GmbH. All rights
+ * reserved. <http://www.fuin.org/>
+ * 
+ * This library is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation; either version 3 of the License, or (at your option) any
+ * later version.
+ * 
+ * This library is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ * details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this library. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.fuin.srcgen4javassist;
+
+/**
+ * Result of writing source files with a {@link SgSourceEmitter}.
+ */
+public final class SgEmitResult {
+
+    private final int written;
+
+    private final int skipped;
+
+    private final long bytesWritten;
+
+    /**
+     * Constructor with all data.
+     * 
+     * @param written
+     *            Number of files created or changed.
+     * @param skipped
+     *            Number of files that already had the same content.
+     * @param bytesWritten
+     *            Number of bytes written to disk.
+     */
+    SgEmitResult(final int written, final int skipped, final long bytesWritten) {
+        super();
+        this.written = written;
+        this.skipped = skipped;
+        this.bytesWritten = bytesWritten;
+    }
+
+    /**
+     * Returns the number of files that have been created or changed.
+     * 
+     * @return Number of written files.
+     */
+    public final int getWritten() {
+        return written;
+    }
+
+    /**
+     * Returns the number of files that were not written because the content
+     * did not change.
+     * 
+     * @return Number of unchanged files.
+     */
+    public final int getSkipped() {
+        return skipped;
+    }
+
+    /**
+     * Returns the number of bytes written to disk.
+     * 
+     * @return Size of all written files in bytes.
+     */
+    public final long getBytesWritten() {
+        return bytesWritten;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public final String toString() {
+        return "written=" + written + ", skipped=" + skipped + ", bytesWritten=" + bytesWritten;
+    }
+
+}
@@ -44,6 +44,30 @@ public final class SgField extends SgVariable {
      */
     public SgField(final SgClass owner, final String modifiers, final SgClass type,
             final String name, final String initializer) {
+        this(owner, modifiers, type, name, initializer, true);
+    }
+
+    /**
+     * Constructor with all data.
+     * 
+     * @param owner
+     *            The type or method the field belongs to.
+     * @param modifiers
+     *            Modifiers (separated by space) - Cannot be null (but empty).
+     * @param type
+     *            Type of the field - Cannot be null.
+     * @param name
+     *            Name of the field - Cannot be null.
+     * @param initializer
+     *            Initializer for the field - Can be null but should normally be
+     *            set to an empty String instead.
+     * @param addToOwner
+     *            If <code>true</code> the new instance is added to the
+     *            <code>owner</code>. Otherwise it has to be added later with
+     *            {@link SgClass#addFields(java.util.Collection)}.
+     */
+    public SgField(final SgClass owner, final String modifiers, final SgClass type,
+            final String name, final String initializer, final boolean addToOwner) {
 
         super(modifiers, type, name);
 
@@ -64,7 +88,9 @@ public final class SgField extends SgVariable {
         // + "' already contains a field with name '" + name + "'!");
         // }
 
-        owner.addField(this);
+        if (addToOwner) {
+            owner.addField(this);
+        }
     }
 
     /**
@@ -76,6 +102,22 @@ public final class SgField extends SgVariable {
         return owner;
     }
 
+    /**
+     * Passes this field and it's annotations to a visitor.
+     * 
+     * @param visitor
+     *            Visitor to call.
+     * @param index
+     *            Position of the field in the class.
+     * @param count
+     *            Number of fields of the class.
+     */
+    final void accept(final SgVisitor visitor, final int index, final int count) {
+        if (visitor.visitField(this, index, count)) {
+            acceptAnnotations(visitor);
+        }
+    }
+
     /**
      * Returns the initializer.
      * 
@@ -86,35 +128,51 @@ public final class SgField extends SgVariable {
     }
 
     /**
-     * {@inheritDoc}
+     * Two fields are equal if they have the same modifiers, type, name,
+     * annotations and initializer. The owning class is not compared.
+     * 
+     * @param obj
+     *            Object to compare with.
+     * 
+     * @return If the other object is equal <code>true</code> else
+     *         <code>false</code>.
      */
     @Override
-    public final String toString() {
-        final StringBuffer sb = new StringBuffer();
-        if (getAnnotations().size() > 0) {
-            for (int i = 0; i < getAnnotations().size(); i++) {
-                if (i > 0) {
-                    sb.append(" ");
-                }
-                sb.append(getAnnotations().get(i));
-            }
-            sb.append("\n");
+    public final boolean equals(final Object obj) {
+        if (this == obj) {
+            return true;
         }
-        if (getModifiers().length() == 0) {
-            sb.append(getType().getSourceName() + " " + getName());
-        } else {
-            sb.append(getModifiers() + " " + getType().getSourceName() + " " + getName());
+        if (!(obj instanceof SgField)) {
+            return false;
+        }
+        final SgField other = (SgField) obj;
+        if (!hasSameData(other)) {
+            return false;
         }
         if (initializer == null) {
-            sb.append(" /** No initializer source available */ ");
-        } else {
-            if (initializer.length() > 0) {
-                sb.append(" = ");
-                sb.append(initializer);
-            }
+            return other.initializer == null;
+        }
+        return initializer.equals(other.initializer);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public final int hashCode() {
+        return getDataHashCode();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public final String toString() {
+        final String frozenSource = getFrozenSource();
+        if (frozenSource != null) {
+            return frozenSource;
         }
-        sb.append(";\n");
-        return sb.toString();
+        return keepSource(SgSourceRenderer.toString(this, false, false));
     }
 
 }
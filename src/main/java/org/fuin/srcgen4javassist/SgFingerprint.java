@@ -0,0 +1,431 @@
+/**
+ * Copyright (C) 2009 Future Invent Informationsmanagement GmbH. All rights
+ * reserved. <http://www.fuin.org/>
+ * 
+ * This library is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation; either version 3 of the License, or (at your option) any
+ * later version.
+ * 
+ * This library is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ * details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this library. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.fuin.srcgen4javassist;
+
+import java.lang.reflect.Array;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Stable 128 bit content hash of a model class. The fingerprint is calculated
+ * with MurmurHash3 (x64, 128 bit, seed 0) in a single pass over the model
+ * without rendering any source. It covers the modifiers, names, super class,
+ * enclosing class, interfaces, annotations, fields, constructors, methods
+ * (including arguments, exceptions and bodies) and the inner classes declared
+ * by the class. Referenced types are included by their name only. Annotation
+ * arguments are sorted by name, so the result does not depend on the
+ * iteration order of a <code>HashMap</code>. Argument values are included by
+ * their <code>String.valueOf(..)</code> representation (arrays by their
+ * elements and model classes by their name).<br>
+ * <br>
+ * The same model always results in the same fingerprint - On any JVM and in
+ * any run. The input format is identified by {@link #VERSION} and will only
+ * change together with this version, so fingerprints can be stored and
+ * compared across releases.
+ */
+public final class SgFingerprint {
+
+    /** Version of the hashed format. */
+    public static final int VERSION = 1;
+
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+    private final long high;
+
+    private final long low;
+
+    /**
+     * Constructor with both halves.
+     * 
+     * @param high
+     *            First 64 bits.
+     * @param low
+     *            Last 64 bits.
+     */
+    public SgFingerprint(final long high, final long low) {
+        super();
+        this.high = high;
+        this.low = low;
+    }
+
+    /**
+     * Returns the first 64 bits.
+     * 
+     * @return High part.
+     */
+    public final long getHigh() {
+        return high;
+    }
+
+    /**
+     * Returns the last 64 bits.
+     * 
+     * @return Low part.
+     */
+    public final long getLow() {
+        return low;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public final boolean equals(final Object obj) {
+        if (this == obj) {
+            return true;
+        }
+        if (!(obj instanceof SgFingerprint)) {
+            return false;
+        }
+        final SgFingerprint other = (SgFingerprint) obj;
+        return (high == other.high) && (low == other.low);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public final int hashCode() {
+        return (int) (high ^ (high >>> 32));
+    }
+
+    /**
+     * Returns the fingerprint as hexadecimal number.
+     * 
+     * @return 32 lower case hexadecimal digits.
+     */
+    @Override
+    public final String toString() {
+        final char[] chars = new char[32];
+        for (int i = 0; i < 16; i++) {
+            chars[i] = HEX[(int) (high >>> (60 - (i * 4))) & 0xF];
+            chars[i + 16] = HEX[(int) (low >>> (60 - (i * 4))) & 0xF];
+        }
+        return new String(chars);
+    }
+
+    /**
+     * Calculates the fingerprint of a class.
+     * 
+     * @param clasz
+     *            Class to hash - Cannot be null.
+     * 
+     * @return Fingerprint.
+     */
+    static SgFingerprint create(final SgClass clasz) {
+        final Hasher hasher = new Hasher();
+        hasher.putInt(VERSION);
+        putClass(hasher, clasz);
+        return hasher.finish();
+    }
+
+    /**
+     * Calculates the MurmurHash3 of a byte array.
+     * 
+     * @param data
+     *            Data to hash.
+     * 
+     * @return Hash.
+     */
+    static SgFingerprint hash(final byte[] data) {
+        final Hasher hasher = new Hasher();
+        for (int i = 0; i < data.length; i++) {
+            hasher.putByte(data[i]);
+        }
+        return hasher.finish();
+    }
+
+    private static void putName(final Hasher hasher, final SgClass clasz) {
+        if (clasz == null) {
+            hasher.putString(null);
+        } else {
+            hasher.putString(clasz.getName());
+        }
+    }
+
+    private static void putClass(final Hasher hasher, final SgClass clasz) {
+        hasher.putString(clasz.getModifiers());
+        hasher.putString(clasz.getPackageName());
+        hasher.putString(clasz.getSimpleName());
+        hasher.putInt((clasz.isInterface() ? 1 : 0) | (clasz.isStub() ? 2 : 0));
+        putName(hasher, clasz.getSuperClass());
+        putName(hasher, clasz.getEnclosingClass());
+
+        final List<SgClass> interfaces = clasz.getInterfaces();
+        hasher.putInt(interfaces.size());
+        for (int i = 0; i < interfaces.size(); i++) {
+            putName(hasher, interfaces.get(i));
+        }
+        putAnnotations(hasher, clasz.getAnnotations());
+
+        final List<SgField> fields = clasz.getFields();
+        hasher.putInt(fields.size());
+        for (int i = 0; i < fields.size(); i++) {
+            final SgField field = fields.get(i);
+            putVariable(hasher, field);
+            hasher.putString(field.getInitializer());
+        }
+
+        final List<SgConstructor> constructors = clasz.getConstructors();
+        hasher.putInt(constructors.size());
+        for (int i = 0; i < constructors.size(); i++) {
+            final SgConstructor constructor = constructors.get(i);
+            putBehavior(hasher, constructor);
+            putStrings(hasher, constructor.getBody());
+        }
+
+        final List<SgMethod> methods = clasz.getMethods();
+        hasher.putInt(methods.size());
+        for (int i = 0; i < methods.size(); i++) {
+            final SgMethod method = methods.get(i);
+            putName(hasher, method.getReturnType());
+            hasher.putString(method.getName());
+            putBehavior(hasher, method);
+            putStrings(hasher, method.getBody());
+        }
+
+        final List<SgClass> classes = clasz.getClasses();
+        hasher.putInt(classes.size());
+        for (int i = 0; i < classes.size(); i++) {
+            final SgClass inner = classes.get(i);
+            if (inner.getEnclosingClass() == clasz) {
+                hasher.putInt(1);
+                putClass(hasher, inner);
+            } else {
+                hasher.putInt(0);
+                putName(hasher, inner);
+            }
+        }
+    }
+
+    private static void putVariable(final Hasher hasher, final SgVariable variable) {
+        hasher.putString(variable.getModifiers());
+        putName(hasher, variable.getType());
+        hasher.putString(variable.getName());
+        putAnnotations(hasher, variable.getAnnotations());
+    }
+
+    private static void putBehavior(final Hasher hasher, final SgBehavior behavior) {
+        hasher.putString(behavior.getModifiers());
+        final List<SgArgument> args = behavior.getArguments();
+        hasher.putInt(args.size());
+        for (int i = 0; i < args.size(); i++) {
+            putVariable(hasher, args.get(i));
+        }
+        final List<SgClass> exceptions = behavior.getExceptions();
+        hasher.putInt(exceptions.size());
+        for (int i = 0; i < exceptions.size(); i++) {
+            putName(hasher, exceptions.get(i));
+        }
+        putAnnotations(hasher, behavior.getAnnotations());
+    }
+
+    private static void putStrings(final Hasher hasher, final List<String> list) {
+        hasher.putInt(list.size());
+        for (int i = 0; i < list.size(); i++) {
+            hasher.putString(list.get(i));
+        }
+    }
+
+    private static void putAnnotations(final Hasher hasher, final List<SgAnnotation> list) {
+        hasher.putInt(list.size());
+        for (int i = 0; i < list.size(); i++) {
+            final SgAnnotation annotation = list.get(i);
+            hasher.putString(annotation.getName());
+            final Map<String, Object> arguments = annotation.getArguments();
+            final List<String> names = new ArrayList<String>(arguments.keySet());
+            Collections.sort(names);
+            hasher.putInt(names.size());
+            for (int j = 0; j < names.size(); j++) {
+                final String name = names.get(j);
+                hasher.putString(name);
+                putValue(hasher, arguments.get(name));
+            }
+        }
+    }
+
+    private static void putValue(final Hasher hasher, final Object value) {
+        if (value instanceof SgClass) {
+            hasher.putString(SgClass.class.getName());
+            hasher.putString(((SgClass) value).getName());
+        } else if (value instanceof Object[]) {
+            final Object[] array = (Object[]) value;
+            hasher.putInt(array.length);
+            for (int i = 0; i < array.length; i++) {
+                putValue(hasher, array[i]);
+            }
+        } else if ((value != null) && value.getClass().isArray()) {
+            final int length = Array.getLength(value);
+            hasher.putInt(length);
+            for (int i = 0; i < length; i++) {
+                putValue(hasher, Array.get(value, i));
+            }
+        } else if (value == null) {
+            hasher.putString(null);
+        } else {
+            hasher.putString(value.getClass().getName());
+            hasher.putString(String.valueOf(value));
+        }
+    }
+
+    /**
+     * Streaming MurmurHash3 x64 128 bit with seed 0.
+     */
+    private static final class Hasher {
+
+        private static final long C1 = 0x87c37b91114253d5L;
+
+        private static final long C2 = 0x4cf5ad432745937fL;
+
+        private final byte[] buf = new byte[16];
+
+        private int pos;
+
+        private long length;
+
+        private long h1;
+
+        private long h2;
+
+        /**
+         * Adds a single byte.
+         * 
+         * @param b
+         *            Byte to add.
+         */
+        public final void putByte(final byte b) {
+            buf[pos++] = b;
+            if (pos == 16) {
+                processBlock();
+                pos = 0;
+            }
+            length++;
+        }
+
+        /**
+         * Adds an integer (little endian).
+         * 
+         * @param value
+         *            Value to add.
+         */
+        public final void putInt(final int value) {
+            putByte((byte) value);
+            putByte((byte) (value >>> 8));
+            putByte((byte) (value >>> 16));
+            putByte((byte) (value >>> 24));
+        }
+
+        /**
+         * Adds a string as length and UTF-16LE characters.
+         * 
+         * @param str
+         *            String to add - A <code>null</code> value is added as
+         *            length -1.
+         */
+        public final void putString(final String str) {
+            if (str == null) {
+                putInt(-1);
+                return;
+            }
+            final int len = str.length();
+            putInt(len);
+            for (int i = 0; i < len; i++) {
+                final char ch = str.charAt(i);
+                putByte((byte) ch);
+                putByte((byte) (ch >>> 8));
+            }
+        }
+
+        private static long getLong(final byte[] b, final int off) {
+            long value = 0;
+            for (int i = 7; i >= 0; i--) {
+                value = (value << 8) | (b[off + i] & 0xFFL);
+            }
+            return value;
+        }
+
+        private static long mixK1(final long k) {
+            long k1 = k * C1;
+            k1 = Long.rotateLeft(k1, 31);
+            return k1 * C2;
+        }
+
+        private static long mixK2(final long k) {
+            long k2 = k * C2;
+            k2 = Long.rotateLeft(k2, 33);
+            return k2 * C1;
+        }
+
+        private static long fmix(final long k) {
+            long h = k;
+            h ^= h >>> 33;
+            h *= 0xff51afd7ed558ccdL;
+            h ^= h >>> 33;
+            h *= 0xc4ceb9fe1a85ec53L;
+            h ^= h >>> 33;
+            return h;
+        }
+
+        private void processBlock() {
+            h1 ^= mixK1(getLong(buf, 0));
+            h1 = Long.rotateLeft(h1, 27);
+            h1 += h2;
+            h1 = h1 * 5 + 0x52dce729;
+
+            h2 ^= mixK2(getLong(buf, 8));
+            h2 = Long.rotateLeft(h2, 31);
+            h2 += h1;
+            h2 = h2 * 5 + 0x38495ab5;
+        }
+
+        /**
+         * Processes the remaining bytes and returns the result.
+         * 
+         * @return Hash value.
+         */
+        public final SgFingerprint finish() {
+            if (pos > 8) {
+                long k2 = 0;
+                for (int i = pos - 1; i >= 8; i--) {
+                    k2 = (k2 << 8) | (buf[i] & 0xFFL);
+                }
+                h2 ^= mixK2(k2);
+            }
+            if (pos > 0) {
+                long k1 = 0;
+                for (int i = Math.min(pos, 8) - 1; i >= 0; i--) {
+                    k1 = (k1 << 8) | (buf[i] & 0xFFL);
+                }
+                h1 ^= mixK1(k1);
+            }
+            h1 ^= length;
+            h2 ^= length;
+            h1 += h2;
+            h2 += h1;
+            h1 = fmix(h1);
+            h2 = fmix(h2);
+            h1 += h2;
+            h2 += h1;
+            return new SgFingerprint(h1, h2);
+        }
+
+    }
+
+}
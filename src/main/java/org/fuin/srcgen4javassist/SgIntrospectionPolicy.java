@@ -0,0 +1,184 @@
+/**
+ * Copyright (C) 2009 Future Invent Informationsmanagement GmbH. All rights
+ * reserved. <http://www.fuin.org/>
+ *
+ * This library is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation; either version 3 of the License, or (at your option) any
+ * later version.
+ *
+ * This library is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this library. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.fuin.srcgen4javassist;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Decides how deep {@link SgClass#create(SgClassPool, Class)} analyzes a class
+ * and the types it references. Types that are outside the scope are created as
+ * "names-only" stubs (See {@link SgClass#isStub()}) that have a name,
+ * modifiers and an enclosing class but no super class, interfaces or members.
+ * The depth of the class passed to <code>create(..)</code> is zero, types
+ * referenced by it have a depth of one and so on.
+ */
+public final class SgIntrospectionPolicy {
+
+    /** Value for the maximum depth that means "no limit". */
+    public static final int UNLIMITED_DEPTH = -1;
+
+    /** Analyzes all classes completely (This is the default behavior). */
+    public static final SgIntrospectionPolicy DEFAULT = new SgIntrospectionPolicy(
+            UNLIMITED_DEPTH);
+
+    private final int maxDepth;
+
+    private final List<String> includedPackages;
+
+    private final List<String> excludedPackages;
+
+    /**
+     * Constructor with maximum depth. All packages are included.
+     *
+     * @param maxDepth
+     *            Maximum depth for a full model or {@link #UNLIMITED_DEPTH}.
+     */
+    public SgIntrospectionPolicy(final int maxDepth) {
+        this(maxDepth, null, null);
+    }
+
+    /**
+     * Constructor with all data. A package entry also matches all of it's sub
+     * packages. Excluded packages have precedence over included ones.
+     *
+     * @param maxDepth
+     *            Maximum depth for a full model or {@link #UNLIMITED_DEPTH}.
+     * @param includedPackages
+     *            Packages to analyze completely - An empty list or
+     *            <code>null</code> includes all packages.
+     * @param excludedPackages
+     *            Packages to create stubs for - Can be <code>null</code>.
+     */
+    public SgIntrospectionPolicy(final int maxDepth, final List<String> includedPackages,
+            final List<String> excludedPackages) {
+        super();
+        if (maxDepth < UNLIMITED_DEPTH) {
+            throw new IllegalArgumentException("The argument 'maxDepth' cannot be less than "
+                    + UNLIMITED_DEPTH + ": " + maxDepth);
+        }
+        this.maxDepth = maxDepth;
+        this.includedPackages = copy(includedPackages);
+        this.excludedPackages = copy(excludedPackages);
+    }
+
+    private static List<String> copy(final List<String> packages) {
+        if (packages == null) {
+            return Collections.emptyList();
+        }
+        final List<String> list = new ArrayList<String>(packages.size());
+        for (int i = 0; i < packages.size(); i++) {
+            final String pkg = packages.get(i);
+            if (pkg == null) {
+                throw new IllegalArgumentException("A package name cannot be null!");
+            }
+            list.add(pkg.trim());
+        }
+        return Collections.unmodifiableList(list);
+    }
+
+    /**
+     * Returns the maximum depth for a full model.
+     *
+     * @return Depth or {@link #UNLIMITED_DEPTH}.
+     */
+    public final int getMaxDepth() {
+        return maxDepth;
+    }
+
+    /**
+     * Returns the packages that are analyzed completely.
+     *
+     * @return Package list - Always non-null, maybe empty and is unmodifiable.
+     */
+    public final List<String> getIncludedPackages() {
+        return includedPackages;
+    }
+
+    /**
+     * Returns the packages that are never analyzed completely.
+     *
+     * @return Package list - Always non-null, maybe empty and is unmodifiable.
+     */
+    public final List<String> getExcludedPackages() {
+        return excludedPackages;
+    }
+
+    private static boolean matches(final List<String> packages, final String packageName) {
+        for (int i = 0; i < packages.size(); i++) {
+            final String pkg = packages.get(i);
+            if (packageName.startsWith(pkg)
+                    && ((packageName.length() == pkg.length()) || (packageName.charAt(pkg
+                            .length()) == '.'))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Checks if a package is in the scope of the package filters.
+     *
+     * @param packageName
+     *            Package to check - Cannot be null (but empty for the default
+     *            package).
+     *
+     * @return If classes of the package may be analyzed completely
+     *         <code>true</code> else <code>false</code>.
+     */
+    public final boolean isInScope(final String packageName) {
+        if (packageName == null) {
+            throw new IllegalArgumentException("The argument 'packageName' cannot be null!");
+        }
+        if (matches(excludedPackages, packageName)) {
+            return false;
+        }
+        return (includedPackages.size() == 0) || matches(includedPackages, packageName);
+    }
+
+    /**
+     * Checks if a class should be analyzed completely or if a stub is
+     * sufficient.
+     *
+     * @param packageName
+     *            Package of the class - Cannot be null (but empty for the
+     *            default package).
+     * @param depth
+     *            Distance from the class originally requested (zero based).
+     *
+     * @return If a full model should be created <code>true</code> else
+     *         <code>false</code>.
+     */
+    public final boolean isFullModel(final String packageName, final int depth) {
+        if ((maxDepth != UNLIMITED_DEPTH) && (depth > maxDepth)) {
+            return false;
+        }
+        return isInScope(packageName);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public final String toString() {
+        return "maxDepth=" + maxDepth + ", included=" + includedPackages + ", excluded="
+                + excludedPackages;
+    }
+
+}
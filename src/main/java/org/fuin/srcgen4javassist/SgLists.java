@@ -0,0 +1,178 @@
+/**
+ * Copyright (C) 2009 Future Invent Informationsmanagement GmbH. All rights
+ * reserved. <http://www.fuin.org/>
+ * 
+ * This library is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation; either version 3 of the License, or (at your option) any
+ * later version.
+ * 
+ * This library is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ * details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this library. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.fuin.srcgen4javassist;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Helper for the lazily allocated lists of the model classes. A list that is
+ * <code>null</code> is treated as empty and all empty lists are represented by
+ * the shared {@link Collections#emptyList()} instance.
+ */
+final class SgLists {
+
+    private SgLists() {
+        throw new UnsupportedOperationException(
+                "It's not allowed to create an instance of this class!");
+    }
+
+    /**
+     * Adds an element to a list and creates the list if necessary.
+     * 
+     * @param list
+     *            List or <code>null</code>.
+     * @param element
+     *            Element to add.
+     * @param initialCapacity
+     *            Capacity used if the list has to be created.
+     * 
+     * @return List containing the element - Always non-null.
+     * 
+     * @param <T>
+     *            Type of the elements.
+     */
+    static <T> ArrayList<T> add(final ArrayList<T> list, final T element,
+            final int initialCapacity) {
+        final ArrayList<T> result;
+        if (list == null) {
+            result = new ArrayList<T>(initialCapacity);
+        } else {
+            result = list;
+        }
+        result.add(element);
+        return result;
+    }
+
+    /**
+     * Returns an unmodifiable view of a list.
+     * 
+     * @param list
+     *            List or <code>null</code>.
+     * 
+     * @return View or the shared empty list - Always non-null.
+     * 
+     * @param <T>
+     *            Type of the elements.
+     */
+    static <T> List<T> view(final List<T> list) {
+        if ((list == null) || (list.size() == 0)) {
+            return Collections.emptyList();
+        }
+        return Collections.unmodifiableList(list);
+    }
+
+    /**
+     * Trims a list to it's size and returns an unmodifiable view of it.
+     * 
+     * @param list
+     *            List or <code>null</code>.
+     * 
+     * @return View or the shared empty list - Always non-null.
+     * 
+     * @param <T>
+     *            Type of the elements.
+     */
+    static <T> List<T> freeze(final ArrayList<T> list) {
+        if (list != null) {
+            list.trimToSize();
+        }
+        return view(list);
+    }
+
+    /**
+     * Returns the size of a list.
+     * 
+     * @param list
+     *            List or <code>null</code>.
+     * 
+     * @return Number of elements.
+     */
+    static int size(final List<?> list) {
+        if (list == null) {
+            return 0;
+        }
+        return list.size();
+    }
+
+    /**
+     * Compares two lists treating <code>null</code> as an empty list.
+     * 
+     * @param list1
+     *            First list or <code>null</code>.
+     * @param list2
+     *            Second list or <code>null</code>.
+     * 
+     * @return If both lists contain equal elements in the same order
+     *         <code>true</code> else <code>false</code>.
+     */
+    static boolean equals(final List<?> list1, final List<?> list2) {
+        if (size(list1) == 0) {
+            return size(list2) == 0;
+        }
+        return list1.equals(list2);
+    }
+
+    /**
+     * Compares two lists of types by the names of the types only. This avoids
+     * comparing the content of models that stand for the same type.
+     * 
+     * @param list1
+     *            First list or <code>null</code>.
+     * @param list2
+     *            Second list or <code>null</code>.
+     * 
+     * @return If both lists contain types with the same names in the same
+     *         order <code>true</code> else <code>false</code>.
+     */
+    static boolean sameNames(final List<SgClass> list1, final List<SgClass> list2) {
+        final int size = size(list1);
+        if (size != size(list2)) {
+            return false;
+        }
+        for (int i = 0; i < size; i++) {
+            if (!SgClass.sameName(list1.get(i), list2.get(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Returns the number of collections that were created. The shared empty
+     * collections of {@link Collections} are not counted.
+     * 
+     * @param collections
+     *            Lists, sets or maps - Each may be <code>null</code>.
+     * 
+     * @return Number of allocated collections.
+     */
+    static int countAllocated(final Object... collections) {
+        int count = 0;
+        for (final Object collection : collections) {
+            if ((collection != null) && (collection != Collections.EMPTY_LIST)
+                    && (collection != Collections.EMPTY_SET)
+                    && (collection != Collections.EMPTY_MAP)) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+}
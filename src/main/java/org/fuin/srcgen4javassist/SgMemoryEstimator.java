@@ -0,0 +1,254 @@
+/**
+ * Copyright (C) 2009 Future Invent Informationsmanagement GmbH. All rights
+ * reserved. <http://www.fuin.org/>
+ * 
+ * This library is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation; either version 3 of the License, or (at your option) any
+ * later version.
+ * 
+ * This library is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ * details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this library. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.fuin.srcgen4javassist;
+
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Estimates the heap size of a model graph. Every object is only counted once
+ * even if it's referenced multiple times. The sizes are based on a 64 bit VM
+ * with compressed references (12 bytes object header, 4 bytes per reference
+ * and 8 byte alignment). Frozen models include the names, signatures and
+ * sources they keep.
+ */
+final class SgMemoryEstimator {
+
+    private static final int HEADER = 12;
+
+    private static final int ARRAY_HEADER = 16;
+
+    private static final int REF = 4;
+
+    private static final int DEFAULT_LIST_CAPACITY = 10;
+
+    private final Map<Object, Object> visited = new IdentityHashMap<Object, Object>();
+
+    private long bytes;
+
+    /**
+     * Returns the estimated size of all objects added so far.
+     * 
+     * @return Size in bytes.
+     */
+    public final long getBytes() {
+        return bytes;
+    }
+
+    private static long align(final long size) {
+        return (size + 7) & ~7L;
+    }
+
+    private static long shallow(final int refs, final int primitiveBytes) {
+        return align(HEADER + (refs * REF) + primitiveBytes);
+    }
+
+    private boolean firstVisit(final Object obj) {
+        if ((obj == null) || visited.containsKey(obj)) {
+            return false;
+        }
+        visited.put(obj, obj);
+        return true;
+    }
+
+    private void addString(final String str) {
+        if (firstVisit(str)) {
+            // String object (value, hash) plus the character array
+            bytes = bytes + shallow(1, 4) + align(ARRAY_HEADER + (2L * str.length()));
+        }
+    }
+
+    private void addList(final List<?> list) {
+        if (firstVisit(list)) {
+            bytes = bytes + shallow(1, 8);
+            if (list.size() > 0) {
+                bytes = bytes
+                        + align(ARRAY_HEADER
+                                + (REF * (long) Math.max(DEFAULT_LIST_CAPACITY, list.size())));
+            }
+        }
+    }
+
+    private void addHashIndex(final int size) {
+        // Hash map or set with table (load factor 0.75) and one node per entry
+        // - Indexes are only created when the first entry is added
+        if (size == 0) {
+            return;
+        }
+        int capacity = 8;
+        while (capacity * 3 / 4 < size) {
+            capacity = capacity * 2;
+        }
+        bytes = bytes + shallow(3, 16) + align(ARRAY_HEADER + (REF * (long) capacity))
+                + (size * shallow(3, 4));
+    }
+
+    private void addDescriptor(final SgMethodDescriptor descriptor) {
+        if (firstVisit(descriptor)) {
+            bytes = bytes + shallow(2, 4);
+            addString(descriptor.getKey());
+        }
+    }
+
+    private void addStrings(final List<String> list) {
+        addList(list);
+        for (int i = 0; i < list.size(); i++) {
+            addString(list.get(i));
+        }
+    }
+
+    private void addAnnotations(final List<SgAnnotation> list) {
+        addList(list);
+        for (int i = 0; i < list.size(); i++) {
+            final SgAnnotation annotation = list.get(i);
+            if (firstVisit(annotation)) {
+                bytes = bytes + shallow(3, 0);
+                addString(annotation.getPackageName());
+                addString(annotation.getSimpleName());
+                // Tree map with one entry per argument
+                bytes = bytes + shallow(4, 8)
+                        + (annotation.getArguments().size() * shallow(5, 1));
+            }
+        }
+    }
+
+    private void addVariable(final SgVariable variable, final int refs) {
+        bytes = bytes + shallow(refs, 9);
+        addString(variable.getModifiers());
+        addString(variable.getName());
+        addString(variable.getFrozenSource());
+        addAnnotations(variable.getAnnotations());
+        addClass(variable.getType());
+    }
+
+    private void addBehavior(final SgBehavior behavior, final int refs) {
+        bytes = bytes + shallow(refs, 4);
+        addString(behavior.getModifiers());
+        final List<SgArgument> args = behavior.getArguments();
+        addList(args);
+        for (int i = 0; i < args.size(); i++) {
+            if (firstVisit(args.get(i))) {
+                addVariable(args.get(i), 5);
+            }
+        }
+        final List<SgClass> exceptions = behavior.getExceptions();
+        addList(exceptions);
+        for (int i = 0; i < exceptions.size(); i++) {
+            addClass(exceptions.get(i));
+        }
+        addAnnotations(behavior.getAnnotations());
+    }
+
+    /**
+     * Adds a class and everything reachable from it.
+     * 
+     * @param clasz
+     *            Class to add - Null is ignored.
+     */
+    public final void addClass(final SgClass clasz) {
+        if (!firstVisit(clasz)) {
+            return;
+        }
+        bytes = bytes + shallow(20, 16);
+        addString(clasz.getModifiers());
+        addString(clasz.getPackageName());
+        addString(clasz.getSimpleName());
+        if (clasz.isFrozen()) {
+            // Frozen data with the source name and sources
+            bytes = bytes + shallow(9, 0);
+            addString(clasz.getSourceName());
+            addString(clasz.getCachedSource(false));
+            addString(clasz.getCachedSource(true));
+        }
+        addClass(clasz.getSuperClass());
+        addClass(clasz.getEnclosingClass());
+
+        final List<SgClass> interfaces = clasz.getInterfaces();
+        addList(interfaces);
+        for (int i = 0; i < interfaces.size(); i++) {
+            addClass(interfaces.get(i));
+        }
+        addAnnotations(clasz.getAnnotations());
+
+        final List<SgField> fields = clasz.getFields();
+        addList(fields);
+        for (int i = 0; i < fields.size(); i++) {
+            final SgField field = fields.get(i);
+            if (firstVisit(field)) {
+                addVariable(field, 6);
+                addString(field.getInitializer());
+            }
+        }
+
+        final List<SgConstructor> constructors = clasz.getConstructors();
+        addList(constructors);
+        for (int i = 0; i < constructors.size(); i++) {
+            final SgConstructor constructor = constructors.get(i);
+            if (firstVisit(constructor)) {
+                addBehavior(constructor, 6);
+                addStrings(constructor.getBody());
+                addString(constructor.getCachedSignature());
+                addString(constructor.getCachedSource());
+            }
+        }
+
+        final List<SgMethod> methods = clasz.getMethods();
+        addList(methods);
+        for (int i = 0; i < methods.size(); i++) {
+            final SgMethod method = methods.get(i);
+            if (firstVisit(method)) {
+                addBehavior(method, 8);
+                addString(method.getName());
+                addStrings(method.getBody());
+                addClass(method.getReturnType());
+                if (method.isFrozen()) {
+                    addString(method.getCachedSignature());
+                    addString(method.getCachedSource(false));
+                    addString(method.getCachedSource(true));
+                    addDescriptor(method.getDescriptor());
+                }
+            }
+        }
+
+        if (clasz.getVariantBase() != null) {
+            // Variants use the indexes of the base and only keep a small map
+            // of replaced members
+            bytes = bytes + shallow(4, 12) + align(ARRAY_HEADER + (REF * 16L));
+            return;
+        }
+
+        // Member, name, signature, interface and annotation indexes
+        final int memberCount = fields.size() + constructors.size() + methods.size()
+                + clasz.getClasses().size();
+        addHashIndex(memberCount);
+        addHashIndex(fields.size());
+        addHashIndex(methods.size());
+        addHashIndex(methods.size());
+        addHashIndex(clasz.getClasses().size());
+        addHashIndex(interfaces.size());
+        addHashIndex(clasz.getAnnotations().size());
+
+        final List<SgClass> classes = clasz.getClasses();
+        addList(classes);
+        for (int i = 0; i < classes.size(); i++) {
+            addClass(classes.get(i));
+        }
+    }
+
+}
@@ -18,7 +18,6 @@
 package org.fuin.srcgen4javassist;
 
 import java.util.ArrayList;
-import java.util.Collections;
 import java.util.List;
 
 /**
@@ -30,7 +29,20 @@ public final class SgMethod extends SgBehavior {
 
     private final String name;
 
-    private final List<String> body;
+    /** Source lines or <code>null</code> if there are none. */
+    private ArrayList<String> body;
+
+    private final int hash;
+
+    private List<String> frozenBody;
+
+    private String signature;
+
+    private String source;
+
+    private SgMethodDescriptor descriptor;
+
+    private String sourceWithAnnotations;
 
     /**
      * Constructor. The method will automatically be added to the
@@ -49,6 +61,29 @@ public final class SgMethod extends SgBehavior {
      */
     public SgMethod(final SgClass owner, final String modifiers, final SgClass returnType,
             final String name) {
+        this(owner, modifiers, returnType, name, true);
+    }
+
+    /**
+     * Constructor with all data.
+     * 
+     * @param owner
+     *            Class the behavior belongs to - Cannot be null.
+     * @param modifiers
+     *            Modifiers for the constructor/method - Cannot be null (but
+     *            empty).
+     * @param returnType
+     *            Return type of the method - Cannot be null (Use VOID in model
+     *            class for no return value).
+     * @param name
+     *            Name of the method.
+     * @param addToOwner
+     *            If <code>true</code> the method is added to the
+     *            <code>owner</code>. Otherwise it has to be added later with
+     *            {@link SgClass#addMethods(java.util.Collection)}.
+     */
+    public SgMethod(final SgClass owner, final String modifiers, final SgClass returnType,
+            final String name, final boolean addToOwner) {
         super(owner, modifiers);
         if (returnType == null) {
             throw new IllegalArgumentException("The argument 'returnType' cannot be NULL!");
@@ -58,14 +93,17 @@ public final class SgMethod extends SgBehavior {
         if (name == null) {
             throw new IllegalArgumentException("The argument 'name' cannot be NULL!");
         }
-        this.name = name;
+        this.name = name.intern();
 
-        body = new ArrayList<String>();
 
-        // TODO Check if the class not already contains a method with the same
-        // name and arguments!
+        hash = 31 * (31 * modifiers.hashCode() + returnType.hashCode()) + name.hashCode();
 
-        owner.addMethod(this);
+        // The arguments are added after construction, so duplicate
+        // signatures are detected by the owner (See
+        // "SgClass.hasDuplicateMethods()")
+        if (addToOwner) {
+            owner.addMethod(this);
+        }
 
     }
 
@@ -84,7 +122,11 @@ public final class SgMethod extends SgBehavior {
      * @return Body - Always non-null, maybe empty and is unmodifiable.
      */
     public final List<String> getBody() {
-        return Collections.unmodifiableList(body);
+        final List<String> view = frozenBody;
+        if (view != null) {
+            return view;
+        }
+        return SgLists.view(body);
     }
 
     /**
@@ -97,7 +139,24 @@ public final class SgMethod extends SgBehavior {
         if (line == null) {
             throw new IllegalArgumentException("The argument 'line' cannot be NULL!");
         }
-        body.add(line.trim());
+        assertNotFrozen();
+        body = SgLists.add(body, line.trim(), 4);
+    }
+
+    /**
+     * Passes this method and it's content to a visitor.
+     * 
+     * @param visitor
+     *            Visitor to call.
+     * @param index
+     *            Position of the method in the class.
+     * @param count
+     *            Number of methods of the class.
+     */
+    final void accept(final SgVisitor visitor, final int index, final int count) {
+        if (visitor.visitMethod(this, index, count)) {
+            acceptContent(visitor, body);
+        }
     }
 
     /**
@@ -109,6 +168,123 @@ public final class SgMethod extends SgBehavior {
         return name;
     }
 
+    /**
+     * Returns the key used for indexing the method by it's signature.
+     * 
+     * @return Name and full qualified argument types (like
+     *         "methodXY(java.lang.String,int)").
+     */
+    final String getSignatureKey() {
+        final SgMethodDescriptor desc = descriptor;
+        if (desc != null) {
+            return desc.getKey();
+        }
+        return createSignatureKey(name, getArgumentTypes());
+    }
+
+    /**
+     * Returns the descriptor of the method. The value is only calculated once
+     * if the method is frozen.
+     * 
+     * @return Name and full qualified argument types - Always non-null.
+     */
+    public final SgMethodDescriptor getDescriptor() {
+        final SgMethodDescriptor desc = descriptor;
+        if (desc != null) {
+            return desc;
+        }
+        return SgMethodDescriptor.create(name, getArgumentTypes());
+    }
+
+    private List<SgClass> getArgumentTypes() {
+        final List<SgArgument> args = getArguments();
+        final List<SgClass> types = new ArrayList<SgClass>(args.size());
+        for (int i = 0; i < args.size(); i++) {
+            types.add(args.get(i).getType());
+        }
+        return types;
+    }
+
+    /**
+     * Creates the key used for indexing a method by it's signature.
+     * 
+     * @param name
+     *            Name of the method.
+     * @param argumentTypes
+     *            Types of the arguments.
+     * 
+     * @return Name and full qualified argument types.
+     */
+    static String createSignatureKey(final String name, final List<SgClass> argumentTypes) {
+        final StringBuffer sb = new StringBuffer(name);
+        sb.append('(');
+        for (int i = 0; i < argumentTypes.size(); i++) {
+            if (i > 0) {
+                sb.append(',');
+            }
+            sb.append(argumentTypes.get(i).getDescriptorName());
+        }
+        sb.append(')');
+        return sb.toString();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    final void argumentAdded(final SgArgument arg) {
+        final List<SgArgument> args = getArguments();
+        final List<SgClass> types = new ArrayList<SgClass>(args.size() - 1);
+        for (int i = 0; i < args.size() - 1; i++) {
+            types.add(args.get(i).getType());
+        }
+        getOwner().methodSignatureChanged(this, createSignatureKey(name, types));
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    final int getAllocatedCollections() {
+        return super.getAllocatedCollections() + SgLists.countAllocated(body, frozenBody);
+    }
+
+    /**
+     * Returns the signature kept after it was created for the frozen method.
+     * 
+     * @return Signature or <code>null</code> if the method is not frozen or
+     *         the signature was not requested yet.
+     */
+    final String getCachedSignature() {
+        return signature;
+    }
+
+    /**
+     * Returns the source kept after it was created for the frozen method.
+     * 
+     * @param showAnnotations
+     *            Source with annotations <code>true</code> else
+     *            <code>false</code>.
+     * 
+     * @return Source or <code>null</code> if the method is not frozen or the
+     *         source was not requested yet.
+     */
+    final String getCachedSource(final boolean showAnnotations) {
+        if (showAnnotations) {
+            return sourceWithAnnotations;
+        }
+        return source;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    final void freezing() {
+        frozenBody = SgLists.freeze(body);
+        descriptor = SgMethodDescriptor.create(name, getArgumentTypes());
+    }
+
     /**
      * Returns the name of the method with an "underscore" inserted before all
      * upper case characters and all characters converted to lower case.
@@ -125,32 +301,15 @@ public final class SgMethod extends SgBehavior {
      * @return Modifiers, return type, name and arguments - Always non-null.
      */
     public final String getSignature() {
-        final StringBuffer sb = new StringBuffer();
-        if (getModifiers().length() > 0) {
-            sb.append(getModifiers());
-            sb.append(" ");
+        final String cached = signature;
+        if (cached != null) {
+            return cached;
         }
-        sb.append(returnType.getName());
-        sb.append(" ");
-        sb.append(getName());
-        sb.append("(");
-        for (int i = 0; i < getArguments().size(); i++) {
-            if (i > 0) {
-                sb.append(", ");
-            }
-            sb.append(getArguments().get(i));
+        final String result = SgSourceRenderer.toString(this, false, true);
+        if (isFrozen()) {
+            signature = result;
         }
-        sb.append(")");
-        if (getExceptions().size() > 0) {
-            sb.append(" throws ");
-            for (int i = 0; i < getExceptions().size(); i++) {
-                if (i > 0) {
-                    sb.append(",");
-                }
-                sb.append(getExceptions().get(i).getName());
-            }
-        }
-        return sb.toString();
+        return result;
     }
 
     /**
@@ -216,6 +375,42 @@ public final class SgMethod extends SgBehavior {
         return sb.toString();
     }
 
+    /**
+     * Two methods are equal if they have the same modifiers, return type,
+     * name, arguments, exceptions, annotations and body. The owning class is
+     * not compared.
+     * 
+     * @param obj
+     *            Object to compare with.
+     * 
+     * @return If the other object is equal <code>true</code> else
+     *         <code>false</code>.
+     */
+    @Override
+    public final boolean equals(final Object obj) {
+        if (this == obj) {
+            return true;
+        }
+        if (!(obj instanceof SgMethod)) {
+            return false;
+        }
+        final SgMethod other = (SgMethod) obj;
+        return (hash == other.hash) && name.equals(other.name)
+                && SgClass.sameName(returnType, other.returnType) && hasSameData(other)
+                && SgLists.equals(body, other.body);
+    }
+
+    /**
+     * Returns a hash code based on the modifiers, return type and name. The
+     * value is calculated once at construction time.
+     * 
+     * @return Hash code.
+     */
+    @Override
+    public final int hashCode() {
+        return hash;
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -234,32 +429,19 @@ public final class SgMethod extends SgBehavior {
      * @return Source code of the method.
      */
     public final String toString(final boolean showAnnotations) {
-        final StringBuffer sb = new StringBuffer();
-        if (showAnnotations && (getAnnotations().size() > 0)) {
-            for (int i = 0; i < getAnnotations().size(); i++) {
-                if (i > 0) {
-                    sb.append(" ");
-                }
-                sb.append(getAnnotations().get(i));
-            }
-            sb.append("\n");
+        final String cached = getCachedSource(showAnnotations);
+        if (cached != null) {
+            return cached;
         }
-        sb.append(getSignature());
-        if (getOwner().isInterface()) {
-            sb.append(";");
-        } else {
-            sb.append("{\n");
-            if (body.size() == 0) {
-                sb.append("// No method source available\n");
+        final String result = SgSourceRenderer.toString(this, showAnnotations, false);
+        if (isFrozen()) {
+            if (showAnnotations) {
+                sourceWithAnnotations = result;
             } else {
-                for (int i = 0; i < body.size(); i++) {
-                    sb.append(body.get(i));
-                    sb.append("\n");
-                }
+                source = result;
             }
-            sb.append("}\n");
         }
-        return sb.toString();
+        return result;
     }
 
 }
@@ -0,0 +1,172 @@
+/**
+ * Copyright (C) 2009 Future Invent Informationsmanagement GmbH. All rights
+ * reserved. <http://www.fuin.org/>
+ * 
+ * This library is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation; either version 3 of the License, or (at your option) any
+ * later version.
+ * 
+ * This library is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ * details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this library. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.fuin.srcgen4javassist;
+
+import java.util.List;
+
+/**
+ * Identifies a method by it's name and the fully qualified (erased) types of
+ * the arguments. The return type is not part of the descriptor. The key has
+ * the same format as the one used by {@link SgClass} for it's signature index
+ * (like "methodXY(java.lang.String,java.util.Date[])") and is interned, so
+ * comparing two descriptors only compares references. Array types are always
+ * identified by their full qualified component type, even if the model names
+ * them without a package.
+ */
+public final class SgMethodDescriptor {
+
+    private final String name;
+
+    private final String key;
+
+    private final int hash;
+
+    private SgMethodDescriptor(final String name, final String key) {
+        super();
+        this.name = name;
+        this.key = key.intern();
+        this.hash = key.hashCode();
+    }
+
+    /**
+     * Creates a descriptor from reflection data.
+     * 
+     * @param name
+     *            Name of the method - Cannot be null.
+     * @param parameterTypes
+     *            Types of the parameters - Cannot be null.
+     * 
+     * @return New descriptor.
+     */
+    public static SgMethodDescriptor create(final String name, final Class<?>[] parameterTypes) {
+        if (name == null) {
+            throw new IllegalArgumentException("The argument 'name' cannot be null!");
+        }
+        if (parameterTypes == null) {
+            throw new IllegalArgumentException("The argument 'parameterTypes' cannot be null!");
+        }
+        final StringBuilder sb = new StringBuilder(name.length() + 16 * parameterTypes.length);
+        sb.append(name);
+        sb.append('(');
+        for (int i = 0; i < parameterTypes.length; i++) {
+            if (i > 0) {
+                sb.append(',');
+            }
+            appendTypeName(sb, parameterTypes[i]);
+        }
+        sb.append(')');
+        return new SgMethodDescriptor(name, sb.toString());
+    }
+
+    /**
+     * Creates a descriptor from model data.
+     * 
+     * @param name
+     *            Name of the method - Cannot be null.
+     * @param argumentTypes
+     *            Types of the arguments - Cannot be null.
+     * 
+     * @return New descriptor.
+     */
+    public static SgMethodDescriptor create(final String name, final List<SgClass> argumentTypes) {
+        if (name == null) {
+            throw new IllegalArgumentException("The argument 'name' cannot be null!");
+        }
+        if (argumentTypes == null) {
+            throw new IllegalArgumentException("The argument 'argumentTypes' cannot be null!");
+        }
+        return new SgMethodDescriptor(name, SgMethod.createSignatureKey(name, argumentTypes));
+    }
+
+    /**
+     * Appends the name of a type in the same format as
+     * {@link SgClass#getDescriptorName()}: Binary name for classes (with "$"
+     * for inner classes) and the binary name of the component type followed
+     * by "[]" for arrays.
+     */
+    private static void appendTypeName(final StringBuilder sb, final Class<?> type) {
+        sb.append(getTypeName(type.getName()));
+    }
+
+    /**
+     * Returns the descriptor name of a type.
+     * 
+     * @param className
+     *            Name in the format of <code>Class.getName()</code> like
+     *            "java.lang.String" or "[[Ljava.util.Date;".
+     * 
+     * @return Name like "java.lang.String" or "java.util.Date[][]".
+     */
+    static String getTypeName(final String className) {
+        if (className.charAt(0) == '[') {
+            return getTypeName(SgClassFile.toClassName(className.substring(1))) + "[]";
+        }
+        return className;
+    }
+
+    /**
+     * Returns the name of the method.
+     * 
+     * @return Name - Always non-null.
+     */
+    public final String getName() {
+        return name;
+    }
+
+    /**
+     * Returns the key.
+     * 
+     * @return Interned name and fully qualified argument types - Always
+     *         non-null.
+     */
+    public final String getKey() {
+        return key;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public final int hashCode() {
+        return hash;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public final boolean equals(final Object obj) {
+        if (this == obj) {
+            return true;
+        }
+        if (!(obj instanceof SgMethodDescriptor)) {
+            return false;
+        }
+        // Keys are interned
+        return key == ((SgMethodDescriptor) obj).key;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public final String toString() {
+        return key;
+    }
+
+}
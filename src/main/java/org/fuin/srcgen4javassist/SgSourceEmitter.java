@@ -0,0 +1,288 @@
+/**
+ * Copyright (C) 2009 Future Invent Informationsmanagement GmbH. All rights
+ * reserved. <http://www.fuin.org/>
+ * 
+ * This library is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation; either version 3 of the License, or (at your option) any
+ * later version.
+ * 
+ * This library is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ * details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this library. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.fuin.srcgen4javassist;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Writes the source of model classes into a directory tree. The sources are
+ * rendered in parallel and every class is written to a file named
+ * {@link SgClass#getNameAsSrcFilename()} below the root directory. A file is
+ * only written if it does not exist or if the content of the existing file
+ * differs from the new content. This way unchanged files keep their
+ * timestamp and will not trigger a recompile.
+ */
+public final class SgSourceEmitter {
+
+    /** Number of work units per thread to balance different class sizes. */
+    private static final int UNITS_PER_THREAD = 4;
+
+    private final File rootDir;
+
+    private final Charset charset;
+
+    private final int threads;
+
+    /**
+     * Constructor with root directory. Uses UTF-8 encoding and one thread per
+     * available processor.
+     * 
+     * @param rootDir
+     *            Source root directory - Cannot be null.
+     */
+    public SgSourceEmitter(final File rootDir) {
+        this(rootDir, Charset.forName("UTF-8"), Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Constructor with all data.
+     * 
+     * @param rootDir
+     *            Source root directory - Cannot be null.
+     * @param charset
+     *            Encoding of the source files - Cannot be null.
+     * @param threads
+     *            Number of threads used for rendering and writing - Must be
+     *            greater than zero.
+     */
+    public SgSourceEmitter(final File rootDir, final Charset charset, final int threads) {
+        super();
+        if (rootDir == null) {
+            throw new IllegalArgumentException("The argument 'rootDir' cannot be null!");
+        }
+        if (charset == null) {
+            throw new IllegalArgumentException("The argument 'charset' cannot be null!");
+        }
+        if (threads < 1) {
+            throw new IllegalArgumentException("The argument 'threads' must be > 0: " + threads);
+        }
+        this.rootDir = rootDir;
+        this.charset = charset;
+        this.threads = threads;
+    }
+
+    /**
+     * Returns the source root directory.
+     * 
+     * @return Directory - Always non-null.
+     */
+    public final File getRootDir() {
+        return rootDir;
+    }
+
+    /**
+     * Returns the encoding of the source files.
+     * 
+     * @return Encoding - Always non-null.
+     */
+    public final Charset getCharset() {
+        return charset;
+    }
+
+    /**
+     * Returns the number of threads used for rendering and writing.
+     * 
+     * @return Number of threads.
+     */
+    public final int getThreads() {
+        return threads;
+    }
+
+    /**
+     * Writes the source of the classes including annotations. Inner classes
+     * are skipped because they are part of the source of their enclosing
+     * class.
+     * 
+     * @param classes
+     *            Classes to write - Cannot be null.
+     * 
+     * @return Number of written and skipped files.
+     * 
+     * @throws IOException
+     *             Error reading or writing a file.
+     */
+    public final SgEmitResult emit(final List<SgClass> classes) throws IOException {
+        if (classes == null) {
+            throw new IllegalArgumentException("The argument 'classes' cannot be null!");
+        }
+        final List<SgClass> topLevel = new ArrayList<SgClass>(classes.size());
+        for (int i = 0; i < classes.size(); i++) {
+            if (classes.get(i).getEnclosingClass() == null) {
+                topLevel.add(classes.get(i));
+            }
+        }
+        if (topLevel.size() == 0) {
+            return new SgEmitResult(0, 0, 0);
+        }
+        final int units = Math.min(topLevel.size(), threads * UNITS_PER_THREAD);
+        final ExecutorService executor = Executors.newFixedThreadPool(Math.min(threads, units));
+        try {
+            final List<Future<long[]>> futures = new ArrayList<Future<long[]>>(units);
+            for (int i = 0; i < units; i++) {
+                final int from = (int) ((long) topLevel.size() * i / units);
+                final int to = (int) ((long) topLevel.size() * (i + 1) / units);
+                futures.add(executor.submit(new EmitUnit(topLevel.subList(from, to))));
+            }
+            int written = 0;
+            int skipped = 0;
+            long bytes = 0;
+            for (int i = 0; i < futures.size(); i++) {
+                final long[] counts = futures.get(i).get();
+                written = written + (int) counts[0];
+                skipped = skipped + (int) counts[1];
+                bytes = bytes + counts[2];
+            }
+            return new SgEmitResult(written, skipped, bytes);
+        } catch (final InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while writing source files", ex);
+        } catch (final ExecutionException ex) {
+            final Throwable cause = ex.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new IOException("Error writing source files", cause);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Renders and writes a single class if the content changed.
+     * 
+     * @param clasz
+     *            Class to write.
+     * 
+     * @return Number of bytes written or <code>-1</code> if the file was
+     *         skipped.
+     * 
+     * @throws IOException
+     *             Error reading or writing the file.
+     */
+    private long emit(final SgClass clasz) throws IOException {
+        final StringBuilder sb = new StringBuilder();
+        new SgSourceRenderer(sb).renderClass(clasz, true);
+        final byte[] data = sb.toString().getBytes(charset);
+        final File file = new File(rootDir, clasz.getNameAsSrcFilename());
+        if (file.exists() && hasContent(file, data)) {
+            return -1;
+        }
+        final File dir = file.getParentFile();
+        if (!dir.mkdirs() && !dir.isDirectory()) {
+            throw new IOException("Cannot create directory '" + dir + "'");
+        }
+        final FileOutputStream out = new FileOutputStream(file);
+        try {
+            final FileChannel channel = out.getChannel();
+            final ByteBuffer buf = ByteBuffer.wrap(data);
+            while (buf.hasRemaining()) {
+                channel.write(buf);
+            }
+        } finally {
+            out.close();
+        }
+        return data.length;
+    }
+
+    /**
+     * Compares the content of an existing file with new content.
+     * 
+     * @param file
+     *            File to read.
+     * @param data
+     *            New content.
+     * 
+     * @return If the file has exactly the same content <code>true</code>
+     *         else <code>false</code>.
+     * 
+     * @throws IOException
+     *             Error reading the file.
+     */
+    private static boolean hasContent(final File file, final byte[] data) throws IOException {
+        final RandomAccessFile raf = new RandomAccessFile(file, "r");
+        try {
+            final FileChannel channel = raf.getChannel();
+            if (channel.size() != data.length) {
+                return false;
+            }
+            final ByteBuffer buf = ByteBuffer.allocate(data.length);
+            while (buf.hasRemaining() && (channel.read(buf) != -1)) {
+                // Read until the buffer is full
+            }
+            return Arrays.equals(buf.array(), data);
+        } finally {
+            raf.close();
+        }
+    }
+
+    /**
+     * Writes a part of the classes.
+     */
+    private final class EmitUnit implements Callable<long[]> {
+
+        private final List<SgClass> classes;
+
+        /**
+         * Constructor with classes.
+         * 
+         * @param classes
+         *            Classes to write.
+         */
+        EmitUnit(final List<SgClass> classes) {
+            super();
+            this.classes = classes;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        public final long[] call() throws IOException {
+            // Written files, skipped files and written bytes
+            final long[] counts = new long[3];
+            for (int i = 0; i < classes.size(); i++) {
+                final long bytes = emit(classes.get(i));
+                if (bytes < 0) {
+                    counts[1]++;
+                } else {
+                    counts[0]++;
+                    counts[2] = counts[2] + bytes;
+                }
+            }
+            return counts;
+        }
+
+    }
+
+}
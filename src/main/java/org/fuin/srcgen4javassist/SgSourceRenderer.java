@@ -0,0 +1,634 @@
+/**
+ * Copyright (C) 2009 Future Invent Informationsmanagement GmbH. All rights
+ * reserved. <http://www.fuin.org/>
+ * 
+ * This library is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation; either version 3 of the License, or (at your option) any
+ * later version.
+ * 
+ * This library is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ * details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this library. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.fuin.srcgen4javassist;
+
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Writes the source code of model classes directly into an
+ * <code>Appendable</code> (for example a <code>Writer</code> or a
+ * <code>StringBuilder</code>) without creating temporary strings for the
+ * members. The output is exactly the same as the one of the
+ * <code>toString()</code> methods of the model classes. Frozen elements are
+ * written from their precalculated source.
+ */
+public final class SgSourceRenderer {
+
+    private static final String NL = "\n";
+
+    private final Appendable out;
+
+    /**
+     * Constructor with target.
+     * 
+     * @param out
+     *            Target to write the source to - Cannot be null.
+     */
+    public SgSourceRenderer(final Appendable out) {
+        super();
+        if (out == null) {
+            throw new IllegalArgumentException("The argument 'out' cannot be null!");
+        }
+        this.out = out;
+    }
+
+    /**
+     * Returns the target the source is written to.
+     * 
+     * @return Target - Always non-null.
+     */
+    public final Appendable getOut() {
+        return out;
+    }
+
+    /**
+     * Writes the source of a class including all members and inner classes.
+     * 
+     * @param clasz
+     *            Class to write - Cannot be null.
+     * @param showAnnotations
+     *            To include the annotations of the class <code>true</code>
+     *            else <code>false</code>.
+     * 
+     * @throws IOException
+     *             Error writing to the target.
+     */
+    public final void renderClass(final SgClass clasz, final boolean showAnnotations)
+            throws IOException {
+        try {
+            clasz.accept(new ClassRenderer(showAnnotations));
+        } catch (final RenderException ex) {
+            throw ex.getIOException();
+        }
+    }
+
+    private void renderAnnotationLine(final List<SgAnnotation> annotations) throws IOException {
+        if (annotations.size() > 0) {
+            for (int i = 0; i < annotations.size(); i++) {
+                if (i > 0) {
+                    out.append(' ');
+                }
+                renderAnnotation(annotations.get(i));
+            }
+            out.append(NL);
+        }
+    }
+
+    private void renderVariable(final SgVariable variable) throws IOException {
+        if (variable.getModifiers().length() > 0) {
+            out.append(variable.getModifiers());
+            out.append(' ');
+        }
+        out.append(variable.getType().getSourceName());
+        out.append(' ');
+        out.append(variable.getName());
+    }
+
+    /**
+     * Writes the source of a field.
+     * 
+     * @param field
+     *            Field to write - Cannot be null.
+     * 
+     * @throws IOException
+     *             Error writing to the target.
+     */
+    public final void renderField(final SgField field) throws IOException {
+        final String cached = field.getFrozenSource();
+        if (cached != null) {
+            out.append(cached);
+            return;
+        }
+        renderAnnotationLine(field.getAnnotations());
+        renderVariable(field);
+        final String initializer = field.getInitializer();
+        if (initializer == null) {
+            out.append(" /** No initializer source available */ ");
+        } else if (initializer.length() > 0) {
+            out.append(" = ");
+            out.append(initializer);
+        }
+        out.append(";\n");
+    }
+
+    /**
+     * Writes the source of a constructor or method argument.
+     * 
+     * @param arg
+     *            Argument to write - Cannot be null.
+     * 
+     * @throws IOException
+     *             Error writing to the target.
+     */
+    public final void renderArgument(final SgArgument arg) throws IOException {
+        final String cached = arg.getFrozenSource();
+        if (cached != null) {
+            out.append(cached);
+            return;
+        }
+        final List<SgAnnotation> annotations = arg.getAnnotations();
+        for (int i = 0; i < annotations.size(); i++) {
+            renderAnnotation(annotations.get(i));
+            out.append(' ');
+        }
+        renderVariable(arg);
+    }
+
+    /**
+     * Writes the source of an annotation.
+     * 
+     * @param annotation
+     *            Annotation to write - Cannot be null.
+     * 
+     * @throws IOException
+     *             Error writing to the target.
+     */
+    public final void renderAnnotation(final SgAnnotation annotation) throws IOException {
+        if (annotation.isFrozen()) {
+            out.append(annotation.toString());
+            return;
+        }
+        out.append('@');
+        if (annotation.getPackageName().length() > 0) {
+            out.append(annotation.getPackageName());
+            out.append('.');
+        }
+        out.append(annotation.getSimpleName());
+        final Map<String, Object> arguments = annotation.getArguments();
+        if (arguments.size() > 0) {
+            out.append('(');
+            final boolean single = (arguments.size() == 1);
+            int count = 0;
+            final Iterator<Map.Entry<String, Object>> it = arguments.entrySet().iterator();
+            while (it.hasNext()) {
+                final Map.Entry<String, Object> entry = it.next();
+                if (count > 0) {
+                    out.append(", ");
+                }
+                if (!single || !entry.getKey().equals("value")) {
+                    out.append(entry.getKey());
+                    out.append('=');
+                }
+                out.append(String.valueOf(entry.getValue()));
+                count++;
+            }
+            out.append(')');
+        }
+    }
+
+    private void renderArguments(final List<SgArgument> args) throws IOException {
+        out.append('(');
+        for (int i = 0; i < args.size(); i++) {
+            if (i > 0) {
+                out.append(", ");
+            }
+            renderArgument(args.get(i));
+        }
+        out.append(')');
+    }
+
+    private void renderExceptions(final List<SgClass> exceptions) throws IOException {
+        if (exceptions.size() > 0) {
+            out.append(" throws ");
+            for (int i = 0; i < exceptions.size(); i++) {
+                if (i > 0) {
+                    out.append(',');
+                }
+                out.append(exceptions.get(i).getName());
+            }
+        }
+    }
+
+    private void renderBody(final SgBehavior behavior, final List<String> body)
+            throws IOException {
+        if (behavior.getOwner().isInterface()) {
+            out.append(';');
+        } else {
+            out.append("{\n");
+            if (body.size() == 0) {
+                out.append("// No method source available\n");
+            } else {
+                for (int i = 0; i < body.size(); i++) {
+                    out.append(body.get(i));
+                    out.append(NL);
+                }
+            }
+            out.append("}\n");
+        }
+    }
+
+    /**
+     * Writes the signature of a constructor.
+     * 
+     * @param constructor
+     *            Constructor to write - Cannot be null.
+     * 
+     * @throws IOException
+     *             Error writing to the target.
+     */
+    public final void renderConstructorSignature(final SgConstructor constructor)
+            throws IOException {
+        final String cached = constructor.getCachedSignature();
+        if (cached != null) {
+            out.append(cached);
+            return;
+        }
+        if (constructor.getModifiers().length() > 0) {
+            out.append(constructor.getModifiers());
+            out.append(' ');
+        }
+        out.append(constructor.getOwner().getSimpleName());
+        renderArguments(constructor.getArguments());
+        renderExceptions(constructor.getExceptions());
+    }
+
+    /**
+     * Writes the source of a constructor.
+     * 
+     * @param constructor
+     *            Constructor to write - Cannot be null.
+     * 
+     * @throws IOException
+     *             Error writing to the target.
+     */
+    public final void renderConstructor(final SgConstructor constructor) throws IOException {
+        final String cached = constructor.getCachedSource();
+        if (cached != null) {
+            out.append(cached);
+            return;
+        }
+        renderAnnotationLine(constructor.getAnnotations());
+        renderConstructorSignature(constructor);
+        renderBody(constructor, constructor.getBody());
+    }
+
+    /**
+     * Writes the signature of a method.
+     * 
+     * @param method
+     *            Method to write - Cannot be null.
+     * 
+     * @throws IOException
+     *             Error writing to the target.
+     */
+    public final void renderMethodSignature(final SgMethod method) throws IOException {
+        final String cached = method.getCachedSignature();
+        if (cached != null) {
+            out.append(cached);
+            return;
+        }
+        if (method.getModifiers().length() > 0) {
+            out.append(method.getModifiers());
+            out.append(' ');
+        }
+        out.append(method.getReturnType().getName());
+        out.append(' ');
+        out.append(method.getName());
+        renderArguments(method.getArguments());
+        renderExceptions(method.getExceptions());
+    }
+
+    /**
+     * Writes the source of a method.
+     * 
+     * @param method
+     *            Method to write - Cannot be null.
+     * @param showAnnotations
+     *            To include the annotations of the method <code>true</code>
+     *            else <code>false</code>.
+     * 
+     * @throws IOException
+     *             Error writing to the target.
+     */
+    public final void renderMethod(final SgMethod method, final boolean showAnnotations)
+            throws IOException {
+        final String cached = method.getCachedSource(showAnnotations);
+        if (cached != null) {
+            out.append(cached);
+            return;
+        }
+        if (showAnnotations) {
+            renderAnnotationLine(method.getAnnotations());
+        }
+        renderMethodSignature(method);
+        renderBody(method, method.getBody());
+    }
+
+    /**
+     * Writes classes while they are visited. Members are written with the
+     * render methods of the outer class - Only the class level elements are
+     * handled here. The separators between header, fields, constructors and
+     * methods are written when the next part starts.
+     */
+    private final class ClassRenderer implements SgVisitor {
+
+        /** Annotations, interfaces and members are not started yet. */
+        private static final int START = 0;
+
+        /** Name line without interfaces written. */
+        private static final int HEADER = 1;
+
+        private static final int FIELDS = 2;
+
+        private static final int CONSTRUCTORS = 3;
+
+        private static final int METHODS = 4;
+
+        private final boolean showAnnotations;
+
+        private SgClass current;
+
+        private int state;
+
+        /** Number of classes that are not ended yet. */
+        private int depth;
+
+        /**
+         * Constructor with annotation flag.
+         * 
+         * @param showAnnotations
+         *            Write the annotations of the top level class.
+         */
+        ClassRenderer(final boolean showAnnotations) {
+            super();
+            this.showAnnotations = showAnnotations;
+        }
+
+        private void advance(final int target) throws IOException {
+            while (state < target) {
+                state++;
+                if (state == HEADER) {
+                    if (current.getModifiers().length() > 0) {
+                        out.append(current.getModifiers());
+                        out.append(' ');
+                    }
+                    if (current.isInterface()) {
+                        out.append("interface ");
+                    } else {
+                        out.append("class ");
+                    }
+                    out.append(current.getSimpleName());
+                    final SgClass superClass = current.getSuperClass();
+                    if (!current.isInterface() && (superClass != null)
+                            && (!"Object".equals(superClass.getName()))) {
+                        out.append(" extends ");
+                        out.append(superClass.getSourceName());
+                    }
+                } else if (state == FIELDS) {
+                    out.append(" {\n");
+                } else {
+                    out.append(NL);
+                }
+            }
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        public boolean visitClass(final SgClass clasz) {
+            try {
+                if (depth > 0) {
+                    // Inner class
+                    advance(METHODS);
+                }
+                final String cached = clasz.getCachedSource(showAnnotations && (depth == 0));
+                if (cached != null) {
+                    out.append(cached);
+                    if (depth > 0) {
+                        out.append(NL);
+                    }
+                    return false;
+                }
+                if ((clasz.getEnclosingClass() == null) && (clasz.getPackageName().length() > 0)) {
+                    out.append("package ");
+                    out.append(clasz.getPackageName());
+                    out.append(";\n");
+                    out.append(NL);
+                }
+            } catch (final IOException ex) {
+                throw new RenderException(ex);
+            }
+            current = clasz;
+            state = START;
+            depth++;
+            return true;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        public void visitAnnotation(final SgAnnotation annotation, final int index,
+                final int count) {
+            // Only class annotations arrive here as members are not entered
+            if (!showAnnotations || (depth > 1)) {
+                return;
+            }
+            try {
+                if (index > 0) {
+                    out.append(' ');
+                }
+                renderAnnotation(annotation);
+                if (index == count - 1) {
+                    out.append(NL);
+                }
+            } catch (final IOException ex) {
+                throw new RenderException(ex);
+            }
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        public void visitInterface(final SgClass intf, final int index, final int count) {
+            try {
+                advance(HEADER);
+                if (index > 0) {
+                    out.append(", ");
+                } else if (current.isInterface()) {
+                    out.append(" extends ");
+                } else {
+                    out.append(" implements ");
+                }
+                out.append(intf.getSourceName());
+            } catch (final IOException ex) {
+                throw new RenderException(ex);
+            }
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        public boolean visitField(final SgField field, final int index, final int count) {
+            try {
+                advance(FIELDS);
+                renderField(field);
+                out.append(NL);
+                out.append(NL);
+            } catch (final IOException ex) {
+                throw new RenderException(ex);
+            }
+            return false;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        public boolean visitConstructor(final SgConstructor constructor, final int index,
+                final int count) {
+            try {
+                advance(CONSTRUCTORS);
+                renderConstructor(constructor);
+                out.append(NL);
+                out.append(NL);
+            } catch (final IOException ex) {
+                throw new RenderException(ex);
+            }
+            return false;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        public boolean visitMethod(final SgMethod method, final int index, final int count) {
+            try {
+                advance(METHODS);
+                renderMethod(method, true);
+                out.append(NL);
+                out.append(NL);
+            } catch (final IOException ex) {
+                throw new RenderException(ex);
+            }
+            return false;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        public void visitArgument(final SgArgument argument, final int index, final int count) {
+            // Not called as constructors and methods are not entered
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        public void visitException(final SgClass exception, final int index, final int count) {
+            // Not called as constructors and methods are not entered
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        public void visitBodyLine(final String line, final int index, final int count) {
+            // Not called as constructors and methods are not entered
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        public void endClass(final SgClass clasz) {
+            try {
+                advance(METHODS);
+                out.append("}\n");
+                depth--;
+                if (depth > 0) {
+                    out.append(NL);
+                }
+            } catch (final IOException ex) {
+                throw new RenderException(ex);
+            }
+        }
+
+    }
+
+    /**
+     * Transports an <code>IOException</code> through the visitor methods.
+     */
+    private static final class RenderException extends RuntimeException {
+
+        private static final long serialVersionUID = 1L;
+
+        /**
+         * Constructor with cause.
+         * 
+         * @param cause
+         *            Error writing to the target.
+         */
+        RenderException(final IOException cause) {
+            super(cause);
+        }
+
+        /**
+         * Returns the cause.
+         * 
+         * @return Error writing to the target.
+         */
+        IOException getIOException() {
+            return (IOException) getCause();
+        }
+
+    }
+
+    /**
+     * Renders a model element into a string.
+     * 
+     * @param element
+     *            Class, field, constructor, method, argument or annotation.
+     * @param showAnnotations
+     *            Include annotations of classes and methods.
+     * @param signatureOnly
+     *            Only render the signature of a constructor or method.
+     * 
+     * @return Source.
+     */
+    static String toString(final Object element, final boolean showAnnotations,
+            final boolean signatureOnly) {
+        final StringBuilder sb = new StringBuilder();
+        final SgSourceRenderer renderer = new SgSourceRenderer(sb);
+        try {
+            if (element instanceof SgClass) {
+                renderer.renderClass((SgClass) element, showAnnotations);
+            } else if (element instanceof SgMethod) {
+                if (signatureOnly) {
+                    renderer.renderMethodSignature((SgMethod) element);
+                } else {
+                    renderer.renderMethod((SgMethod) element, showAnnotations);
+                }
+            } else if (element instanceof SgConstructor) {
+                if (signatureOnly) {
+                    renderer.renderConstructorSignature((SgConstructor) element);
+                } else {
+                    renderer.renderConstructor((SgConstructor) element);
+                }
+            } else if (element instanceof SgField) {
+                renderer.renderField((SgField) element);
+            } else if (element instanceof SgArgument) {
+                renderer.renderArgument((SgArgument) element);
+            } else {
+                renderer.renderAnnotation((SgAnnotation) element);
+            }
+        } catch (final IOException ex) {
+            // Cannot happen with a StringBuilder
+            throw new IllegalStateException(ex);
+        }
+        return sb.toString();
+    }
+
+}
@@ -21,7 +21,6 @@ import java.lang.annotation.Annotation;
 import java.lang.reflect.Modifier;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.StringTokenizer;
 
 /**
  * Some helper for the package.
@@ -89,6 +88,25 @@ public final class SgUtils {
             { true, false, false, false, false, false, false },
             { false, true, false, true, true, true, true } };
 
+    /** Allowed modifiers per type calculated from the matrix. */
+    private static final int[] ALLOWED_MODIFIERS = createAllowedModifiers();
+
+    /** Order the modifiers are checked in (Defines the error message). */
+    private static final int[] CHECK_ORDER = new int[] { PRIVATE, PROTECTED, PUBLIC, STATIC,
+            ABSTRACT, FINAL, NATIVE, SYNCHRONIZED, TRANSIENT, VOLATILE, STRICTFP };
+
+    private static final int ACCESS_MODIFIERS = Modifier.PUBLIC | Modifier.PROTECTED
+            | Modifier.PRIVATE;
+
+    private static final int ILLEGAL_ABSTRACT_MODIFIERS = Modifier.PRIVATE | Modifier.STATIC
+            | Modifier.FINAL | Modifier.NATIVE | Modifier.STRICT | Modifier.SYNCHRONIZED;
+
+    private static final int ABSTRACT_FINAL = Modifier.ABSTRACT | Modifier.FINAL;
+
+    private static final int NATIVE_STRICTFP = Modifier.NATIVE | Modifier.STRICT;
+
+    private static final int FINAL_VOLATILE = Modifier.FINAL | Modifier.VOLATILE;
+
     private SgUtils() {
         throw new UnsupportedOperationException(
                 "It's not allowed to create an instance of this class!");
@@ -99,46 +117,28 @@ public final class SgUtils {
                 + "' is not allowed for '" + TYPE_NAMES[type] + "'!");
     }
 
-    // CHECKSTYLE:OFF Cyclomatic complexity is OK here
-    private static void checkModifiers(final int type, final int modifiers) {
-        for (int modifier = ABSTRACT; modifier <= STRICTFP; modifier++) {
-            if (Modifier.isPrivate(modifiers) && !MODIFIERS_MATRIX[PRIVATE][type]) {
-                throwIllegalArgument(type, PRIVATE);
-            }
-            if (Modifier.isProtected(modifiers) && !MODIFIERS_MATRIX[PROTECTED][type]) {
-                throwIllegalArgument(type, PROTECTED);
-            }
-            if (Modifier.isPublic(modifiers) && !MODIFIERS_MATRIX[PUBLIC][type]) {
-                throwIllegalArgument(type, PUBLIC);
-            }
-            if (Modifier.isStatic(modifiers) && !MODIFIERS_MATRIX[STATIC][type]) {
-                throwIllegalArgument(type, STATIC);
-            }
-            if (Modifier.isAbstract(modifiers) && !MODIFIERS_MATRIX[ABSTRACT][type]) {
-                throwIllegalArgument(type, ABSTRACT);
-            }
-            if (Modifier.isFinal(modifiers) && !MODIFIERS_MATRIX[FINAL][type]) {
-                throwIllegalArgument(type, FINAL);
-            }
-            if (Modifier.isNative(modifiers) && !MODIFIERS_MATRIX[NATIVE][type]) {
-                throwIllegalArgument(type, NATIVE);
-            }
-            if (Modifier.isSynchronized(modifiers) && !MODIFIERS_MATRIX[SYNCHRONIZED][type]) {
-                throwIllegalArgument(type, SYNCHRONIZED);
-            }
-            if (Modifier.isTransient(modifiers) && !MODIFIERS_MATRIX[TRANSIENT][type]) {
-                throwIllegalArgument(type, TRANSIENT);
-            }
-            if (Modifier.isVolatile(modifiers) && !MODIFIERS_MATRIX[VOLATILE][type]) {
-                throwIllegalArgument(type, VOLATILE);
-            }
-            if (Modifier.isStrict(modifiers) && !MODIFIERS_MATRIX[STRICTFP][type]) {
-                throwIllegalArgument(type, STRICTFP);
+    private static int[] createAllowedModifiers() {
+        final int[] allowed = new int[INNER_INTERFACE + 1];
+        for (int type = FIELD; type <= INNER_INTERFACE; type++) {
+            for (int modifier = ABSTRACT; modifier <= STRICTFP; modifier++) {
+                if (MODIFIERS_MATRIX[modifier][type]) {
+                    allowed[type] = allowed[type] | MODIFIER_VALUES[modifier];
+                }
             }
         }
+        return allowed;
     }
 
-    // CHECKSTYLE:ON
+    private static void checkModifiers(final int type, final int modifiers) {
+        final int illegal = modifiers & ~ALLOWED_MODIFIERS[type];
+        if (illegal != 0) {
+            for (int i = 0; i < CHECK_ORDER.length; i++) {
+                if ((illegal & MODIFIER_VALUES[CHECK_ORDER[i]]) != 0) {
+                    throwIllegalArgument(type, CHECK_ORDER[i]);
+                }
+            }
+        }
+    }
 
     /**
      * Checks if the modifiers are valid for a class. If any of the modifiers is
@@ -172,7 +172,7 @@ public final class SgUtils {
         checkModifiers(type, modifiers);
 
         // Abstract and final check
-        if (Modifier.isAbstract(modifiers) && Modifier.isFinal(modifiers)) {
+        if ((modifiers & ABSTRACT_FINAL) == ABSTRACT_FINAL) {
             throw new IllegalArgumentException(CLASS_ABSTRACT_AND_FINAL_ERROR + " ["
                     + Modifier.toString(modifiers) + "]");
         }
@@ -192,7 +192,7 @@ public final class SgUtils {
         checkModifiers(FIELD, modifiers);
 
         // Check final and volatile
-        if (Modifier.isFinal(modifiers) && Modifier.isVolatile(modifiers)) {
+        if ((modifiers & FINAL_VOLATILE) == FINAL_VOLATILE) {
             throw new IllegalArgumentException(FIELD_FINAL_VOLATILE_ERROR + " ["
                     + Modifier.toString(modifiers) + "]");
         }
@@ -206,52 +206,31 @@ public final class SgUtils {
      * @param modifiers
      *            Modifiers.
      */
-    // CHECKSTYLE:OFF Cyclomatic complexity is OK
     public static void checkMethodModifiers(final int modifiers) {
 
         // Base check
         checkModifiers(METHOD, modifiers);
 
         // Check overlapping modifiers
-        if (Modifier.isPrivate(modifiers)) {
-            if (Modifier.isProtected(modifiers) || Modifier.isPublic(modifiers)) {
-                throw new IllegalArgumentException(METHOD_ACCESS_MODIFIER_ERROR + " ["
-                        + Modifier.toString(modifiers) + "]");
-            }
-        }
-        if (Modifier.isProtected(modifiers)) {
-            if (Modifier.isPrivate(modifiers) || Modifier.isPublic(modifiers)) {
-                throw new IllegalArgumentException(METHOD_ACCESS_MODIFIER_ERROR + " ["
-                        + Modifier.toString(modifiers) + "]");
-            }
-        }
-        if (Modifier.isPublic(modifiers)) {
-            if (Modifier.isPrivate(modifiers) || Modifier.isProtected(modifiers)) {
-                throw new IllegalArgumentException(METHOD_ACCESS_MODIFIER_ERROR + " ["
-                        + Modifier.toString(modifiers) + "]");
-            }
+        if (Integer.bitCount(modifiers & ACCESS_MODIFIERS) > 1) {
+            throw new IllegalArgumentException(METHOD_ACCESS_MODIFIER_ERROR + " ["
+                    + Modifier.toString(modifiers) + "]");
         }
 
         // Check illegal abstract modifiers
-        if (Modifier.isAbstract(modifiers)) {
-            if (Modifier.isPrivate(modifiers) || Modifier.isStatic(modifiers)
-                    || Modifier.isFinal(modifiers) || Modifier.isNative(modifiers)
-                    || Modifier.isStrict(modifiers) || Modifier.isSynchronized(modifiers)) {
-                throw new IllegalArgumentException(METHOD_ILLEGAL_ABSTRACT_MODIFIERS_ERROR + " ["
-                        + Modifier.toString(modifiers) + "]");
-            }
+        if (Modifier.isAbstract(modifiers) && ((modifiers & ILLEGAL_ABSTRACT_MODIFIERS) != 0)) {
+            throw new IllegalArgumentException(METHOD_ILLEGAL_ABSTRACT_MODIFIERS_ERROR + " ["
+                    + Modifier.toString(modifiers) + "]");
         }
 
         // Check native and strictfp
-        if (Modifier.isNative(modifiers) && Modifier.isStrict(modifiers)) {
+        if ((modifiers & NATIVE_STRICTFP) == NATIVE_STRICTFP) {
             throw new IllegalArgumentException(METHOD_NATIVE_STRICTFP_ERROR + " ["
                     + Modifier.toString(modifiers) + "]");
         }
 
     }
 
-    // CHECKSTYLE:ON
-
     /**
      * Checks if the modifiers are valid for a constructor. If any of the
      * modifiers is not valid an <code>IllegalArgumentException</code> is
@@ -407,13 +386,16 @@ public final class SgUtils {
         return sb.toString();
     }
 
-    private static int modifierValueForName(final String name) {
+    private static int modifierValueForName(final String str, final int start, final int end) {
+        final int length = end - start;
         for (int i = 0; i < MODIFIER_NAMES.length; i++) {
-            if (name.equals(MODIFIER_NAMES[i])) {
+            final String name = MODIFIER_NAMES[i];
+            if ((name.length() == length) && str.regionMatches(start, name, 0, length)) {
                 return MODIFIER_VALUES[i];
             }
         }
-        throw new IllegalArgumentException("Unknown modifier '" + name + "'!");
+        throw new IllegalArgumentException("Unknown modifier '" + str.substring(start, end)
+                + "'!");
     }
 
     /**
@@ -428,12 +410,20 @@ public final class SgUtils {
         if (modifiers == null) {
             return 0;
         }
-        final String trimmedModifiers = modifiers.trim();
         int modifier = 0;
-        final StringTokenizer tok = new StringTokenizer(trimmedModifiers, " ");
-        while (tok.hasMoreTokens()) {
-            final String mod = tok.nextToken();
-            modifier = modifier | modifierValueForName(mod);
+        final int length = modifiers.length();
+        int start = 0;
+        while (start < length) {
+            if (modifiers.charAt(start) <= ' ') {
+                start++;
+            } else {
+                int end = start + 1;
+                while ((end < length) && (modifiers.charAt(end) > ' ')) {
+                    end++;
+                }
+                modifier = modifier | modifierValueForName(modifiers, start, end);
+                start = end;
+            }
         }
         return modifier;
     }
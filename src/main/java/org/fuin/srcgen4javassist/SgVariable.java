@@ -18,7 +18,6 @@
 package org.fuin.srcgen4javassist;
 
 import java.util.ArrayList;
-import java.util.Collections;
 import java.util.List;
 
 /**
@@ -28,11 +27,23 @@ public abstract class SgVariable {
 
     private final String modifiers;
 
+    /** Modifiers as bit mask or <code>-1</code> if not calculated yet. */
+    private int modifierMask = -1;
+
     private final SgClass type;
 
     private final String name;
 
-    private final List<SgAnnotation> annotations;
+    /** Annotations or <code>null</code> if there are none. */
+    private ArrayList<SgAnnotation> annotations;
+
+    private final int hash;
+
+    private volatile boolean frozen;
+
+    private List<SgAnnotation> frozenAnnotations;
+
+    private String source;
 
     /**
      * Constructor with modifiers, class and name.
@@ -50,7 +61,7 @@ public abstract class SgVariable {
         if (modifiers == null) {
             throw new IllegalArgumentException("The argument 'modifiers' cannot be null!");
         }
-        this.modifiers = modifiers;
+        this.modifiers = modifiers.intern();
 
         if (type == null) {
             throw new IllegalArgumentException("The argument 'type' cannot be null!");
@@ -60,9 +71,9 @@ public abstract class SgVariable {
         if (name == null) {
             throw new IllegalArgumentException("The argument 'name' cannot be null!");
         }
-        this.name = name;
+        this.name = name.intern();
 
-        annotations = new ArrayList<SgAnnotation>();
+        hash = 31 * (31 * modifiers.hashCode() + type.hashCode()) + name.hashCode();
 
     }
 
@@ -75,6 +86,24 @@ public abstract class SgVariable {
         return modifiers;
     }
 
+    /**
+     * Returns the modifiers as bit mask in the same format as
+     * <code>java.lang.reflect.Modifier</code>. The value is only calculated
+     * once. Throws an <code>IllegalArgumentException</code> if the modifiers
+     * contain an unknown name.
+     * 
+     * @return Modifiers - See {@link SgUtils#toModifiers(String)}.
+     */
+    public final int getModifierMask() {
+        int mask = modifierMask;
+        if (mask == -1) {
+            // Calculating the value twice in different threads does no harm
+            mask = SgUtils.toModifiers(modifiers);
+            modifierMask = mask;
+        }
+        return mask;
+    }
+
     /**
      * Returns the type of the field.
      * 
@@ -99,7 +128,11 @@ public abstract class SgVariable {
      * @return List of annotations - Always non-null and unmodifiable.
      */
     public final List<SgAnnotation> getAnnotations() {
-        return Collections.unmodifiableList(annotations);
+        final List<SgAnnotation> view = frozenAnnotations;
+        if (view != null) {
+            return view;
+        }
+        return SgLists.view(annotations);
     }
 
     /**
@@ -112,7 +145,8 @@ public abstract class SgVariable {
         if (annotation == null) {
             throw new IllegalArgumentException("The argument 'annotation' cannot be NULL!");
         }
-        annotations.add(annotation);
+        assertNotFrozen();
+        this.annotations = SgLists.add(this.annotations, annotation, 2);
     }
 
     /**
@@ -126,7 +160,14 @@ public abstract class SgVariable {
         if (annotations == null) {
             throw new IllegalArgumentException("The argument 'annotations' cannot be NULL!");
         }
-        this.annotations.addAll(annotations);
+        assertNotFrozen();
+        if (annotations.size() > 0) {
+            if (this.annotations == null) {
+                this.annotations = new ArrayList<SgAnnotation>(annotations);
+            } else {
+                this.annotations.addAll(annotations);
+            }
+        }
     }
 
     /**
@@ -141,7 +182,7 @@ public abstract class SgVariable {
         if (name == null) {
             throw new IllegalArgumentException("The argument 'name' cannot be NULL!");
         }
-        for (int i = 0; i < annotations.size(); i++) {
+        for (int i = 0; i < SgLists.size(annotations); i++) {
             final SgAnnotation annotation = annotations.get(i);
             if (annotation.getName().equals(name)) {
                 return true;
@@ -150,4 +191,109 @@ public abstract class SgVariable {
         return false;
     }
 
+    /**
+     * Compares the modifiers, type, name and annotations with another
+     * variable.
+     * 
+     * @param other
+     *            Variable to compare with - Cannot be null.
+     * 
+     * @return If all data is equal <code>true</code> else <code>false</code>.
+     */
+    final boolean hasSameData(final SgVariable other) {
+        return (hash == other.hash) && name.equals(other.name)
+                && SgClass.sameName(type, other.type)
+                && modifiers.equals(other.modifiers)
+                && SgLists.equals(annotations, other.annotations);
+    }
+
+    /**
+     * Returns a hash code based on the modifiers, type and name. The value is
+     * calculated once at construction time.
+     * 
+     * @return Hash code.
+     */
+    final int getDataHashCode() {
+        return hash;
+    }
+
+    /**
+     * Passes the annotations to a visitor.
+     * 
+     * @param visitor
+     *            Visitor to call.
+     */
+    final void acceptAnnotations(final SgVisitor visitor) {
+        final int count = SgLists.size(annotations);
+        for (int i = 0; i < count; i++) {
+            visitor.visitAnnotation(annotations.get(i), i, count);
+        }
+    }
+
+    private void assertNotFrozen() {
+        if (frozen) {
+            throw new IllegalStateException("The variable '" + name
+                    + "' is frozen and cannot be changed!");
+        }
+    }
+
+    /**
+     * Returns if the variable cannot be changed any more.
+     * 
+     * @return If {@link SgClass#freeze()} was called for the owning class
+     *         <code>true</code> else <code>false</code>.
+     */
+    public final boolean isFrozen() {
+        return frozen;
+    }
+
+    /**
+     * Returns the source kept after it was created for the frozen variable.
+     * 
+     * @return Result of <code>toString()</code> or <code>null</code> if the
+     *         variable is not frozen or the source was not requested yet.
+     */
+    final String getFrozenSource() {
+        return source;
+    }
+
+    /**
+     * Returns the number of collections the variable has created.
+     * 
+     * @return Allocated lists.
+     */
+    final int getAllocatedCollections() {
+        return SgLists.countAllocated(annotations, frozenAnnotations);
+    }
+
+    /**
+     * Keeps the source if the variable is frozen.
+     * 
+     * @param created
+     *            Source created by <code>toString()</code>.
+     * 
+     * @return The source.
+     */
+    final String keepSource(final String created) {
+        if (frozen) {
+            source = created;
+        }
+        return created;
+    }
+
+    /**
+     * Makes the variable and it's annotations immutable. Calling this method
+     * more than once has no effect.
+     */
+    final void freeze() {
+        if (frozen) {
+            return;
+        }
+        for (int i = 0; i < SgLists.size(annotations); i++) {
+            annotations.get(i).freeze();
+        }
+        frozenAnnotations = SgLists.freeze(annotations);
+        frozen = true;
+    }
+
 }
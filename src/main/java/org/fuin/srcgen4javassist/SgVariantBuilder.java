@@ -0,0 +1,253 @@
+/**
+ * Copyright (C) 2009 Future Invent Informationsmanagement GmbH. All rights
+ * reserved. <http://www.fuin.org/>
+ * 
+ * This library is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation; either version 3 of the License, or (at your option) any
+ * later version.
+ * 
+ * This library is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ * details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this library. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.fuin.srcgen4javassist;
+
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Creates a variant of a frozen class that differs only in some method or
+ * constructor bodies or field initializers. All members that are not changed
+ * are shared with the base class - Only the changed members are copied. If
+ * the variant has another name than the base the constructors are copied too
+ * because their source contains the class name. The result is a frozen
+ * class.
+ */
+public final class SgVariantBuilder {
+
+    private final SgClass base;
+
+    private final SgClass variant;
+
+    private final boolean renamed;
+
+    private final Map<SgConstructor, SgConstructor> constructors;
+
+    private boolean built;
+
+    /**
+     * Constructor for a variant with the same name as the base.
+     * 
+     * @param base
+     *            Frozen top level class - Cannot be null.
+     */
+    public SgVariantBuilder(final SgClass base) {
+        this(base, nonNull(base).getPackageName(), base.getSimpleName());
+    }
+
+    /**
+     * Constructor for a variant with another name.
+     * 
+     * @param base
+     *            Frozen top level class - Cannot be null.
+     * @param packageName
+     *            Package of the variant - Cannot be null.
+     * @param simpleName
+     *            Name (without package) of the variant - Cannot be null.
+     */
+    public SgVariantBuilder(final SgClass base, final String packageName,
+            final String simpleName) {
+        super();
+        nonNull(base);
+        if (packageName == null) {
+            throw new IllegalArgumentException("The argument 'packageName' cannot be null!");
+        }
+        if (simpleName == null) {
+            throw new IllegalArgumentException("The argument 'simpleName' cannot be null!");
+        }
+        if (!base.isFrozen()) {
+            throw new IllegalArgumentException("The class '" + base.getName()
+                    + "' must be frozen to create a variant!");
+        }
+        if (base.getEnclosingClass() != null) {
+            throw new IllegalArgumentException("The class '" + base.getName()
+                    + "' is an inner class - Variants are only supported for top level classes!");
+        }
+        this.base = base;
+        this.variant = new SgClass(base, packageName, simpleName);
+        this.renamed = !variant.getName().equals(base.getName());
+        if (renamed && (base.getClasses().size() > 0)) {
+            throw new IllegalArgumentException("The class '" + base.getName()
+                    + "' has inner classes and cannot be renamed!");
+        }
+        this.constructors = new IdentityHashMap<SgConstructor, SgConstructor>();
+    }
+
+    private static SgClass nonNull(final SgClass base) {
+        if (base == null) {
+            throw new IllegalArgumentException("The argument 'base' cannot be null!");
+        }
+        return base;
+    }
+
+    private void assertNotBuilt() {
+        if (built) {
+            throw new IllegalStateException("The variant '" + variant.getName()
+                    + "' was already built!");
+        }
+    }
+
+    private <T> T current(final SgClass owner, final T member, final String name) {
+        SgClass clasz = base;
+        while (clasz != null) {
+            if (owner == clasz) {
+                // Keep the changes of the variants in between
+                return base.currentMember(owner, member);
+            }
+            clasz = clasz.getVariantBase();
+        }
+        throw new IllegalArgumentException("The argument '" + name + "' is not a member of '"
+                + base.getName() + "'!");
+    }
+
+    /**
+     * Returns the class the variant is based on.
+     * 
+     * @return Base class - Always non-null.
+     */
+    public final SgClass getBase() {
+        return base;
+    }
+
+    /**
+     * Replaces the body of a method.
+     * 
+     * @param method
+     *            Method of the base class - Cannot be null.
+     * @param body
+     *            New source lines - Cannot be null.
+     * 
+     * @return This builder.
+     */
+    public final SgVariantBuilder setMethodBody(final SgMethod method, final List<String> body) {
+        if (method == null) {
+            throw new IllegalArgumentException("The argument 'method' cannot be null!");
+        }
+        if (body == null) {
+            throw new IllegalArgumentException("The argument 'body' cannot be null!");
+        }
+        assertNotBuilt();
+        final SgMethod current = current(method.getOwner(), method, "method");
+        final SgMethod copy = new SgMethod(variant, current.getModifiers(), current
+                .getReturnType(), current.getName());
+        copyBehavior(current, copy);
+        for (int i = 0; i < body.size(); i++) {
+            copy.addBodyLine(body.get(i));
+        }
+        variant.replaceMember(current, copy);
+        return this;
+    }
+
+    /**
+     * Replaces the body of a constructor.
+     * 
+     * @param constructor
+     *            Constructor of the base class - Cannot be null.
+     * @param body
+     *            New source lines - Cannot be null.
+     * 
+     * @return This builder.
+     */
+    public final SgVariantBuilder setConstructorBody(final SgConstructor constructor,
+            final List<String> body) {
+        if (constructor == null) {
+            throw new IllegalArgumentException("The argument 'constructor' cannot be null!");
+        }
+        if (body == null) {
+            throw new IllegalArgumentException("The argument 'body' cannot be null!");
+        }
+        assertNotBuilt();
+        final SgConstructor current = current(constructor.getOwner(), constructor,
+                "constructor");
+        constructors.put(current, copyConstructor(current, body));
+        return this;
+    }
+
+    /**
+     * Replaces the initializer of a field.
+     * 
+     * @param field
+     *            Field of the base class - Cannot be null.
+     * @param initializer
+     *            New initializer source or <code>null</code>.
+     * 
+     * @return This builder.
+     */
+    public final SgVariantBuilder setFieldInitializer(final SgField field,
+            final String initializer) {
+        if (field == null) {
+            throw new IllegalArgumentException("The argument 'field' cannot be null!");
+        }
+        assertNotBuilt();
+        final SgField current = current(field.getOwner(), field, "field");
+        final SgField copy = new SgField(variant, current.getModifiers(), current.getType(),
+                current.getName(), initializer);
+        copy.addAnnotations(current.getAnnotations());
+        variant.replaceMember(current, copy);
+        return this;
+    }
+
+    private SgConstructor copyConstructor(final SgConstructor constructor,
+            final List<String> body) {
+        final SgConstructor copy = new SgConstructor(variant, constructor.getModifiers());
+        copyBehavior(constructor, copy);
+        for (int i = 0; i < body.size(); i++) {
+            copy.addBodyLine(body.get(i));
+        }
+        return copy;
+    }
+
+    private static void copyBehavior(final SgBehavior from, final SgBehavior to) {
+        final List<SgArgument> args = from.getArguments();
+        for (int i = 0; i < args.size(); i++) {
+            final SgArgument arg = new SgArgument(to, args.get(i));
+            arg.addAnnotations(args.get(i).getAnnotations());
+        }
+        final List<SgClass> exceptions = from.getExceptions();
+        for (int i = 0; i < exceptions.size(); i++) {
+            to.addException(exceptions.get(i));
+        }
+        to.addAnnotations(from.getAnnotations());
+    }
+
+    /**
+     * Creates the frozen variant. The builder cannot be used any more after
+     * calling this method.
+     * 
+     * @return Variant of the base class.
+     */
+    public final SgClass build() {
+        assertNotBuilt();
+        built = true;
+        final List<SgConstructor> baseConstructors = base.getConstructors();
+        for (int i = 0; i < baseConstructors.size(); i++) {
+            final SgConstructor constructor = baseConstructors.get(i);
+            SgConstructor copy = constructors.get(constructor);
+            if ((copy == null) && renamed) {
+                copy = copyConstructor(constructor, constructor.getBody());
+            }
+            if (copy != null) {
+                variant.replaceMember(constructor, copy);
+            }
+        }
+        variant.freeze();
+        return variant;
+    }
+
+}
@@ -0,0 +1,157 @@
+/**
+ * Copyright (C) 2009 Future Invent Informationsmanagement GmbH. All rights
+ * reserved. <http://www.fuin.org/>
+ * 
+ * This library is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation; either version 3 of the License, or (at your option) any
+ * later version.
+ * 
+ * This library is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ * details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this library. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.fuin.srcgen4javassist;
+
+/**
+ * Visitor for the class model. See {@link SgClass#accept(SgVisitor)} for the
+ * order of the calls. Elements that are part of a group (like the arguments
+ * of a method) are passed together with their position in the group and the
+ * size of the group. This way no lists have to be created or requested while
+ * walking through the model.
+ */
+public interface SgVisitor {
+
+    /**
+     * Visits a class or inner class.
+     * 
+     * @param clasz
+     *            Class.
+     * 
+     * @return To visit the content of the class and call
+     *         {@link #endClass(SgClass)} <code>true</code> else
+     *         <code>false</code>.
+     */
+    public boolean visitClass(SgClass clasz);
+
+    /**
+     * Visits an annotation of the last visited class, field, constructor,
+     * method or argument.
+     * 
+     * @param annotation
+     *            Annotation.
+     * @param index
+     *            Position of the annotation (zero based).
+     * @param count
+     *            Number of annotations of the element.
+     */
+    public void visitAnnotation(SgAnnotation annotation, int index, int count);
+
+    /**
+     * Visits an interface implemented (or extended) by the current class.
+     * 
+     * @param intf
+     *            Interface.
+     * @param index
+     *            Position of the interface (zero based).
+     * @param count
+     *            Number of interfaces.
+     */
+    public void visitInterface(SgClass intf, int index, int count);
+
+    /**
+     * Visits a field of the current class.
+     * 
+     * @param field
+     *            Field.
+     * @param index
+     *            Position of the field (zero based).
+     * @param count
+     *            Number of fields.
+     * 
+     * @return To visit the annotations of the field <code>true</code> else
+     *         <code>false</code>.
+     */
+    public boolean visitField(SgField field, int index, int count);
+
+    /**
+     * Visits a constructor of the current class.
+     * 
+     * @param constructor
+     *            Constructor.
+     * @param index
+     *            Position of the constructor (zero based).
+     * @param count
+     *            Number of constructors.
+     * 
+     * @return To visit the annotations, arguments, exceptions and body lines
+     *         of the constructor <code>true</code> else <code>false</code>.
+     */
+    public boolean visitConstructor(SgConstructor constructor, int index, int count);
+
+    /**
+     * Visits a method of the current class.
+     * 
+     * @param method
+     *            Method.
+     * @param index
+     *            Position of the method (zero based).
+     * @param count
+     *            Number of methods.
+     * 
+     * @return To visit the annotations, arguments, exceptions and body lines
+     *         of the method <code>true</code> else <code>false</code>.
+     */
+    public boolean visitMethod(SgMethod method, int index, int count);
+
+    /**
+     * Visits an argument of the current constructor or method. The
+     * annotations of the argument are visited directly after this call.
+     * 
+     * @param argument
+     *            Argument.
+     * @param index
+     *            Position of the argument (zero based).
+     * @param count
+     *            Number of arguments.
+     */
+    public void visitArgument(SgArgument argument, int index, int count);
+
+    /**
+     * Visits an exception thrown by the current constructor or method.
+     * 
+     * @param exception
+     *            Exception class.
+     * @param index
+     *            Position of the exception (zero based).
+     * @param count
+     *            Number of exceptions.
+     */
+    public void visitException(SgClass exception, int index, int count);
+
+    /**
+     * Visits a line of the body of the current constructor or method.
+     * 
+     * @param line
+     *            Source line.
+     * @param index
+     *            Position of the line (zero based).
+     * @param count
+     *            Number of lines.
+     */
+    public void visitBodyLine(String line, int index, int count);
+
+    /**
+     * Called after all members and inner classes of a class have been
+     * visited.
+     * 
+     * @param clasz
+     *            Class.
+     */
+    public void endClass(SgClass clasz);
+
+}
@@ -0,0 +1,98 @@
+/**
+ * Copyright (C) 2009 Future Invent Informationsmanagement GmbH. All rights
+ * reserved. <http://www.fuin.org/>
+ * 
+ * This library is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation; either version 3 of the License, or (at your option) any
+ * later version.
+ * 
+ * This library is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ * details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this library. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.fuin.srcgen4javassist;
+
+/**
+ * Visitor that visits everything and does nothing. Sub classes only override
+ * the methods they are interested in.
+ */
+public abstract class SgVisitorAdapter implements SgVisitor {
+
+    /**
+     * {@inheritDoc}
+     */
+    public boolean visitClass(final SgClass clasz) {
+        return true;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public void visitAnnotation(final SgAnnotation annotation, final int index,
+            final int count) {
+        // Do nothing
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public void visitInterface(final SgClass intf, final int index, final int count) {
+        // Do nothing
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public boolean visitField(final SgField field, final int index, final int count) {
+        return true;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public boolean visitConstructor(final SgConstructor constructor, final int index,
+            final int count) {
+        return true;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public boolean visitMethod(final SgMethod method, final int index, final int count) {
+        return true;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public void visitArgument(final SgArgument argument, final int index, final int count) {
+        // Do nothing
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public void visitException(final SgClass exception, final int index, final int count) {
+        // Do nothing
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public void visitBodyLine(final String line, final int index, final int count) {
+        // Do nothing
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public void endClass(final SgClass clasz) {
+        // Do nothing
+    }
+
+}
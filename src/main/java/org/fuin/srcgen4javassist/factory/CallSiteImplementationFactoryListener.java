@@ -0,0 +1,228 @@
+/**
+ * Copyright (C) 2009 Future Invent Informationsmanagement GmbH. All rights
+ * reserved. <http://www.fuin.org/>
+ * 
+ * This library is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation; either version 3 of the License, or (at your option) any
+ * later version.
+ * 
+ * This library is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ * details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this library. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.fuin.srcgen4javassist.factory;
+
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import org.fuin.srcgen4javassist.SgClass;
+import org.fuin.srcgen4javassist.SgClassPool;
+import org.fuin.srcgen4javassist.SgField;
+import org.fuin.srcgen4javassist.SgMethod;
+import org.fuin.srcgen4javassist.SgMethodDescriptor;
+
+/**
+ * Creates implementations that pass every call to a
+ * {@link RelinkableCallSite}. The sites are static constants of the
+ * generated class and get their targets from a {@link Linker} with the first
+ * call. Replacing the target of a site (or relinking it) changes the
+ * behavior of all implementations created with this listener without
+ * generating them again. The arguments are passed in an
+ * {@link InvocationFrame} like with an {@link InvokerImplementationFactoryListener}.
+ * <br>
+ * <br>
+ * All implementations created with the same listener share the site of
+ * methods with the same descriptor. The generated classes take their sites
+ * from the listener when they are initialized and keep them themselves, so
+ * the listener is only registered (weakly) until it's garbage collected.
+ * <code>ImplementationFactory.createClass(..)</code> initializes the class
+ * before it returns. If only the model is created, the class has to be
+ * generated and initialized while the listener is still in use.
+ */
+public final class CallSiteImplementationFactoryListener implements
+        ImplementationFactoryListener {
+
+    /** Sites by listener identifier - Used by the generated classes. */
+    private static final Map<Integer, WeakReference<List<RelinkableCallSite>>> SITES =
+            new HashMap<Integer, WeakReference<List<RelinkableCallSite>>>();
+
+    /** Name of the static field that keeps the sites of a generated class. */
+    private static final String SITES_FIELD = "callSites";
+
+    private static int counter;
+
+    private final Integer id;
+
+    private final SgClass siteType;
+
+    private final SgClass objectType;
+
+    private final Linker linker;
+
+    private final Map<SgMethodDescriptor, RelinkableCallSite> sitesByDescriptor;
+
+    private final List<RelinkableCallSite> sites;
+
+    private SgClass clasz;
+
+    /**
+     * Constructor with pool and linker.
+     * 
+     * @param pool
+     *            Pool used to create the type of the site constants - Cannot
+     *            be null.
+     * @param linker
+     *            Linker that provides the targets of the sites - Cannot be
+     *            null.
+     */
+    public CallSiteImplementationFactoryListener(final SgClassPool pool, final Linker linker) {
+        super();
+        if (pool == null) {
+            throw new IllegalArgumentException("The argument 'pool' cannot be null!");
+        }
+        if (linker == null) {
+            throw new IllegalArgumentException("The argument 'linker' cannot be null!");
+        }
+        this.siteType = SgClass.create(pool, RelinkableCallSite.class);
+        this.objectType = SgClass.create(pool, Object.class);
+        this.linker = linker;
+        this.sitesByDescriptor = new HashMap<SgMethodDescriptor, RelinkableCallSite>();
+        // Read by the generated classes without a lock
+        this.sites = new CopyOnWriteArrayList<RelinkableCallSite>();
+        synchronized (SITES) {
+            removeCollected();
+            this.id = Integer.valueOf(counter++);
+            SITES.put(id, new WeakReference<List<RelinkableCallSite>>(sites));
+        }
+    }
+
+    private static void removeCollected() {
+        final Iterator<WeakReference<List<RelinkableCallSite>>> it = SITES.values().iterator();
+        while (it.hasNext()) {
+            if (it.next().get() == null) {
+                it.remove();
+            }
+        }
+    }
+
+    /**
+     * Returns the site of a method.
+     * 
+     * @param descriptor
+     *            Name and argument types of the method - Cannot be null.
+     * 
+     * @return Site or <code>null</code> if no method with the descriptor was
+     *         created yet.
+     */
+    public final RelinkableCallSite getCallSite(final SgMethodDescriptor descriptor) {
+        if (descriptor == null) {
+            throw new IllegalArgumentException("The argument 'descriptor' cannot be null!");
+        }
+        synchronized (SITES) {
+            return sitesByDescriptor.get(descriptor);
+        }
+    }
+
+    /**
+     * Returns all sites created so far. The position in the list is the
+     * index of the site.
+     * 
+     * @return Copy of the sites - Always non-null.
+     */
+    public final List<RelinkableCallSite> getCallSites() {
+        synchronized (SITES) {
+            return Collections.unmodifiableList(new ArrayList<RelinkableCallSite>(sites));
+        }
+    }
+
+    /**
+     * Removes the targets of all sites. The linker is asked again with the
+     * next call of each method.
+     */
+    public final void relinkAll() {
+        final List<RelinkableCallSite> list = getCallSites();
+        for (int i = 0; i < list.size(); i++) {
+            list.get(i).relink();
+        }
+    }
+
+    /**
+     * Returns the sites of a listener. This method is used by the generated
+     * classes to initialize their site constants and should not be called
+     * directly.
+     * 
+     * @param listenerId
+     *            Identifier of the listener that created the class.
+     * 
+     * @return Sites of the listener.
+     */
+    public static Object lookupCallSites(final int listenerId) {
+        synchronized (SITES) {
+            final WeakReference<List<RelinkableCallSite>> ref = SITES.get(Integer
+                    .valueOf(listenerId));
+            if ((ref == null) || (ref.get() == null)) {
+                throw new IllegalArgumentException("Unknown listener: " + listenerId);
+            }
+            return ref.get();
+        }
+    }
+
+    /**
+     * Returns a site. This method is used by the generated classes to
+     * initialize their site constants and should not be called directly.
+     * 
+     * @param callSites
+     *            Result of {@link #lookupCallSites(int)}.
+     * @param index
+     *            Index of the site.
+     * 
+     * @return Site.
+     */
+    @SuppressWarnings("unchecked")
+    public static RelinkableCallSite getCallSite(final Object callSites, final int index) {
+        return ((List<RelinkableCallSite>) callSites).get(index);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public final void afterClassCreated(final SgClass clasz) {
+        this.clasz = clasz;
+        // Keeps the sites as long as the class exists
+        new SgField(clasz, "private static final", objectType, SITES_FIELD, getClass().getName()
+                + ".lookupCallSites(" + id + ")");
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public final List<String> createBody(final SgMethod method, final Class<?>... intf) {
+        final SgMethodDescriptor descriptor = method.getDescriptor();
+        final int index;
+        synchronized (SITES) {
+            RelinkableCallSite site = sitesByDescriptor.get(descriptor);
+            if (site == null) {
+                site = new RelinkableCallSite(linker, descriptor, sites.size());
+                sites.add(site);
+                sitesByDescriptor.put(descriptor, site);
+            }
+            index = site.getIndex();
+        }
+        final String field = "callSite" + index;
+        new SgField(clasz, "private static final", siteType, field, getClass().getName()
+                + ".getCallSite(" + SITES_FIELD + ", " + index + ")");
+        return InvokerImplementationFactoryListener.createBody(method, field, index);
+    }
+
+}
@@ -0,0 +1,142 @@
+/**
+ * Copyright (C) 2009 Future Invent Informationsmanagement GmbH. All rights
+ * reserved. <http://www.fuin.org/>
+ * 
+ * This library is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation; either version 3 of the License, or (at your option) any
+ * later version.
+ * 
+ * This library is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ * details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this library. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.fuin.srcgen4javassist.factory;
+
+import java.util.Collections;
+import java.util.List;
+
+import org.fuin.srcgen4javassist.SgArgument;
+import org.fuin.srcgen4javassist.SgClass;
+import org.fuin.srcgen4javassist.SgConstructor;
+import org.fuin.srcgen4javassist.SgField;
+import org.fuin.srcgen4javassist.SgMethod;
+
+/**
+ * Creates implementations that forward every call directly to a delegate.
+ * The listener adds a final field for the delegate and a public constructor
+ * that sets it. The delegate type must have all methods of the implemented
+ * interfaces (usually it's one of the interfaces itself).
+ */
+public final class DelegatingImplementationFactoryListener implements
+        KeyedImplementationFactoryListener {
+
+    private final SgClass delegateType;
+
+    private final String fieldName;
+
+    private final String cacheKey;
+
+    /**
+     * Constructor with type of the delegate. The field will be named
+     * "delegate".
+     * 
+     * @param delegateType
+     *            Type of the delegate - Cannot be null.
+     */
+    public DelegatingImplementationFactoryListener(final SgClass delegateType) {
+        this(delegateType, "delegate");
+    }
+
+    /**
+     * Constructor with type and field name of the delegate.
+     * 
+     * @param delegateType
+     *            Type of the delegate - Cannot be null.
+     * @param fieldName
+     *            Name of the field that holds the delegate - Cannot be null.
+     */
+    public DelegatingImplementationFactoryListener(final SgClass delegateType,
+            final String fieldName) {
+        super();
+        if (delegateType == null) {
+            throw new IllegalArgumentException("The argument 'delegateType' cannot be null!");
+        }
+        if (fieldName == null) {
+            throw new IllegalArgumentException("The argument 'fieldName' cannot be null!");
+        }
+        this.delegateType = delegateType;
+        this.fieldName = fieldName;
+        this.cacheKey = getClass().getName() + ":" + delegateType.getName() + " " + fieldName;
+    }
+
+    /**
+     * Returns the type of the delegate.
+     * 
+     * @return Type - Always non-null.
+     */
+    public final SgClass getDelegateType() {
+        return delegateType;
+    }
+
+    /**
+     * Returns the name of the delegate field.
+     * 
+     * @return Field name - Always non-null.
+     */
+    public final String getFieldName() {
+        return fieldName;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public final void afterClassCreated(final SgClass clasz) {
+        addFinalField(clasz, delegateType, fieldName);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public final List<String> createBody(final SgMethod method, final Class<?>... intf) {
+        final StringBuffer sb = new StringBuffer();
+        if (!method.getReturnType().equals(SgClass.VOID)) {
+            sb.append("return ");
+        }
+        sb.append("this.");
+        sb.append(fieldName);
+        sb.append('.');
+        sb.append(method.getCallSignature());
+        sb.append(';');
+        return Collections.singletonList(sb.toString());
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public final Object getCacheKey() {
+        return cacheKey;
+    }
+
+    /**
+     * Adds a private final field and a public constructor that sets it.
+     * 
+     * @param clasz
+     *            Class to add the field and constructor to.
+     * @param type
+     *            Type of the field.
+     * @param name
+     *            Name of the field and the constructor argument.
+     */
+    static void addFinalField(final SgClass clasz, final SgClass type, final String name) {
+        new SgField(clasz, "private final", type, name, null);
+        final SgConstructor constructor = new SgConstructor(clasz);
+        new SgArgument(constructor, type, name);
+        constructor.addBodyLine("this." + name + " = " + name + ";");
+    }
+
+}
@@ -0,0 +1,306 @@
+/**
+ * Copyright (C) 2009 Future Invent Informationsmanagement GmbH. All rights
+ * reserved. <http://www.fuin.org/>
+ * 
+ * This library is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation; either version 3 of the License, or (at your option) any
+ * later version.
+ * 
+ * This library is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ * details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this library. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.fuin.srcgen4javassist.factory;
+
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.fuin.srcgen4javassist.ByteCodeGenerator;
+import org.fuin.srcgen4javassist.SgClass;
+
+/**
+ * Least recently used cache for implementations created by an
+ * {@link ImplementationFactory}. All methods are thread safe.
+ */
+final class ImplementationCache {
+
+    private final Map<Key, Implementation> map;
+
+    private long hits;
+
+    private long misses;
+
+    private long evictions;
+
+    /**
+     * Constructor with size.
+     * 
+     * @param maxSize
+     *            Maximum number of cached implementations - Must be greater
+     *            than zero.
+     */
+    public ImplementationCache(final int maxSize) {
+        super();
+        if (maxSize < 1) {
+            throw new IllegalArgumentException("The argument 'maxSize' must be > 0: " + maxSize);
+        }
+        this.map = new LinkedHashMap<Key, Implementation>(16, 0.75f, true) {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(final Map.Entry<Key, Implementation> eldest) {
+                if (size() > maxSize) {
+                    evictions++;
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /**
+     * Returns a cached implementation and counts the hit or miss.
+     * 
+     * @param key
+     *            Key - Cannot be null.
+     * 
+     * @return Entry or <code>null</code> if it's not in the cache.
+     */
+    public final synchronized Implementation get(final Key key) {
+        final Implementation entry = map.get(key);
+        if (entry == null) {
+            misses++;
+        } else {
+            hits++;
+        }
+        return entry;
+    }
+
+    /**
+     * Adds an implementation if there is no entry for the key yet.
+     * 
+     * @param key
+     *            Key - Cannot be null.
+     * @param clasz
+     *            Frozen implementation - Cannot be null.
+     * 
+     * @return Entry in the cache (may be one added in the meantime by
+     *         another thread).
+     */
+    public final synchronized Implementation put(final Key key, final SgClass clasz) {
+        final Implementation existing = map.get(key);
+        if (existing != null) {
+            return existing;
+        }
+        final Implementation entry = new Implementation(clasz);
+        map.put(key, entry);
+        return entry;
+    }
+
+    /**
+     * Removes all entries. The statistics are not reset.
+     */
+    public final synchronized void clear() {
+        map.clear();
+    }
+
+    /**
+     * Returns the number of cached implementations.
+     * 
+     * @return Size.
+     */
+    public final synchronized int size() {
+        return map.size();
+    }
+
+    /**
+     * Returns the number of requests answered from the cache.
+     * 
+     * @return Hits.
+     */
+    public final synchronized long getHits() {
+        return hits;
+    }
+
+    /**
+     * Returns the number of requests that created a new implementation.
+     * 
+     * @return Misses.
+     */
+    public final synchronized long getMisses() {
+        return misses;
+    }
+
+    /**
+     * Returns the number of implementations removed because the cache was
+     * full.
+     * 
+     * @return Evictions.
+     */
+    public final synchronized long getEvictions() {
+        return evictions;
+    }
+
+    /**
+     * Identifies an implementation.
+     */
+    static final class Key {
+
+        private final String packageName;
+
+        private final String className;
+
+        private final SgClass superClass;
+
+        private final SgClass enclosingClass;
+
+        private final Object listenerKey;
+
+        private final Class<?>[] intf;
+
+        private final int hash;
+
+        /**
+         * Constructor with all data.
+         * 
+         * @param packageName
+         *            Package of the implementation.
+         * @param className
+         *            Name of the implementation.
+         * @param superClass
+         *            Parent class or <code>null</code>.
+         * @param enclosingClass
+         *            Outer class (compared by identity) or <code>null</code>.
+         * @param listener
+         *            Listener (compared by identity or it's cache key).
+         * @param intf
+         *            Interfaces in the order they are implemented.
+         */
+        Key(final String packageName, final String className, final SgClass superClass,
+                final SgClass enclosingClass, final ImplementationFactoryListener listener,
+                final Class<?>[] intf) {
+            super();
+            this.packageName = packageName;
+            this.className = className;
+            this.superClass = superClass;
+            this.enclosingClass = enclosingClass;
+            if (listener instanceof KeyedImplementationFactoryListener) {
+                this.listenerKey = ((KeyedImplementationFactoryListener) listener).getCacheKey();
+                if (listenerKey == null) {
+                    throw new IllegalArgumentException("The cache key of the listener '"
+                            + listener.getClass().getName() + "' cannot be null!");
+                }
+            } else {
+                this.listenerKey = listener;
+            }
+            this.intf = intf.clone();
+            int h = packageName.hashCode();
+            h = 31 * h + className.hashCode();
+            h = 31 * h + (superClass == null ? 0 : superClass.hashCode());
+            h = 31 * h + System.identityHashCode(enclosingClass);
+            h = 31 * h + (listenerKey == listener ? System.identityHashCode(listener)
+                    : listenerKey.hashCode());
+            this.hash = 31 * h + Arrays.hashCode(intf);
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public final int hashCode() {
+            return hash;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public final boolean equals(final Object obj) {
+            if (this == obj) {
+                return true;
+            }
+            if (!(obj instanceof Key)) {
+                return false;
+            }
+            final Key other = (Key) obj;
+            if ((hash != other.hash) || (enclosingClass != other.enclosingClass)
+                    || !packageName.equals(other.packageName)
+                    || !className.equals(other.className) || !Arrays.equals(intf, other.intf)) {
+                return false;
+            }
+            if (superClass == null) {
+                if (other.superClass != null) {
+                    return false;
+                }
+            } else if (!superClass.equals(other.superClass)) {
+                return false;
+            }
+            if (listenerKey instanceof ImplementationFactoryListener) {
+                // Listeners without a cache key are compared by identity
+                return listenerKey == other.listenerKey;
+            }
+            return listenerKey.equals(other.listenerKey);
+        }
+
+    }
+
+    /**
+     * Cached implementation and the class created from it.
+     */
+    static final class Implementation {
+
+        private final SgClass model;
+
+        /** Created classes by generator (identity). */
+        private final Map<ByteCodeGenerator, Class<?>> implClasses;
+
+        /**
+         * Constructor with model.
+         * 
+         * @param model
+         *            Frozen implementation.
+         */
+        Implementation(final SgClass model) {
+            super();
+            this.model = model;
+            this.implClasses = new IdentityHashMap<ByteCodeGenerator, Class<?>>(2);
+        }
+
+        /**
+         * Returns the model.
+         * 
+         * @return Frozen implementation.
+         */
+        public final SgClass getModel() {
+            return model;
+        }
+
+        /**
+         * Returns the class created with the given generator. The class is
+         * only created once per generator. Generators that share a class
+         * loader cannot both create the class.
+         * 
+         * @param gen
+         *            Generator to use - Cannot be null.
+         * 
+         * @return Class.
+         */
+        public final synchronized Class<?> getImplClass(final ByteCodeGenerator gen) {
+            Class<?> implClass = implClasses.get(gen);
+            if (implClass == null) {
+                implClass = gen.createClass(model);
+                implClasses.put(gen, implClass);
+            }
+            return implClass;
+        }
+
+    }
+
+}
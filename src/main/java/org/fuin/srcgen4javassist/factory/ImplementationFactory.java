@@ -17,17 +17,20 @@
  */
 package org.fuin.srcgen4javassist.factory;
 
-import java.lang.reflect.Method;
-import java.util.HashMap;
+import java.util.Arrays;
+import java.util.Comparator;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.WeakHashMap;
 
+import org.fuin.srcgen4javassist.ByteCodeGenerator;
 import org.fuin.srcgen4javassist.SgArgument;
 import org.fuin.srcgen4javassist.SgClass;
 import org.fuin.srcgen4javassist.SgClassPool;
 import org.fuin.srcgen4javassist.SgMethod;
-import org.fuin.srcgen4javassist.SgUtils;
+import org.fuin.srcgen4javassist.SgMethodDescriptor;
 
 /**
  * Creates an implementation of an interface.
@@ -36,8 +39,16 @@ public class ImplementationFactory {
 
     private final boolean onlyDeclaredMethods;
 
+    private final boolean deterministic;
+
     private final SgClassPool pool;
 
+    /** Method data by interface - Read once with reflection. */
+    private final Map<Class<?>, InterfaceMethods> interfaceMethods;
+
+    /** Created implementations or <code>null</code> if caching is disabled. */
+    private final ImplementationCache cache;
+
     /**
      * Constructor with class pool. All methods will be implemented (declared
      * and super interface methods). If you just want to implement declared
@@ -60,12 +71,75 @@ public class ImplementationFactory {
      *            Should only declared methods be implemented?
      */
     public ImplementationFactory(final SgClassPool pool, final boolean onlyDeclaredMethods) {
+        this(pool, onlyDeclaredMethods, 0);
+    }
+
+    /**
+     * Constructor with class pool, information about methods to implement and
+     * cache size. If the cache is enabled every implementation is frozen and
+     * calling <code>create(..)</code> again with the same package, class
+     * name, super class, enclosing class (same instance), listener and
+     * interfaces returns the already created implementation. Listeners are
+     * compared by identity - Implement
+     * {@link KeyedImplementationFactoryListener} to share implementations
+     * between different listener instances.
+     * 
+     * @param pool
+     *            Class pool.
+     * @param onlyDeclaredMethods
+     *            Should only declared methods be implemented?
+     * @param cacheSize
+     *            Maximum number of cached implementations or <code>0</code>
+     *            to disable caching. If the cache is full the least recently
+     *            used entry will be removed.
+     */
+    public ImplementationFactory(final SgClassPool pool, final boolean onlyDeclaredMethods,
+            final int cacheSize) {
+        this(pool, onlyDeclaredMethods, cacheSize, false);
+    }
+
+    /**
+     * Constructor with class pool, information about methods to implement,
+     * cache size and generation mode. In deterministic mode the interfaces
+     * are sorted by name and the methods of each interface by name and
+     * argument types. The result then only depends on the arguments and not
+     * on the order the interfaces are passed in or the (unspecified) order of
+     * <code>Class.getMethods()</code>. Identical input creates identical
+     * source and byte code in every run.
+     * 
+     * @param pool
+     *            Class pool.
+     * @param onlyDeclaredMethods
+     *            Should only declared methods be implemented?
+     * @param cacheSize
+     *            Maximum number of cached implementations or <code>0</code>
+     *            to disable caching - See
+     *            {@link #ImplementationFactory(SgClassPool, boolean, int)}.
+     * @param deterministic
+     *            Order interfaces and methods canonically (<code>true</code>)
+     *            or keep the order of the arguments and of reflection
+     *            (<code>false</code>).
+     */
+    public ImplementationFactory(final SgClassPool pool, final boolean onlyDeclaredMethods,
+            final int cacheSize, final boolean deterministic) {
         super();
 
         assureNotNull("pool", pool);
         this.pool = pool;
 
         this.onlyDeclaredMethods = onlyDeclaredMethods;
+        this.deterministic = deterministic;
+        this.interfaceMethods = new WeakHashMap<Class<?>, InterfaceMethods>();
+
+        if (cacheSize < 0) {
+            throw new IllegalArgumentException("The argument 'cacheSize' cannot be negative: "
+                    + cacheSize);
+        }
+        if (cacheSize == 0) {
+            this.cache = null;
+        } else {
+            this.cache = new ImplementationCache(cacheSize);
+        }
 
     }
 
@@ -89,7 +163,8 @@ public class ImplementationFactory {
     }
 
     /**
-     * Creates an implementation of the interface.
+     * Creates an implementation of the interface. If the cache is enabled the
+     * result is frozen and shared with all callers using the same arguments.
      * 
      * @param implPackageName
      *            Name of the implementation package - Cannot be null.
@@ -110,12 +185,99 @@ public class ImplementationFactory {
             final SgClass superClass, final SgClass enclosingClass,
             final ImplementationFactoryListener listener, final Class<?>... intf) {
 
-        assureNotNull("implPackageName", implPackageName);
-        assureNotNull("implClassName", implClassName);
-        assureNotNull("listener", listener);
-        assureNotNull("intf", intf);
-        assureNotEmpty("intf", intf);
-        assureAllInterfaces(intf);
+        assureValid(implPackageName, implClassName, listener, intf);
+        final Class<?>[] interfaces = canonical(intf);
+        if (cache == null) {
+            return build(implPackageName, implClassName, superClass, enclosingClass, listener,
+                    interfaces);
+        }
+        return cached(implPackageName, implClassName, superClass, enclosingClass, listener,
+                interfaces).getModel();
+    }
+
+    /**
+     * Creates an implementation of the interface and generates the byte code
+     * for it. If the cache is enabled the class is only generated once. The
+     * returned class is already initialized, so it doesn't depend on the
+     * listener any more.
+     * 
+     * @param generator
+     *            Generator used to create the class - Cannot be null.
+     * @param implPackageName
+     *            Name of the implementation package - Cannot be null.
+     * @param implClassName
+     *            Name of the implementation class - Cannot be null.
+     * @param superClass
+     *            Parent class or <code>null</code>.
+     * @param enclosingClass
+     *            Outer class or <code>null</code>.
+     * @param listener
+     *            Creates the bodies for all methods - Cannot be null.
+     * @param intf
+     *            One or more interfaces.
+     * 
+     * @return Class implementing the interface.
+     */
+    public final Class<?> createClass(final ByteCodeGenerator generator,
+            final String implPackageName, final String implClassName,
+            final SgClass superClass, final SgClass enclosingClass,
+            final ImplementationFactoryListener listener, final Class<?>... intf) {
+
+        assureNotNull("generator", generator);
+        assureValid(implPackageName, implClassName, listener, intf);
+        final Class<?>[] interfaces = canonical(intf);
+        final Class<?> implClass;
+        if (cache == null) {
+            implClass = generator.createClass(build(implPackageName, implClassName, superClass,
+                    enclosingClass, listener, interfaces));
+        } else {
+            implClass = cached(implPackageName, implClassName, superClass, enclosingClass,
+                    listener, interfaces).getImplClass(generator);
+        }
+        initialize(implClass);
+        return implClass;
+    }
+
+    private static void initialize(final Class<?> implClass) {
+        // Static initializers may take data from the listener
+        try {
+            Class.forName(implClass.getName(), true, implClass.getClassLoader());
+        } catch (final ClassNotFoundException ex) {
+            throw new IllegalStateException(ex);
+        }
+    }
+
+    private Class<?>[] canonical(final Class<?>[] intf) {
+        if (!deterministic || (intf.length < 2)) {
+            return intf;
+        }
+        final Class<?>[] sorted = intf.clone();
+        Arrays.sort(sorted, new Comparator<Class<?>>() {
+            public int compare(final Class<?> o1, final Class<?> o2) {
+                return o1.getName().compareTo(o2.getName());
+            }
+        });
+        return sorted;
+    }
+
+    private ImplementationCache.Implementation cached(final String implPackageName,
+            final String implClassName, final SgClass superClass, final SgClass enclosingClass,
+            final ImplementationFactoryListener listener, final Class<?>... intf) {
+        final ImplementationCache.Key key = new ImplementationCache.Key(implPackageName,
+                implClassName, superClass, enclosingClass, listener, intf);
+        final ImplementationCache.Implementation entry = cache.get(key);
+        if (entry != null) {
+            return entry;
+        }
+        final SgClass clasz = build(implPackageName, implClassName, superClass, enclosingClass,
+                listener, intf);
+        clasz.freeze();
+        return cache.put(key, clasz);
+    }
+
+    private SgClass build(final String implPackageName, final String implClassName,
+            final SgClass superClass, final SgClass enclosingClass,
+            final ImplementationFactoryListener listener, final Class<?>... intf) {
 
         // Create class with all interfaces
         final SgClass clasz = new SgClass("public", implPackageName, implClassName, superClass,
@@ -125,7 +287,9 @@ public class ImplementationFactory {
         }
         listener.afterClassCreated(clasz);
 
-        final Map<String, ImplementedMethod> implMethods = new HashMap<String, ImplementedMethod>();
+        // Keeps the order of the interfaces and methods
+        final Map<SgMethodDescriptor, ImplementedMethod> implMethods;
+        implMethods = new LinkedHashMap<SgMethodDescriptor, ImplementedMethod>();
 
         // Iterate through interfaces and add methods
         for (int i = 0; i < intf.length; i++) {
@@ -133,9 +297,9 @@ public class ImplementationFactory {
         }
 
         // Iterate through methods and create body
-        final Iterator<String> it = implMethods.keySet().iterator();
+        final Iterator<ImplementedMethod> it = implMethods.values().iterator();
         while (it.hasNext()) {
-            final ImplementedMethod implMethod = implMethods.get(it.next());
+            final ImplementedMethod implMethod = it.next();
             final SgMethod method = implMethod.getMethod();
             final Class<?>[] interfaces = implMethod.getInterfaces();
             final List<String> lines = listener.createBody(method, interfaces);
@@ -147,44 +311,41 @@ public class ImplementationFactory {
         return clasz;
     }
 
-    private void addInterfaceMethods(final Map<String, ImplementedMethod> implMethods,
-            final SgClass clasz, final Class<?> intf, final ImplementationFactoryListener listener) {
-
-        final Method[] methods;
-        if (onlyDeclaredMethods) {
-            methods = intf.getDeclaredMethods();
-        } else {
-            methods = intf.getMethods();
+    private InterfaceMethods getInterfaceMethods(final Class<?> intf) {
+        synchronized (interfaceMethods) {
+            InterfaceMethods methods = interfaceMethods.get(intf);
+            if (methods == null) {
+                methods = new InterfaceMethods(pool, intf, onlyDeclaredMethods, deterministic);
+                interfaceMethods.put(intf, methods);
+            }
+            return methods;
         }
-        for (int j = 0; j < methods.length; j++) {
+    }
 
-            // Create method signature
-            final String name = methods[j].getName();
-            final String typeSignature = SgUtils.createTypeSignature(name, methods[j]
-                    .getParameterTypes());
+    private void addInterfaceMethods(
+            final Map<SgMethodDescriptor, ImplementedMethod> implMethods, final SgClass clasz,
+            final Class<?> intf, final ImplementationFactoryListener listener) {
 
-            // Get return type
-            final SgClass returnType;
-            if (methods[j].getReturnType() == null) {
-                returnType = SgClass.VOID;
-            } else {
-                returnType = SgClass.create(pool, methods[j].getReturnType());
-            }
+        final InterfaceMethods methods = getInterfaceMethods(intf);
+        for (int j = 0; j < methods.size(); j++) {
+
+            final InterfaceMethods.MethodData data = methods.get(j);
+            final SgMethodDescriptor descriptor = data.getDescriptor();
+            final SgClass returnType = data.getReturnType();
 
             // Check if we already implemented this method
-            ImplementedMethod implMethod = implMethods.get(typeSignature);
+            ImplementedMethod implMethod = implMethods.get(descriptor);
             if (implMethod == null) {
-                final SgMethod method = new SgMethod(clasz, "public", returnType, name);
+                final SgMethod method = new SgMethod(clasz, "public", returnType, data.getName());
                 // Add arguments
-                final Class<?>[] paramTypes = methods[j].getParameterTypes();
-                for (int k = 0; k < paramTypes.length; k++) {
-                    final SgClass paramType = SgClass.create(pool, paramTypes[k]);
+                for (int k = 0; k < data.getParameterCount(); k++) {
+                    final SgClass paramType = data.getParameterType(k);
                     method.addArgument(new SgArgument(method, paramType, ("arg" + k)));
                 }
-                method.addAnnotations(SgUtils.createAnnotations(methods[j].getAnnotations()));
+                method.addAnnotations(data.createAnnotations());
                 implMethod = new ImplementedMethod(method);
                 implMethod.addInterface(intf);
-                implMethods.put(typeSignature, implMethod);
+                implMethods.put(descriptor, implMethod);
             } else {
                 implMethod.addInterface(intf);
                 if (!returnType.getName().equals(implMethod.getReturnType().getName())) {
@@ -195,7 +356,7 @@ public class ImplementationFactory {
                         }
                         sb.append(implMethod.getInterfaces()[i].getName());
                     }
-                    throw new IllegalArgumentException("Method '" + typeSignature
+                    throw new IllegalArgumentException("Method '" + descriptor
                             + "' has different return types for interface '" + intf.getName()
                             + "' and '" + sb + "'!");
                 }
@@ -203,18 +364,108 @@ public class ImplementationFactory {
 
             // Add exceptions if missing
             final SgMethod method = implMethod.getMethod();
-            final Class<?>[] exceptionTypes = methods[j].getExceptionTypes();
-            for (int k = 0; k < exceptionTypes.length; k++) {
-                final SgClass ex = SgClass.create(pool, exceptionTypes[k]);
-                if (method.getExceptions().indexOf(ex) == -1) {
-                    method.addException(ex);
-                }
+            for (int k = 0; k < data.getExceptionCount(); k++) {
+                // Does nothing if the exception is already in the list
+                method.addException(data.getExceptionType(k));
             }
 
         }
 
     }
 
+    /**
+     * Returns if interfaces and methods are ordered canonically.
+     * 
+     * @return If the factory creates identical output for identical input
+     *         in every run <code>true</code> else <code>false</code>.
+     */
+    public final boolean isDeterministic() {
+        return deterministic;
+    }
+
+    /**
+     * Returns if created implementations are cached.
+     * 
+     * @return If the cache is enabled <code>true</code> else
+     *         <code>false</code>.
+     */
+    public final boolean isCacheEnabled() {
+        return cache != null;
+    }
+
+    /**
+     * Returns the number of cached implementations.
+     * 
+     * @return Number of entries or <code>0</code> if the cache is disabled.
+     */
+    public final int getCacheSize() {
+        if (cache == null) {
+            return 0;
+        }
+        return cache.size();
+    }
+
+    /**
+     * Returns how often an implementation was taken from the cache.
+     * 
+     * @return Number of cache hits or <code>0</code> if the cache is
+     *         disabled.
+     */
+    public final long getCacheHits() {
+        if (cache == null) {
+            return 0;
+        }
+        return cache.getHits();
+    }
+
+    /**
+     * Returns how often an implementation was not in the cache and had to be
+     * created.
+     * 
+     * @return Number of cache misses or <code>0</code> if the cache is
+     *         disabled.
+     */
+    public final long getCacheMisses() {
+        if (cache == null) {
+            return 0;
+        }
+        return cache.getMisses();
+    }
+
+    /**
+     * Returns how often an implementation was removed because the cache was
+     * full.
+     * 
+     * @return Number of evictions or <code>0</code> if the cache is
+     *         disabled.
+     */
+    public final long getCacheEvictions() {
+        if (cache == null) {
+            return 0;
+        }
+        return cache.getEvictions();
+    }
+
+    /**
+     * Removes all cached implementations. Does nothing if the cache is
+     * disabled.
+     */
+    public final void clearCache() {
+        if (cache != null) {
+            cache.clear();
+        }
+    }
+
+    private void assureValid(final String implPackageName, final String implClassName,
+            final ImplementationFactoryListener listener, final Class<?>... intf) {
+        assureNotNull("implPackageName", implPackageName);
+        assureNotNull("implClassName", implClassName);
+        assureNotNull("listener", listener);
+        assureNotNull("intf", intf);
+        assureNotEmpty("intf", intf);
+        assureAllInterfaces(intf);
+    }
+
     private void assureNotNull(final String name, final Object value) {
         if (value == null) {
             throw new IllegalArgumentException("The argument '" + name + "' cannot be null!");
@@ -22,6 +22,7 @@ import java.util.List;
 
 import org.fuin.srcgen4javassist.SgClass;
 import org.fuin.srcgen4javassist.SgMethod;
+import org.fuin.srcgen4javassist.SgMethodDescriptor;
 
 /**
  * Helper class to cache implementation's new methods.
@@ -94,6 +95,15 @@ final class ImplementedMethod {
         return method.getTypeSignature();
     }
 
+    /**
+     * Returns the descriptor of the method.
+     * 
+     * @return Name and full qualified argument types - Always non-null.
+     */
+    public final SgMethodDescriptor getDescriptor() {
+        return method.getDescriptor();
+    }
+
     /**
      * Returns the return type of the method.
      * 
@@ -0,0 +1,260 @@
+/**
+ * Copyright (C) 2009 Future Invent Informationsmanagement GmbH. All rights
+ * reserved. <http://www.fuin.org/>
+ * 
+ * This library is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation; either version 3 of the License, or (at your option) any
+ * later version.
+ * 
+ * This library is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ * details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this library. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.fuin.srcgen4javassist.factory;
+
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import org.fuin.srcgen4javassist.SgAnnotation;
+import org.fuin.srcgen4javassist.SgClass;
+import org.fuin.srcgen4javassist.SgClassPool;
+import org.fuin.srcgen4javassist.SgMethodDescriptor;
+import org.fuin.srcgen4javassist.SgUtils;
+
+/**
+ * Method data of an interface read once with reflection. The types are
+ * created with the class pool of the factory. No reflection objects are
+ * referenced, so caching an instance does not prevent the interface from
+ * being unloaded.
+ */
+final class InterfaceMethods {
+
+    private final MethodData[] methods;
+
+    /**
+     * Constructor with interface.
+     * 
+     * @param pool
+     *            Pool used to create the types - Cannot be null.
+     * @param intf
+     *            Interface to read the methods from - Cannot be null.
+     * @param onlyDeclaredMethods
+     *            Only declared methods (<code>true</code>) or also the
+     *            methods of super interfaces (<code>false</code>).
+     * @param deterministic
+     *            Sort the methods and annotations by name (<code>true</code>)
+     *            or keep the order returned by reflection
+     *            (<code>false</code>).
+     */
+    public InterfaceMethods(final SgClassPool pool, final Class<?> intf,
+            final boolean onlyDeclaredMethods, final boolean deterministic) {
+        super();
+        final Method[] reflected;
+        if (onlyDeclaredMethods) {
+            reflected = intf.getDeclaredMethods();
+        } else {
+            reflected = intf.getMethods();
+        }
+        methods = new MethodData[reflected.length];
+        for (int i = 0; i < reflected.length; i++) {
+            methods[i] = new MethodData(pool, reflected[i], deterministic);
+        }
+        if (deterministic) {
+            // The order of reflection is unspecified and may change between runs
+            Arrays.sort(methods, new Comparator<MethodData>() {
+                public int compare(final MethodData o1, final MethodData o2) {
+                    final int c = o1.getDescriptor().getKey().compareTo(
+                            o2.getDescriptor().getKey());
+                    if (c != 0) {
+                        return c;
+                    }
+                    return o1.getReturnType().getName().compareTo(o2.getReturnType().getName());
+                }
+            });
+        }
+    }
+
+    /**
+     * Returns the number of methods.
+     * 
+     * @return Method count.
+     */
+    public final int size() {
+        return methods.length;
+    }
+
+    /**
+     * Returns a method.
+     * 
+     * @param index
+     *            Position of the method.
+     * 
+     * @return Method data.
+     */
+    public final MethodData get(final int index) {
+        return methods[index];
+    }
+
+    /**
+     * Precomputed data of a single interface method.
+     */
+    static final class MethodData {
+
+        private final String name;
+
+        private final SgMethodDescriptor descriptor;
+
+        private final SgClass returnType;
+
+        private final SgClass[] parameterTypes;
+
+        private final SgClass[] exceptionTypes;
+
+        private final List<SgAnnotation> annotations;
+
+        /**
+         * Constructor with method.
+         * 
+         * @param pool
+         *            Pool used to create the types.
+         * @param method
+         *            Method to read the data from.
+         * @param sortAnnotations
+         *            Sort the annotations by name?
+         */
+        MethodData(final SgClassPool pool, final Method method, final boolean sortAnnotations) {
+            super();
+            this.name = method.getName();
+            final Class<?>[] paramTypes = method.getParameterTypes();
+            this.descriptor = SgMethodDescriptor.create(name, paramTypes);
+            if (method.getReturnType() == null) {
+                this.returnType = SgClass.VOID;
+            } else {
+                this.returnType = SgClass.create(pool, method.getReturnType());
+            }
+            this.parameterTypes = new SgClass[paramTypes.length];
+            for (int i = 0; i < paramTypes.length; i++) {
+                parameterTypes[i] = SgClass.create(pool, paramTypes[i]);
+            }
+            final Class<?>[] exTypes = method.getExceptionTypes();
+            this.exceptionTypes = new SgClass[exTypes.length];
+            for (int i = 0; i < exTypes.length; i++) {
+                exceptionTypes[i] = SgClass.create(pool, exTypes[i]);
+            }
+            this.annotations = SgUtils.createAnnotations(method.getAnnotations());
+            if (sortAnnotations) {
+                Collections.sort(annotations, new Comparator<SgAnnotation>() {
+                    public int compare(final SgAnnotation o1, final SgAnnotation o2) {
+                        return o1.getName().compareTo(o2.getName());
+                    }
+                });
+            }
+        }
+
+        /**
+         * Returns the name.
+         * 
+         * @return Method name.
+         */
+        public final String getName() {
+            return name;
+        }
+
+        /**
+         * Returns the name and full qualified parameter types.
+         * 
+         * @return Descriptor - Always non-null.
+         */
+        public final SgMethodDescriptor getDescriptor() {
+            return descriptor;
+        }
+
+        /**
+         * Returns the return type.
+         * 
+         * @return Type - Always non-null.
+         */
+        public final SgClass getReturnType() {
+            return returnType;
+        }
+
+        /**
+         * Returns the number of parameters.
+         * 
+         * @return Parameter count.
+         */
+        public final int getParameterCount() {
+            return parameterTypes.length;
+        }
+
+        /**
+         * Returns the type of a parameter.
+         * 
+         * @param index
+         *            Position of the parameter.
+         * 
+         * @return Type.
+         */
+        public final SgClass getParameterType(final int index) {
+            return parameterTypes[index];
+        }
+
+        /**
+         * Returns the number of declared exceptions.
+         * 
+         * @return Exception count.
+         */
+        public final int getExceptionCount() {
+            return exceptionTypes.length;
+        }
+
+        /**
+         * Returns a declared exception.
+         * 
+         * @param index
+         *            Position of the exception.
+         * 
+         * @return Exception type.
+         */
+        public final SgClass getExceptionType(final int index) {
+            return exceptionTypes[index];
+        }
+
+        /**
+         * Creates new copies of the annotations. The cached instances are
+         * never passed out because annotations of a method may be changed
+         * until the class is frozen.
+         * 
+         * @return New list of annotations.
+         */
+        public final List<SgAnnotation> createAnnotations() {
+            final List<SgAnnotation> list = new ArrayList<SgAnnotation>(annotations.size());
+            for (int i = 0; i < annotations.size(); i++) {
+                final SgAnnotation annotation = annotations.get(i);
+                final SgAnnotation copy = new SgAnnotation(annotation.getPackageName(),
+                        annotation.getSimpleName());
+                final Iterator<Map.Entry<String, Object>> it = annotation.getArguments()
+                        .entrySet().iterator();
+                while (it.hasNext()) {
+                    final Map.Entry<String, Object> entry = it.next();
+                    copy.addArgument(entry.getKey(), entry.getValue());
+                }
+                list.add(copy);
+            }
+            return list;
+        }
+
+    }
+
+}
@@ -0,0 +1,461 @@
+/**
+ * Copyright (C) 2009 Future Invent Informationsmanagement GmbH. All rights
+ * reserved. <http://www.fuin.org/>
+ * 
+ * This library is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation; either version 3 of the License, or (at your option) any
+ * later version.
+ * 
+ * This library is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ * details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this library. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.fuin.srcgen4javassist.factory;
+
+/**
+ * Arguments and return value of a single call passed to an {@link Invoker}.
+ * Primitive values are stored in a <code>long</code> slot per argument
+ * (floating point values by their raw bits) and objects in a reference slot,
+ * so no wrapper objects are created. The slot of an argument is it's
+ * position in the argument list. The generated methods also pass the object
+ * the method was called on. A frame is created for every call and is not
+ * thread safe.
+ */
+public final class InvocationFrame {
+
+    private final int size;
+
+    private Object receiver;
+
+    /** Primitive slots or <code>null</code> if not used yet. */
+    private long[] primitives;
+
+    /** Reference slots or <code>null</code> if not used yet. */
+    private Object[] references;
+
+    private long primitiveResult;
+
+    private Object referenceResult;
+
+    /**
+     * Constructor with number of arguments.
+     * 
+     * @param size
+     *            Number of arguments.
+     */
+    public InvocationFrame(final int size) {
+        super();
+        if (size < 0) {
+            throw new IllegalArgumentException("The argument 'size' cannot be negative: " + size);
+        }
+        this.size = size;
+    }
+
+    /**
+     * Returns the number of arguments.
+     * 
+     * @return Number of slots.
+     */
+    public final int size() {
+        return size;
+    }
+
+    /**
+     * Returns the object the method was called on.
+     * 
+     * @return Receiver or <code>null</code> if it was not set.
+     */
+    public final Object getReceiver() {
+        return receiver;
+    }
+
+    /**
+     * Sets the object the method was called on.
+     * 
+     * @param receiver
+     *            Receiver.
+     */
+    public final void setReceiver(final Object receiver) {
+        this.receiver = receiver;
+    }
+
+    private long primitive(final int index) {
+        if (primitives == null) {
+            if ((index < 0) || (index >= size)) {
+                throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+            }
+            return 0;
+        }
+        return primitives[index];
+    }
+
+    private void primitive(final int index, final long value) {
+        if (primitives == null) {
+            primitives = new long[size];
+        }
+        primitives[index] = value;
+    }
+
+    /**
+     * Returns a boolean argument.
+     * 
+     * @param index
+     *            Position of the argument.
+     * 
+     * @return Value.
+     */
+    public final boolean getBoolean(final int index) {
+        return primitive(index) != 0;
+    }
+
+    /**
+     * Sets a boolean argument.
+     * 
+     * @param index
+     *            Position of the argument.
+     * @param value
+     *            Value.
+     */
+    public final void setBoolean(final int index, final boolean value) {
+        primitive(index, value ? 1 : 0);
+    }
+
+    /**
+     * Returns a byte argument.
+     * 
+     * @param index
+     *            Position of the argument.
+     * 
+     * @return Value.
+     */
+    public final byte getByte(final int index) {
+        return (byte) primitive(index);
+    }
+
+    /**
+     * Sets a byte argument.
+     * 
+     * @param index
+     *            Position of the argument.
+     * @param value
+     *            Value.
+     */
+    public final void setByte(final int index, final byte value) {
+        primitive(index, value);
+    }
+
+    /**
+     * Returns a char argument.
+     * 
+     * @param index
+     *            Position of the argument.
+     * 
+     * @return Value.
+     */
+    public final char getChar(final int index) {
+        return (char) primitive(index);
+    }
+
+    /**
+     * Sets a char argument.
+     * 
+     * @param index
+     *            Position of the argument.
+     * @param value
+     *            Value.
+     */
+    public final void setChar(final int index, final char value) {
+        primitive(index, value);
+    }
+
+    /**
+     * Returns a short argument.
+     * 
+     * @param index
+     *            Position of the argument.
+     * 
+     * @return Value.
+     */
+    public final short getShort(final int index) {
+        return (short) primitive(index);
+    }
+
+    /**
+     * Sets a short argument.
+     * 
+     * @param index
+     *            Position of the argument.
+     * @param value
+     *            Value.
+     */
+    public final void setShort(final int index, final short value) {
+        primitive(index, value);
+    }
+
+    /**
+     * Returns an int argument.
+     * 
+     * @param index
+     *            Position of the argument.
+     * 
+     * @return Value.
+     */
+    public final int getInt(final int index) {
+        return (int) primitive(index);
+    }
+
+    /**
+     * Sets an int argument.
+     * 
+     * @param index
+     *            Position of the argument.
+     * @param value
+     *            Value.
+     */
+    public final void setInt(final int index, final int value) {
+        primitive(index, value);
+    }
+
+    /**
+     * Returns a long argument.
+     * 
+     * @param index
+     *            Position of the argument.
+     * 
+     * @return Value.
+     */
+    public final long getLong(final int index) {
+        return primitive(index);
+    }
+
+    /**
+     * Sets a long argument.
+     * 
+     * @param index
+     *            Position of the argument.
+     * @param value
+     *            Value.
+     */
+    public final void setLong(final int index, final long value) {
+        primitive(index, value);
+    }
+
+    /**
+     * Returns a float argument.
+     * 
+     * @param index
+     *            Position of the argument.
+     * 
+     * @return Value.
+     */
+    public final float getFloat(final int index) {
+        return Float.intBitsToFloat((int) primitive(index));
+    }
+
+    /**
+     * Sets a float argument.
+     * 
+     * @param index
+     *            Position of the argument.
+     * @param value
+     *            Value.
+     */
+    public final void setFloat(final int index, final float value) {
+        primitive(index, Float.floatToRawIntBits(value));
+    }
+
+    /**
+     * Returns a double argument.
+     * 
+     * @param index
+     *            Position of the argument.
+     * 
+     * @return Value.
+     */
+    public final double getDouble(final int index) {
+        return Double.longBitsToDouble(primitive(index));
+    }
+
+    /**
+     * Sets a double argument.
+     * 
+     * @param index
+     *            Position of the argument.
+     * @param value
+     *            Value.
+     */
+    public final void setDouble(final int index, final double value) {
+        primitive(index, Double.doubleToRawLongBits(value));
+    }
+
+    /**
+     * Returns an object argument.
+     * 
+     * @param index
+     *            Position of the argument.
+     * 
+     * @return Value.
+     */
+    public final Object getObject(final int index) {
+        if (references == null) {
+            if ((index < 0) || (index >= size)) {
+                throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+            }
+            return null;
+        }
+        return references[index];
+    }
+
+    /**
+     * Sets an object argument.
+     * 
+     * @param index
+     *            Position of the argument.
+     * @param value
+     *            Value.
+     */
+    public final void setObject(final int index, final Object value) {
+        if (references == null) {
+            references = new Object[size];
+        }
+        references[index] = value;
+    }
+
+    /**
+     * Returns the result as boolean.
+     * 
+     * @return Return value.
+     */
+    public final boolean getReturnBoolean() {
+        return primitiveResult != 0;
+    }
+
+    /**
+     * Sets a boolean result.
+     * 
+     * @param value
+     *            Return value.
+     */
+    public final void setReturnBoolean(final boolean value) {
+        primitiveResult = value ? 1 : 0;
+    }
+
+    /**
+     * Returns the result as byte.
+     * 
+     * @return Return value.
+     */
+    public final byte getReturnByte() {
+        return (byte) primitiveResult;
+    }
+
+    /**
+     * Returns the result as char.
+     * 
+     * @return Return value.
+     */
+    public final char getReturnChar() {
+        return (char) primitiveResult;
+    }
+
+    /**
+     * Returns the result as short.
+     * 
+     * @return Return value.
+     */
+    public final short getReturnShort() {
+        return (short) primitiveResult;
+    }
+
+    /**
+     * Returns the result as int.
+     * 
+     * @return Return value.
+     */
+    public final int getReturnInt() {
+        return (int) primitiveResult;
+    }
+
+    /**
+     * Returns the result as long.
+     * 
+     * @return Return value.
+     */
+    public final long getReturnLong() {
+        return primitiveResult;
+    }
+
+    /**
+     * Sets an integral result. Used for all integral types and
+     * <code>char</code>.
+     * 
+     * @param value
+     *            Return value.
+     */
+    public final void setReturnLong(final long value) {
+        primitiveResult = value;
+    }
+
+    /**
+     * Returns the result as float.
+     * 
+     * @return Return value.
+     */
+    public final float getReturnFloat() {
+        return Float.intBitsToFloat((int) primitiveResult);
+    }
+
+    /**
+     * Sets a float result.
+     * 
+     * @param value
+     *            Return value.
+     */
+    public final void setReturnFloat(final float value) {
+        primitiveResult = Float.floatToRawIntBits(value);
+    }
+
+    /**
+     * Returns the result as double.
+     * 
+     * @return Return value.
+     */
+    public final double getReturnDouble() {
+        return Double.longBitsToDouble(primitiveResult);
+    }
+
+    /**
+     * Sets a double result.
+     * 
+     * @param value
+     *            Return value.
+     */
+    public final void setReturnDouble(final double value) {
+        primitiveResult = Double.doubleToRawLongBits(value);
+    }
+
+    /**
+     * Returns the result as object.
+     * 
+     * @return Return value.
+     */
+    public final Object getReturnObject() {
+        return referenceResult;
+    }
+
+    /**
+     * Sets an object result.
+     * 
+     * @param value
+     *            Return value.
+     */
+    public final void setReturnObject(final Object value) {
+        referenceResult = value;
+    }
+
+}
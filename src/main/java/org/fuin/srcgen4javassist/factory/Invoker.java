@@ -0,0 +1,39 @@
+/**
+ * Copyright (C) 2009 Future Invent Informationsmanagement GmbH. All rights
+ * reserved. <http://www.fuin.org/>
+ * 
+ * This library is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation; either version 3 of the License, or (at your option) any
+ * later version.
+ * 
+ * This library is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ * details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this library. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.fuin.srcgen4javassist.factory;
+
+/**
+ * Handles the calls of an implementation created with an
+ * {@link InvokerImplementationFactoryListener}. The method is identified by
+ * an index and the arguments are passed in a frame with primitive slots, so
+ * no boxing or reflection is necessary.
+ */
+public interface Invoker {
+
+    /**
+     * Handles a method call. The return value (if any) has to be set in the
+     * frame using one of the <code>setReturnXXX(..)</code> methods.
+     * 
+     * @param methodIndex
+     *            Index of the called method as assigned by the listener.
+     * @param frame
+     *            Arguments of the call and slot for the return value.
+     */
+    public void invoke(int methodIndex, InvocationFrame frame);
+
+}
@@ -0,0 +1,212 @@
+/**
+ * Copyright (C) 2009 Future Invent Informationsmanagement GmbH. All rights
+ * reserved. <http://www.fuin.org/>
+ * 
+ * This library is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation; either version 3 of the License, or (at your option) any
+ * later version.
+ * 
+ * This library is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ * details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this library. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.fuin.srcgen4javassist.factory;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.fuin.srcgen4javassist.SgClass;
+import org.fuin.srcgen4javassist.SgClassPool;
+import org.fuin.srcgen4javassist.SgMethod;
+import org.fuin.srcgen4javassist.SgMethodDescriptor;
+
+/**
+ * Creates implementations that dispatch every call to an {@link Invoker}
+ * with the index of the method. The arguments are passed in an
+ * {@link InvocationFrame} without boxing primitive values. The listener adds
+ * a final field "invoker" and a public constructor that sets it.<br>
+ * <br>
+ * Indexes are assigned in the order the methods are created, starting with
+ * <code>0</code>. If a listener is used for more than one implementation,
+ * methods with the same descriptor get the same index. Use a deterministic
+ * {@link ImplementationFactory} to get the same indexes in every run.
+ */
+public final class InvokerImplementationFactoryListener implements
+        ImplementationFactoryListener {
+
+    private static final String FRAME = InvocationFrame.class.getName();
+
+    private final SgClass invokerType;
+
+    private final Map<SgMethodDescriptor, Integer> indexes;
+
+    private final List<SgMethodDescriptor> descriptors;
+
+    /**
+     * Constructor with pool.
+     * 
+     * @param pool
+     *            Pool used to create the type of the invoker field - Cannot
+     *            be null.
+     */
+    public InvokerImplementationFactoryListener(final SgClassPool pool) {
+        super();
+        if (pool == null) {
+            throw new IllegalArgumentException("The argument 'pool' cannot be null!");
+        }
+        this.invokerType = SgClass.create(pool, Invoker.class);
+        this.indexes = new HashMap<SgMethodDescriptor, Integer>();
+        this.descriptors = new ArrayList<SgMethodDescriptor>();
+    }
+
+    /**
+     * Returns the index of a method.
+     * 
+     * @param descriptor
+     *            Name and argument types of the method - Cannot be null.
+     * 
+     * @return Index or <code>-1</code> if no method with the descriptor was
+     *         created yet.
+     */
+    public final int getIndex(final SgMethodDescriptor descriptor) {
+        if (descriptor == null) {
+            throw new IllegalArgumentException("The argument 'descriptor' cannot be null!");
+        }
+        synchronized (indexes) {
+            final Integer index = indexes.get(descriptor);
+            if (index == null) {
+                return -1;
+            }
+            return index.intValue();
+        }
+    }
+
+    /**
+     * Returns the descriptors of all methods created so far. The position in
+     * the list is the index of the method.
+     * 
+     * @return Copy of the descriptors - Always non-null.
+     */
+    public final List<SgMethodDescriptor> getDescriptors() {
+        synchronized (indexes) {
+            return Collections.unmodifiableList(new ArrayList<SgMethodDescriptor>(descriptors));
+        }
+    }
+
+    private int assignIndex(final SgMethodDescriptor descriptor) {
+        synchronized (indexes) {
+            final Integer index = indexes.get(descriptor);
+            if (index != null) {
+                return index.intValue();
+            }
+            final int next = descriptors.size();
+            descriptors.add(descriptor);
+            indexes.put(descriptor, Integer.valueOf(next));
+            return next;
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public final void afterClassCreated(final SgClass clasz) {
+        DelegatingImplementationFactoryListener.addFinalField(clasz, invokerType, "invoker");
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public final List<String> createBody(final SgMethod method, final Class<?>... intf) {
+        return createBody(method, "this.invoker", assignIndex(method.getDescriptor()));
+    }
+
+    /**
+     * Creates the source that passes the arguments in a frame to an invoker
+     * and returns the result.
+     * 
+     * @param method
+     *            Method to create source code for.
+     * @param invoker
+     *            Expression that evaluates to the {@link Invoker}.
+     * @param index
+     *            Index of the method.
+     * 
+     * @return List of source lines.
+     */
+    static List<String> createBody(final SgMethod method, final String invoker,
+            final int index) {
+        final int size = method.getArguments().size();
+        final List<String> lines = new ArrayList<String>(size + 4);
+        lines.add(FRAME + " frame = new " + FRAME + "(" + size + ");");
+        lines.add("frame.setReceiver((Object) this);");
+        for (int i = 0; i < size; i++) {
+            final String slotType = getSlotType(method.getArguments().get(i).getType());
+            final String name = method.getArguments().get(i).getName();
+            if (slotType.equals("Object")) {
+                lines.add("frame.setObject(" + i + ", " + toObject(method.getArguments().get(i)
+                        .getType(), name) + ");");
+            } else {
+                lines.add("frame.set" + slotType + "(" + i + ", " + name + ");");
+            }
+        }
+        lines.add(invoker + ".invoke(" + index + ", frame);");
+        final SgClass returnType = method.getReturnType();
+        if (!returnType.equals(SgClass.VOID)) {
+            final String slotType = getSlotType(returnType);
+            if (slotType.equals("Object")) {
+                lines.add("return (" + returnType.getName() + ") frame.getReturnObject();");
+            } else {
+                lines.add("return frame.getReturn" + slotType + "();");
+            }
+        }
+        return lines;
+    }
+
+    /**
+     * Returns an expression that passes a reference type as
+     * <code>Object</code>. Javassist can't cast arrays to <code>Object</code>,
+     * but it resolves an array argument for an <code>Object</code> parameter
+     * without loading the component type. All other types are cast, so the
+     * signature matches exactly and Javassist doesn't need to load the
+     * argument type for resolving the method.
+     * 
+     * @param type
+     *            Type of the expression.
+     * @param expression
+     *            Expression to convert.
+     * 
+     * @return Expression of type <code>Object</code>.
+     */
+    static String toObject(final SgClass type, final String expression) {
+        if (type.getName().endsWith("[]")) {
+            return expression;
+        }
+        return "(Object) " + expression;
+    }
+
+    /**
+     * Returns the suffix of the frame methods for a type.
+     * 
+     * @param type
+     *            Type of the argument or return value.
+     * 
+     * @return Name of the primitive type with first character upper case or
+     *         "Object".
+     */
+    static String getSlotType(final SgClass type) {
+        if (!type.isPrimitive()) {
+            return "Object";
+        }
+        final String name = type.getName();
+        return Character.toUpperCase(name.charAt(0)) + name.substring(1);
+    }
+
+}
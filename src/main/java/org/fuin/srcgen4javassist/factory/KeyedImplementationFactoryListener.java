@@ -0,0 +1,37 @@
+/**
+ * Copyright (C) 2009 Future Invent Informationsmanagement GmbH. All rights
+ * reserved. <http://www.fuin.org/>
+ * 
+ * This library is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation; either version 3 of the License, or (at your option) any
+ * later version.
+ * 
+ * This library is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ * details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this library. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.fuin.srcgen4javassist.factory;
+
+/**
+ * Listener that creates the same method bodies for all instances with an
+ * equal key. A caching {@link ImplementationFactory} uses the key instead of
+ * the identity of the listener to find already created implementations.
+ */
+public interface KeyedImplementationFactoryListener extends ImplementationFactoryListener {
+
+    /**
+     * Returns the key that identifies the generated source. Two listeners
+     * with equal keys must create the same bodies and make the same changes
+     * in {@link #afterClassCreated(org.fuin.srcgen4javassist.SgClass)}.
+     * 
+     * @return Key with a valid <code>equals(Object)</code> and
+     *         <code>hashCode()</code> implementation - Cannot be null.
+     */
+    public Object getCacheKey();
+
+}
@@ -0,0 +1,237 @@
+/**
+ * Copyright (C) 2009 Future Invent Informationsmanagement GmbH. All rights
+ * reserved. <http://www.fuin.org/>
+ * 
+ * This library is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation; either version 3 of the License, or (at your option) any
+ * later version.
+ * 
+ * This library is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ * details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this library. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.fuin.srcgen4javassist.factory;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.UndeclaredThrowableException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.fuin.srcgen4javassist.SgArgument;
+import org.fuin.srcgen4javassist.SgClass;
+import org.fuin.srcgen4javassist.SgClassPool;
+import org.fuin.srcgen4javassist.SgField;
+import org.fuin.srcgen4javassist.SgMethod;
+import org.fuin.srcgen4javassist.SgMethodDescriptor;
+
+/**
+ * Creates the methods of a {@link SgProxy} class. Every method of the
+ * interfaces and <code>hashCode()</code>, <code>equals(Object)</code> and
+ * <code>toString()</code> are passed to the handler. The position of a method
+ * in {@link #getMethods()} is it's index.
+ */
+final class ProxyListener implements ImplementationFactoryListener {
+
+    private static final String OBJECT = Object.class.getName();
+
+    private final SgClassPool pool;
+
+    private final String proxyClassName;
+
+    private final boolean fast;
+
+    /** First method of the interfaces (in the order given) by descriptor. */
+    private final Map<SgMethodDescriptor, Method> interfaceMethods;
+
+    private final List<Method> methods;
+
+    private SgClass clasz;
+
+    /**
+     * Constructor with all data.
+     * 
+     * @param pool
+     *            Pool used to create the types.
+     * @param proxyClassName
+     *            Full qualified name of the proxy class.
+     * @param interfaces
+     *            Interfaces the proxy implements.
+     * @param fast
+     *            Dispatch to an {@link Invoker} (<code>true</code>) or to an
+     *            <code>InvocationHandler</code> (<code>false</code>).
+     */
+    ProxyListener(final SgClassPool pool, final String proxyClassName,
+            final Class<?>[] interfaces, final boolean fast) {
+        super();
+        this.pool = pool;
+        this.proxyClassName = proxyClassName;
+        this.fast = fast;
+        this.interfaceMethods = new HashMap<SgMethodDescriptor, Method>();
+        for (int i = 0; i < interfaces.length; i++) {
+            final Method[] declared = interfaces[i].getMethods();
+            for (int j = 0; j < declared.length; j++) {
+                final SgMethodDescriptor descriptor = SgMethodDescriptor.create(declared[j]
+                        .getName(), declared[j].getParameterTypes());
+                if (!interfaceMethods.containsKey(descriptor)) {
+                    interfaceMethods.put(descriptor, declared[j]);
+                }
+            }
+        }
+        this.methods = new ArrayList<Method>();
+    }
+
+    /**
+     * Returns the methods in the order of their indexes.
+     * 
+     * @return Methods.
+     */
+    public final Method[] getMethods() {
+        return methods.toArray(new Method[methods.size()]);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public final void afterClassCreated(final SgClass clasz) {
+        this.clasz = clasz;
+        final Class<?> handlerType;
+        if (fast) {
+            handlerType = Invoker.class;
+        } else {
+            handlerType = InvocationHandler.class;
+        }
+        DelegatingImplementationFactoryListener.addFinalField(clasz, SgClass.create(pool,
+                handlerType), "h");
+        // Keeps the methods as long as the class exists - The model has no
+        // package for array types so it's declared as object
+        new SgField(clasz, "private static final", SgClass.create(pool, Object.class),
+                SgProxy.METHODS_FIELD, SgProxy.class.getName() + ".takeMethods(\""
+                        + proxyClassName + "\")");
+        try {
+            addObjectMethod(Object.class.getMethod("hashCode"));
+            addObjectMethod(Object.class.getMethod("equals", Object.class));
+            addObjectMethod(Object.class.getMethod("toString"));
+        } catch (final NoSuchMethodException ex) {
+            throw new IllegalStateException(ex);
+        }
+    }
+
+    private void addObjectMethod(final Method objectMethod) {
+        final Class<?>[] paramTypes = objectMethod.getParameterTypes();
+        if (interfaceMethods.containsKey(SgMethodDescriptor.create(objectMethod.getName(),
+                paramTypes))) {
+            // Created like all other interface methods
+            return;
+        }
+        final SgMethod method = new SgMethod(clasz, "public", SgClass.create(pool, objectMethod
+                .getReturnType()), objectMethod.getName());
+        for (int i = 0; i < paramTypes.length; i++) {
+            method.addArgument(new SgArgument(method, SgClass.create(pool, paramTypes[i]),
+                    ("arg" + i)));
+        }
+        final List<String> lines = createLines(method, objectMethod);
+        for (int i = 0; i < lines.size(); i++) {
+            method.addBodyLine(lines.get(i));
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public final List<String> createBody(final SgMethod method, final Class<?>... intf) {
+        return createLines(method, interfaceMethods.get(method.getDescriptor()));
+    }
+
+    private List<String> createLines(final SgMethod method, final Method reflected) {
+        final int index = methods.size();
+        methods.add(reflected);
+        if (fast) {
+            return InvokerImplementationFactoryListener.createBody(method, "this.h", index);
+        }
+
+        // Constant with the method
+        final String field = "m" + index;
+        new SgField(clasz, "private static final", SgClass.create(pool, Method.class), field,
+                "((" + Method.class.getName() + "[]) " + SgProxy.METHODS_FIELD + ")[" + index
+                        + "]");
+
+        final StringBuffer call = new StringBuffer();
+        call.append("this.h.invoke((" + OBJECT + ") this, " + field + ", ");
+        final List<SgArgument> args = method.getArguments();
+        if (args.size() == 0) {
+            call.append("(" + OBJECT + "[]) null");
+        } else {
+            call.append("new " + OBJECT + "[] { ");
+            for (int i = 0; i < args.size(); i++) {
+                if (i > 0) {
+                    call.append(", ");
+                }
+                final SgClass type = args.get(i).getType();
+                if (type.isPrimitive()) {
+                    call.append(getWrapperName(type) + ".valueOf(" + args.get(i).getName() + ")");
+                } else {
+                    call.append(InvokerImplementationFactoryListener.toObject(type, args.get(i)
+                            .getName()));
+                }
+            }
+            call.append(" }");
+        }
+        call.append(")");
+
+        final List<String> lines = new ArrayList<String>();
+        lines.add("try {");
+        final SgClass returnType = method.getReturnType();
+        if (returnType.equals(SgClass.VOID)) {
+            lines.add(call + ";");
+        } else if (returnType.isPrimitive()) {
+            lines.add("return ((" + getWrapperName(returnType) + ") " + call + ")."
+                    + returnType.getName() + "Value();");
+        } else {
+            lines.add("return (" + returnType.getName() + ") " + call + ";");
+        }
+
+        // Same exceptions as java.lang.reflect.Proxy
+        final Class<?>[] exceptions = reflected.getExceptionTypes();
+        boolean wrap = true;
+        lines.add("} catch (" + RuntimeException.class.getName() + " ex) {");
+        lines.add("throw ex;");
+        lines.add("} catch (" + Error.class.getName() + " ex) {");
+        lines.add("throw ex;");
+        for (int i = 0; i < exceptions.length; i++) {
+            if (!RuntimeException.class.isAssignableFrom(exceptions[i])
+                    && !Error.class.isAssignableFrom(exceptions[i])) {
+                lines.add("} catch (" + exceptions[i].getName() + " ex) {");
+                lines.add("throw ex;");
+                if (exceptions[i] == Throwable.class) {
+                    wrap = false;
+                }
+            }
+        }
+        if (wrap) {
+            lines.add("} catch (" + Throwable.class.getName() + " ex) {");
+            lines.add("throw new " + UndeclaredThrowableException.class.getName() + "(ex);");
+        }
+        lines.add("}");
+        return lines;
+    }
+
+    private static String getWrapperName(final SgClass primitive) {
+        final String name = primitive.getName();
+        if (name.equals("int")) {
+            return "java.lang.Integer";
+        }
+        if (name.equals("char")) {
+            return "java.lang.Character";
+        }
+        return "java.lang." + Character.toUpperCase(name.charAt(0)) + name.substring(1);
+    }
+
+}
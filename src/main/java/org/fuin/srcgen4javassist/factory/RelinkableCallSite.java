@@ -0,0 +1,160 @@
+/**
+ * Copyright (C) 2009 Future Invent Informationsmanagement GmbH. All rights
+ * reserved. <http://www.fuin.org/>
+ * 
+ * This library is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation; either version 3 of the License, or (at your option) any
+ * later version.
+ * 
+ * This library is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ * details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this library. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.fuin.srcgen4javassist.factory;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.fuin.srcgen4javassist.SgMethodDescriptor;
+
+/**
+ * Call site of a generated method. The target is requested from a
+ * {@link Linker} with the first call and can be replaced at any time, so the
+ * behavior of the method changes without generating the class again. The
+ * site is referenced by a constant in the generated class.
+ */
+public final class RelinkableCallSite implements Invoker {
+
+    private final Linker linker;
+
+    private final SgMethodDescriptor descriptor;
+
+    private final int index;
+
+    private final AtomicReference<Invoker> target;
+
+    /**
+     * Constructor with all data.
+     * 
+     * @param linker
+     *            Linker that provides the target - Cannot be null.
+     * @param descriptor
+     *            Name and argument types of the method - Cannot be null.
+     * @param index
+     *            Index of the method.
+     */
+    public RelinkableCallSite(final Linker linker, final SgMethodDescriptor descriptor,
+            final int index) {
+        super();
+        if (linker == null) {
+            throw new IllegalArgumentException("The argument 'linker' cannot be null!");
+        }
+        if (descriptor == null) {
+            throw new IllegalArgumentException("The argument 'descriptor' cannot be null!");
+        }
+        this.linker = linker;
+        this.descriptor = descriptor;
+        this.index = index;
+        this.target = new AtomicReference<Invoker>();
+    }
+
+    /**
+     * Returns the descriptor of the method.
+     * 
+     * @return Name and argument types - Always non-null.
+     */
+    public final SgMethodDescriptor getDescriptor() {
+        return descriptor;
+    }
+
+    /**
+     * Returns the index of the method.
+     * 
+     * @return Index passed to the target.
+     */
+    public final int getIndex() {
+        return index;
+    }
+
+    /**
+     * Returns if the site has a target.
+     * 
+     * @return If the site was linked and not relinked since then
+     *         <code>true</code> else <code>false</code>.
+     */
+    public final boolean isLinked() {
+        return target.get() != null;
+    }
+
+    /**
+     * Returns the target and links the site if necessary. If the site was
+     * linked or got a new target in another thread in the meantime, the
+     * result of the linker is dropped and the target already set is returned.
+     * 
+     * @return Target - Always non-null.
+     */
+    public final Invoker getTarget() {
+        final Invoker current = target.get();
+        if (current != null) {
+            return current;
+        }
+        final Invoker linked = linker.link(this);
+        if (linked == null) {
+            throw new IllegalStateException("The linker returned null for: " + descriptor);
+        }
+        if (target.compareAndSet(null, linked)) {
+            return linked;
+        }
+        final Invoker other = target.get();
+        if (other == null) {
+            // Relinked in the meantime
+            return linked;
+        }
+        return other;
+    }
+
+    /**
+     * Replaces the target.
+     * 
+     * @param target
+     *            New target - Cannot be null.
+     */
+    public final void setTarget(final Invoker target) {
+        if (target == null) {
+            throw new IllegalArgumentException("The argument 'target' cannot be null!");
+        }
+        this.target.set(target);
+    }
+
+    /**
+     * Removes the target. The linker is asked again with the next call.
+     */
+    public final void relink() {
+        target.set(null);
+    }
+
+    /**
+     * Passes the call to the target.
+     * 
+     * @param methodIndex
+     *            Index of the called method.
+     * @param frame
+     *            Arguments of the call and slot for the return value.
+     */
+    public final void invoke(final int methodIndex, final InvocationFrame frame) {
+        getTarget().invoke(methodIndex, frame);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public final String toString() {
+        return descriptor + " => " + target.get();
+    }
+
+}
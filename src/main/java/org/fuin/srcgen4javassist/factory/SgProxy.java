@@ -0,0 +1,382 @@
+/**
+ * Copyright (C) 2009 Future Invent Informationsmanagement GmbH. All rights
+ * reserved. <http://www.fuin.org/>
+ * 
+ * This library is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation; either version 3 of the License, or (at your option) any
+ * later version.
+ * 
+ * This library is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ * details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this library. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.fuin.srcgen4javassist.factory;
+
+import java.lang.ref.WeakReference;
+import java.lang.reflect.Field;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.WeakHashMap;
+
+import javassist.ClassPool;
+import javassist.LoaderClassPath;
+
+import org.fuin.srcgen4javassist.ByteCodeGenerator;
+import org.fuin.srcgen4javassist.SgClass;
+import org.fuin.srcgen4javassist.SgClassPool;
+
+/**
+ * Creates dynamic proxies with the same API as
+ * <code>java.lang.reflect.Proxy</code>. Replacing
+ * <code>Proxy.newProxyInstance(..)</code> with
+ * <code>SgProxy.newProxyInstance(..)</code> is enough to switch. The proxy
+ * classes are generated with an {@link ImplementationFactory} and cached per
+ * class loader and interface list. Every method is a direct call of the
+ * handler with a constant <code>Method</code> - There is no lookup at call
+ * time.<br>
+ * <br>
+ * Calls can also be passed to an {@link Invoker} that gets the index of the
+ * method (see {@link #getMethods(Class)}) and the arguments without boxing.
+ * <br>
+ * <br>
+ * Nothing is cached that keeps a class loader or a proxy class from being
+ * garbage collected. The class loader must be able to load the classes of
+ * this library. Like
+ * <code>java.lang.reflect.Proxy</code> the calls of
+ * <code>hashCode()</code>, <code>equals(Object)</code> and
+ * <code>toString()</code> are passed to the handler.
+ */
+public final class SgProxy {
+
+    private static final String PREFIX = "SgProxy";
+
+    /** Name of the static field with the methods in every proxy class. */
+    static final String METHODS_FIELD = "methods";
+
+    /** Generators (including their proxy classes) by class loader. */
+    private static final Map<ClassLoader, Generator> GENERATORS =
+            new WeakHashMap<ClassLoader, Generator>();
+
+    /** All proxy classes - The value is not used. */
+    private static final Map<Class<?>, Boolean> PROXY_CLASSES =
+            new WeakHashMap<Class<?>, Boolean>();
+
+    /** Methods of proxy classes that are not initialized yet by class name. */
+    private static final Map<String, Method[]> PENDING = new HashMap<String, Method[]>();
+
+    private static int counter;
+
+    private SgProxy() {
+        throw new UnsupportedOperationException(
+                "It's not allowed to create an instance of this class!");
+    }
+
+    /**
+     * Returns an instance of a proxy class that dispatches all calls to an
+     * invocation handler.
+     * 
+     * @param loader
+     *            Class loader to define the proxy class - <code>null</code>
+     *            uses the class loader of this class.
+     * @param interfaces
+     *            Interfaces to implement - Cannot be null.
+     * @param handler
+     *            Handler for all calls - Cannot be null.
+     * 
+     * @return New proxy instance.
+     */
+    public static Object newProxyInstance(final ClassLoader loader, final Class<?>[] interfaces,
+            final InvocationHandler handler) {
+        if (handler == null) {
+            throw new IllegalArgumentException("The argument 'handler' cannot be null!");
+        }
+        return newInstance(getProxyClass(loader, false, interfaces), InvocationHandler.class,
+                handler);
+    }
+
+    /**
+     * Returns an instance of a proxy class that dispatches all calls to an
+     * invoker. Primitive arguments and return values are not boxed.
+     * 
+     * @param loader
+     *            Class loader to define the proxy class - <code>null</code>
+     *            uses the class loader of this class.
+     * @param interfaces
+     *            Interfaces to implement - Cannot be null.
+     * @param invoker
+     *            Handler for all calls - The method index is the position in
+     *            the result of {@link #getMethods(Class)}. Cannot be null.
+     * 
+     * @return New proxy instance.
+     */
+    public static Object newProxyInstance(final ClassLoader loader, final Class<?>[] interfaces,
+            final Invoker invoker) {
+        if (invoker == null) {
+            throw new IllegalArgumentException("The argument 'invoker' cannot be null!");
+        }
+        return newInstance(getProxyClass(loader, true, interfaces), Invoker.class, invoker);
+    }
+
+    /**
+     * Returns the proxy class for an invocation handler. The class has a
+     * public constructor with an <code>InvocationHandler</code> argument.
+     * 
+     * @param loader
+     *            Class loader to define the proxy class - <code>null</code>
+     *            uses the class loader of this class.
+     * @param interfaces
+     *            Interfaces to implement - Cannot be null.
+     * 
+     * @return Proxy class.
+     */
+    public static Class<?> getProxyClass(final ClassLoader loader, final Class<?>... interfaces) {
+        return getProxyClass(loader, false, interfaces);
+    }
+
+    /**
+     * Returns if a class was created by this class.
+     * 
+     * @param clasz
+     *            Class to check - Cannot be null.
+     * 
+     * @return If it's a proxy class <code>true</code> else
+     *         <code>false</code>.
+     */
+    public static boolean isProxyClass(final Class<?> clasz) {
+        if (clasz == null) {
+            throw new IllegalArgumentException("The argument 'clasz' cannot be null!");
+        }
+        synchronized (GENERATORS) {
+            return PROXY_CLASSES.containsKey(clasz);
+        }
+    }
+
+    /**
+     * Returns the invocation handler of a proxy.
+     * 
+     * @param proxy
+     *            Proxy created with an invocation handler - Cannot be null.
+     * 
+     * @return Handler.
+     */
+    public static InvocationHandler getInvocationHandler(final Object proxy) {
+        if (proxy == null) {
+            throw new IllegalArgumentException("The argument 'proxy' cannot be null!");
+        }
+        final Object handler = getHandler(proxy);
+        if (!(handler instanceof InvocationHandler)) {
+            throw new IllegalArgumentException("Not a proxy with an invocation handler: "
+                    + proxy.getClass().getName());
+        }
+        return (InvocationHandler) handler;
+    }
+
+    /**
+     * Returns the methods of a proxy class. The position of a method is the
+     * index passed to the handler.
+     * 
+     * @param proxyClass
+     *            Proxy class - Cannot be null.
+     * 
+     * @return Copy of the methods.
+     */
+    public static Method[] getMethods(final Class<?> proxyClass) {
+        if (proxyClass == null) {
+            throw new IllegalArgumentException("The argument 'proxyClass' cannot be null!");
+        }
+        if (!isProxyClass(proxyClass)) {
+            throw new IllegalArgumentException("Not a proxy class: " + proxyClass.getName());
+        }
+        return ((Method[]) getStaticField(proxyClass, METHODS_FIELD)).clone();
+    }
+
+    /**
+     * Returns the methods of a proxy class that is initialized. This method
+     * is used by the generated classes to initialize their method constants
+     * and should not be called directly. The proxy class keeps the methods
+     * itself, so they are only available once.
+     * 
+     * @param proxyClassName
+     *            Full qualified name of the proxy class.
+     * 
+     * @return Methods.
+     */
+    public static Method[] takeMethods(final String proxyClassName) {
+        synchronized (GENERATORS) {
+            final Method[] methods = PENDING.remove(proxyClassName);
+            if (methods == null) {
+                throw new IllegalArgumentException("Unknown proxy class: " + proxyClassName);
+            }
+            return methods;
+        }
+    }
+
+    private static Class<?> getProxyClass(final ClassLoader loader, final boolean fast,
+            final Class<?>... interfaces) {
+        if (interfaces == null) {
+            throw new IllegalArgumentException("The argument 'interfaces' cannot be null!");
+        }
+        final ClassLoader classLoader;
+        if (loader == null) {
+            classLoader = SgProxy.class.getClassLoader();
+        } else {
+            classLoader = loader;
+        }
+        // Names only - Classes would keep the class loader alive
+        final List<String> key = new ArrayList<String>(interfaces.length + 1);
+        key.add(String.valueOf(fast));
+        final Set<Class<?>> unique = new HashSet<Class<?>>();
+        String packageName = null;
+        for (int i = 0; i < interfaces.length; i++) {
+            final Class<?> intf = interfaces[i];
+            if (intf == null) {
+                throw new IllegalArgumentException(
+                        "The argument 'interfaces' cannot contain null!");
+            }
+            if (!intf.isInterface()) {
+                throw new IllegalArgumentException(intf.getName() + " is not an interface!");
+            }
+            if (!unique.add(intf)) {
+                throw new IllegalArgumentException("Repeated interface: " + intf.getName());
+            }
+            if (!Modifier.isPublic(intf.getModifiers())) {
+                final String pkg = getPackageName(intf);
+                if ((packageName != null) && !packageName.equals(pkg)) {
+                    throw new IllegalArgumentException(
+                            "Non-public interfaces from different packages: " + packageName
+                                    + " and " + pkg);
+                }
+                packageName = pkg;
+            }
+            key.add(intf.getName());
+        }
+        if (packageName == null) {
+            packageName = getPackageName(SgProxy.class);
+        }
+
+        synchronized (GENERATORS) {
+            Generator generator = GENERATORS.get(classLoader);
+            if (generator == null) {
+                generator = new Generator(classLoader);
+                GENERATORS.put(classLoader, generator);
+            }
+            final WeakReference<Class<?>> ref = generator.proxyClasses.get(key);
+            if (ref != null) {
+                final Class<?> proxyClass = ref.get();
+                // Different interfaces with the same names create a new class
+                if ((proxyClass != null)
+                        && Arrays.equals(proxyClass.getInterfaces(), interfaces)) {
+                    return proxyClass;
+                }
+            }
+            final String simpleName = PREFIX + (counter++);
+            final String name = packageName + "." + simpleName;
+            final ProxyListener listener = new ProxyListener(generator.pool, name, interfaces,
+                    fast);
+            // Not "createClass(..)" as the class is initialized with the methods
+            final SgClass model = generator.factory.create(packageName, simpleName, null, null,
+                    listener, interfaces);
+            final Class<?> proxyClass = new ByteCodeGenerator(generator.classPool, classLoader)
+                    .createClass(model);
+            initialize(proxyClass, listener.getMethods());
+            generator.proxyClasses.put(key, new WeakReference<Class<?>>(proxyClass));
+            PROXY_CLASSES.put(proxyClass, Boolean.TRUE);
+            return proxyClass;
+        }
+    }
+
+    private static void initialize(final Class<?> proxyClass, final Method[] methods) {
+        // The static initializer takes the methods out of the pending ones
+        PENDING.put(proxyClass.getName(), methods);
+        try {
+            Class.forName(proxyClass.getName(), true, proxyClass.getClassLoader());
+        } catch (final ClassNotFoundException ex) {
+            throw new IllegalStateException(ex);
+        } finally {
+            PENDING.remove(proxyClass.getName());
+        }
+    }
+
+    private static String getPackageName(final Class<?> clasz) {
+        final String name = clasz.getName();
+        final int p = name.lastIndexOf('.');
+        if (p == -1) {
+            return "";
+        }
+        return name.substring(0, p);
+    }
+
+    private static Object newInstance(final Class<?> proxyClass, final Class<?> handlerType,
+            final Object handler) {
+        try {
+            return proxyClass.getConstructor(handlerType).newInstance(handler);
+        } catch (final Exception ex) {
+            throw new RuntimeException(ex);
+        }
+    }
+
+    private static Object getHandler(final Object proxy) {
+        if (!isProxyClass(proxy.getClass())) {
+            throw new IllegalArgumentException("Not a proxy: " + proxy.getClass().getName());
+        }
+        try {
+            final Field field = proxy.getClass().getDeclaredField("h");
+            field.setAccessible(true);
+            return field.get(proxy);
+        } catch (final Exception ex) {
+            throw new RuntimeException(ex);
+        }
+    }
+
+    private static Object getStaticField(final Class<?> proxyClass, final String name) {
+        try {
+            final Field field = proxyClass.getDeclaredField(name);
+            field.setAccessible(true);
+            return field.get(null);
+        } catch (final Exception ex) {
+            throw new RuntimeException(ex);
+        }
+    }
+
+    /**
+     * Factory, model pool, class pool and proxy classes for one class loader.
+     * Nothing in here references the class loader directly - The class path
+     * of Javassist only keeps a weak reference.
+     */
+    private static final class Generator {
+
+        private final SgClassPool pool;
+
+        private final ImplementationFactory factory;
+
+        private final ClassPool classPool;
+
+        /** Proxy classes by type of handler and interface names. */
+        private final Map<List<String>, WeakReference<Class<?>>> proxyClasses;
+
+        Generator(final ClassLoader classLoader) {
+            super();
+            pool = new SgClassPool();
+            factory = new ImplementationFactory(pool);
+            classPool = new ClassPool(true);
+            classPool.appendClassPath(new LoaderClassPath(classLoader));
+            classPool.appendClassPath(new LoaderClassPath(SgProxy.class.getClassLoader()));
+            proxyClasses = new HashMap<List<String>, WeakReference<Class<?>>>();
+        }
+
+    }
+
+}
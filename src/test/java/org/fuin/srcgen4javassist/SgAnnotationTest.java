@@ -29,5 +29,22 @@ public class SgAnnotationTest {
 
     }
 
+    @Test
+    public void testEquals() {
+
+        final SgAnnotation a1 = new SgAnnotation("org.fuin.onthefly", "MyAnnotation");
+        a1.addArgument("names", new String[] { "a", "b" });
+        final SgAnnotation a2 = new SgAnnotation("org.fuin.onthefly", "MyAnnotation");
+        a2.addArgument("names", new String[] { "a", "b" });
+        final SgAnnotation a3 = new SgAnnotation("org.fuin.onthefly", "MyAnnotation");
+        a3.addArgument("names", new String[] { "a" });
+
+        Assert.assertEquals(a1, a2);
+        Assert.assertEquals(a1.hashCode(), a2.hashCode());
+        Assert.assertFalse(a1.equals(a3));
+        Assert.assertFalse(a1.equals(new SgAnnotation("org.fuin.onthefly", "Other")));
+
+    }
+
 }
 // CHECKSTYLE:ON
@@ -0,0 +1,121 @@
+// CHECKSTYLE:OFF
+package org.fuin.srcgen4javassist;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+public class SgClassBuilderTest {
+
+    private static final int COUNT = 1000;
+
+    @Test
+    public void testBuild() {
+
+        final SgClassBuilder builder = new SgClassBuilder("org.fuin.onthefly", "TestBuilder");
+        builder.expectMembers(COUNT, 1, COUNT);
+        final SgClass expected = new SgClass("org.fuin.onthefly", "TestBuilder");
+        builder.addConstructor("public");
+        new SgConstructor(expected, "public");
+        for (int i = 0; i < COUNT; i++) {
+            builder.addField("private", SgClass.INT, "field" + i, "" + i);
+            new SgField(expected, "private", SgClass.INT, "field" + i, "" + i);
+            final SgMethod method = builder.addMethod("public", SgClass.INT, "get" + i);
+            new SgArgument(method, SgClass.INT, "a");
+            method.addBodyLine("return field" + i + " + a;");
+            final SgMethod expectedMethod = new SgMethod(expected, "public", SgClass.INT, "get" + i);
+            new SgArgument(expectedMethod, SgClass.INT, "a");
+            expectedMethod.addBodyLine("return field" + i + " + a;");
+        }
+        // Already added members are ignored
+        builder.addMethods(new ArrayList<SgMethod>(builder.getSgClass().getMethods()));
+
+        final SgClass clasz = builder.build();
+        Assert.assertTrue(clasz.isFrozen());
+        Assert.assertEquals(clasz.getMethods().size(), COUNT);
+        Assert.assertEquals(clasz.getFields().size(), COUNT);
+        Assert.assertEquals(clasz.toString(true), expected.toString(true));
+        Assert.assertEquals(clasz.findFieldByName("field7").getInitializer(), "7");
+        Assert.assertNotNull(clasz.findMethod("get9", Collections.singletonList(SgClass.INT)));
+        Assert.assertNull(clasz.findMethod("get9", new ArrayList<SgClass>()));
+        Assert.assertFalse(clasz.hasDuplicateMethods());
+
+    }
+
+    @Test
+    public void testDuplicateSignatures() {
+
+        final SgClassBuilder builder = new SgClassBuilder("org.fuin.onthefly", "TestBuilderDup");
+        builder.addMethod("public", SgClass.VOID, "test");
+        builder.addMethod("public", SgClass.VOID, "test");
+        final SgClass clasz = builder.build();
+        Assert.assertTrue(clasz.hasDuplicateMethods());
+        Assert.assertEquals(clasz.findMethodsByName("test").size(), 2);
+
+    }
+
+    @Test
+    public void testBulkAddWithoutBuilder() {
+
+        final SgClass clasz = new SgClass("org.fuin.onthefly", "TestBulk");
+        final SgMethod method = new SgMethod(clasz, "public", SgClass.VOID, "test");
+        final List<SgMethod> methods = new ArrayList<SgMethod>();
+        methods.add(method);
+        methods.add(method);
+        clasz.addMethods(methods);
+        Assert.assertEquals(clasz.getMethods().size(), 1);
+
+    }
+
+    @Test
+    public void testAddUnregisteredMembers() {
+
+        final SgClassBuilder builder = new SgClassBuilder("org.fuin.onthefly", "TestBuilderAdd");
+        final SgClass owner = builder.getSgClass();
+        final List<SgField> fields = new ArrayList<SgField>();
+        final List<SgMethod> methods = new ArrayList<SgMethod>();
+        for (int i = 0; i < COUNT; i++) {
+            fields.add(new SgField(owner, "private", SgClass.INT, "field" + i, null, false));
+            final SgMethod method = new SgMethod(owner, "public", SgClass.INT, "get" + i, false);
+            new SgArgument(method, SgClass.INT, "a");
+            method.addBodyLine("return field" + i + " + a;");
+            methods.add(method);
+        }
+        final List<SgConstructor> constructors = new ArrayList<SgConstructor>();
+        constructors.add(new SgConstructor(owner, "public", false));
+        Assert.assertEquals(owner.getFields().size(), 0);
+        Assert.assertEquals(owner.getMethods().size(), 0);
+        Assert.assertEquals(owner.getConstructors().size(), 0);
+
+        builder.addFields(fields).addMethods(methods).addConstructors(constructors);
+        final SgClass clasz = builder.build();
+        Assert.assertEquals(clasz.getFields(), fields);
+        Assert.assertEquals(clasz.getMethods(), methods);
+        Assert.assertEquals(clasz.getConstructors(), constructors);
+        Assert.assertSame(clasz.findFieldByName("field7"), fields.get(7));
+        Assert.assertSame(clasz.findMethod("get9", Collections.singletonList(SgClass.INT)),
+                methods.get(9));
+
+        // Same without the builder
+        final SgClass other = new SgClass("org.fuin.onthefly", "TestBulkAdd");
+        final SgMethod method = new SgMethod(other, "public", SgClass.VOID, "test", false);
+        Assert.assertNull(other.findMethodByName("test"));
+        other.addMethods(Collections.singletonList(method));
+        Assert.assertSame(other.findMethodByName("test"), method);
+
+    }
+
+    @Test(expectedExceptions = IllegalStateException.class)
+    public void testBuildTwice() {
+
+        final SgClassBuilder builder = new SgClassBuilder("org.fuin.onthefly", "TestBuilderTwice");
+        builder.build();
+        builder.addField("private", SgClass.INT, "a", null);
+
+    }
+
+}
+// CHECKSTYLE:ON
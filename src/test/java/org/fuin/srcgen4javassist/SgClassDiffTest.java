@@ -0,0 +1,134 @@
+// CHECKSTYLE:OFF
+package org.fuin.srcgen4javassist;
+
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.List;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+public class SgClassDiffTest {
+
+    private static SgClass createClass() {
+        final SgClass clasz = new SgClass("org.fuin.onthefly", "TestDiff");
+        new SgField(clasz, "private", SgClass.INT, "a", null);
+        new SgField(clasz, "private", SgClass.INT, "b", "2");
+        final SgConstructor constructor = new SgConstructor(clasz, "public");
+        constructor.addBodyLine("super();");
+        final SgMethod getA = new SgMethod(clasz, "public", SgClass.INT, "getA");
+        getA.addBodyLine("return a;");
+        final SgMethod calc = new SgMethod(clasz, "public", SgClass.INT, "calc");
+        new SgArgument(calc, SgClass.INT, "x");
+        calc.addBodyLine("return x + a;");
+        return clasz;
+    }
+
+    @Test
+    public void testEqual() {
+
+        final SgClassDiff diff = createClass().diff(createClass());
+        Assert.assertTrue(diff.isEmpty());
+        Assert.assertFalse(diff.isBodyOnly());
+
+    }
+
+    @Test
+    public void testBodyOnly() {
+
+        final SgClass oldClass = createClass();
+        oldClass.freeze();
+        final SgClass newClass = createClass();
+        newClass.findMethodByName("calc").addBodyLine("// Changed");
+        final SgClassDiff diff = oldClass.diff(newClass);
+        Assert.assertEquals(diff.getChanges().size(), 1);
+        final SgChange change = diff.getChanges().get(0);
+        Assert.assertEquals(change.getType(), SgChange.Type.CHANGED);
+        Assert.assertEquals(change.getElement(), SgChange.Element.METHOD);
+        Assert.assertEquals(change.getKey(), "calc(int)");
+        Assert.assertSame(change.getOldValue(), oldClass.findMethodByName("calc"));
+        Assert.assertSame(change.getNewValue(), newClass.findMethodByName("calc"));
+        Assert.assertTrue(diff.isBodyOnly());
+
+    }
+
+    @Test
+    public void testChanges() {
+
+        final SgClassPool pool = new SgClassPool();
+        final SgClass oldClass = createClass();
+        final SgClass newClass = new SgClass("org.fuin.onthefly", "TestDiff");
+        newClass.addInterface(SgClass.create(pool, Serializable.class));
+        newClass.addAnnotation(new SgAnnotation("org.fuin.onthefly", "Test"));
+        new SgField(newClass, "private", SgClass.INT, "a", "1");
+        new SgField(newClass, "private", SgClass.INT, "c", null);
+        final SgConstructor constructor = new SgConstructor(newClass, "public");
+        new SgArgument(constructor, SgClass.INT, "a");
+        final SgMethod getA = new SgMethod(newClass, "public", SgClass.LONG, "getA");
+        getA.addBodyLine("return a;");
+        final SgMethod calc = new SgMethod(newClass, "public", SgClass.INT, "calc");
+        new SgArgument(calc, SgClass.INT, "y");
+        calc.addBodyLine("return x + a;");
+
+        final List<SgChange> changes = oldClass.diff(newClass).getChanges();
+        Assert.assertEquals(changes.toString(), "[ADDED INTERFACE java.io.Serializable, "
+                + "ADDED ANNOTATION org.fuin.onthefly.Test, CHANGED FIELD a, ADDED FIELD c, "
+                + "REMOVED FIELD b, ADDED CONSTRUCTOR <init>(int), "
+                + "REMOVED CONSTRUCTOR <init>(), CHANGED METHOD getA(), "
+                + "CHANGED METHOD calc(int)]");
+        for (int i = 0; i < changes.size(); i++) {
+            Assert.assertFalse(changes.get(i).isBodyOnly());
+        }
+
+    }
+
+    @Test
+    public void testDuplicateSignatures() {
+
+        final SgClass oldClass = new SgClass("org.fuin.onthefly", "TestDiffDup");
+        new SgMethod(oldClass, "public", SgClass.VOID, "test").addBodyLine("a();");
+        new SgMethod(oldClass, "public", SgClass.VOID, "test").addBodyLine("b();");
+        final SgClass newClass = new SgClass("org.fuin.onthefly", "TestDiffDup");
+        new SgMethod(newClass, "public", SgClass.VOID, "test").addBodyLine("a();");
+
+        final List<SgChange> changes = oldClass.diff(newClass).getChanges();
+        Assert.assertEquals(changes.size(), 1);
+        Assert.assertEquals(changes.get(0).getType(), SgChange.Type.REMOVED);
+        Assert.assertSame(changes.get(0).getOldValue(), oldClass.getMethods().get(1));
+
+    }
+
+    private static SgClass createClass(final SgClassPool pool, final int count) {
+        final SgClass string = SgClass.create(pool, String.class);
+        final SgClass clasz = new SgClass("org.fuin.onthefly", "TestDiffPool");
+        new SgField(clasz, "private", string, "s", null);
+        for (int i = 0; i < count; i++) {
+            final SgMethod method = new SgMethod(clasz, "public", string, "get" + i);
+            new SgArgument(method, string, "arg");
+            method.addBodyLine("return s;");
+        }
+        return clasz;
+    }
+
+    @Test
+    public void testDifferentPools() {
+
+        final SgClassPool stubPool = new SgClassPool(new SgIntrospectionPolicy(
+                SgIntrospectionPolicy.UNLIMITED_DEPTH, null, Arrays.asList("java")));
+        final SgClass oldClass = createClass(new SgClassPool(), 2000);
+        final SgClass newClass = createClass(stubPool, 2000);
+        Assert.assertNotSame(oldClass.getFields().get(0).getType(), newClass.getFields().get(0)
+                .getType());
+        Assert.assertTrue(newClass.getFields().get(0).getType().isStub());
+        Assert.assertTrue(oldClass.diff(newClass).isEmpty());
+
+        new SgMethod(newClass, "public", SgClass.OBJECT, "get0");
+        final List<SgChange> changes = newClass.diff(oldClass).getChanges();
+        Assert.assertEquals(changes.size(), 1);
+        Assert.assertEquals(changes.get(0).getType(), SgChange.Type.REMOVED);
+        Assert.assertEquals(changes.get(0).getKey(), "get0()");
+
+    }
+
+}
+// CHECKSTYLE:ON
@@ -0,0 +1,165 @@
+// CHECKSTYLE:OFF
+package org.fuin.srcgen4javassist;
+
+import java.io.IOException;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+public class SgClassFileIntrospectorTest {
+
+    static int initCount = 0;
+
+    @Test
+    public void testClassIsNotInitialized() throws ClassNotFoundException {
+
+        // A class literal loads but does not initialize the class
+        final String name = Initialized.class.getName();
+        final SgClass clasz = new SgClassFileIntrospector().create(new SgClassPool(), name);
+        Assert.assertEquals(clasz.getName(), name);
+        Assert.assertEquals(clasz.getFields().size(), 1);
+        Assert.assertEquals(initCount, 0);
+
+        Class.forName(name);
+        Assert.assertEquals(initCount, 1);
+
+    }
+
+    @Test
+    public void testSameModelAsReflection() {
+
+        assertSameModel(HeavyInit.class);
+        assertSameModel(Service.class);
+        assertSameModel(ArrayList.class);
+        assertSameModel(String[][].class);
+        assertSameModel(HeavyInit.Inner[].class);
+        assertSameModel(int[].class);
+
+    }
+
+    @Test
+    public void testPolicyAndStatistics() {
+
+        final SgClassPool pool = new SgClassPool(new SgIntrospectionPolicy(0));
+        final SgClass clasz = new SgClassFileIntrospector().create(pool, Service.class
+                .getName());
+        Assert.assertFalse(clasz.isStub());
+        Assert.assertTrue(clasz.getInterfaces().get(0).isStub());
+
+        final SgClassPoolStatistics stats = pool.getStatistics();
+        Assert.assertEquals(stats.getCreatedModels(), 1);
+        // Enclosing class, Serializable, List, String and IOException
+        Assert.assertEquals(stats.getCreatedStubs(), 5);
+
+    }
+
+    @Test
+    public void testUnknownClass() {
+
+        try {
+            new SgClassFileIntrospector().create(new SgClassPool(), "a.b.c.Unknown");
+            Assert.fail("Expected an exception for an unknown class");
+        } catch (final IllegalArgumentException ex) {
+            // OK
+        }
+
+    }
+
+    private static void assertSameModel(final Class<?> type) {
+        final SgClass expected = SgClass.create(new SgClassPool(), type);
+        final SgClass actual = new SgClassFileIntrospector().create(new SgClassPool(), type
+                .getName());
+        Assert.assertEquals(describe(actual), describe(expected));
+    }
+
+    private static List<String> describe(final SgClass clasz) {
+        final List<String> list = new ArrayList<String>();
+        list.add(clasz.getModifiers() + " " + clasz.getName() + " / " + clasz.getSimpleName());
+        list.add("super " + name(clasz.getSuperClass()));
+        list.add("enclosing " + name(clasz.getEnclosingClass()));
+        list.add("interfaces " + clasz.getInterfacesCommaSeparated());
+        final List<String> members = new ArrayList<String>();
+        for (final SgField field : clasz.getFields()) {
+            members.add(field.getAnnotations() + " " + field.getModifiers() + " "
+                    + field.getType().getName() + " " + field.getName());
+        }
+        for (final SgConstructor constructor : clasz.getConstructors()) {
+            members.add(constructor.getAnnotations() + " " + constructor.getSignature() + " "
+                    + names(constructor.getExceptions()));
+        }
+        for (final SgMethod method : clasz.getMethods()) {
+            members.add(method.getAnnotations() + " " + method.getSignature() + " "
+                    + names(method.getExceptions()));
+        }
+        for (final SgClass inner : clasz.getClasses()) {
+            members.add("inner " + inner.getName());
+        }
+        Collections.sort(members);
+        list.addAll(members);
+        return list;
+    }
+
+    private static String name(final SgClass clasz) {
+        if (clasz == null) {
+            return null;
+        }
+        return clasz.getName();
+    }
+
+    private static List<String> names(final List<SgClass> classes) {
+        final List<String> list = new ArrayList<String>();
+        for (final SgClass clasz : classes) {
+            list.add(clasz.getName());
+        }
+        return list;
+    }
+
+    public static class HeavyInit {
+
+        public static final String NAME = String.valueOf("heavy");
+
+        protected transient int count;
+
+        public HeavyInit() throws IOException {
+            super();
+        }
+
+        @Deprecated
+        public synchronized int getCount(final long value, final String[] names) {
+            return count;
+        }
+
+        public class Inner {
+            // Non-static member class
+        }
+
+        public static final class StaticInner extends HeavyInit {
+            public StaticInner() throws IOException {
+                super();
+            }
+        }
+
+        private static class Hidden {
+            // Not returned by "getClasses()"
+        }
+
+    }
+
+    public static class Initialized {
+
+        public static final int COUNT = ++initCount;
+
+    }
+
+    public static interface Service extends Serializable {
+
+        List<String> find(String query) throws IOException;
+
+    }
+
+}
+// CHECKSTYLE:ON
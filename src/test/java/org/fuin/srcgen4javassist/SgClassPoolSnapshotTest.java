@@ -0,0 +1,138 @@
+// CHECKSTYLE:OFF
+package org.fuin.srcgen4javassist;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.lang.annotation.RetentionPolicy;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Map;
+
+import org.testng.Assert;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+public class SgClassPoolSnapshotTest {
+
+    private File file;
+
+    @BeforeMethod
+    public void setup() throws IOException {
+        file = File.createTempFile("pool", ".snapshot");
+    }
+
+    @AfterMethod
+    public void teardown() {
+        file.delete();
+        file = null;
+    }
+
+    @Test
+    public void testWriteAndRead() throws IOException {
+
+        final SgClassPool pool = new SgClassPool();
+        final SgClass list = SgClass.create(pool, ArrayList.class);
+        final SgClass clasz = new SgClass("org.fuin.onthefly", "TestSnapshot");
+        new SgField(clasz, "private", SgClass.INT, "count", "0");
+        final SgMethod method = new SgMethod(clasz, "public", list, "getList");
+        new SgArgument(method, SgClass.create(pool, String.class), "name");
+        method.addException(SgClass.create(pool, IOException.class));
+        final SgAnnotation annotation = new SgAnnotation("org.fuin.onthefly", "Anno");
+        annotation.addArgument("value", Integer.valueOf(1));
+        method.addAnnotation(annotation);
+        method.addBodyLine("return null;");
+        pool.put(clasz);
+
+        SgClassPoolSnapshot.write(pool, file, "1.0");
+        Assert.assertTrue(SgClassPoolSnapshot.isCompatible(file, "1.0"));
+
+        final SgClassPool restored = SgClassPoolSnapshot.read(file, "1.0");
+        final SgClass restoredClass = restored.get(clasz.getName());
+        Assert.assertNotNull(restoredClass);
+        Assert.assertEquals(restoredClass.toString(true), clasz.toString(true));
+
+        final SgClass restoredList = restored.get(ArrayList.class.getName());
+        Assert.assertEquals(restoredList.toString(), list.toString());
+        Assert.assertSame(restoredClass.getMethods().get(0).getReturnType(), restoredList);
+        Assert.assertSame(restored.get(int.class.getName()), SgClass.INT);
+        Assert.assertSame(restored.get(Object.class.getName()), SgClass.OBJECT);
+
+    }
+
+    @Test
+    public void testAnnotationValuesAndFrozen() throws IOException {
+
+        final SgClassPool pool = new SgClassPool();
+        final SgClass list = SgClass.create(pool, ArrayList.class);
+        final SgClass clasz = new SgClass("org.fuin.onthefly", "TestSnapshotValues");
+        final SgAnnotation annotation = new SgAnnotation("org.fuin.onthefly", "Anno");
+        annotation.addArgument("text", "\"abc\"");
+        annotation.addArgument("type", String.class);
+        annotation.addArgument("primitive", int.class);
+        annotation.addArgument("policy", RetentionPolicy.RUNTIME);
+        annotation.addArgument("model", list);
+        annotation.addArgument("ints", new int[] { 1, 2 });
+        annotation.addArgument("names", new String[] { "a", "b" });
+        annotation.addArgument("other", new StringBuilder("x"));
+        clasz.addAnnotation(annotation);
+        final SgClass open = new SgClass("org.fuin.onthefly", "TestSnapshotOpen");
+        clasz.freeze();
+        pool.put(clasz);
+        pool.put(open);
+
+        SgClassPoolSnapshot.write(pool, file, "1.0");
+        final SgClassPool restored = SgClassPoolSnapshot.read(file, "1.0");
+        final SgClass restoredClass = restored.get(clasz.getName());
+        Assert.assertTrue(restoredClass.isFrozen());
+        Assert.assertFalse(restored.get(open.getName()).isFrozen());
+
+        final Map<String, Object> args = restoredClass.getAnnotations().get(0).getArguments();
+        Assert.assertEquals(args.get("text"), "\"abc\"");
+        Assert.assertSame(args.get("type"), String.class);
+        Assert.assertSame(args.get("primitive"), int.class);
+        Assert.assertSame(args.get("policy"), RetentionPolicy.RUNTIME);
+        Assert.assertSame(args.get("model"), restored.get(ArrayList.class.getName()));
+        Assert.assertTrue(Arrays.equals((int[]) args.get("ints"), new int[] { 1, 2 }));
+        Assert.assertTrue(Arrays.equals((String[]) args.get("names"), new String[] { "a", "b" }));
+        // Other values are only kept as source text
+        Assert.assertEquals(args.get("other"), "x");
+
+    }
+
+    @Test
+    public void testStaleSnapshotIsRejected() throws IOException {
+
+        SgClassPoolSnapshot.write(new SgClassPool(), file, "1.0");
+        Assert.assertFalse(SgClassPoolSnapshot.isCompatible(file, "1.1"));
+        try {
+            SgClassPoolSnapshot.read(file, "1.1");
+            Assert.fail("Expected an exception for a different tag");
+        } catch (final IOException ex) {
+            // OK
+        }
+
+    }
+
+    @Test
+    public void testNoSnapshot() throws IOException {
+
+        final FileOutputStream out = new FileOutputStream(file);
+        try {
+            out.write(new byte[] { 1, 2, 3 });
+        } finally {
+            out.close();
+        }
+        Assert.assertFalse(SgClassPoolSnapshot.isCompatible(file, "1.0"));
+        try {
+            SgClassPoolSnapshot.read(file, "1.0");
+            Assert.fail("Expected an exception for an invalid file");
+        } catch (final IOException ex) {
+            // OK
+        }
+
+    }
+
+}
+// CHECKSTYLE:ON
@@ -0,0 +1,109 @@
+// CHECKSTYLE:OFF
+package org.fuin.srcgen4javassist;
+
+import java.io.Serializable;
+import java.util.Arrays;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+public class SgClassPoolTest {
+
+    @Test
+    public void testHitsAndMisses() {
+
+        final SgClassPool pool = new SgClassPool();
+        Assert.assertNull(pool.get("a.b.Unknown"));
+        Assert.assertSame(pool.get("int"), SgClass.INT);
+        Assert.assertSame(pool.get("int"), SgClass.INT);
+
+        final SgClassPoolStatistics stats = pool.getStatistics();
+        Assert.assertEquals(stats.getHits(), 2);
+        Assert.assertEquals(stats.getMisses(), 1);
+        Assert.assertEquals(stats.getHitRatio(), 2.0 / 3.0, 0.0001);
+
+    }
+
+    @Test
+    public void testCreatedModels() {
+
+        final SgClassPool pool = new SgClassPool(new SgIntrospectionPolicy(
+                SgIntrospectionPolicy.UNLIMITED_DEPTH, null, Arrays.asList("java")));
+        final SgClass clasz = SgClass.create(pool, SgIntrospectionPolicyTest.TestService.class);
+
+        final SgClassPoolStatistics stats = pool.getStatistics();
+        // The test service and it's enclosing class
+        Assert.assertEquals(stats.getCreatedModels(), 2);
+        // Serializable, List and String
+        Assert.assertEquals(stats.getCreatedStubs(), 3);
+        Assert.assertEquals(stats.getPackageCounts().get("java.io"), Integer.valueOf(1));
+        Assert.assertEquals(stats.getPackageCounts().get(clasz.getPackageName()), Integer
+                .valueOf(2));
+        Assert.assertEquals(stats.getClassCount(), 15);
+        Assert.assertTrue(stats.getEstimatedRetainedBytes() > 0);
+
+    }
+
+    @Test
+    public void testEstimatedRetainedBytesGrows() {
+
+        final SgClassPool pool = new SgClassPool();
+        final long empty = pool.getStatistics().getEstimatedRetainedBytes();
+        SgClass.create(pool, Serializable.class);
+        final long one = pool.getStatistics().getEstimatedRetainedBytes();
+        Assert.assertTrue(one > empty);
+
+        final SgClass clasz = new SgClass("org.fuin.onthefly", "Big");
+        for (int i = 0; i < 100; i++) {
+            new SgField(clasz, "private", SgClass.INT, "field" + i, "");
+        }
+        pool.put(clasz);
+        Assert.assertTrue(pool.getStatistics().getEstimatedRetainedBytes() > one + 100 * 24);
+
+    }
+
+    @Test
+    public void testEstimatedRetainedBytesOfFrozenClass() {
+
+        final SgClassPool pool = new SgClassPool();
+        final SgClass clasz = new SgClass("org.fuin.onthefly", "BigFrozen");
+        for (int i = 0; i < 100; i++) {
+            final SgMethod method = new SgMethod(clasz, "public", SgClass.INT, "get" + i);
+            new SgArgument(method, SgClass.INT, "a");
+            method.addBodyLine("return a + " + i + ";");
+        }
+        pool.put(clasz);
+        final long unfrozen = pool.getStatistics().getEstimatedRetainedBytes();
+        clasz.freeze();
+        final long frozen = pool.getStatistics().getEstimatedRetainedBytes();
+        Assert.assertTrue(frozen > unfrozen, unfrozen + " / " + frozen);
+
+        // The sources are created with the first request and kept
+        final int sourceBytes = 2 * clasz.toString(true).length();
+        clasz.toString(false);
+        final long rendered = pool.getStatistics().getEstimatedRetainedBytes();
+        Assert.assertTrue(rendered > frozen + sourceBytes + sourceBytes / 2, frozen + " / "
+                + rendered);
+
+    }
+
+    @Test
+    public void testResetStatistics() {
+
+        final SgClassPool pool = new SgClassPool();
+        SgClass.create(pool, Serializable.class);
+        Assert.assertTrue(pool.getStatistics().getMisses() > 0);
+        Assert.assertEquals(pool.getStatistics().getCreatedModels(), 1);
+
+        pool.resetStatistics();
+        final SgClassPoolStatistics stats = pool.getStatistics();
+        Assert.assertEquals(stats.getHits(), 0);
+        Assert.assertEquals(stats.getMisses(), 0);
+        Assert.assertEquals(stats.getCreatedModels(), 0);
+        Assert.assertEquals(stats.getCreatedStubs(), 0);
+        Assert.assertEquals(stats.getClassCount(), 11);
+
+    }
+
+}
+// CHECKSTYLE:ON
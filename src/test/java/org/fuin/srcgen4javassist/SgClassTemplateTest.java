@@ -0,0 +1,102 @@
+// CHECKSTYLE:OFF
+package org.fuin.srcgen4javassist;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+public class SgClassTemplateTest {
+
+    private static SgClass createClass(final String name, final SgClass type, final String prop) {
+        final SgClass clasz = new SgClass("org.fuin.onthefly", name);
+        new SgField(clasz, "private", type, prop, null);
+        final SgConstructor constructor = new SgConstructor(clasz, "public");
+        new SgArgument(constructor, type, prop);
+        constructor.addBodyLine("this." + prop + " = " + prop + ";");
+        final SgMethod getter = new SgMethod(clasz, "public", type, "get" + prop);
+        getter.addBodyLine("return " + prop + ";");
+        final SgMethod copy = new SgMethod(clasz, "public", clasz, "copy");
+        copy.addBodyLine("return new " + clasz.getSourceName() + "(" + prop + ");");
+        return clasz;
+    }
+
+    private static SgClassTemplate createTemplate() {
+        final SgClass template = createClass("${name}", SgClassTemplate.placeholderType("T"),
+                "${prop}");
+        template.freeze();
+        return new SgClassTemplate(template);
+    }
+
+    private static Map<String, Object> values(final String name, final SgClass type,
+            final String prop) {
+        final Map<String, Object> values = new HashMap<String, Object>();
+        values.put("name", name);
+        values.put("T", type);
+        values.put("prop", prop);
+        return values;
+    }
+
+    @Test
+    public void testInstantiate() {
+
+        final SgClassPool pool = new SgClassPool();
+        final SgClass string = SgClass.create(pool, String.class);
+        final SgClassTemplate template = createTemplate();
+        Assert.assertEquals(template.getPlaceholders().toString(), "[T, name, prop]");
+
+        final SgClass clasz = template.instantiate(values("TestTemplateA", string, "value"));
+        final SgClass expected = createClass("TestTemplateA", string, "value");
+        Assert.assertTrue(clasz.isFrozen());
+        Assert.assertNull(clasz.getCachedSource(true));
+        Assert.assertEquals(clasz.toString(true), expected.toString(true));
+        Assert.assertSame(clasz.toString(true), clasz.getCachedSource(true));
+        Assert.assertSame(clasz.findMethodByName("copy").getReturnType(), clasz);
+        Assert.assertSame(clasz.findFieldByName("value").getType(), string);
+
+        final SgClass other = template.instantiate(values("TestTemplateB", SgClass.INT, "count"));
+        Assert.assertEquals(other.toString(true), createClass("TestTemplateB", SgClass.INT,
+                "count").toString(true));
+
+    }
+
+    @Test
+    public void testConstantTemplate() {
+
+        final SgClass template = createClass("TestTemplateC", SgClass.INT, "count");
+        template.freeze();
+        final SgClassTemplate classTemplate = new SgClassTemplate(template);
+        Assert.assertTrue(classTemplate.getPlaceholders().isEmpty());
+        final SgClass clasz = classTemplate.instantiate(new HashMap<String, Object>());
+        Assert.assertEquals(clasz.toString(true), template.toString(true));
+        Assert.assertSame(clasz.findMethodByName("getcount").getBody().get(0), template
+                .findMethodByName("getcount").getBody().get(0));
+
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void testMissingValue() {
+
+        final Map<String, Object> values = values("TestTemplateD", SgClass.INT, "count");
+        values.remove("prop");
+        createTemplate().instantiate(values);
+
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void testTypeRequiresClass() {
+
+        createTemplate().instantiate(values("TestTemplateE", null, "count"));
+
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void testTemplateNotFrozen() {
+
+        new SgClassTemplate(new SgClass("org.fuin.onthefly", "TestTemplateF"));
+
+    }
+
+}
+// CHECKSTYLE:ON
@@ -5,6 +5,9 @@ import java.beans.BeanInfo;
 import java.io.File;
 import java.io.Serializable;
 import java.security.acl.Acl;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 
 import org.testng.Assert;
 import org.testng.annotations.AfterSuite;
@@ -249,5 +252,231 @@ public class SgClassTest {
         // generator.createClass(clasz);
     }
 
+    @Test
+    public void testFindMembers() {
+
+        final SgClass clasz = new SgClass("org.fuin.onthefly", "TestFindMembers");
+        final SgField count = new SgField(clasz, "private", SgClass.INT, "count", "0");
+        final SgMethod add1 = new SgMethod(clasz, "public", SgClass.VOID, "add");
+        new SgArgument(add1, SgClass.INT, "a");
+        final SgMethod add2 = new SgMethod(clasz, "public", SgClass.VOID, "add");
+        new SgArgument(add2, SgClass.LONG, "a");
+        final SgClass inner = new SgClass("public", "org.fuin.onthefly", "Inner", false, clasz);
+
+        Assert.assertSame(clasz.findFieldByName("count"), count);
+        Assert.assertNull(clasz.findFieldByName("unknown"));
+        Assert.assertSame(clasz.findMethodByName("add"), add1);
+        Assert.assertEquals(clasz.findMethodsByName("add"), Arrays.asList(add1, add2));
+        Assert.assertEquals(clasz.findMethodsByName("unknown").size(), 0);
+        Assert.assertSame(clasz.findMethod("add", Arrays.asList(SgClass.LONG)), add2);
+        Assert.assertNull(clasz.findMethod("add", new ArrayList<SgClass>()));
+        Assert.assertTrue(clasz.hasMethod("add", Arrays.asList(SgClass.INT)));
+        Assert.assertSame(clasz.findClassByName(inner.getName()), inner);
+        Assert.assertFalse(clasz.hasDuplicateMethods());
+
+    }
+
+    @Test
+    public void testDuplicateMethods() {
+
+        final SgClass clasz = new SgClass("org.fuin.onthefly", "TestDuplicateMethods");
+        final SgMethod m1 = new SgMethod(clasz, "public", SgClass.VOID, "add");
+        new SgArgument(m1, SgClass.INT, "a");
+        final SgMethod m2 = new SgMethod(clasz, "public", SgClass.VOID, "add");
+        Assert.assertFalse(clasz.hasDuplicateMethods());
+        new SgArgument(m2, SgClass.INT, "b");
+        Assert.assertTrue(clasz.hasDuplicateMethods());
+        Assert.assertEquals(clasz.getDuplicateMethods(), Arrays.asList(m1, m2));
+
+    }
+
+    @Test
+    public void testHasInterfaceAndAnnotation() {
+
+        final SgClassPool pool = new SgClassPool();
+        final SgClass serializable = SgClass.create(pool, Serializable.class);
+        final SgClass base = new SgClass("org.fuin.onthefly", "Base");
+        base.addInterface(serializable);
+        final SgClass clasz = new SgClass("public", "org.fuin.onthefly", "Sub", base, false,
+                null);
+        clasz.addAnnotation(new SgAnnotation("org.fuin.onthefly", "Anno"));
+
+        Assert.assertTrue(clasz.hasInterface(serializable));
+        Assert.assertFalse(clasz.hasInterface(SgClass.create(pool, BeanInfo.class)));
+        Assert.assertTrue(clasz.hasAnnotation("org.fuin.onthefly.Anno"));
+        Assert.assertFalse(clasz.hasAnnotation("org.fuin.onthefly.Other"));
+
+    }
+
+    @Test
+    public void testFreeze() {
+
+        final SgClass clasz = new SgClass("org.fuin.onthefly", "TestFreeze");
+        final SgField field = new SgField(clasz, "private", SgClass.INT, "count", "0");
+        final SgMethod method = new SgMethod(clasz, "public", SgClass.INT, "add");
+        final SgArgument arg = new SgArgument(method, SgClass.INT, "a");
+        method.addBodyLine("return count + a;");
+        final SgAnnotation annotation = new SgAnnotation("org.fuin.onthefly", "Anno");
+        method.addAnnotation(annotation);
+        final SgConstructor constructor = new SgConstructor(clasz);
+        final SgClass inner = new SgClass("public", "org.fuin.onthefly", "Inner", false, clasz);
+        final String source = clasz.toString(true);
+        final String signature = method.getSignature();
+
+        Assert.assertFalse(clasz.isFrozen());
+        clasz.freeze();
+        clasz.freeze();
+        Assert.assertTrue(clasz.isFrozen());
+        Assert.assertTrue(field.isFrozen());
+        Assert.assertTrue(method.isFrozen());
+        Assert.assertTrue(arg.isFrozen());
+        Assert.assertTrue(annotation.isFrozen());
+        Assert.assertTrue(constructor.isFrozen());
+        Assert.assertTrue(inner.isFrozen());
+        Assert.assertEquals(clasz.toString(true), source);
+        Assert.assertEquals(method.getSignature(), signature);
+        Assert.assertEquals(clasz.getMethods().size(), 1);
+
+        try {
+            new SgField(clasz, "private", SgClass.INT, "other", "0");
+            Assert.fail("Expected an exception for a frozen class");
+        } catch (final IllegalStateException ex) {
+            // OK
+        }
+        try {
+            new SgArgument(method, SgClass.INT, "b");
+            Assert.fail("Expected an exception for a frozen method");
+        } catch (final IllegalStateException ex) {
+            // OK
+        }
+        try {
+            method.addBodyLine("return 0;");
+            Assert.fail("Expected an exception for a frozen method");
+        } catch (final IllegalStateException ex) {
+            // OK
+        }
+        try {
+            annotation.addArgument("value", "x");
+            Assert.fail("Expected an exception for a frozen annotation");
+        } catch (final IllegalStateException ex) {
+            // OK
+        }
+        try {
+            field.addAnnotation(annotation);
+            Assert.fail("Expected an exception for a frozen field");
+        } catch (final IllegalStateException ex) {
+            // OK
+        }
+        Assert.assertEquals(clasz.getFields().size(), 1);
+
+    }
+
+    @Test
+    public void testEqualsAndPrimitive() {
+
+        final SgClass c1 = SgClass.create(new SgClassPool(), Serializable.class);
+        final SgClass c2 = SgClass.create(new SgClassPool(), Serializable.class);
+        Assert.assertNotSame(c1, c2);
+        Assert.assertEquals(c1, c2);
+        Assert.assertEquals(c1.hashCode(), c2.hashCode());
+        Assert.assertFalse(c1.equals(SgClass.OBJECT));
+
+        // Same name but different content
+        final SgClass stub = SgClass.create(new SgClassPool(new SgIntrospectionPolicy(
+                SgIntrospectionPolicy.UNLIMITED_DEPTH, null, Arrays.asList("java"))),
+                Serializable.class);
+        Assert.assertTrue(stub.isStub());
+        Assert.assertEquals(c1, stub);
+        final SgClass other = new SgClass("org.fuin.onthefly", "TestEquals");
+        final SgClass changed = new SgClass("org.fuin.onthefly", "TestEquals");
+        new SgField(changed, "private", SgClass.INT, "a", null);
+        Assert.assertEquals(other, changed);
+
+        // Member types are compared by name
+        final SgMethod m1 = new SgMethod(other, "public", stub, "get");
+        final SgMethod m2 = new SgMethod(changed, "public", c1, "get");
+        Assert.assertEquals(m1, m2);
+
+        // Frozen classes are compared by content
+        other.freeze();
+        changed.freeze();
+        Assert.assertFalse(other.equals(changed));
+        Assert.assertEquals(other.hashCode(), changed.hashCode());
+        c1.freeze();
+        stub.freeze();
+        Assert.assertFalse(c1.equals(stub));
+        Assert.assertEquals(c1, c2);
+
+        Assert.assertTrue(SgClass.INT.isPrimitive());
+        Assert.assertTrue(SgClass.VOID.isPrimitive());
+        Assert.assertFalse(SgClass.OBJECT.isPrimitive());
+        Assert.assertFalse(c1.isPrimitive());
+
+        final SgMethod method = new SgMethod(new SgClass("org.fuin.onthefly", "Test"), "public",
+                SgClass.VOID, "test");
+        method.addException(SgClass.create(new SgClassPool(), java.io.IOException.class));
+        method.addException(SgClass.create(new SgClassPool(), java.io.IOException.class));
+        Assert.assertEquals(method.getExceptions().size(), 1);
+
+    }
+
+    @Test
+    public void testEmptyListsAreShared() {
+
+        final SgClass clasz = new SgClass("org.fuin.onthefly", "TestEmpty");
+        final List<SgField> empty = clasz.getFields();
+        Assert.assertSame(clasz.getMethods(), empty);
+        Assert.assertSame(clasz.getConstructors(), empty);
+        Assert.assertSame(clasz.getInterfaces(), empty);
+        Assert.assertSame(clasz.getAnnotations(), empty);
+        Assert.assertSame(clasz.getClasses(), empty);
+        Assert.assertNull(clasz.findFieldByName("a"));
+        Assert.assertNull(clasz.findMethodByName("a"));
+        Assert.assertEquals(clasz.findMethodsByName("a").size(), 0);
+        Assert.assertFalse(clasz.hasAnnotation("a"));
+
+        final SgMethod method = new SgMethod(clasz, "public", SgClass.VOID, "test");
+        Assert.assertSame(method.getArguments(), empty);
+        Assert.assertSame(method.getBody(), empty);
+        Assert.assertSame(clasz.getFields(), empty);
+        Assert.assertSame(clasz.findMethodByName("test"), method);
+
+        clasz.freeze();
+        Assert.assertSame(clasz.getFields(), empty);
+        Assert.assertSame(method.getExceptions(), empty);
+        Assert.assertEquals(clasz.getMethods().size(), 1);
+
+    }
+
+    @Test
+    public void testEmptyModelAllocatesNoCollections() {
+
+        final SgClass clasz = new SgClass("org.fuin.onthefly", "TestLazy");
+        final SgMethod method = new SgMethod(clasz, "public", SgClass.VOID, "test");
+        final SgField field = new SgField(clasz, "private", SgClass.INT, "a", null);
+        Assert.assertEquals(method.getAllocatedCollections(), 0);
+        Assert.assertEquals(field.getAllocatedCollections(), 0);
+        // Methods, fields, members and the name and signature indexes
+        Assert.assertEquals(clasz.getAllocatedCollections(), 6);
+
+        final SgClass empty = new SgClass("org.fuin.onthefly", "TestLazyEmpty");
+        Assert.assertEquals(empty.getAllocatedCollections(), 0);
+        final SgMemoryEstimator estimator = new SgMemoryEstimator();
+        estimator.addClass(empty);
+        final long bytes = estimator.getBytes();
+        estimator.addClass(new SgClass("org.fuin.onthefly", "TestLazyOther"));
+        final SgMemoryEstimator single = new SgMemoryEstimator();
+        single.addClass(new SgClass("org.fuin.onthefly", "TestLazyOther"));
+        // The shared empty list is the only collection and is counted once
+        Assert.assertTrue(estimator.getBytes() < bytes + single.getBytes());
+
+        empty.freeze();
+        clasz.freeze();
+        Assert.assertEquals(empty.getAllocatedCollections(), 0);
+        Assert.assertEquals(method.getAllocatedCollections(), 0);
+        Assert.assertEquals(field.getAllocatedCollections(), 0);
+
+    }
+
 }
 // CHECKSTYLE:ON
@@ -0,0 +1,160 @@
+// CHECKSTYLE:OFF
+package org.fuin.srcgen4javassist;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.jar.JarOutputStream;
+import java.util.regex.Pattern;
+import java.util.zip.ZipEntry;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+public class SgClasspathScannerTest {
+
+    private static final Pattern LOCAL_OR_ANONYMOUS = Pattern.compile("\\$[0-9]");
+
+    private static File getTestClassesDir() throws Exception {
+        return new File(SgClasspathScannerTest.class.getProtectionDomain().getCodeSource()
+                .getLocation().toURI());
+    }
+
+    private static SgIntrospectionPolicy filter(final String pkg) {
+        return new SgIntrospectionPolicy(SgIntrospectionPolicy.UNLIMITED_DEPTH, Arrays
+                .asList(pkg), null);
+    }
+
+    private static List<String> names(final List<SgClass> classes) {
+        final List<String> list = new ArrayList<String>();
+        for (final SgClass clasz : classes) {
+            list.add(clasz.getName());
+        }
+        return list;
+    }
+
+    private static void collect(final List<String> names, final File dir, final String pkg) {
+        for (final File file : dir.listFiles()) {
+            if (file.isDirectory()) {
+                collect(names, file, pkg + "." + file.getName());
+            } else if (file.getName().endsWith(".class")
+                    && !LOCAL_OR_ANONYMOUS.matcher(file.getName()).find()) {
+                names.add(pkg + "." + file.getName().substring(0, file.getName().length() - 6));
+            }
+        }
+    }
+
+    @Test
+    public void testScanDirectory() throws Exception {
+
+        final File dir = getTestClassesDir();
+        final String pkg = SgClasspathScannerTest.class.getPackage().getName();
+        final List<String> expected = new ArrayList<String>();
+        collect(expected, new File(dir, pkg.replace('.', File.separatorChar)), pkg);
+        Collections.sort(expected);
+
+        final SgClassPool pool = new SgClassPool();
+        final List<SgClass> classes = new SgClasspathScanner(Arrays.asList(dir), filter(pkg))
+                .scan(pool);
+        Assert.assertEquals(names(classes), expected);
+        Assert.assertSame(pool.get(SgClasspathScannerTest.class.getName()), classes.get(Collections
+                .binarySearch(expected, SgClasspathScannerTest.class.getName())));
+
+        // Same result with a single thread
+        final List<SgClass> single = new SgClasspathScanner(Arrays.asList(dir), filter(pkg), 1,
+                getClass().getClassLoader()).scan(new SgClassPool());
+        Assert.assertEquals(names(single), expected);
+
+    }
+
+    @Test
+    public void testScanJar() throws Exception {
+
+        final Class<?> service = SgClassFileIntrospectorTest.Service.class;
+        final File jar = File.createTempFile("scanner", ".jar");
+        try {
+            final JarOutputStream out = new JarOutputStream(new FileOutputStream(jar));
+            try {
+                copy(out, service);
+                copy(out, SgClassFileIntrospectorTest.class);
+            } finally {
+                out.close();
+            }
+
+            final SgClassPool pool = new SgClassPool();
+            final List<SgClass> classes = new SgClasspathScanner(Arrays.asList(jar),
+                    SgIntrospectionPolicy.DEFAULT).scan(pool);
+            Assert.assertEquals(names(classes), Arrays.asList(SgClassFileIntrospectorTest.class
+                    .getName(), service.getName()));
+            final SgClass model = classes.get(1);
+            Assert.assertSame(model.getEnclosingClass(), classes.get(0));
+            Assert.assertEquals(model.getMethods().get(0).getName(), "find");
+            Assert.assertEquals(model.getMethods().get(0).getExceptions().get(0).getName(),
+                    IOException.class.getName());
+
+            // Package filter excludes everything
+            final SgIntrospectionPolicy excludeAll = new SgIntrospectionPolicy(
+                    SgIntrospectionPolicy.UNLIMITED_DEPTH, null, Arrays.asList("org"));
+            Assert.assertEquals(new SgClasspathScanner(Arrays.asList(jar), excludeAll).scan(
+                    new SgClassPool()).size(), 0);
+        } finally {
+            jar.delete();
+        }
+
+    }
+
+    @Test
+    public void testScanSkipsLocalAndAnonymousClasses() throws Exception {
+
+        final Class<?> anonymous = new Object() {
+        }.getClass();
+        class Local {
+        }
+        final File jar = File.createTempFile("scanner", ".jar");
+        try {
+            final JarOutputStream out = new JarOutputStream(new FileOutputStream(jar));
+            try {
+                copy(out, SgClasspathScannerTest.class);
+                copy(out, anonymous);
+                copy(out, Local.class);
+            } finally {
+                out.close();
+            }
+
+            final SgClassPool pool = new SgClassPool();
+            final List<SgClass> classes = new SgClasspathScanner(Arrays.asList(jar),
+                    SgIntrospectionPolicy.DEFAULT).scan(pool);
+            Assert.assertEquals(names(classes), Arrays.asList(SgClasspathScannerTest.class
+                    .getName()));
+            Assert.assertNull(pool.get(anonymous.getName()));
+            Assert.assertNull(pool.get(Local.class.getName()));
+        } finally {
+            jar.delete();
+        }
+
+    }
+
+    private static void copy(final JarOutputStream out, final Class<?> clasz) throws Exception {
+        final String name = clasz.getName().replace('.', '/') + ".class";
+        out.putNextEntry(new ZipEntry(name));
+        final InputStream in = new FileInputStream(new File(getTestClassesDir(), name));
+        try {
+            final byte[] buf = new byte[1024];
+            int count;
+            while ((count = in.read(buf)) != -1) {
+                out.write(buf, 0, count);
+            }
+        } finally {
+            in.close();
+        }
+        out.closeEntry();
+    }
+
+}
+// CHECKSTYLE:ON
@@ -0,0 +1,66 @@
+// CHECKSTYLE:OFF
+package org.fuin.srcgen4javassist;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+public class SgFingerprintTest {
+
+    private static SgClass createClass(final boolean reverseArguments) {
+        final SgClass clasz = new SgClass("org.fuin.onthefly", "TestFingerprint");
+        new SgField(clasz, "private", SgClass.INT, "count", "0");
+        final SgMethod method = new SgMethod(clasz, "public", SgClass.INT, "getCount");
+        method.addBodyLine("return count;");
+        final SgAnnotation annotation = new SgAnnotation("org.fuin.onthefly", "Anno");
+        if (reverseArguments) {
+            annotation.addArgument("b", new int[] { 1, 2 });
+            annotation.addArgument("a", "x");
+        } else {
+            annotation.addArgument("a", "x");
+            annotation.addArgument("b", new int[] { 1, 2 });
+        }
+        method.addAnnotation(annotation);
+        return clasz;
+    }
+
+    @Test
+    public void testMurmur3() {
+        // Reference values of MurmurHash3_x64_128 with seed 0
+        final SgFingerprint empty = SgFingerprint.hash(new byte[0]);
+        Assert.assertEquals(empty.getHigh(), 0L);
+        Assert.assertEquals(empty.getLow(), 0L);
+        final SgFingerprint hello = SgFingerprint.hash("hello".getBytes());
+        Assert.assertEquals(hello.getHigh(), 0xcbd8a7b341bd9b02L);
+        Assert.assertEquals(hello.getLow(), 0x5b1e906a48ae1d19L);
+        Assert.assertEquals(hello.toString(), "cbd8a7b341bd9b025b1e906a48ae1d19");
+    }
+
+    @Test
+    public void testSameContentSameFingerprint() {
+        final SgFingerprint fp1 = createClass(false).fingerprint();
+        final SgFingerprint fp2 = createClass(true).fingerprint();
+        Assert.assertEquals(fp1, fp2);
+        Assert.assertEquals(fp1.hashCode(), fp2.hashCode());
+    }
+
+    @Test
+    public void testChangedContent() {
+        final SgClass clasz = createClass(false);
+        final SgFingerprint before = clasz.fingerprint();
+        clasz.findMethodByName("getCount").addBodyLine("// Changed");
+        Assert.assertFalse(clasz.fingerprint().equals(before));
+    }
+
+    @Test
+    public void testCachedWhenFrozen() {
+        final SgClass clasz = createClass(false);
+        final SgFingerprint expected = clasz.fingerprint();
+        Assert.assertNotSame(clasz.fingerprint(), expected);
+        clasz.freeze();
+        final SgFingerprint frozen = clasz.fingerprint();
+        Assert.assertEquals(frozen, expected);
+        Assert.assertSame(clasz.fingerprint(), frozen);
+    }
+
+}
+// CHECKSTYLE:ON
@@ -0,0 +1,113 @@
+// CHECKSTYLE:OFF
+package org.fuin.srcgen4javassist;
+
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+public class SgIntrospectionPolicyTest {
+
+    public static interface TestService extends Serializable {
+
+        public List<String> find(String query);
+
+    }
+
+    @Test
+    public void testIsInScope() {
+        final SgIntrospectionPolicy policy = new SgIntrospectionPolicy(
+                SgIntrospectionPolicy.UNLIMITED_DEPTH, Arrays.asList("org.fuin", "java"),
+                Arrays.asList("java.util"));
+        Assert.assertTrue(policy.isInScope("org.fuin"));
+        Assert.assertTrue(policy.isInScope("org.fuin.srcgen4javassist"));
+        Assert.assertFalse(policy.isInScope("org.fuinx"));
+        Assert.assertTrue(policy.isInScope("java.lang"));
+        Assert.assertFalse(policy.isInScope("java.util"));
+        Assert.assertFalse(policy.isInScope("java.util.concurrent"));
+        Assert.assertFalse(policy.isInScope(""));
+        Assert.assertTrue(SgIntrospectionPolicy.DEFAULT.isInScope(""));
+    }
+
+    @Test
+    public void testIsFullModel() {
+        final SgIntrospectionPolicy policy = new SgIntrospectionPolicy(1);
+        Assert.assertTrue(policy.isFullModel("a", 0));
+        Assert.assertTrue(policy.isFullModel("a", 1));
+        Assert.assertFalse(policy.isFullModel("a", 2));
+        Assert.assertTrue(SgIntrospectionPolicy.DEFAULT.isFullModel("a", Integer.MAX_VALUE));
+    }
+
+    @Test
+    public void testCreateWithMaxDepth() {
+
+        final SgClassPool pool = new SgClassPool(new SgIntrospectionPolicy(0));
+        final SgClass clasz = SgClass.create(pool, TestService.class);
+
+        Assert.assertFalse(clasz.isStub());
+        Assert.assertEquals(clasz.getMethods().size(), 1);
+        final SgClass serializable = clasz.getInterfaces().get(0);
+        Assert.assertTrue(serializable.isStub());
+        Assert.assertEquals(serializable.getName(), Serializable.class.getName());
+        final SgMethod method = clasz.getMethods().get(0);
+        Assert.assertTrue(method.getReturnType().isStub());
+        Assert.assertEquals(method.getReturnType().getMethods().size(), 0);
+        Assert.assertSame(pool.get(String.class.getName()), method.getArguments().get(0)
+                .getType());
+
+    }
+
+    @Test
+    public void testCreateWithExcludedPackage() {
+
+        final SgClassPool pool = new SgClassPool(new SgIntrospectionPolicy(
+                SgIntrospectionPolicy.UNLIMITED_DEPTH, null, Arrays.asList("java")));
+        final SgClass clasz = SgClass.create(pool, TestService.class);
+        Assert.assertFalse(clasz.isStub());
+        Assert.assertTrue(clasz.getMethods().get(0).getReturnType().isStub());
+
+        // Explicit request stays a stub because the package is excluded
+        Assert.assertTrue(SgClass.create(pool, List.class).isStub());
+
+    }
+
+    @Test
+    public void testStubIsReplacedByFullModel() {
+
+        final SgClassPool pool = new SgClassPool(new SgIntrospectionPolicy(0));
+        SgClass.create(pool, TestService.class);
+        Assert.assertTrue(pool.get(Serializable.class.getName()).isStub());
+
+        final SgClass serializable = SgClass.create(pool, Serializable.class);
+        Assert.assertFalse(serializable.isStub());
+        Assert.assertSame(pool.get(Serializable.class.getName()), serializable);
+
+    }
+
+    @Test
+    public void testInnerStubIsUpgradedInPlace() {
+
+        final SgClassPool pool = new SgClassPool(new SgIntrospectionPolicy(0));
+        final SgClass treeMap = SgClass.create(pool, TreeMap.class);
+        final SgClass stub = treeMap.findMethodByName("firstEntry").getReturnType();
+        Assert.assertTrue(stub.isStub());
+
+        final SgClass entry = SgClass.create(pool, Map.Entry.class);
+        Assert.assertSame(entry, stub);
+        Assert.assertFalse(stub.isStub());
+        Assert.assertTrue(stub.getMethods().size() > 0);
+
+        final SgClass map = SgClass.create(pool, Map.class);
+        Assert.assertFalse(map.isStub());
+        Assert.assertSame(entry.getEnclosingClass(), map);
+        Assert.assertEquals(map.getClasses().size(), 1);
+        Assert.assertSame(map.getClasses().get(0), entry);
+
+    }
+
+}
+// CHECKSTYLE:ON
@@ -0,0 +1,101 @@
+// CHECKSTYLE:OFF
+package org.fuin.srcgen4javassist;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+public class SgMethodDescriptorTest {
+
+    @Test
+    public void testCreateFromReflection() {
+
+        final SgMethodDescriptor desc = SgMethodDescriptor.create("foo", new Class<?>[] {
+                String.class, int.class, String[].class, int[][].class, Map.Entry.class });
+        Assert.assertEquals(desc.getName(), "foo");
+        Assert.assertEquals(desc.getKey(),
+                "foo(java.lang.String,int,java.lang.String[],int[][],java.util.Map$Entry)");
+        Assert.assertEquals(desc.toString(), desc.getKey());
+
+    }
+
+    @Test
+    public void testEquals() {
+
+        final SgMethodDescriptor desc1 = SgMethodDescriptor.create("foo",
+                new Class<?>[] { java.util.Date.class });
+        final SgMethodDescriptor desc2 = SgMethodDescriptor.create("foo",
+                new Class<?>[] { java.util.Date.class });
+        final SgMethodDescriptor desc3 = SgMethodDescriptor.create("foo",
+                new Class<?>[] { java.sql.Date.class });
+        Assert.assertEquals(desc2, desc1);
+        Assert.assertEquals(desc2.hashCode(), desc1.hashCode());
+        Assert.assertSame(desc2.getKey(), desc1.getKey());
+        Assert.assertFalse(desc1.equals(desc3));
+
+    }
+
+    @Test
+    public void testSameNamedArrays() {
+
+        final Class<?>[] utilTypes = new Class<?>[] { java.util.Date[].class };
+        final Class<?>[] sqlTypes = new Class<?>[] { java.sql.Date[].class };
+        final SgMethodDescriptor utilDesc = SgMethodDescriptor.create("foo", utilTypes);
+        final SgMethodDescriptor sqlDesc = SgMethodDescriptor.create("foo", sqlTypes);
+        Assert.assertEquals(utilDesc.getKey(), "foo(java.util.Date[])");
+        Assert.assertEquals(sqlDesc.getKey(), "foo(java.sql.Date[])");
+        Assert.assertFalse(utilDesc.equals(sqlDesc));
+
+        final SgClassPool pool = new SgClassPool();
+        final SgClass utilArray = SgClass.create(pool, java.util.Date[].class);
+        final SgClass sqlArray = SgClass.create(pool, java.sql.Date[].class);
+        Assert.assertEquals(utilArray.getName(), sqlArray.getName());
+        final SgClass clasz = new SgClass("org.fuin.onthefly", "TestArrays");
+        final SgMethod utilMethod = new SgMethod(clasz, "public", SgClass.VOID, "foo");
+        new SgArgument(utilMethod, utilArray, "arg0");
+        final SgMethod sqlMethod = new SgMethod(clasz, "public", SgClass.VOID, "foo");
+        new SgArgument(sqlMethod, sqlArray, "arg0");
+        Assert.assertEquals(utilMethod.getDescriptor(), utilDesc);
+        Assert.assertEquals(sqlMethod.getDescriptor(), sqlDesc);
+        Assert.assertSame(clasz.findMethod(utilDesc), utilMethod);
+        Assert.assertSame(clasz.findMethod(sqlDesc), sqlMethod);
+
+        final SgClass introspected = new SgClassFileIntrospector().create(new SgClassPool(),
+                java.util.Date[].class.getName());
+        Assert.assertEquals(SgMethodDescriptor.create("foo", Arrays.asList(introspected)),
+                utilDesc);
+
+    }
+
+    @Test
+    public void testSameAsModel() {
+
+        final SgClassPool pool = new SgClassPool();
+        final Class<?>[] types = new Class<?>[] { String.class, int.class, String[].class,
+                Map.Entry[].class, Map.Entry.class };
+        final SgClass clasz = new SgClass("org.fuin.onthefly", "TestDescriptor");
+        final SgMethod method = new SgMethod(clasz, "public", SgClass.VOID, "foo");
+        final List<SgClass> sgTypes = new ArrayList<SgClass>();
+        for (int i = 0; i < types.length; i++) {
+            final SgClass type = SgClass.create(pool, types[i]);
+            sgTypes.add(type);
+            new SgArgument(method, type, "arg" + i);
+        }
+        final SgMethodDescriptor expected = SgMethodDescriptor.create("foo", types);
+        Assert.assertEquals(method.getDescriptor(), expected);
+        Assert.assertEquals(SgMethodDescriptor.create("foo", sgTypes), expected);
+        Assert.assertSame(clasz.findMethod(expected), method);
+
+        clasz.freeze();
+        Assert.assertSame(method.getDescriptor(), method.getDescriptor());
+        Assert.assertSame(clasz.findMethod(expected), method);
+        Assert.assertNull(clasz.findMethod(SgMethodDescriptor.create("foo", new Class<?>[0])));
+
+    }
+
+}
+// CHECKSTYLE:ON
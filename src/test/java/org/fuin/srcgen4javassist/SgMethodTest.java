@@ -73,5 +73,21 @@ public class SgMethodTest extends SgBehaviorTest {
         Assert.assertEquals(method.getBody().get(0), line);
     }
 
+    @Test
+    public void testEquals() {
+        final SgClass other = new SgClass("org.fuin.onthefly", "Other");
+        final SgMethod m1 = new SgMethod(clasz, "public", SgClass.VOID, "setCount");
+        new SgArgument(m1, SgClass.INT, "count");
+        m1.addBodyLine("this.count = count;");
+        final SgMethod m2 = new SgMethod(other, "public", SgClass.VOID, "setCount");
+        new SgArgument(m2, SgClass.INT, "count");
+        Assert.assertFalse(m1.equals(m2));
+        m2.addBodyLine("this.count = count;");
+        Assert.assertEquals(m1, m2);
+        Assert.assertEquals(m1.hashCode(), m2.hashCode());
+        m2.addException(new SgClass("java.io", "IOException"));
+        Assert.assertFalse(m1.equals(m2));
+    }
+
 }
 // CHECKSTYLE:ON
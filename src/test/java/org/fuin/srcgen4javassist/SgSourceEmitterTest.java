@@ -0,0 +1,94 @@
+// CHECKSTYLE:OFF
+package org.fuin.srcgen4javassist;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.testng.Assert;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+public class SgSourceEmitterTest {
+
+    private File dir;
+
+    @BeforeMethod
+    public void setup() throws IOException {
+        dir = File.createTempFile("emitter", "");
+        dir.delete();
+        dir.mkdir();
+    }
+
+    @AfterMethod
+    public void teardown() {
+        delete(dir);
+        dir = null;
+    }
+
+    private static void delete(final File file) {
+        final File[] files = file.listFiles();
+        if (files != null) {
+            for (int i = 0; i < files.length; i++) {
+                delete(files[i]);
+            }
+        }
+        file.delete();
+    }
+
+    private static List<SgClass> createClasses() {
+        final List<SgClass> classes = new ArrayList<SgClass>();
+        for (int i = 0; i < 10; i++) {
+            final SgClass clasz = new SgClass("org.fuin.onthefly", "TestEmitter" + i);
+            new SgField(clasz, "private", SgClass.INT, "count", "" + i);
+            final SgMethod method = new SgMethod(clasz, "public", SgClass.INT, "getCount");
+            method.addBodyLine("return count;");
+            new SgClass("public static", "org.fuin.onthefly", "Inner", false, clasz);
+            classes.add(clasz);
+            classes.add(clasz.getClasses().get(0));
+        }
+        return classes;
+    }
+
+    @Test
+    public void testWriteOnlyIfChanged() throws IOException {
+
+        final SgSourceEmitter emitter = new SgSourceEmitter(dir, Charset.forName("UTF-8"), 3);
+        final List<SgClass> classes = createClasses();
+
+        final SgEmitResult first = emitter.emit(classes);
+        Assert.assertEquals(first.getWritten(), 10);
+        Assert.assertEquals(first.getSkipped(), 0);
+        long size = 0;
+        for (int i = 0; i < classes.size(); i += 2) {
+            final File file = new File(dir, classes.get(i).getNameAsSrcFilename());
+            Assert.assertTrue(file.exists());
+            size = size + file.length();
+        }
+        Assert.assertEquals(first.getBytesWritten(), size);
+
+        final SgEmitResult second = emitter.emit(classes);
+        Assert.assertEquals(second.getWritten(), 0);
+        Assert.assertEquals(second.getSkipped(), 10);
+        Assert.assertEquals(second.getBytesWritten(), 0);
+
+        classes.get(4).findMethodByName("getCount").addBodyLine("// Changed");
+        final SgEmitResult third = emitter.emit(classes);
+        Assert.assertEquals(third.getWritten(), 1);
+        Assert.assertEquals(third.getSkipped(), 9);
+        Assert.assertEquals(third.getBytesWritten(), classes.get(4).toString(true).length());
+
+    }
+
+    @Test
+    public void testEmpty() throws IOException {
+        final SgEmitResult result = new SgSourceEmitter(dir).emit(new ArrayList<SgClass>());
+        Assert.assertEquals(result.getWritten(), 0);
+        Assert.assertEquals(result.getSkipped(), 0);
+    }
+
+}
+// CHECKSTYLE:ON
@@ -0,0 +1,87 @@
+// CHECKSTYLE:OFF
+package org.fuin.srcgen4javassist;
+
+import java.io.IOException;
+import java.io.Serializable;
+import java.io.StringWriter;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+public class SgSourceRendererTest {
+
+    private static SgClass createClass() {
+        final SgClass clasz = new SgClass("public", "org.fuin.onthefly", "TestRenderer",
+                false, null);
+        clasz.addInterface(SgClass.create(new SgClassPool(), Serializable.class));
+        final SgAnnotation anno = new SgAnnotation("org.fuin.onthefly", "Anno");
+        anno.addArgument("value", "\"x\"");
+        clasz.addAnnotation(anno);
+        new SgField(clasz, "private", SgClass.INT, "count", "0");
+        final SgConstructor constructor = new SgConstructor(clasz);
+        new SgArgument(constructor, "final", SgClass.INT, "count");
+        constructor.addBodyLine("this.count = count;");
+        final SgMethod method = new SgMethod(clasz, "public", SgClass.INT, "getCount");
+        method.addAnnotation(anno);
+        method.addException(SgClass.create(new SgClassPool(), IOException.class));
+        method.addBodyLine("return count;");
+        final SgClass inner = new SgClass("public static", "org.fuin.onthefly", "Inner", false,
+                clasz);
+        new SgMethod(inner, "public", SgClass.VOID, "run");
+        return clasz;
+    }
+
+    @Test
+    public void testSameAsToString() throws IOException {
+        final SgClass clasz = createClass();
+        final StringWriter writer = new StringWriter();
+        new SgSourceRenderer(writer).renderClass(clasz, true);
+        Assert.assertEquals(writer.toString(), clasz.toString(true));
+        Assert.assertEquals(writer.toString(), "package org.fuin.onthefly;\n" + "\n"
+                + "@org.fuin.onthefly.Anno(\"x\")\n"
+                + "public class TestRenderer implements java.io.Serializable {\n"
+                + "private int count = 0;\n" + "\n" + "\n" + "\n"
+                + "public TestRenderer(final int count){\n" + "this.count = count;\n" + "}\n"
+                + "\n" + "\n" + "\n" + "@org.fuin.onthefly.Anno(\"x\")\n"
+                + "public int getCount() throws java.io.IOException{\n" + "return count;\n"
+                + "}\n" + "\n" + "\n" + "public static class Inner {\n" + "\n" + "\n"
+                + "public void run(){\n" + "// No method source available\n" + "}\n" + "\n"
+                + "\n" + "}\n" + "\n" + "}\n");
+    }
+
+    @Test
+    public void testMembers() throws IOException {
+        final SgClass clasz = createClass();
+        final SgMethod method = clasz.getMethods().get(0);
+        final StringBuilder sb = new StringBuilder();
+        final SgSourceRenderer renderer = new SgSourceRenderer(sb);
+        renderer.renderMethod(method, false);
+        Assert.assertEquals(sb.toString(), method.toString(false));
+        sb.setLength(0);
+        renderer.renderMethodSignature(method);
+        Assert.assertEquals(sb.toString(), method.getSignature());
+        sb.setLength(0);
+        renderer.renderConstructor(clasz.getConstructors().get(0));
+        Assert.assertEquals(sb.toString(), clasz.getConstructors().get(0).toString());
+        sb.setLength(0);
+        renderer.renderField(clasz.getFields().get(0));
+        Assert.assertEquals(sb.toString(), clasz.getFields().get(0).toString());
+    }
+
+    @Test
+    public void testFrozen() throws IOException {
+        final SgClass clasz = createClass();
+        final String expected = clasz.toString(true);
+        clasz.freeze();
+        final StringBuilder sb = new StringBuilder();
+        new SgSourceRenderer(sb).renderClass(clasz, true);
+        Assert.assertEquals(sb.toString(), expected);
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void testNullTarget() {
+        new SgSourceRenderer(null);
+    }
+
+}
+// CHECKSTYLE:ON
@@ -88,7 +88,69 @@ public class SgUtilsTest {
         Assert.assertEquals(SgUtils.toModifiers(null), 0);
         Assert.assertEquals(SgUtils.toModifiers(""), 0);
         Assert.assertEquals(SgUtils.toModifiers(" "), 0);
+        Assert.assertEquals(SgUtils.toModifiers("  public\tstatic  final "), Modifier.PUBLIC
+                | Modifier.STATIC | Modifier.FINAL);
         
     }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void modifiersFromStringUnknown() {
+        SgUtils.toModifiers("public publicx");
+    }
+
+    @Test
+    public void modifierMask() {
+        final SgClass clasz = new SgClass("public abstract", "org.fuin.onthefly", "Mask", false,
+                null);
+        Assert.assertEquals(clasz.getModifierMask(), Modifier.PUBLIC | Modifier.ABSTRACT);
+        final SgField field = new SgField(clasz, "private static", SgClass.INT, "a", "0");
+        Assert.assertEquals(field.getModifierMask(), Modifier.PRIVATE | Modifier.STATIC);
+        final SgMethod method = new SgMethod(clasz, "", SgClass.VOID, "m");
+        Assert.assertEquals(method.getModifierMask(), 0);
+    }
+
+    private static void assertIllegal(final int modifiers, final String message) {
+        try {
+            SgUtils.checkMethodModifiers(modifiers);
+            Assert.fail("Expected an exception for: " + Modifier.toString(modifiers));
+        } catch (final IllegalArgumentException ex) {
+            Assert.assertTrue(ex.getMessage().startsWith(message), ex.getMessage());
+        }
+    }
+
+    @Test
+    public void checkModifiers() {
+        SgUtils.checkMethodModifiers(Modifier.PUBLIC | Modifier.STATIC | Modifier.FINAL);
+        SgUtils.checkMethodModifiers(Modifier.PROTECTED | Modifier.ABSTRACT);
+        SgUtils.checkFieldModifiers(Modifier.PRIVATE | Modifier.TRANSIENT);
+        SgUtils.checkConstructorModifiers(Modifier.PUBLIC);
+        SgUtils.checkClassModifiers(Modifier.PUBLIC | Modifier.ABSTRACT, false, false);
+
+        assertIllegal(Modifier.TRANSIENT, "The modifier 'transient' is not allowed for 'Method'");
+        assertIllegal(Modifier.PUBLIC | Modifier.PRIVATE, "A method declaration can contain");
+        assertIllegal(Modifier.ABSTRACT | Modifier.STATIC, "Abstract methods cannot");
+        assertIllegal(Modifier.NATIVE | Modifier.STRICT, "Methods cannot be declared native");
+
+        try {
+            SgUtils.checkConstructorModifiers(Modifier.PUBLIC | Modifier.STATIC);
+            Assert.fail();
+        } catch (final IllegalArgumentException ex) {
+            Assert.assertEquals(ex.getMessage(),
+                    "The modifier 'static' is not allowed for 'Constructor'!");
+        }
+        try {
+            SgUtils.checkFieldModifiers(Modifier.FINAL | Modifier.VOLATILE);
+            Assert.fail();
+        } catch (final IllegalArgumentException ex) {
+            Assert.assertTrue(ex.getMessage().startsWith("Final fields cannot be volatile!"));
+        }
+        try {
+            SgUtils.checkClassModifiers(Modifier.ABSTRACT | Modifier.FINAL, false, false);
+            Assert.fail();
+        } catch (final IllegalArgumentException ex) {
+            Assert.assertTrue(ex.getMessage().startsWith("Classes cannot be declared"));
+        }
+    }
+
 }
 // CHECKSTYLE:ON
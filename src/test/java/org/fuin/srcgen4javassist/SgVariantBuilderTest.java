@@ -0,0 +1,137 @@
+// CHECKSTYLE:OFF
+package org.fuin.srcgen4javassist;
+
+import java.util.Collections;
+import java.util.List;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+public class SgVariantBuilderTest {
+
+    private static SgClass createClass(final String name, final String body, final String init) {
+        final SgClass clasz = new SgClass("org.fuin.onthefly", name);
+        new SgField(clasz, "private", SgClass.INT, "a", init);
+        new SgField(clasz, "private", SgClass.INT, "b", "2");
+        final SgConstructor constructor = new SgConstructor(clasz, "public");
+        constructor.addBodyLine("super();");
+        final SgMethod getA = new SgMethod(clasz, "public", SgClass.INT, "getA");
+        getA.addBodyLine("return a;");
+        final SgMethod calc = new SgMethod(clasz, "public", SgClass.INT, "calc");
+        new SgArgument(calc, SgClass.INT, "x");
+        calc.addException(SgClass.create(new SgClassPool(), IllegalStateException.class));
+        calc.addBodyLine(body);
+        return clasz;
+    }
+
+    private static List<String> lines(final String line) {
+        return Collections.singletonList(line);
+    }
+
+    @Test
+    public void testVariant() {
+
+        final SgClass base = createClass("TestVariant", "return x + a;", "1");
+        base.freeze();
+
+        final SgVariantBuilder builder = base.createVariant();
+        builder.setMethodBody(base.findMethodByName("calc"), lines("return x * b;"));
+        builder.setFieldInitializer(base.findFieldByName("a"), "5");
+        final SgClass variant = builder.build();
+
+        final SgClass expected = createClass("TestVariant", "return x * b;", "5");
+        Assert.assertTrue(variant.isFrozen());
+        Assert.assertSame(variant.getVariantBase(), base);
+        Assert.assertEquals(variant.toString(), expected.toString());
+        Assert.assertEquals(variant, expected);
+        Assert.assertFalse(variant.equals(base));
+        Assert.assertEquals(variant.getMethods().size(), 2);
+
+        // Unchanged members are shared
+        Assert.assertSame(variant.getMethods().get(0), base.getMethods().get(0));
+        Assert.assertSame(variant.getFields().get(1), base.getFields().get(1));
+        Assert.assertSame(variant.getConstructors().get(0), base.getConstructors().get(0));
+
+        // Changed members are owned by the variant
+        final SgMethod calc = variant.findMethodByName("calc");
+        Assert.assertSame(calc.getOwner(), variant);
+        Assert.assertTrue(calc.isFrozen());
+        Assert.assertEquals(calc.getExceptions().size(), 1);
+        Assert.assertSame(variant.getMethods().get(1), calc);
+        Assert.assertEquals(variant.findFieldByName("a").getInitializer(), "5");
+
+        // Base is unchanged
+        Assert.assertEquals(base.findMethodByName("calc").getBody(), lines("return x + a;"));
+        Assert.assertEquals(base.findFieldByName("a").getInitializer(), "1");
+
+    }
+
+    @Test
+    public void testVariantOfVariant() {
+
+        final SgClass base = createClass("TestVariant2", "return x + a;", "1");
+        base.freeze();
+        final SgClass first = base.createVariant().setFieldInitializer(
+                base.findFieldByName("a"), "5").build();
+        final SgClass second = first.createVariant().setMethodBody(
+                first.findMethodByName("calc"), lines("return x * b;")).build();
+
+        final SgClass expected = createClass("TestVariant2", "return x * b;", "5");
+        Assert.assertEquals(second.toString(), expected.toString());
+        Assert.assertSame(second.getFields().get(0), first.getFields().get(0));
+
+        // Members of the first base are mapped to the current ones
+        final SgClass third = second.createVariant().setFieldInitializer(
+                base.findFieldByName("a"), "9").setMethodBody(base.findMethodByName("calc"),
+                lines("return x - b;")).build();
+        final SgClass expected3 = createClass("TestVariant2", "return x - b;", "9");
+        Assert.assertEquals(third.toString(), expected3.toString());
+        Assert.assertEquals(second.findFieldByName("a").getInitializer(), "5");
+
+    }
+
+    @Test
+    public void testRenamedVariant() {
+
+        final SgClass base = createClass("TestVariant3", "return x + a;", "1");
+        base.freeze();
+        final SgClass variant = base.createVariant("org.fuin.onthefly", "TestVariant3b").build();
+
+        final SgClass expected = createClass("TestVariant3b", "return x + a;", "1");
+        Assert.assertEquals(variant.getName(), "org.fuin.onthefly.TestVariant3b");
+        Assert.assertEquals(variant.toString(), expected.toString());
+        Assert.assertSame(variant.getConstructors().get(0).getOwner(), variant);
+        Assert.assertSame(variant.getMethods().get(0), base.getMethods().get(0));
+
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void testBaseNotFrozen() {
+
+        createClass("TestVariant4", "return x;", "1").createVariant();
+
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void testForeignMember() {
+
+        final SgClass base = createClass("TestVariant5", "return x;", "1");
+        base.freeze();
+        final SgClass other = createClass("TestVariant6", "return x;", "1");
+        base.createVariant().setMethodBody(other.findMethodByName("calc"), lines("return 0;"));
+
+    }
+
+    @Test(expectedExceptions = IllegalStateException.class)
+    public void testBuildTwice() {
+
+        final SgClass base = createClass("TestVariant7", "return x;", "1");
+        base.freeze();
+        final SgVariantBuilder builder = base.createVariant();
+        builder.build();
+        builder.build();
+
+    }
+
+}
+// CHECKSTYLE:ON
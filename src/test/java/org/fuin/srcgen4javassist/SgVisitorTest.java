@@ -0,0 +1,151 @@
+// CHECKSTYLE:OFF
+package org.fuin.srcgen4javassist;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+public class SgVisitorTest {
+
+    private static SgClass createClass() {
+        final SgClassPool pool = new SgClassPool();
+        final SgClass clasz = new SgClass("org.fuin.onthefly", "TestVisitor");
+        clasz.addAnnotation(new SgAnnotation("org.fuin.onthefly", "A"));
+        clasz.addInterface(SgClass.create(pool, Runnable.class));
+        final SgField field = new SgField(clasz, "private", SgClass.INT, "a", null);
+        field.addAnnotation(new SgAnnotation("org.fuin.onthefly", "F"));
+        new SgConstructor(clasz, "public").addBodyLine("super();");
+        final SgMethod method = new SgMethod(clasz, "public", SgClass.INT, "calc");
+        final SgArgument arg = new SgArgument(method, SgClass.INT, "x");
+        arg.addAnnotation(new SgAnnotation("org.fuin.onthefly", "X"));
+        new SgArgument(method, SgClass.INT, "y");
+        method.addException(SgClass.create(pool, IllegalStateException.class));
+        method.addBodyLine("return x + y;");
+        final SgClass inner = new SgClass("private", "org.fuin.onthefly", "Inner", false, clasz);
+        new SgMethod(inner, "public", SgClass.VOID, "run");
+        return clasz;
+    }
+
+    static final class Recorder implements SgVisitor {
+
+        private final StringBuilder sb = new StringBuilder();
+
+        private final boolean enterMembers;
+
+        Recorder(final boolean enterMembers) {
+            this.enterMembers = enterMembers;
+        }
+
+        public boolean visitClass(final SgClass clasz) {
+            sb.append("class " + clasz.getSimpleName() + "|");
+            return true;
+        }
+
+        public void visitAnnotation(final SgAnnotation annotation, final int index,
+                final int count) {
+            sb.append("annotation " + annotation.getSimpleName() + " " + index + "/" + count
+                    + "|");
+        }
+
+        public void visitInterface(final SgClass intf, final int index, final int count) {
+            sb.append("interface " + intf.getSimpleName() + "|");
+        }
+
+        public boolean visitField(final SgField field, final int index, final int count) {
+            sb.append("field " + field.getName() + "|");
+            return enterMembers;
+        }
+
+        public boolean visitConstructor(final SgConstructor constructor, final int index,
+                final int count) {
+            sb.append("constructor|");
+            return enterMembers;
+        }
+
+        public boolean visitMethod(final SgMethod method, final int index, final int count) {
+            sb.append("method " + method.getName() + "|");
+            return enterMembers;
+        }
+
+        public void visitArgument(final SgArgument argument, final int index, final int count) {
+            sb.append("argument " + argument.getName() + " " + index + "/" + count + "|");
+        }
+
+        public void visitException(final SgClass exception, final int index, final int count) {
+            sb.append("exception " + exception.getSimpleName() + "|");
+        }
+
+        public void visitBodyLine(final String line, final int index, final int count) {
+            sb.append("line " + line + "|");
+        }
+
+        public void endClass(final SgClass clasz) {
+            sb.append("end " + clasz.getSimpleName() + "|");
+        }
+
+    }
+
+    static final class SkipClass extends SgVisitorAdapter {
+
+        @Override
+        public boolean visitClass(final SgClass clasz) {
+            return false;
+        }
+
+        @Override
+        public boolean visitField(final SgField field, final int index, final int count) {
+            throw new IllegalStateException("Should not be called");
+        }
+
+    }
+
+    @Test
+    public void testOrder() {
+
+        final Recorder recorder = new Recorder(true);
+        createClass().accept(recorder);
+        Assert.assertEquals(recorder.sb.toString(), "class TestVisitor|annotation A 0/1|"
+                + "interface Runnable|field a|annotation F 0/1|constructor|line super();|"
+                + "method calc|argument x 0/2|annotation X 0/1|argument y 1/2|"
+                + "exception IllegalStateException|line return x + y;|"
+                + "class Inner|method run|end Inner|end TestVisitor|");
+
+    }
+
+    @Test
+    public void testSkipMembers() {
+
+        final Recorder recorder = new Recorder(false);
+        final SgClass clasz = createClass();
+        clasz.freeze();
+        clasz.accept(recorder);
+        Assert.assertEquals(recorder.sb.toString(), "class TestVisitor|annotation A 0/1|"
+                + "interface Runnable|field a|constructor|method calc|"
+                + "class Inner|method run|end Inner|end TestVisitor|");
+
+    }
+
+    @Test
+    public void testSkipClass() {
+
+        final SgVisitorAdapter visitor = new SkipClass();
+        createClass().accept(visitor);
+
+    }
+
+    @Test
+    public void testVariant() {
+
+        final SgClass base = createClass();
+        base.freeze();
+        final SgClass variant = base.createVariant().setMethodBody(
+                base.findMethodByName("calc"), java.util.Collections.singletonList("return 0;"))
+                .build();
+        final Recorder recorder = new Recorder(true);
+        variant.accept(recorder);
+        Assert.assertTrue(recorder.sb.toString().contains("line return 0;|"));
+        Assert.assertTrue(recorder.sb.toString().contains("line super();|"));
+
+    }
+
+}
+// CHECKSTYLE:ON
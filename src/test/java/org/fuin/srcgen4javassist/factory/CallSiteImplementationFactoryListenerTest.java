@@ -0,0 +1,219 @@
+// CHECKSTYLE:OFF
+package org.fuin.srcgen4javassist.factory;
+
+import java.lang.ref.WeakReference;
+import java.util.List;
+
+import org.fuin.srcgen4javassist.ByteCodeGenerator;
+import org.fuin.srcgen4javassist.SgClassPool;
+import org.fuin.srcgen4javassist.SgMethodDescriptor;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+public class CallSiteImplementationFactoryListenerTest {
+
+    public interface Calculator {
+
+        public int calc(int a, int b);
+
+        public String name();
+
+    }
+
+    static final class ConstantInvoker implements Invoker {
+
+        private final int value;
+
+        ConstantInvoker(final int value) {
+            this.value = value;
+        }
+
+        public void invoke(final int methodIndex, final InvocationFrame frame) {
+            frame.setReturnLong(value);
+        }
+
+    }
+
+    static final class CountingLinker implements Linker {
+
+        int links;
+
+        public Invoker link(final RelinkableCallSite site) {
+            links++;
+            if (site.getDescriptor().getName().equals("name")) {
+                return new NameInvoker();
+            }
+            return new AddInvoker();
+        }
+
+    }
+
+    static final class AddInvoker implements Invoker {
+
+        public void invoke(final int methodIndex, final InvocationFrame frame) {
+            frame.setReturnLong(frame.getInt(0) + frame.getInt(1));
+        }
+
+    }
+
+    static final class ReceiverInvoker implements Invoker {
+
+        public void invoke(final int methodIndex, final InvocationFrame frame) {
+            frame.setReturnObject(String.valueOf(System.identityHashCode(frame.getReceiver())));
+        }
+
+    }
+
+    static final class NameInvoker implements Invoker {
+
+        public void invoke(final int methodIndex, final InvocationFrame frame) {
+            frame.setReturnObject("calc" + methodIndex);
+        }
+
+    }
+
+    private static Calculator create(final ImplementationFactory factory,
+            final CallSiteImplementationFactoryListener listener, final String name)
+            throws Exception {
+        final Class<?> implClass = factory.createClass(ByteCodeGenerator
+                .createWithCurrentThreadContextClassLoader(), "org.fuin.onthefly", name, null,
+                null, listener, Calculator.class);
+        return (Calculator) implClass.newInstance();
+    }
+
+    @Test
+    public void testRelink() throws Exception {
+
+        final SgClassPool pool = new SgClassPool();
+        final ImplementationFactory factory = new ImplementationFactory(pool, false, 0, true);
+        final CountingLinker linker = new CountingLinker();
+        final CallSiteImplementationFactoryListener listener = new CallSiteImplementationFactoryListener(
+                pool, linker);
+        final Calculator first = create(factory, listener, "CallSiteTest1");
+        final Calculator second = create(factory, listener, "CallSiteTest2");
+
+        final List<RelinkableCallSite> sites = listener.getCallSites();
+        Assert.assertEquals(sites.size(), 2);
+        final RelinkableCallSite calcSite = listener.getCallSite(SgMethodDescriptor.create(
+                "calc", new Class<?>[] { int.class, int.class }));
+        Assert.assertFalse(calcSite.isLinked());
+        Assert.assertEquals(linker.links, 0);
+
+        // Linked with the first call and shared by both classes
+        Assert.assertEquals(first.calc(1, 2), 3);
+        Assert.assertEquals(second.calc(3, 4), 7);
+        Assert.assertEquals(linker.links, 1);
+        Assert.assertTrue(calcSite.isLinked());
+        Assert.assertEquals(first.name(), "calc"
+                + listener.getCallSite(SgMethodDescriptor.create("name", new Class<?>[0]))
+                        .getIndex());
+        Assert.assertEquals(linker.links, 2);
+
+        // Change behavior without generating a class
+        calcSite.setTarget(new ConstantInvoker(5));
+        Assert.assertEquals(first.calc(1, 2), 5);
+        Assert.assertEquals(second.calc(1, 2), 5);
+
+        listener.relinkAll();
+        Assert.assertFalse(calcSite.isLinked());
+        Assert.assertEquals(first.calc(1, 2), 3);
+        Assert.assertEquals(linker.links, 3);
+
+        // The object the method was called on is passed to the target
+        listener.getCallSite(SgMethodDescriptor.create("name", new Class<?>[0])).setTarget(
+                new ReceiverInvoker());
+        Assert.assertEquals(second.name(), String.valueOf(System.identityHashCode(second)));
+
+    }
+
+    @Test
+    public void testListenerIsNotRetained() throws Exception {
+
+        final SgClassPool pool = new SgClassPool();
+        final ImplementationFactory factory = new ImplementationFactory(pool);
+        Linker linker = new CountingLinker();
+        CallSiteImplementationFactoryListener listener = new CallSiteImplementationFactoryListener(
+                pool, linker);
+        factory.create("org.fuin.onthefly", "CallSiteTest4", listener, Calculator.class);
+        Assert.assertEquals(listener.getCallSites().size(), 2);
+
+        final WeakReference<Linker> ref = new WeakReference<Linker>(linker);
+        linker = null;
+        listener = null;
+        for (int i = 0; (i < 50) && (ref.get() != null); i++) {
+            System.gc();
+            Thread.sleep(10);
+        }
+        Assert.assertNull(ref.get());
+
+    }
+
+    @Test
+    public void testClassWorksWithoutListener() throws Exception {
+
+        final SgClassPool pool = new SgClassPool();
+        final ImplementationFactory factory = new ImplementationFactory(pool);
+        CallSiteImplementationFactoryListener listener = new CallSiteImplementationFactoryListener(
+                pool, new CountingLinker());
+        final Class<?> implClass = factory.createClass(new ByteCodeGenerator(),
+                "org.fuin.onthefly", "CallSiteTest5", null, null, listener, Calculator.class);
+
+        final WeakReference<CallSiteImplementationFactoryListener> ref = new WeakReference<CallSiteImplementationFactoryListener>(
+                listener);
+        listener = null;
+        for (int i = 0; (i < 50) && (ref.get() != null); i++) {
+            System.gc();
+            Thread.sleep(10);
+        }
+        Assert.assertNull(ref.get());
+
+        final Calculator calc = (Calculator) implClass.newInstance();
+        Assert.assertEquals(calc.calc(1, 2), 3);
+
+    }
+
+    @Test
+    public void testRelinkWhileLinking() {
+
+        final RelinkableCallSite[] holder = new RelinkableCallSite[1];
+        final Invoker other = new ConstantInvoker(7);
+        final RelinkableCallSite site = new RelinkableCallSite(new Linker() {
+            public Invoker link(final RelinkableCallSite s) {
+                // Another thread sets a target while linking
+                holder[0].setTarget(other);
+                return new AddInvoker();
+            }
+        }, SgMethodDescriptor.create("calc", new Class<?>[] { int.class, int.class }), 0);
+        holder[0] = site;
+        Assert.assertSame(site.getTarget(), other);
+        Assert.assertSame(site.getTarget(), other);
+
+    }
+
+    @Test
+    public void testNullTarget() throws Exception {
+
+        final SgClassPool pool = new SgClassPool();
+        final ImplementationFactory factory = new ImplementationFactory(pool);
+        final CallSiteImplementationFactoryListener listener = new CallSiteImplementationFactoryListener(
+                pool, new NullLinker());
+        final Calculator calc = create(factory, listener, "CallSiteTest3");
+        try {
+            calc.calc(1, 2);
+            Assert.fail();
+        } catch (final IllegalStateException ex) {
+            // OK
+        }
+
+    }
+
+    static final class NullLinker implements Linker {
+
+        public Invoker link(final RelinkableCallSite site) {
+            return null;
+        }
+
+    }
+
+}
+// CHECKSTYLE:ON
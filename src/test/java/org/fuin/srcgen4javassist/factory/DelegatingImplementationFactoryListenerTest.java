@@ -0,0 +1,92 @@
+// CHECKSTYLE:OFF
+package org.fuin.srcgen4javassist.factory;
+
+import java.util.List;
+
+import org.fuin.srcgen4javassist.ByteCodeGenerator;
+import org.fuin.srcgen4javassist.SgClass;
+import org.fuin.srcgen4javassist.SgClassPool;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+public class DelegatingImplementationFactoryListenerTest {
+
+    public interface Calculator {
+
+        public int add(int a, int b);
+
+        public String concat(String a, long b);
+
+        public void reset();
+
+    }
+
+    public static final class SimpleCalculator implements Calculator {
+
+        private int resets;
+
+        public int add(final int a, final int b) {
+            return a + b;
+        }
+
+        public String concat(final String a, final long b) {
+            return a + b;
+        }
+
+        public void reset() {
+            resets++;
+        }
+
+        public int getResets() {
+            return resets;
+        }
+
+    }
+
+    @Test
+    public void testCreateBody() {
+
+        final SgClassPool pool = new SgClassPool();
+        final DelegatingImplementationFactoryListener listener = new DelegatingImplementationFactoryListener(
+                SgClass.create(pool, Calculator.class), "calc");
+        final ImplementationFactory factory = new ImplementationFactory(pool, false, 0, true);
+        final SgClass clasz = factory.create("org.fuin.onthefly", "DelegatingTest1", listener,
+                Calculator.class);
+        Assert.assertNotNull(clasz.findFieldByName("calc"));
+        Assert.assertEquals(clasz.getConstructors().size(), 1);
+        final List<String> body = clasz.findMethodByName("add").getBody();
+        Assert.assertEquals(body.size(), 1);
+        Assert.assertEquals(body.get(0), "return this.calc.add(arg0, arg1);");
+        Assert.assertEquals(clasz.findMethodByName("reset").getBody().get(0),
+                "this.calc.reset();");
+
+    }
+
+    @Test
+    public void testCall() throws Exception {
+
+        final SgClassPool pool = new SgClassPool();
+        final ImplementationFactory factory = new ImplementationFactory(pool, false, 10);
+        final DelegatingImplementationFactoryListener listener = new DelegatingImplementationFactoryListener(
+                SgClass.create(pool, Calculator.class));
+        final Class<?> implClass = factory.createClass(
+                ByteCodeGenerator.createWithCurrentThreadContextClassLoader(),
+                "org.fuin.onthefly", "DelegatingTest2", null, null, listener, Calculator.class);
+        final SimpleCalculator delegate = new SimpleCalculator();
+        final Calculator calc = (Calculator) implClass.getConstructor(Calculator.class)
+                .newInstance(delegate);
+        Assert.assertEquals(calc.add(1, 2), 3);
+        Assert.assertEquals(calc.concat("a", 5L), "a5");
+        calc.reset();
+        Assert.assertEquals(delegate.getResets(), 1);
+
+        // Equal listener shares the cached class
+        Assert.assertSame(factory.createClass(ByteCodeGenerator
+                .createWithCurrentThreadContextClassLoader(), "org.fuin.onthefly",
+                "DelegatingTest2", null, null, new DelegatingImplementationFactoryListener(
+                        SgClass.create(pool, Calculator.class)), Calculator.class), implClass);
+
+    }
+
+}
+// CHECKSTYLE:ON
@@ -0,0 +1,112 @@
+// CHECKSTYLE:OFF
+package org.fuin.srcgen4javassist.factory;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+
+import org.fuin.srcgen4javassist.ByteCodeGenerator;
+import org.fuin.srcgen4javassist.SgClass;
+import org.fuin.srcgen4javassist.SgClassPool;
+
+/**
+ * Compares the generated delegation and invoker dispatch and {@link SgProxy}
+ * with a <code>java.lang.reflect.Proxy</code>. Not a test - Run the main
+ * method manually.
+ */
+public class DispatchBenchmark {
+
+    public interface Adder {
+
+        public long add(long a, int b);
+
+    }
+
+    static final class SimpleAdder implements Adder {
+
+        public long add(final long a, final int b) {
+            return a + b;
+        }
+
+    }
+
+    static final class AdderInvoker implements Invoker {
+
+        final Adder adder = new SimpleAdder();
+
+        public void invoke(final int methodIndex, final InvocationFrame frame) {
+            frame.setReturnLong(adder.add(frame.getLong(0), frame.getInt(1)));
+        }
+
+    }
+
+    static final class AdderHandler implements InvocationHandler {
+
+        final Adder adder = new SimpleAdder();
+
+        public Object invoke(final Object proxy, final Method method, final Object[] args)
+                throws Throwable {
+            return method.invoke(adder, args);
+        }
+
+    }
+
+    private static long run(final String name, final Adder adder, final int count) {
+        long sum = 0;
+        final long start = System.nanoTime();
+        for (int i = 0; i < count; i++) {
+            sum = adder.add(sum, i);
+        }
+        final long nanos = System.nanoTime() - start;
+        System.out.println(name + ": " + (nanos / count) + "." + ((nanos * 10 / count) % 10)
+                + " ns/call");
+        return sum;
+    }
+
+    public static void main(final String[] args) throws Exception {
+
+        final int count = 20000000;
+        final SgClassPool pool = new SgClassPool();
+        final ImplementationFactory factory = new ImplementationFactory(pool, false, 0, true);
+        final ByteCodeGenerator generator = ByteCodeGenerator
+                .createWithCurrentThreadContextClassLoader();
+
+        final Class<?> delegatingClass = factory.createClass(generator, "org.fuin.onthefly",
+                "BenchmarkDelegating", null, null, new DelegatingImplementationFactoryListener(
+                        SgClass.create(pool, Adder.class)), Adder.class);
+        final Adder delegating = (Adder) delegatingClass.getConstructor(Adder.class).newInstance(
+                new SimpleAdder());
+
+        final Class<?> invokerClass = factory.createClass(generator, "org.fuin.onthefly",
+                "BenchmarkInvoker", null, null, new InvokerImplementationFactoryListener(pool),
+                Adder.class);
+        final Adder invoker = (Adder) invokerClass.getConstructor(Invoker.class).newInstance(
+                new AdderInvoker());
+
+        final Adder proxy = (Adder) Proxy.newProxyInstance(Adder.class.getClassLoader(),
+                new Class<?>[] { Adder.class }, new AdderHandler());
+
+        final Adder sgProxy = (Adder) SgProxy.newProxyInstance(Adder.class.getClassLoader(),
+                new Class<?>[] { Adder.class }, new AdderHandler());
+
+        final Adder sgProxyInvoker = (Adder) SgProxy.newProxyInstance(Adder.class
+                .getClassLoader(), new Class<?>[] { Adder.class }, new AdderInvoker());
+
+        final Adder direct = new SimpleAdder();
+
+        long check = 0;
+        for (int round = 0; round < 3; round++) {
+            System.out.println("Round " + (round + 1));
+            check += run("  direct    ", direct, count);
+            check += run("  delegating", delegating, count);
+            check += run("  invoker   ", invoker, count);
+            check += run("  proxy     ", proxy, count);
+            check += run("  sgProxy   ", sgProxy, count);
+            check += run("  sgProxy(i)", sgProxyInvoker, count);
+        }
+        System.out.println("(" + check + ")");
+
+    }
+
+}
+// CHECKSTYLE:ON
@@ -0,0 +1,266 @@
+// CHECKSTYLE:OFF
+package org.fuin.srcgen4javassist.factory;
+
+import java.io.Serializable;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+
+import javassist.ClassPool;
+import javassist.LoaderClassPath;
+
+import org.fuin.srcgen4javassist.ByteCodeGenerator;
+import org.fuin.srcgen4javassist.SgClass;
+import org.fuin.srcgen4javassist.SgClassPool;
+import org.fuin.srcgen4javassist.SgMethod;
+import org.fuin.srcgen4javassist.SgMethodDescriptor;
+import org.fuin.srcgen4javassist.XMethodAnnotation;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+public class ImplementationFactoryTest {
+
+    static class Listener implements ImplementationFactoryListener {
+
+        public void afterClassCreated(final SgClass clasz) {
+            // Nothing to do
+        }
+
+        public List<String> createBody(final SgMethod method, final Class<?>... intf) {
+            return Collections.singletonList("return \"" + method.getName() + "\";");
+        }
+
+    }
+
+    static final class KeyedListener extends Listener implements
+            KeyedImplementationFactoryListener {
+
+        public Object getCacheKey() {
+            return "name";
+        }
+
+    }
+
+    static final class LoaderClassPool extends ClassPool {
+
+        private final ClassLoader loader;
+
+        LoaderClassPool(final ClassLoader loader) {
+            super(true);
+            this.loader = loader;
+            appendClassPath(new LoaderClassPath(loader));
+        }
+
+        public ClassLoader getClassLoader() {
+            return loader;
+        }
+
+    }
+
+    private static ByteCodeGenerator createGenerator() {
+        final ClassLoader loader = new URLClassLoader(new URL[0], ImplementationFactoryTest.class
+                .getClassLoader());
+        return new ByteCodeGenerator(new LoaderClassPool(loader), loader);
+    }
+
+    public interface Annotated {
+
+        @XMethodAnnotation
+        public String annotated(int a) throws IllegalStateException;
+
+    }
+
+    public interface UtilDate {
+
+        public String foo(java.util.Date date);
+
+    }
+
+    public interface SqlDate {
+
+        public String foo(java.sql.Date date);
+
+    }
+
+    @Test
+    public void testSameSimpleTypeNames() {
+
+        final ImplementationFactory factory = new ImplementationFactory(new SgClassPool());
+        final SgClass clasz = factory.create("org.fuin.onthefly", "TestImpl7", new Listener(),
+                UtilDate.class, SqlDate.class);
+        final List<SgMethod> methods = clasz.findMethodsByName("foo");
+        Assert.assertEquals(methods.size(), 2);
+        Assert.assertNotNull(clasz.findMethod(SgMethodDescriptor.create("foo",
+                new Class<?>[] { java.util.Date.class })));
+        Assert.assertNotNull(clasz.findMethod(SgMethodDescriptor.create("foo",
+                new Class<?>[] { java.sql.Date.class })));
+
+    }
+
+    public interface Ordered {
+
+        @XMethodAnnotation
+        @Deprecated
+        public String b(int a, String b);
+
+        public String a(int a);
+
+        public String a(String a);
+
+    }
+
+    private static byte[] createByteCode(final Class<?>... intf) {
+        final ImplementationFactory factory = new ImplementationFactory(new SgClassPool(), false,
+                0, true);
+        final SgClass clasz = factory.create("org.fuin.onthefly", "TestImpl8", new Listener(),
+                intf);
+        return ByteCodeGenerator.createWithCurrentThreadContextClassLoader().toByteCode(clasz);
+    }
+
+    @Test
+    public void testDeterministic() {
+
+        final ImplementationFactory factory = new ImplementationFactory(new SgClassPool(), false,
+                0, true);
+        Assert.assertTrue(factory.isDeterministic());
+        final SgClass clasz = factory.create("org.fuin.onthefly", "TestImpl8", new Listener(),
+                UtilDate.class, Ordered.class);
+        Assert.assertEquals(clasz.getInterfaces().get(0).getSimpleName(), "Ordered");
+        final List<SgMethod> methods = clasz.getMethods();
+        Assert.assertEquals(methods.size(), 4);
+        Assert.assertEquals(methods.get(0).getDescriptor().getKey(), "a(int)");
+        Assert.assertEquals(methods.get(1).getDescriptor().getKey(), "a(java.lang.String)");
+        Assert.assertEquals(methods.get(2).getDescriptor().getKey(), "b(int,java.lang.String)");
+        Assert.assertEquals(methods.get(3).getDescriptor().getKey(), "foo(java.util.Date)");
+        Assert.assertEquals(methods.get(2).getAnnotations().get(0).getSimpleName(), "Deprecated");
+
+        // Order of the interfaces doesn't matter
+        final byte[] first = createByteCode(UtilDate.class, Ordered.class);
+        final byte[] second = createByteCode(Ordered.class, UtilDate.class);
+        Assert.assertTrue(first.length > 0);
+        Assert.assertTrue(Arrays.equals(first, second));
+
+    }
+
+    @Test
+    public void testMethodDataReused() {
+
+        final ImplementationFactory factory = new ImplementationFactory(new SgClassPool());
+        final Listener listener = new Listener();
+        final SgClass first = factory.create("org.fuin.onthefly", "TestImpl6", listener,
+                Annotated.class);
+        final SgClass second = factory.create("org.fuin.onthefly", "TestImpl6", listener,
+                Annotated.class);
+        Assert.assertEquals(second.toString(true), first.toString(true));
+        final SgMethod method1 = first.findMethodByName("annotated");
+        final SgMethod method2 = second.findMethodByName("annotated");
+        Assert.assertEquals(method1.getAnnotations().size(), 1);
+        Assert.assertEquals(method1.getExceptions().size(), 1);
+        Assert.assertSame(method2.getReturnType(), method1.getReturnType());
+        // Annotations are not shared as they can be changed
+        Assert.assertNotSame(method2.getAnnotations().get(0), method1.getAnnotations().get(0));
+
+    }
+
+    @Test
+    public void testWithoutCache() {
+
+        final ImplementationFactory factory = new ImplementationFactory(new SgClassPool());
+        final Listener listener = new Listener();
+        final SgClass first = factory.create("org.fuin.onthefly", "TestImpl1", listener,
+                Callable.class);
+        final SgClass second = factory.create("org.fuin.onthefly", "TestImpl1", listener,
+                Callable.class);
+        Assert.assertNotSame(first, second);
+        Assert.assertFalse(first.isFrozen());
+        Assert.assertFalse(factory.isCacheEnabled());
+        Assert.assertEquals(factory.getCacheHits(), 0);
+
+    }
+
+    @Test
+    public void testCache() {
+
+        final ImplementationFactory factory = new ImplementationFactory(new SgClassPool(), false,
+                2);
+        final Listener listener = new Listener();
+        final SgClass first = factory.create("org.fuin.onthefly", "TestImpl2", listener,
+                Callable.class);
+        Assert.assertTrue(first.isFrozen());
+        Assert.assertSame(factory.create("org.fuin.onthefly", "TestImpl2", listener,
+                Callable.class), first);
+        Assert.assertEquals(factory.getCacheHits(), 1);
+        Assert.assertEquals(factory.getCacheMisses(), 1);
+
+        // Different listener instance, name or interfaces
+        Assert.assertNotSame(factory.create("org.fuin.onthefly", "TestImpl2", new Listener(),
+                Callable.class), first);
+        Assert.assertNotSame(factory.create("org.fuin.onthefly", "TestImpl3", listener,
+                Callable.class), first);
+        Assert.assertNotSame(factory.create("org.fuin.onthefly", "TestImpl2", listener,
+                Callable.class, Serializable.class), first);
+        Assert.assertEquals(factory.getCacheMisses(), 4);
+        Assert.assertEquals(factory.getCacheSize(), 2);
+        Assert.assertEquals(factory.getCacheEvictions(), 2);
+
+        factory.clearCache();
+        Assert.assertEquals(factory.getCacheSize(), 0);
+
+    }
+
+    @Test
+    public void testCacheWithTwoGenerators() {
+
+        final ImplementationFactory factory = new ImplementationFactory(new SgClassPool(), false,
+                2);
+        final Listener listener = new Listener();
+        final ByteCodeGenerator gen1 = createGenerator();
+        final ByteCodeGenerator gen2 = createGenerator();
+        final Class<?> class1 = factory.createClass(gen1, "org.fuin.onthefly", "TestImpl9", null,
+                null, listener, Callable.class);
+        final Class<?> class2 = factory.createClass(gen2, "org.fuin.onthefly", "TestImpl9", null,
+                null, listener, Callable.class);
+        Assert.assertNotSame(class1, class2);
+
+        // Alternating doesn't create the classes again
+        Assert.assertSame(factory.createClass(gen1, "org.fuin.onthefly", "TestImpl9", null, null,
+                listener, Callable.class), class1);
+        Assert.assertSame(factory.createClass(gen2, "org.fuin.onthefly", "TestImpl9", null, null,
+                listener, Callable.class), class2);
+        Assert.assertEquals(factory.getCacheMisses(), 1);
+
+    }
+
+    @Test
+    public void testKeyedListener() {
+
+        final ImplementationFactory factory = new ImplementationFactory(new SgClassPool(), false,
+                10);
+        final SgClass first = factory.create("org.fuin.onthefly", "TestImpl4",
+                new KeyedListener(), Callable.class);
+        Assert.assertSame(factory.create("org.fuin.onthefly", "TestImpl4", new KeyedListener(),
+                Callable.class), first);
+
+    }
+
+    @Test
+    public void testCreateClass() throws Exception {
+
+        final ImplementationFactory factory = new ImplementationFactory(new SgClassPool(), false,
+                10);
+        final ByteCodeGenerator generator = ByteCodeGenerator
+                .createWithCurrentThreadContextClassLoader();
+        final Class<?> clasz = factory.createClass(generator, "org.fuin.onthefly", "TestImpl5",
+                null, null, new KeyedListener(), Callable.class);
+        Assert.assertSame(factory.createClass(generator, "org.fuin.onthefly", "TestImpl5", null,
+                null, new KeyedListener(), Callable.class), clasz);
+        final Callable<?> callable = (Callable<?>) clasz.newInstance();
+        Assert.assertEquals(callable.call(), "call");
+
+    }
+
+}
+// CHECKSTYLE:ON
@@ -0,0 +1,160 @@
+// CHECKSTYLE:OFF
+package org.fuin.srcgen4javassist.factory;
+
+import java.util.List;
+
+import org.fuin.srcgen4javassist.ByteCodeGenerator;
+import org.fuin.srcgen4javassist.SgClass;
+import org.fuin.srcgen4javassist.SgClassPool;
+import org.fuin.srcgen4javassist.SgMethodDescriptor;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+public class InvokerImplementationFactoryListenerTest {
+
+    public interface AllTypes {
+
+        public boolean not(boolean a);
+
+        public byte incByte(byte a);
+
+        public char nextChar(char a);
+
+        public short incShort(short a);
+
+        public int add(int a, int b);
+
+        public long mul(long a, int b);
+
+        public float half(float a);
+
+        public double twice(double a);
+
+        public String concat(String a, double b, Object c);
+
+        public void run();
+
+        public int length(int[] a, byte[] b, String[] c);
+
+    }
+
+    static final class AllTypesInvoker implements Invoker {
+
+        private final List<SgMethodDescriptor> descriptors;
+
+        int runs;
+
+        AllTypesInvoker(final List<SgMethodDescriptor> descriptors) {
+            this.descriptors = descriptors;
+        }
+
+        public void invoke(final int methodIndex, final InvocationFrame frame) {
+            final String name = descriptors.get(methodIndex).getName();
+            if (name.equals("not")) {
+                frame.setReturnBoolean(!frame.getBoolean(0));
+            } else if (name.equals("incByte")) {
+                frame.setReturnLong(frame.getByte(0) + 1);
+            } else if (name.equals("nextChar")) {
+                frame.setReturnLong(frame.getChar(0) + 1);
+            } else if (name.equals("incShort")) {
+                frame.setReturnLong(frame.getShort(0) + 1);
+            } else if (name.equals("add")) {
+                frame.setReturnLong(frame.getInt(0) + frame.getInt(1));
+            } else if (name.equals("mul")) {
+                frame.setReturnLong(frame.getLong(0) * frame.getInt(1));
+            } else if (name.equals("half")) {
+                frame.setReturnFloat(frame.getFloat(0) / 2);
+            } else if (name.equals("twice")) {
+                frame.setReturnDouble(frame.getDouble(0) * 2);
+            } else if (name.equals("concat")) {
+                frame.setReturnObject(frame.getObject(0) + "," + frame.getDouble(1) + ","
+                        + frame.getObject(2));
+            } else if (name.equals("length")) {
+                frame.setReturnLong(((int[]) frame.getObject(0)).length
+                        + ((byte[]) frame.getObject(1)).length
+                        + ((String[]) frame.getObject(2)).length);
+            } else if (name.equals("run")) {
+                runs++;
+            } else {
+                throw new IllegalStateException("Unknown: " + name);
+            }
+        }
+
+    }
+
+    @Test
+    public void testIndexes() {
+
+        final SgClassPool pool = new SgClassPool();
+        final InvokerImplementationFactoryListener listener = new InvokerImplementationFactoryListener(
+                pool);
+        final ImplementationFactory factory = new ImplementationFactory(pool, false, 0, true);
+        final SgClass first = factory.create("org.fuin.onthefly", "InvokerTest1", listener,
+                AllTypes.class);
+        final List<SgMethodDescriptor> descriptors = listener.getDescriptors();
+        Assert.assertEquals(descriptors.size(), 11);
+        for (int i = 0; i < descriptors.size(); i++) {
+            Assert.assertEquals(listener.getIndex(descriptors.get(i)), i);
+        }
+        Assert.assertEquals(first.findMethodByName("run").getBody().get(0), InvocationFrame.class
+                .getName()
+                + " frame = new " + InvocationFrame.class.getName() + "(0);");
+
+        // Same indexes for another implementation
+        factory.create("org.fuin.onthefly", "InvokerTest2", listener, AllTypes.class);
+        Assert.assertEquals(listener.getDescriptors(), descriptors);
+        Assert.assertEquals(listener.getIndex(SgMethodDescriptor.create("unknown",
+                new Class<?>[0])), -1);
+
+    }
+
+    @Test
+    public void testCall() throws Exception {
+
+        final SgClassPool pool = new SgClassPool();
+        final InvokerImplementationFactoryListener listener = new InvokerImplementationFactoryListener(
+                pool);
+        final ImplementationFactory factory = new ImplementationFactory(pool, false, 0, true);
+        final Class<?> implClass = factory.createClass(
+                ByteCodeGenerator.createWithCurrentThreadContextClassLoader(),
+                "org.fuin.onthefly", "InvokerTest3", null, null, listener, AllTypes.class);
+        final AllTypesInvoker invoker = new AllTypesInvoker(listener.getDescriptors());
+        final AllTypes obj = (AllTypes) implClass.getConstructor(Invoker.class).newInstance(
+                invoker);
+        Assert.assertFalse(obj.not(true));
+        Assert.assertEquals(obj.incByte((byte) 1), (byte) 2);
+        Assert.assertEquals(obj.nextChar('a'), 'b');
+        Assert.assertEquals(obj.incShort((short) -3), (short) -2);
+        Assert.assertEquals(obj.add(-1, 2), 1);
+        Assert.assertEquals(obj.mul(Long.MAX_VALUE / 4, 2), Long.MAX_VALUE / 4 * 2);
+        Assert.assertEquals(obj.half(3.0f), 1.5f);
+        Assert.assertEquals(obj.twice(-1.25), -2.5);
+        Assert.assertEquals(obj.concat("a", 0.5, null), "a,0.5,null");
+        Assert.assertEquals(obj.length(new int[1], new byte[2], new String[3]), 6);
+        obj.run();
+        Assert.assertEquals(invoker.runs, 1);
+
+    }
+
+    @Test
+    public void testFrame() {
+
+        final InvocationFrame frame = new InvocationFrame(2);
+        Assert.assertEquals(frame.size(), 2);
+        Assert.assertEquals(frame.getInt(1), 0);
+        Assert.assertNull(frame.getObject(1));
+        frame.setDouble(0, Double.NaN);
+        frame.setObject(1, "x");
+        Assert.assertTrue(Double.isNaN(frame.getDouble(0)));
+        Assert.assertEquals(frame.getObject(1), "x");
+        try {
+            new InvocationFrame(1).getInt(1);
+            Assert.fail();
+        } catch (final IndexOutOfBoundsException ex) {
+            // OK
+        }
+
+    }
+
+}
+// CHECKSTYLE:ON
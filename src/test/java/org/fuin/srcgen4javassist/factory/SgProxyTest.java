@@ -0,0 +1,207 @@
+// CHECKSTYLE:OFF
+package org.fuin.srcgen4javassist.factory;
+
+import java.io.IOException;
+import java.lang.ref.WeakReference;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.UndeclaredThrowableException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+public class SgProxyTest {
+
+    public interface Service {
+
+        public int add(int a, int b);
+
+        public String echo(String text);
+
+        public char[] chars(String text);
+
+        public void fail(Throwable t) throws IOException;
+
+        public int write(byte[] data, int[] offsets, String[] names);
+
+    }
+
+    public interface Other {
+
+        public String echo(String text);
+
+        public double half(double d);
+
+    }
+
+    static final class Handler implements InvocationHandler {
+
+        final List<Method> calls = new ArrayList<Method>();
+
+        public Object invoke(final Object proxy, final Method method, final Object[] args)
+                throws Throwable {
+            calls.add(method);
+            final String name = method.getName();
+            if (name.equals("add")) {
+                return Integer.valueOf(((Integer) args[0]).intValue()
+                        + ((Integer) args[1]).intValue());
+            }
+            if (name.equals("echo")) {
+                return args[0];
+            }
+            if (name.equals("chars")) {
+                return ((String) args[0]).toCharArray();
+            }
+            if (name.equals("half")) {
+                return Double.valueOf(((Double) args[0]).doubleValue() / 2);
+            }
+            if (name.equals("write")) {
+                return Integer.valueOf(((byte[]) args[0]).length + ((int[]) args[1]).length
+                        + ((String[]) args[2]).length);
+            }
+            if (name.equals("fail")) {
+                throw (Throwable) args[0];
+            }
+            if (name.equals("hashCode")) {
+                return Integer.valueOf(42);
+            }
+            if (name.equals("equals")) {
+                return Boolean.valueOf(proxy == args[0]);
+            }
+            if (name.equals("toString")) {
+                return "proxy";
+            }
+            throw new IllegalStateException("Unknown: " + method);
+        }
+
+    }
+
+    static final class AddInvoker implements Invoker {
+
+        public void invoke(final int methodIndex, final InvocationFrame frame) {
+            frame.setReturnLong(methodIndex * 1000 + frame.getInt(0) + frame.getInt(1));
+        }
+
+    }
+
+    @Test
+    public void testInvocationHandler() throws Exception {
+
+        final Handler handler = new Handler();
+        final Service service = (Service) SgProxy.newProxyInstance(getClass().getClassLoader(),
+                new Class<?>[] { Service.class, Other.class }, handler);
+        Assert.assertEquals(service.add(1, 2), 3);
+        Assert.assertEquals(service.echo("a"), "a");
+        Assert.assertEquals(new String(service.chars("ab")), "ab");
+        Assert.assertEquals(((Other) service).half(3), 1.5);
+        Assert.assertEquals(service.write(new byte[1], new int[2], new String[3]), 6);
+        Assert.assertEquals(service.hashCode(), 42);
+        Assert.assertTrue(service.equals(service));
+        Assert.assertEquals(service.toString(), "proxy");
+
+        // Same methods as java.lang.reflect.Proxy passes
+        Assert.assertEquals(handler.calls.get(0), Service.class.getMethod("add", int.class,
+                int.class));
+        Assert.assertEquals(handler.calls.get(1), Service.class.getMethod("echo", String.class));
+        Assert.assertEquals(handler.calls.get(5), Object.class.getMethod("hashCode"));
+
+        Assert.assertSame(SgProxy.getInvocationHandler(service), handler);
+        Assert.assertTrue(SgProxy.isProxyClass(service.getClass()));
+        Assert.assertFalse(SgProxy.isProxyClass(Handler.class));
+        Assert.assertSame(SgProxy.getProxyClass(getClass().getClassLoader(), Service.class,
+                Other.class), service.getClass());
+
+    }
+
+    @Test
+    public void testExceptions() {
+
+        final Service service = (Service) SgProxy.newProxyInstance(getClass().getClassLoader(),
+                new Class<?>[] { Service.class }, new Handler());
+        final Throwable[] thrown = new Throwable[] { new IOException(),
+                new IllegalStateException(), new AssertionError() };
+        for (int i = 0; i < thrown.length; i++) {
+            try {
+                service.fail(thrown[i]);
+                Assert.fail();
+            } catch (final Throwable t) {
+                Assert.assertSame(t, thrown[i]);
+            }
+        }
+        final Exception undeclared = new Exception();
+        try {
+            service.fail(undeclared);
+            Assert.fail();
+        } catch (final UndeclaredThrowableException ex) {
+            Assert.assertSame(ex.getCause(), undeclared);
+        } catch (final IOException ex) {
+            Assert.fail();
+        }
+
+    }
+
+    @Test
+    public void testInvoker() throws Exception {
+
+        final Service service = (Service) SgProxy.newProxyInstance(getClass().getClassLoader(),
+                new Class<?>[] { Service.class }, new AddInvoker());
+        final Method[] methods = SgProxy.getMethods(service.getClass());
+        int index = -1;
+        for (int i = 0; i < methods.length; i++) {
+            if (methods[i].getName().equals("add")) {
+                index = i;
+            }
+        }
+        Assert.assertEquals(methods.length, 8);
+        Assert.assertEquals(service.add(1, 2), index * 1000 + 3);
+        try {
+            SgProxy.getInvocationHandler(service);
+            Assert.fail();
+        } catch (final IllegalArgumentException ex) {
+            // OK
+        }
+
+    }
+
+    @Test
+    public void testClassLoaderIsNotRetained() throws Exception {
+
+        ClassLoader loader = new URLClassLoader(new URL[0], getClass().getClassLoader());
+        Object proxy = SgProxy.newProxyInstance(loader, new Class<?>[] { Service.class },
+                new Handler());
+        Assert.assertEquals(((Service) proxy).echo("x"), "x");
+        Assert.assertSame(SgProxy.getProxyClass(loader, Service.class), proxy.getClass());
+
+        final WeakReference<ClassLoader> ref = new WeakReference<ClassLoader>(loader);
+        loader = null;
+        proxy = null;
+        for (int i = 0; (i < 50) && (ref.get() != null); i++) {
+            System.gc();
+            Thread.sleep(10);
+        }
+        Assert.assertNull(ref.get());
+
+    }
+
+    @Test
+    public void testIllegalInterfaces() {
+
+        final Class<?>[][] illegal = new Class<?>[][] { { String.class },
+                { Service.class, Service.class }, { null } };
+        for (int i = 0; i < illegal.length; i++) {
+            try {
+                SgProxy.getProxyClass(null, illegal[i]);
+                Assert.fail();
+            } catch (final IllegalArgumentException ex) {
+                // OK
+            }
+        }
+
+    }
+
+}
+// CHECKSTYLE:ON